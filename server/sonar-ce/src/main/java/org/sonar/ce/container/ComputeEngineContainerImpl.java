@@ -139,6 +139,7 @@ import org.sonar.server.startup.LogServerId;
 import org.sonar.server.test.index.TestIndexer;
 import org.sonar.server.user.DefaultUserFinder;
 import org.sonar.server.user.DeprecatedUserFinder;
+import org.sonar.server.user.UserAuthorizationCache;
 import org.sonar.server.user.index.UserIndex;
 import org.sonar.server.user.index.UserIndexer;
 import org.sonar.server.util.OkHttpClientProvider;
@@ -325,6 +326,7 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
       DefaultUserFinder.class,
       UserIndexer.class,
       UserIndex.class,
+      UserAuthorizationCache.class, // used by PermissionTemplateService and PermissionUpdater
 
       // permissions
       DefaultTemplatesResolverImpl.class,
@@ -37,6 +37,8 @@ import org.sonar.db.property.PropertyDto;
 import org.sonar.process.ProcessId;
 import org.sonar.process.ProcessProperties;
 import org.sonar.process.Props;
+import org.sonar.server.permission.PermissionTemplateService;
+import org.sonar.server.permission.PermissionUpdater;
 
 import static java.lang.String.valueOf;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -88,11 +90,11 @@ public class ComputeEngineContainerImplTest {
     assertThat(picoContainer.getComponentAdapters())
       .hasSize(
         CONTAINER_ITSELF
-          + 75 // level 4
+          + 76 // level 4
           + 4 // content of CeConfigurationModule
-          + 5 // content of CeQueueModule
+          + 6 // content of CeQueueModule
           + 3 // content of CeHttpModule
-          + 3 // content of CeTaskCommonsModule
+          + 4 // content of CeTaskCommonsModule
           + 4 // content of ProjectAnalysisTaskModule
           + 4 // content of CeTaskProcessorModule
     );
@@ -114,6 +116,8 @@ public class ComputeEngineContainerImplTest {
         + 1 // content of CePropertyDefinitions
     );
     assertThat(picoContainer.getParent().getParent().getParent().getParent()).isNull();
+    assertThat(picoContainer.getComponent(PermissionTemplateService.class)).isNotNull();
+    assertThat(picoContainer.getComponent(PermissionUpdater.class)).isNotNull();
     underTest.stop();
 
     assertThat(picoContainer.getLifecycleState().isStarted()).isFalse();
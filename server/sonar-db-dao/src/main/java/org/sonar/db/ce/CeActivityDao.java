@@ -20,6 +20,7 @@
 package org.sonar.db.ce;
 
 import com.google.common.base.Optional;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -28,6 +29,7 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 
+import static org.sonar.db.DatabaseUtils.executeLargeInputs;
 import static org.sonar.db.DatabaseUtils.executeLargeUpdates;
 
 public class CeActivityDao implements Dao {
@@ -77,6 +79,14 @@ public class CeActivityDao implements Dao {
     return mapper(dbSession).countLastByStatusAndComponentUuid(status, componentUuid);
   }
 
+  /**
+   * Average execution time of the successful tasks of the specified components. Components without any successful
+   * task are ignored.
+   */
+  public List<ComponentExecutionTimeDto> selectAverageExecutionTimeByComponentUuids(DbSession dbSession, Collection<String> componentUuids) {
+    return executeLargeInputs(componentUuids, mapper(dbSession)::selectAverageExecutionTimeByComponentUuids);
+  }
+
   private static CeActivityMapper mapper(DbSession dbSession) {
     return dbSession.getMapper(CeActivityMapper.class);
   }
@@ -21,9 +21,11 @@ package org.sonar.db.ce;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Strings;
+import com.google.protobuf.InvalidProtocolBufferException;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.db.DbSession;
+import org.sonar.db.protobuf.DbCe;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
@@ -68,6 +70,16 @@ public class CeActivityDto {
    * @see CeActivityDao#selectByUuid(DbSession, String)
    */
   private String errorStacktrace;
+  /**
+   * Statistics of the steps of the task, encoded with protobuf {@link DbCe.StepStatistics}. Can be null, for tasks
+   * which are not processed as a sequence of steps or which failed.
+   * <p>
+   * This property can be populated when inserting but <strong>is populated only when reading by a specific UUID.</strong>
+   * </p>
+   *
+   * @see CeActivityDao#selectByUuid(DbSession, String)
+   */
+  private byte[] stepStatistics;
   /**
    * Flag indicating whether the analysis of the current activity has a scanner context or not.
    * <p>
@@ -247,6 +259,28 @@ public class CeActivityDto {
     return this;
   }
 
+  @CheckForNull
+  public byte[] getStepStatistics() {
+    return stepStatistics;
+  }
+
+  public CeActivityDto setStepStatistics(@Nullable byte[] stepStatistics) {
+    this.stepStatistics = stepStatistics;
+    return this;
+  }
+
+  @CheckForNull
+  public DbCe.StepStatistics parseStepStatistics() {
+    if (stepStatistics == null) {
+      return null;
+    }
+    try {
+      return DbCe.StepStatistics.parseFrom(stepStatistics);
+    } catch (InvalidProtocolBufferException e) {
+      throw new IllegalStateException(format("Fail to read step statistics of task %s", uuid), e);
+    }
+  }
+
   public boolean isHasScannerContext() {
     return hasScannerContext;
   }
@@ -109,16 +109,30 @@ public class CeQueueDao implements Dao {
   }
 
   public Optional<CeQueueDto> peek(DbSession session) {
-    List<String> taskUuids = mapper(session).selectEligibleForPeek(ONE_ROW_LIMIT);
-    if (taskUuids.isEmpty()) {
+    List<CeQueueDto> eligibleTasks = mapper(session).selectEligibleForPeek(ONE_ROW_LIMIT);
+    if (eligibleTasks.isEmpty()) {
       return Optional.absent();
     }
 
-    String taskUuid = taskUuids.get(0);
-    return tryToPeek(session, taskUuid);
+    return peek(session, eligibleTasks.get(0).getUuid());
   }
 
-  private Optional<CeQueueDto> tryToPeek(DbSession session, String taskUuid) {
+  /**
+   * Pending tasks which can be peeked, ie. tasks which component has no task in progress, ordered by ascending
+   * date of creation: oldest to newest. Only the oldest pending task of each component is returned, so that
+   * the tasks of a component are processed one at a time, in order of submission.
+   */
+  public List<CeQueueDto> selectEligibleForPeek(DbSession session, int maxCount) {
+    return mapper(session).selectEligibleForPeek(new RowBounds(0, maxCount));
+  }
+
+  /**
+   * Sets the status of the specified task to {@link CeQueueDto.Status#IN_PROGRESS}.
+   *
+   * @return the task, or {@link Optional#absent()} if the task is not pending anymore (eg. when it has been peeked
+   *         by another worker)
+   */
+  public Optional<CeQueueDto> peek(DbSession session, String taskUuid) {
     int touchedRows = mapper(session).updateIfStatus(taskUuid, IN_PROGRESS, system2.now(), system2.now(), PENDING);
     if (touchedRows != 1) {
       return Optional.absent();
@@ -0,0 +1,48 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.ce;
+
+/**
+ * Average execution time of the successful tasks of a component.
+ *
+ * @see CeActivityDao#selectAverageExecutionTimeByComponentUuids(org.sonar.db.DbSession, java.util.Collection)
+ */
+public class ComponentExecutionTimeDto {
+  private String componentUuid;
+  private long averageExecutionTimeMs;
+
+  public String getComponentUuid() {
+    return componentUuid;
+  }
+
+  public ComponentExecutionTimeDto setComponentUuid(String componentUuid) {
+    this.componentUuid = componentUuid;
+    return this;
+  }
+
+  public long getAverageExecutionTimeMs() {
+    return averageExecutionTimeMs;
+  }
+
+  public ComponentExecutionTimeDto setAverageExecutionTimeMs(long averageExecutionTimeMs) {
+    this.averageExecutionTimeMs = averageExecutionTimeMs;
+    return this;
+  }
+}
@@ -22,6 +22,7 @@ package org.sonar.db.duplication;
 import java.util.Collection;
 import java.util.List;
 import javax.annotation.Nullable;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 
@@ -38,6 +39,21 @@ public class DuplicationDao implements Dao {
       partition -> session.getMapper(DuplicationMapper.class).selectCandidates(analysisUuid, language, partition));
   }
 
+  /**
+   * Number of rows of the table DUPLICATIONS_INDEX on enabled files of the specified language, whatever their analysis.
+   */
+  public int countHashes(DbSession session, String language) {
+    return session.getMapper(DuplicationMapper.class).countHashes(language);
+  }
+
+  /**
+   * Scrolls the hashes counted by {@link #countHashes(DbSession, String)}. They are a superset of the hashes which can be
+   * returned by {@link #selectCandidates(DbSession, String, String, Collection)} for this language.
+   */
+  public void selectHashes(DbSession session, String language, ResultHandler handler) {
+    session.getMapper(DuplicationMapper.class).selectHashes(language, handler);
+  }
+
   /**
    * Insert rows in the table DUPLICATIONS_INDEX.
    * Note that generated ids are not returned.
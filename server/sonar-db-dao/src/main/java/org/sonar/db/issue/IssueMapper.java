@@ -32,6 +32,8 @@ public interface IssueMapper {
 
   Set<String> selectComponentUuidsOfOpenIssuesForProjectUuid(String projectUuid);
 
+  List<String> selectProjectUuids();
+
   List<IssueDto> selectByKeys(List<String> keys);
 
   void insert(IssueDto issue);
@@ -106,6 +106,13 @@ public class FileSourceDao implements Dao {
     mapper(session).update(dto);
   }
 
+  /**
+   * Updates only the column ISSUES_INPUT_HASH, so that the date of update of the sources is not changed
+   */
+  public void updateIssuesInputHash(DbSession session, FileSourceDto dto) {
+    mapper(session).updateIssuesInputHash(dto);
+  }
+
   private static FileSourceMapper mapper(DbSession session) {
     return session.getMapper(FileSourceMapper.class);
   }
@@ -52,6 +52,8 @@ public class FileSourceDto {
   private String dataType;
   private String dataHash;
   private String revision;
+  private String inputHash;
+  private String issuesInputHash;
 
   public Long getId() {
     return id;
@@ -290,6 +292,32 @@ public class FileSourceDto {
     return this;
   }
 
+  /**
+   * Hash of the data the sources are computed from, when they were persisted by an incremental analysis.
+   */
+  @CheckForNull
+  public String getInputHash() {
+    return inputHash;
+  }
+
+  public FileSourceDto setInputHash(@Nullable String inputHash) {
+    this.inputHash = inputHash;
+    return this;
+  }
+
+  /**
+   * Hash of the data the issues of the file are computed from, when they were tracked by an incremental analysis.
+   */
+  @CheckForNull
+  public String getIssuesInputHash() {
+    return issuesInputHash;
+  }
+
+  public FileSourceDto setIssuesInputHash(@Nullable String issuesInputHash) {
+    this.issuesInputHash = issuesInputHash;
+    return this;
+  }
+
   public static class Type {
     public static final String SOURCE = "SOURCE";
     public static final String TEST = "TEST";
@@ -33,4 +33,6 @@ public interface FileSourceMapper {
   void insert(FileSourceDto dto);
 
   void update(FileSourceDto dto);
+
+  void updateIssuesInputHash(FileSourceDto dto);
 }
@@ -33,10 +33,13 @@ import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.stream.Collectors;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
+import org.sonar.db.protobuf.DbCe;
 
 import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.sonar.db.ce.CeActivityDto.Status.FAILED;
 import static org.sonar.db.ce.CeActivityDto.Status.SUCCESS;
 import static org.sonar.db.ce.CeTaskTypes.REPORT;
@@ -120,6 +123,33 @@ public class CeActivityDaoTest {
     assertThat(read.getErrorStacktrace()).isNull();
   }
 
+  @Test
+  public void test_insert_step_statistics() {
+    DbCe.StepStatistics stepStatistics = DbCe.StepStatistics.newBuilder()
+      .addStep(DbCe.Step.newBuilder()
+        .setDescription("Persist issues")
+        .setDurationMs(10L)
+        .setCpuTimeMs(8L)
+        .setAllocatedBytes(1_000L)
+        .addCounter(DbCe.Counter.newBuilder().setKey("inserts").setValue(3L)))
+      .build();
+    CeActivityDto dto = createActivityDto("TASK_1", REPORT, "PROJECT_1", SUCCESS)
+      .setStepStatistics(stepStatistics.toByteArray());
+    underTest.insert(db.getSession(), dto);
+
+    CeActivityDto read = underTest.selectByUuid(db.getSession(), "TASK_1").get();
+    assertThat(read.parseStepStatistics()).isEqualTo(stepStatistics);
+  }
+
+  @Test
+  public void test_insert_without_step_statistics() {
+    insert("TASK_1", REPORT, "PROJECT_1", SUCCESS);
+
+    CeActivityDto read = underTest.selectByUuid(db.getSession(), "TASK_1").get();
+    assertThat(read.getStepStatistics()).isNull();
+    assertThat(read.parseStepStatistics()).isNull();
+  }
+
   @Test
   public void insert_must_set_relevant_is_last_field() {
     // only a single task on PROJECT_1 -> is_last=true
@@ -180,6 +210,17 @@ public class CeActivityDaoTest {
     assertThat(dtos).extracting("uuid").containsExactly("TASK_2");
   }
 
+  @Test
+  public void selectByQuery_does_not_populate_stepStatistics_field() {
+    underTest.insert(db.getSession(), createActivityDto("TASK_1", REPORT, "PROJECT_1", SUCCESS).setStepStatistics(new byte[] {1, 2}));
+
+    List<CeActivityDto> dtos = underTest.selectByQuery(db.getSession(), new CeTaskQuery().setComponentUuid("PROJECT_1"), 0, 100);
+
+    assertThat(dtos)
+      .hasSize(1)
+      .extracting("stepStatistics").containsOnly((byte[]) null);
+  }
+
   @Test
   public void selectByQuery_does_not_populate_errorStacktrace_field() {
     insert("TASK_1", REPORT, "PROJECT_1", FAILED);
@@ -262,6 +303,23 @@ public class CeActivityDaoTest {
     underTest.insert(db.getSession(), dto);
   }
 
+  @Test
+  public void selectAverageExecutionTimeByComponentUuids() {
+    underTest.insert(db.getSession(), createActivityDto("TASK_1", REPORT, "PROJECT_1", SUCCESS).setExecutionTimeMs(100L));
+    underTest.insert(db.getSession(), createActivityDto("TASK_2", REPORT, "PROJECT_1", SUCCESS).setExecutionTimeMs(300L));
+    // failed tasks are ignored
+    underTest.insert(db.getSession(), createActivityDto("TASK_3", REPORT, "PROJECT_1", FAILED).setExecutionTimeMs(10_000L));
+    underTest.insert(db.getSession(), createActivityDto("TASK_4", REPORT, "PROJECT_2", SUCCESS).setExecutionTimeMs(50L));
+    underTest.insert(db.getSession(), createActivityDto("TASK_5", REPORT, "PROJECT_3", SUCCESS).setExecutionTimeMs(1_000L));
+
+    List<ComponentExecutionTimeDto> dtos = underTest.selectAverageExecutionTimeByComponentUuids(db.getSession(),
+      asList("PROJECT_1", "PROJECT_2", "PROJECT_4"));
+
+    assertThat(dtos)
+      .extracting(ComponentExecutionTimeDto::getComponentUuid, ComponentExecutionTimeDto::getAverageExecutionTimeMs)
+      .containsOnly(tuple("PROJECT_1", 200L), tuple("PROJECT_2", 50L));
+  }
+
   @Test
   public void selectOlderThan() {
     insertWithCreationDate("TASK_1", 1_450_000_000_000L);
@@ -36,6 +36,7 @@ import static com.google.common.collect.FluentIterable.from;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.sonar.db.ce.CeQueueDto.Status.IN_PROGRESS;
 import static org.sonar.db.ce.CeQueueDto.Status.PENDING;
 import static org.sonar.db.ce.CeQueueTesting.newCeQueueDto;
@@ -182,6 +183,55 @@ public class CeQueueDaoTest {
     assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_2);
   }
 
+  @Test
+  public void selectEligibleForPeek_returns_oldest_pending_tasks_of_components_without_task_in_progress() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, IN_PROGRESS);
+    system2.setNow(INIT_TIME + 1_000);
+    insert(TASK_UUID_2, COMPONENT_UUID_1, PENDING);
+    system2.setNow(INIT_TIME + 2_000);
+    insert(TASK_UUID_3, COMPONENT_UUID_2, PENDING);
+    system2.setNow(INIT_TIME + 3_000);
+    insert("TASK_4", "PROJECT_3", PENDING);
+
+    assertThat(underTest.selectEligibleForPeek(db.getSession(), 10))
+      .extracting(CeQueueDto::getUuid, CeQueueDto::getComponentUuid, CeQueueDto::getStatus)
+      .containsExactly(tuple(TASK_UUID_3, COMPONENT_UUID_2, PENDING), tuple("TASK_4", "PROJECT_3", PENDING));
+    assertThat(underTest.selectEligibleForPeek(db.getSession(), 1)).extracting(CeQueueDto::getUuid).containsExactly(TASK_UUID_3);
+    // selecting does not change the status of tasks
+    verifyCeQueueStatuses(new String[] {TASK_UUID_1, TASK_UUID_2, TASK_UUID_3, "TASK_4"}, new CeQueueDto.Status[] {IN_PROGRESS, PENDING, PENDING, PENDING});
+  }
+
+  @Test
+  public void selectEligibleForPeek_returns_only_oldest_pending_task_of_each_component() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    system2.setNow(INIT_TIME + 1_000);
+    insert(TASK_UUID_2, COMPONENT_UUID_2, PENDING);
+    insert(TASK_UUID_3, COMPONENT_UUID_1, PENDING);
+    system2.setNow(INIT_TIME + 2_000);
+    insert("TASK_4", COMPONENT_UUID_2, PENDING);
+
+    assertThat(underTest.selectEligibleForPeek(db.getSession(), 10))
+      .extracting(CeQueueDto::getUuid)
+      .containsExactly(TASK_UUID_1, TASK_UUID_2);
+  }
+
+  @Test
+  public void peek_by_uuid() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    system2.setNow(INIT_TIME + 3_000_000);
+    insert(TASK_UUID_2, COMPONENT_UUID_2, PENDING);
+
+    Optional<CeQueueDto> peek = underTest.peek(db.getSession(), TASK_UUID_2);
+    assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_2);
+    assertThat(peek.get().getStatus()).isEqualTo(IN_PROGRESS);
+    verifyCeQueueStatuses(TASK_UUID_1, PENDING, TASK_UUID_2, IN_PROGRESS);
+
+    // already in progress
+    assertThat(underTest.peek(db.getSession(), TASK_UUID_2).isPresent()).isFalse();
+    // does not exist
+    assertThat(underTest.peek(db.getSession(), "UNKNOWN").isPresent()).isFalse();
+  }
+
   @Test
   public void select_by_query() {
     // task status not in query
@@ -25,6 +25,7 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static java.util.Collections.singletonList;
@@ -61,6 +62,23 @@ public class DuplicationDaoTest {
     assertThat(blocks).hasSize(2);
   }
 
+  @Test
+  public void count_and_select_hashes_of_language() {
+    db.prepareDbUnit(getClass(), "select_candidates.xml");
+    dbSession.commit();
+
+    List<String> javaHashes = new ArrayList<>();
+    dao.selectHashes(dbSession, "java", context -> javaHashes.add((String) context.getResultObject()));
+    List<String> groovyHashes = new ArrayList<>();
+    dao.selectHashes(dbSession, "grvy", context -> groovyHashes.add((String) context.getResultObject()));
+
+    assertThat(dao.countHashes(dbSession, "java")).isEqualTo(6);
+    assertThat(javaHashes).containsOnly("aa", "bb").hasSize(6);
+    assertThat(dao.countHashes(dbSession, "grvy")).isEqualTo(1);
+    assertThat(groovyHashes).containsExactly("aa");
+    assertThat(dao.countHashes(dbSession, "js")).isEqualTo(0);
+  }
+
   @Test
   public void insert() {
     db.prepareDbUnit(getClass(), "insert.xml");
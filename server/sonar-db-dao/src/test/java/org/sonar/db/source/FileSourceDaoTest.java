@@ -179,6 +179,57 @@ public class FileSourceDaoTest {
       "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision");
   }
 
+  @Test
+  public void insert_and_update_input_hash() {
+    FileSourceDto dto = new FileSourceDto()
+      .setProjectUuid("PRJ_UUID")
+      .setFileUuid("FILE1_UUID")
+      .setBinaryData("data".getBytes())
+      .setDataHash("DATA_HASH")
+      .setSrcHash("FILE_HASH")
+      .setDataType(Type.SOURCE)
+      .setCreatedAt(1500000000000L)
+      .setUpdatedAt(1500000000000L)
+      .setInputHash("INPUT_HASH");
+    underTest.insert(session, dto);
+    session.commit();
+
+    FileSourceDto inserted = underTest.selectSourceByFileUuid(session, "FILE1_UUID");
+    assertThat(inserted.getInputHash()).isEqualTo("INPUT_HASH");
+
+    underTest.update(session, inserted.setInputHash(null).setUpdatedAt(1500000000001L));
+    session.commit();
+
+    assertThat(underTest.selectSourceByFileUuid(session, "FILE1_UUID").getInputHash()).isNull();
+  }
+
+  @Test
+  public void update_only_issues_input_hash() {
+    FileSourceDto dto = new FileSourceDto()
+      .setProjectUuid("PRJ_UUID")
+      .setFileUuid("FILE1_UUID")
+      .setBinaryData("data".getBytes())
+      .setDataHash("DATA_HASH")
+      .setSrcHash("FILE_HASH")
+      .setDataType(Type.SOURCE)
+      .setCreatedAt(1500000000000L)
+      .setUpdatedAt(1500000000000L)
+      .setIssuesInputHash("ISSUES_INPUT_HASH");
+    underTest.insert(session, dto);
+    session.commit();
+
+    FileSourceDto inserted = underTest.selectSourceByFileUuid(session, "FILE1_UUID");
+    assertThat(inserted.getIssuesInputHash()).isEqualTo("ISSUES_INPUT_HASH");
+
+    underTest.updateIssuesInputHash(session, new FileSourceDto().setId(inserted.getId()).setIssuesInputHash("OTHER_HASH"));
+    session.commit();
+
+    FileSourceDto updated = underTest.selectSourceByFileUuid(session, "FILE1_UUID");
+    assertThat(updated.getIssuesInputHash()).isEqualTo("OTHER_HASH");
+    assertThat(updated.getBinaryData()).isEqualTo("data".getBytes());
+    assertThat(updated.getUpdatedAt()).isEqualTo(1500000000000L);
+  }
+
   private static class ReaderToStringFunction implements Function<Reader, String> {
 
     String result = null;
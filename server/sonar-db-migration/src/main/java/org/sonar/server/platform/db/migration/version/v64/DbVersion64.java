@@ -28,6 +28,9 @@ public class DbVersion64 implements DbVersion {
   public void addSteps(MigrationStepRegistry registry) {
     registry
       .add(1600, "Add Projects.TAGS", AddTagsToProjects.class)
-      .add(1601, "Set PROJECTS.COPY_COMPONENT_UUID on local views", SetCopyComponentUuidOnLocalViews.class);
+      .add(1601, "Set PROJECTS.COPY_COMPONENT_UUID on local views", SetCopyComponentUuidOnLocalViews.class)
+      .add(1602, "Add FILE_SOURCES.INPUT_HASH", AddInputHashToFileSources.class)
+      .add(1603, "Add CE_ACTIVITY.STEP_STATISTICS", AddStepStatisticsToCeActivity.class)
+      .add(1604, "Add FILE_SOURCES.ISSUES_INPUT_HASH", AddIssuesInputHashToFileSources.class);
   }
 }
@@ -19,6 +19,9 @@
  */
 package org.sonar.ce.monitoring;
 
+import java.util.Map;
+import org.sonar.db.protobuf.DbCe;
+
 public interface CEQueueStatus {
 
   /**
@@ -61,6 +64,25 @@ public interface CEQueueStatus {
    */
   long addError(long processingTime);
 
+  /**
+   * Adds the statistics of the steps executed to process a batch report to the totals per step.
+   *
+   * @see #getStepTotals()
+   */
+  void addStepStatistics(DbCe.StepStatistics stepStatistics);
+
+  /**
+   * Adds the time a task waited in the queue before being peeked by a worker.
+   *
+   * @param waitTime duration of wait in ms
+   *
+   * @see #getMeanWaitTime()
+   * @see #getWaitTime95thPercentile()
+   *
+   * @throws IllegalArgumentException if waitTime is < 0
+   */
+  void addWaitTime(long waitTime);
+
   /**
    * Count of batch reports waiting for processing since startup, including reports received before instance startup.
    */
@@ -85,4 +107,19 @@ public interface CEQueueStatus {
    * Time spent processing batch reports since startup, in milliseconds.
    */
   long getProcessingTime();
+
+  /**
+   * Mean time, in milliseconds, tasks waited in the queue before being peeked since instance startup.
+   */
+  long getMeanWaitTime();
+
+  /**
+   * 95th percentile of the time, in milliseconds, the most recently peeked tasks waited in the queue.
+   */
+  long getWaitTime95thPercentile();
+
+  /**
+   * Totals of the statistics of the computation steps since instance startup, by step description.
+   */
+  Map<String, StepTotals> getStepTotals();
 }
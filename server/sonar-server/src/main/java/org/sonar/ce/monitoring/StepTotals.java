@@ -0,0 +1,79 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.monitoring;
+
+import javax.annotation.concurrent.Immutable;
+import org.sonar.db.protobuf.DbCe;
+
+/**
+ * Totals of the statistics of a computation step over all the executions of this step.
+ */
+@Immutable
+public final class StepTotals {
+
+  public static final StepTotals EMPTY = new StepTotals(0L, 0L, 0L, 0L);
+
+  private final long executionCount;
+  private final long durationMs;
+  private final long cpuTimeMs;
+  private final long allocatedBytes;
+
+  public StepTotals(long executionCount, long durationMs, long cpuTimeMs, long allocatedBytes) {
+    this.executionCount = executionCount;
+    this.durationMs = durationMs;
+    this.cpuTimeMs = cpuTimeMs;
+    this.allocatedBytes = allocatedBytes;
+  }
+
+  public long getExecutionCount() {
+    return executionCount;
+  }
+
+  public long getDurationMs() {
+    return durationMs;
+  }
+
+  /**
+   * Executions on JVMs which do not support measurement of CPU time count for 0.
+   */
+  public long getCpuTimeMs() {
+    return cpuTimeMs;
+  }
+
+  /**
+   * Executions on JVMs which do not support measurement of allocated memory count for 0.
+   */
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  public StepTotals add(DbCe.Step step) {
+    return new StepTotals(executionCount + 1, durationMs + step.getDurationMs(), cpuTimeMs + step.getCpuTimeMs(),
+      allocatedBytes + step.getAllocatedBytes());
+  }
+
+  @Override
+  public String toString() {
+    return "executions=" + executionCount +
+      ", durationMs=" + durationMs +
+      ", cpuTimeMs=" + cpuTimeMs +
+      ", allocatedBytes=" + allocatedBytes;
+  }
+}
@@ -21,6 +21,7 @@ package org.sonar.ce.queue;
 
 import java.util.Optional;
 import org.sonar.ce.taskprocessor.CeTaskProcessor;
+import org.sonar.db.protobuf.DbCe;
 
 /**
  * Represents the result of the processing of a {@link CeTask}.
@@ -33,4 +34,11 @@ public interface CeTaskResult {
    * The UUID of the analysis created, if any, for the Component in {@link CeTask}
    */
   Optional<String> getAnalysisUuid();
+
+  /**
+   * Statistics of the steps executed to process the {@link CeTask}, if any
+   */
+  default Optional<DbCe.StepStatistics> getStepStatistics() {
+    return Optional.empty();
+  }
 }
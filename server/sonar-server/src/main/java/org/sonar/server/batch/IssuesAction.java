@@ -21,6 +21,7 @@ package org.sonar.server.batch;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +36,7 @@ import org.sonar.scanner.protocol.input.ScannerInput;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.issue.index.IssueDoc;
 import org.sonar.server.issue.index.IssueIndex;
+import org.sonar.server.issue.index.IssueIndexDefinition;
 import org.sonar.server.user.UserSession;
 import org.sonarqube.ws.MediaTypes;
 
@@ -45,6 +47,7 @@ import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
 public class IssuesAction implements BatchWsAction {
 
   private static final String PARAM_KEY = "key";
+  private static final String PARAM_CHANGED_SINCE = "changedSince";
 
   private final DbClient dbClient;
   private final IssueIndex issueIndex;
@@ -72,6 +75,12 @@ public class IssuesAction implements BatchWsAction {
       .setRequired(true)
       .setDescription("Project, module or file key")
       .setExampleValue(KEY_PROJECT_EXAMPLE_001);
+
+    action
+      .createParam(PARAM_CHANGED_SINCE)
+      .setDescription("Timestamp in milliseconds. If set, only the issues updated since this date are returned, including closed issues.")
+      .setSince("6.4")
+      .setExampleValue("1490000000000");
   }
 
   @Override
@@ -84,9 +93,11 @@ public class IssuesAction implements BatchWsAction {
       userSession.checkComponentPermission(USER, component);
 
       Map<String, String> keysByUUid = keysByUUid(session, component);
+      Long changedSince = request.paramAsLong(PARAM_CHANGED_SINCE);
 
       ScannerInput.ServerIssue.Builder issueBuilder = ScannerInput.ServerIssue.newBuilder();
-      for (Iterator<IssueDoc> issueDocIterator = issueIndex.selectIssuesForBatch(component); issueDocIterator.hasNext();) {
+      Iterator<IssueDoc> issueDocIterator = issueIndex.selectIssuesForBatch(component, changedSince == null ? null : new Date(changedSince));
+      while (issueDocIterator.hasNext()) {
         handleIssue(issueDocIterator.next(), issueBuilder, keysByUUid, response.stream().output());
       }
     }
@@ -125,6 +136,10 @@ public class IssuesAction implements BatchWsAction {
       issueBuilder.setResolution(resolution);
     }
     issueBuilder.setCreationDate(issue.creationDate().getTime());
+    Date updatedAt = issue.getNullableFieldAsDate(IssueIndexDefinition.FIELD_ISSUE_TECHNICAL_UPDATED_AT);
+    if (updatedAt != null) {
+      issueBuilder.setUpdatedAt(updatedAt.getTime());
+    }
     try {
       issueBuilder.build().writeDelimitedTo(out);
     } catch (IOException e) {
@@ -38,6 +38,7 @@ import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDto;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.organization.OrganizationDto;
+import org.sonar.db.protobuf.DbCe;
 import org.sonarqube.ws.WsCe;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -133,6 +134,24 @@ public class TaskFormatter {
     setNullable(dto.getErrorStacktrace(), builder::setErrorStacktrace);
     setNullable(scannerContext, builder::setScannerContext);
     builder.setHasScannerContext(dto.isHasScannerContext());
+    DbCe.StepStatistics stepStatistics = dto.parseStepStatistics();
+    if (stepStatistics != null) {
+      stepStatistics.getStepList().forEach(step -> builder.addSteps(formatStep(step)));
+    }
+    return builder.build();
+  }
+
+  private static WsCe.TaskStep formatStep(DbCe.Step step) {
+    WsCe.TaskStep.Builder builder = WsCe.TaskStep.newBuilder()
+      .setDescription(step.getDescription())
+      .setDurationMs(step.getDurationMs());
+    if (step.hasCpuTimeMs()) {
+      builder.setCpuTimeMs(step.getCpuTimeMs());
+    }
+    if (step.hasAllocatedBytes()) {
+      builder.setAllocatedBytes(step.getAllocatedBytes());
+    }
+    step.getCounterList().forEach(counter -> builder.getMutableCounters().put(counter.getKey(), counter.getValue()));
     return builder.build();
   }
 
@@ -19,6 +19,8 @@
  */
 package org.sonar.server.computation.configuration;
 
+import java.util.List;
+
 public interface CeConfiguration {
 
   /**
@@ -26,6 +28,43 @@ public interface CeConfiguration {
    */
   int getWorkerCount();
 
+  /**
+   * The maximum number of threads used by a worker to execute the independent steps of a CeTask concurrently.
+   * Steps are executed sequentially when value is 1.
+   */
+  int getStepsConcurrency();
+
+  /**
+   * The maximum number of threads used by a worker to visit concurrently the component tree of a CeTask, when
+   * aggregating measures for example. The tree is visited sequentially when value is 1.
+   */
+  int getCrawlerConcurrency();
+
+  /**
+   * The maximum number of threads used by a worker to compute the line data of the files while their sources are
+   * persisted. Line data are computed by the thread persisting the sources when value is 1.
+   */
+  int getFileSourcesConcurrency();
+
+  /**
+   * Whether the data of the files which did not change since the previous analysis are reused instead of being
+   * computed again. Disabled by default.
+   */
+  boolean isIncrementalAnalysis();
+
+  /**
+   * The key of the policy which decides which pending task is peeked next by workers. Tasks are peeked by
+   * ascending date of creation with the default policy, "fifo".
+   *
+   * @see org.sonar.server.computation.queue.scheduling.CeSchedulingPolicy
+   */
+  String getSchedulingPolicy();
+
+  /**
+   * The task types, by decreasing priority, used by the scheduling policy "taskTypePriority". Can be empty.
+   */
+  List<String> getPrioritizedTaskTypes();
+
   /**
    * The delay in milliseconds before calling another {@link org.sonar.server.computation.taskprocessor.CeWorkerCallable}
    * when previous one had nothing to do.
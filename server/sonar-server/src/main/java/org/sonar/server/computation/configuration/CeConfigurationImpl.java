@@ -20,6 +20,9 @@
 package org.sonar.server.computation.configuration;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import org.apache.commons.lang.StringUtils;
 import org.picocontainer.Startable;
 import org.sonar.api.config.Settings;
 import org.sonar.api.utils.MessageException;
@@ -30,48 +33,85 @@ import static java.lang.String.format;
 
 /**
  * Immutable implementation of {@link CeConfiguration} which takes value returned by
- * {@link CeConfiguration#getWorkerCount()} from property {@link CeConfigurationImpl#CE_WORKERS_COUNT_PROPERTY} and
- * always returns {@link #DEFAULT_QUEUE_POLLING_DELAY} when {@link CeConfiguration#getQueuePollingDelay()} is called.
+ * {@link CeConfiguration#getWorkerCount()} from property {@link CeConfigurationImpl#CE_WORKERS_COUNT_PROPERTY}, value
+ * returned by {@link CeConfiguration#getStepsConcurrency()} from property {@link CeConfigurationImpl#CE_STEPS_CONCURRENCY_PROPERTY},
+ * value returned by {@link CeConfiguration#getCrawlerConcurrency()} from property
+ * {@link CeConfigurationImpl#CE_CRAWLER_CONCURRENCY_PROPERTY}, value returned by {@link CeConfiguration#getFileSourcesConcurrency()}
+ * from property {@link CeConfigurationImpl#CE_FILE_SOURCES_CONCURRENCY_PROPERTY}, value returned by {@link CeConfiguration#isIncrementalAnalysis()}
+ * from property {@link CeConfigurationImpl#CE_INCREMENTAL_ANALYSIS_PROPERTY}, value returned by
+ * {@link CeConfiguration#getSchedulingPolicy()} from property {@link CeConfigurationImpl#CE_SCHEDULING_POLICY_PROPERTY}, value
+ * returned by {@link CeConfiguration#getPrioritizedTaskTypes()} from property
+ * {@link CeConfigurationImpl#CE_PRIORITIZED_TASK_TYPES_PROPERTY} and always returns {@link #DEFAULT_QUEUE_POLLING_DELAY} when {@link CeConfiguration#getQueuePollingDelay()} is called.
  */
 public class CeConfigurationImpl implements CeConfiguration, Startable {
   public static final String CE_WORKERS_COUNT_PROPERTY = "sonar.ce.workerCount";
+  public static final String CE_STEPS_CONCURRENCY_PROPERTY = "sonar.ce.stepsConcurrency";
+  public static final String CE_CRAWLER_CONCURRENCY_PROPERTY = "sonar.ce.crawlerConcurrency";
+  public static final String CE_FILE_SOURCES_CONCURRENCY_PROPERTY = "sonar.ce.fileSourcesConcurrency";
+  public static final String CE_INCREMENTAL_ANALYSIS_PROPERTY = "sonar.ce.incrementalAnalysis";
+  public static final String CE_SCHEDULING_POLICY_PROPERTY = "sonar.ce.schedulingPolicy";
+  public static final String CE_PRIORITIZED_TASK_TYPES_PROPERTY = "sonar.ce.prioritizedTaskTypes";
 
   private static final Logger LOG = Loggers.get(CeConfigurationImpl.class);
 
   @VisibleForTesting
   protected static final int DEFAULT_WORKER_COUNT = 1;
+  @VisibleForTesting
+  protected static final int DEFAULT_STEPS_CONCURRENCY = 1;
+  @VisibleForTesting
+  protected static final int DEFAULT_CRAWLER_CONCURRENCY = 1;
+  @VisibleForTesting
+  protected static final int DEFAULT_FILE_SOURCES_CONCURRENCY = 1;
+  @VisibleForTesting
+  protected static final String DEFAULT_SCHEDULING_POLICY = "fifo";
   // 2 seconds
   @VisibleForTesting
   protected static final long DEFAULT_QUEUE_POLLING_DELAY = 2 * 1000L;
 
   private final int workerCount;
+  private final int stepsConcurrency;
+  private final int crawlerConcurrency;
+  private final int fileSourcesConcurrency;
+  private final boolean incrementalAnalysis;
+  private final String schedulingPolicy;
+  private final List<String> prioritizedTaskTypes;
 
   public CeConfigurationImpl(Settings settings) {
-    String workerCountAsStr = settings.getString(CE_WORKERS_COUNT_PROPERTY);
-    if (workerCountAsStr == null || workerCountAsStr.isEmpty()) {
-      this.workerCount = DEFAULT_WORKER_COUNT;
-    } else {
-      this.workerCount = parseStringValue(workerCountAsStr);
+    this.workerCount = readPositiveInt(settings, CE_WORKERS_COUNT_PROPERTY, DEFAULT_WORKER_COUNT);
+    this.stepsConcurrency = readPositiveInt(settings, CE_STEPS_CONCURRENCY_PROPERTY, DEFAULT_STEPS_CONCURRENCY);
+    this.crawlerConcurrency = readPositiveInt(settings, CE_CRAWLER_CONCURRENCY_PROPERTY, DEFAULT_CRAWLER_CONCURRENCY);
+    this.fileSourcesConcurrency = readPositiveInt(settings, CE_FILE_SOURCES_CONCURRENCY_PROPERTY, DEFAULT_FILE_SOURCES_CONCURRENCY);
+    this.incrementalAnalysis = settings.getBoolean(CE_INCREMENTAL_ANALYSIS_PROPERTY);
+    String policy = StringUtils.trimToNull(settings.getString(CE_SCHEDULING_POLICY_PROPERTY));
+    this.schedulingPolicy = policy == null ? DEFAULT_SCHEDULING_POLICY : policy;
+    this.prioritizedTaskTypes = ImmutableList.copyOf(settings.getStringArray(CE_PRIORITIZED_TASK_TYPES_PROPERTY));
+  }
+
+  private static int readPositiveInt(Settings settings, String propertyKey, int defaultValue) {
+    String valueAsStr = settings.getString(propertyKey);
+    if (valueAsStr == null || valueAsStr.isEmpty()) {
+      return defaultValue;
     }
+    return parseStringValue(propertyKey, valueAsStr);
   }
 
-  private static int parseStringValue(String workerCountAsStr) {
+  private static int parseStringValue(String propertyKey, String valueAsStr) {
     try {
-      int value = Integer.parseInt(workerCountAsStr);
+      int value = Integer.parseInt(valueAsStr);
       if (value < 1) {
-        throw parsingError(workerCountAsStr);
+        throw parsingError(propertyKey, valueAsStr);
       }
       return value;
     } catch (NumberFormatException e) {
-      throw parsingError(workerCountAsStr);
+      throw parsingError(propertyKey, valueAsStr);
     }
   }
 
-  private static MessageException parsingError(String workerCountAsStr) {
+  private static MessageException parsingError(String propertyKey, String valueAsStr) {
     return MessageException.of(format(
       "value '%s' of property %s is invalid. It must an integer strictly greater than 0.",
-      workerCountAsStr,
-      CE_WORKERS_COUNT_PROPERTY)
+      valueAsStr,
+      propertyKey)
       );
   }
 
@@ -80,6 +120,18 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
     if (this.workerCount > 1) {
       LOG.info("Compute Engine will use {} concurrent workers to process tasks", this.workerCount);
     }
+    if (this.stepsConcurrency > 1) {
+      LOG.info("Compute Engine will use up to {} threads to execute independent steps of a task", this.stepsConcurrency);
+    }
+    if (this.crawlerConcurrency > 1) {
+      LOG.info("Compute Engine will use up to {} threads to visit the component tree of a task", this.crawlerConcurrency);
+    }
+    if (this.fileSourcesConcurrency > 1) {
+      LOG.info("Compute Engine will use up to {} threads to compute the sources of the files of a task", this.fileSourcesConcurrency);
+    }
+    if (this.incrementalAnalysis) {
+      LOG.info("Compute Engine will reuse the data of the files which did not change since the previous analysis");
+    }
   }
 
   @Override
@@ -92,6 +144,36 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
     return workerCount;
   }
 
+  @Override
+  public int getStepsConcurrency() {
+    return stepsConcurrency;
+  }
+
+  @Override
+  public int getCrawlerConcurrency() {
+    return crawlerConcurrency;
+  }
+
+  @Override
+  public int getFileSourcesConcurrency() {
+    return fileSourcesConcurrency;
+  }
+
+  @Override
+  public boolean isIncrementalAnalysis() {
+    return incrementalAnalysis;
+  }
+
+  @Override
+  public String getSchedulingPolicy() {
+    return schedulingPolicy;
+  }
+
+  @Override
+  public List<String> getPrioritizedTaskTypes() {
+    return prioritizedTaskTypes;
+  }
+
   @Override
   public long getQueuePollingDelay() {
     return DEFAULT_QUEUE_POLLING_DELAY;
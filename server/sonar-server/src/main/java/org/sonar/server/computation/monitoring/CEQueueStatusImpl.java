@@ -19,21 +19,42 @@
  */
 package org.sonar.server.computation.monitoring;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 import org.sonar.ce.monitoring.CEQueueStatus;
+import org.sonar.ce.monitoring.StepTotals;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.protobuf.DbCe;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
 public class CEQueueStatusImpl implements CEQueueStatus {
 
+  /**
+   * Number of the most recent wait times used to compute percentiles
+   */
+  @VisibleForTesting
+  static final int WAIT_TIME_WINDOW_SIZE = 1_000;
+
   private final DbClient dbClient;
   private final AtomicLong inProgress = new AtomicLong(0);
   private final AtomicLong error = new AtomicLong(0);
   private final AtomicLong success = new AtomicLong(0);
   private final AtomicLong processingTime = new AtomicLong(0);
+  private final ConcurrentMap<String, StepTotals> stepTotals = new ConcurrentHashMap<>();
+  private final AtomicLong waitCount = new AtomicLong(0);
+  private final AtomicLong waitTime = new AtomicLong(0);
+  // ring buffer of the most recent wait times, guarded by itself
+  private final long[] recentWaitTimes = new long[WAIT_TIME_WINDOW_SIZE];
+  private int nextWaitTimeIndex = 0;
+  private int recentWaitTimesCount = 0;
 
   public CEQueueStatusImpl(DbClient dbClient) {
     this.dbClient = dbClient;
@@ -63,6 +84,25 @@ public class CEQueueStatusImpl implements CEQueueStatus {
     processingTime.addAndGet(ms);
   }
 
+  @Override
+  public void addStepStatistics(DbCe.StepStatistics stepStatistics) {
+    for (DbCe.Step step : stepStatistics.getStepList()) {
+      stepTotals.compute(step.getDescription(), (description, totals) -> (totals == null ? StepTotals.EMPTY : totals).add(step));
+    }
+  }
+
+  @Override
+  public void addWaitTime(long waitTimeInMs) {
+    checkArgument(waitTimeInMs >= 0, "Wait time can not be < 0");
+    synchronized (recentWaitTimes) {
+      recentWaitTimes[nextWaitTimeIndex] = waitTimeInMs;
+      nextWaitTimeIndex = (nextWaitTimeIndex + 1) % WAIT_TIME_WINDOW_SIZE;
+      recentWaitTimesCount = Math.min(recentWaitTimesCount + 1, WAIT_TIME_WINDOW_SIZE);
+    }
+    waitTime.addAndGet(waitTimeInMs);
+    waitCount.incrementAndGet();
+  }
+
   @Override
   public long getPendingCount() {
     try (DbSession dbSession = dbClient.openSession(false)) {
@@ -89,4 +129,30 @@ public class CEQueueStatusImpl implements CEQueueStatus {
   public long getProcessingTime() {
     return processingTime.get();
   }
+
+  @Override
+  public long getMeanWaitTime() {
+    long count = waitCount.get();
+    return count == 0 ? 0 : (waitTime.get() / count);
+  }
+
+  @Override
+  public long getWaitTime95thPercentile() {
+    long[] sorted;
+    synchronized (recentWaitTimes) {
+      sorted = Arrays.copyOf(recentWaitTimes, recentWaitTimesCount);
+    }
+    if (sorted.length == 0) {
+      return 0;
+    }
+    Arrays.sort(sorted);
+    // nearest-rank method
+    int rank = (int) Math.ceil(0.95 * sorted.length);
+    return sorted[rank - 1];
+  }
+
+  @Override
+  public Map<String, StepTotals> getStepTotals() {
+    return ImmutableMap.copyOf(stepTotals);
+  }
 }
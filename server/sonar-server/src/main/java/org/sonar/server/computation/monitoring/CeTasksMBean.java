@@ -52,4 +52,19 @@ public interface CeTasksMBean {
    * Configured number of Workers.
    */
   int getWorkerCount();
+
+  /**
+   * Configured policy used to choose the next pending task.
+   */
+  String getSchedulingPolicy();
+
+  /**
+   * Mean time tasks waited in the queue since startup, in milliseconds.
+   */
+  long getMeanWaitTime();
+
+  /**
+   * 95th percentile of the time the most recently processed tasks waited in the queue, in milliseconds.
+   */
+  long getWaitTime95thPercentile();
 }
@@ -78,6 +78,21 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
     return ceConfiguration.getWorkerCount();
   }
 
+  @Override
+  public String getSchedulingPolicy() {
+    return ceConfiguration.getSchedulingPolicy();
+  }
+
+  @Override
+  public long getMeanWaitTime() {
+    return queueStatus.getMeanWaitTime();
+  }
+
+  @Override
+  public long getWaitTime95thPercentile() {
+    return queueStatus.getWaitTime95thPercentile();
+  }
+
   @Override
   public ProtobufSystemInfo.Section toProtobuf() {
     ProtobufSystemInfo.Section.Builder builder = ProtobufSystemInfo.Section.newBuilder();
@@ -88,6 +103,11 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
     builder.addAttributesBuilder().setKey("Processed With Success").setLongValue(getSuccessCount()).build();
     builder.addAttributesBuilder().setKey("Processing Time (ms)").setLongValue(getProcessingTime()).build();
     builder.addAttributesBuilder().setKey("Worker Count").setLongValue(getWorkerCount()).build();
+    builder.addAttributesBuilder().setKey("Scheduling Policy").setStringValue(getSchedulingPolicy()).build();
+    builder.addAttributesBuilder().setKey("Mean Wait Time (ms)").setLongValue(getMeanWaitTime()).build();
+    builder.addAttributesBuilder().setKey("Wait Time 95th Percentile (ms)").setLongValue(getWaitTime95thPercentile()).build();
+    queueStatus.getStepTotals().forEach(
+      (description, totals) -> builder.addAttributesBuilder().setKey("Step " + description).setStringValue(totals.toString()).build());
     return builder.build();
   }
 }
@@ -24,6 +24,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -39,6 +42,8 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.protobuf.DbCe;
+import org.sonar.server.computation.queue.scheduling.CeSchedulingPolicy;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -50,16 +55,18 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
   private final System2 system2;
   private final DbClient dbClient;
   private final CEQueueStatus queueStatus;
+  private final CeSchedulingPolicy schedulingPolicy;
 
   // state
   private AtomicBoolean peekPaused = new AtomicBoolean(false);
 
   public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CEQueueStatus queueStatus,
-    DefaultOrganizationProvider defaultOrganizationProvider) {
+    DefaultOrganizationProvider defaultOrganizationProvider, CeSchedulingPolicy schedulingPolicy) {
     super(dbClient, uuidFactory, defaultOrganizationProvider);
     this.system2 = system2;
     this.dbClient = dbClient;
     this.queueStatus = queueStatus;
+    this.schedulingPolicy = schedulingPolicy;
   }
 
   @Override
@@ -68,14 +75,34 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
       return Optional.absent();
     }
     try (DbSession dbSession = dbClient.openSession(false)) {
-      Optional<CeQueueDto> dto = dbClient.ceQueueDao().peek(dbSession);
-      CeTask task = null;
-      if (dto.isPresent()) {
-        task = loadTask(dbSession, dto.get());
-        queueStatus.addInProgress();
+      List<CeQueueDto> candidates = dbClient.ceQueueDao().selectEligibleForPeek(dbSession, schedulingPolicy.getMaxCandidates());
+      Set<String> busyComponentUuids = new HashSet<>();
+      for (CeQueueDto candidate : schedulingPolicy.sort(dbSession, candidates)) {
+        String componentUuid = candidate.getComponentUuid();
+        if (componentUuid != null && busyComponentUuids.contains(componentUuid)) {
+          continue;
+        }
+        // candidate may have been peeked concurrently by another worker
+        Optional<CeQueueDto> dto = dbClient.ceQueueDao().peek(dbSession, candidate.getUuid());
+        if (dto.isPresent()) {
+          schedulingPolicy.onPeek(dbSession, dto.get());
+          queueStatus.addInProgress();
+          addWaitTime(dto.get());
+          return Optional.of(loadTask(dbSession, dto.get()));
+        }
+        // the component of the candidate may now have a task in progress
+        if (componentUuid != null) {
+          busyComponentUuids.add(componentUuid);
+        }
       }
-      return Optional.fromNullable(task);
+      return Optional.absent();
+    }
+  }
 
+  private void addWaitTime(CeQueueDto dto) {
+    Long startedAt = dto.getStartedAt();
+    if (startedAt != null) {
+      queueStatus.addWaitTime(Math.max(0L, startedAt - dto.getCreatedAt()));
     }
   }
 
@@ -94,6 +121,7 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
       activityDto.setStatus(status);
       updateQueueStatus(status, activityDto);
       updateTaskResult(activityDto, taskResult);
+      updateStepStatistics(activityDto, taskResult);
       updateError(activityDto, error);
       remove(dbSession, queueDto.get(), activityDto);
     }
@@ -108,6 +136,16 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
     }
   }
 
+  private void updateStepStatistics(CeActivityDto activityDto, @Nullable CeTaskResult taskResult) {
+    if (taskResult != null) {
+      java.util.Optional<DbCe.StepStatistics> stepStatistics = taskResult.getStepStatistics();
+      if (stepStatistics.isPresent()) {
+        activityDto.setStepStatistics(stepStatistics.get().toByteArray());
+        queueStatus.addStepStatistics(stepStatistics.get());
+      }
+    }
+  }
+
   private static void updateError(CeActivityDto activityDto, @Nullable Throwable error) {
     if (error == null) {
       return;
@@ -0,0 +1,59 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue.scheduling;
+
+import java.util.List;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeQueueDto;
+
+/**
+ * Decides which pending task is peeked next by a worker of the Compute Engine.
+ * <p>
+ * The queue loads at most {@link #getMaxCandidates()} tasks eligible for peek, oldest first, then tries to peek
+ * them in the order returned by {@link #sort(DbSession, List)}. Implementations are shared by all the workers and
+ * must be thread-safe.
+ * </p>
+ */
+public interface CeSchedulingPolicy {
+
+  /**
+   * Key of the policy, as defined by property {@link org.sonar.server.computation.configuration.CeConfigurationImpl#CE_SCHEDULING_POLICY_PROPERTY}.
+   */
+  String getKey();
+
+  /**
+   * The maximum number of pending tasks to be sorted by {@link #sort(DbSession, List)}.
+   */
+  int getMaxCandidates();
+
+  /**
+   * Sorts the pending tasks eligible for peek, by decreasing priority.
+   *
+   * @param candidates pending tasks, ordered by ascending date of creation
+   */
+  List<CeQueueDto> sort(DbSession dbSession, List<CeQueueDto> candidates);
+
+  /**
+   * Called once the specified task has been peeked by a worker.
+   */
+  default void onPeek(DbSession dbSession, CeQueueDto task) {
+    // nothing to do by default
+  }
+}
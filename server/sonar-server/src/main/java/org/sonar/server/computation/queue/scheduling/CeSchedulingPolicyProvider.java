@@ -0,0 +1,71 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue.scheduling;
+
+import org.picocontainer.injectors.ProviderAdapter;
+import org.sonar.api.utils.MessageException;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbClient;
+import org.sonar.server.computation.configuration.CeConfiguration;
+
+import static java.lang.String.format;
+
+/**
+ * Provides the {@link CeSchedulingPolicy} defined by {@link CeConfiguration#getSchedulingPolicy()}.
+ */
+public class CeSchedulingPolicyProvider extends ProviderAdapter {
+
+  private CeSchedulingPolicy policy;
+
+  /**
+   * @return a {@link CeSchedulingPolicy} singleton
+   * @throws MessageException if the configured policy is not supported
+   */
+  public CeSchedulingPolicy provide(CeConfiguration ceConfiguration, DbClient dbClient, System2 system2) {
+    if (policy == null) {
+      policy = create(ceConfiguration, dbClient, system2);
+      if (!FifoSchedulingPolicy.KEY.equals(policy.getKey())) {
+        Loggers.get(CeSchedulingPolicyProvider.class).info("Compute Engine will schedule tasks with policy '{}'", policy.getKey());
+      }
+    }
+    return policy;
+  }
+
+  private static CeSchedulingPolicy create(CeConfiguration ceConfiguration, DbClient dbClient, System2 system2) {
+    String key = ceConfiguration.getSchedulingPolicy();
+    switch (key) {
+      case FifoSchedulingPolicy.KEY:
+        return new FifoSchedulingPolicy();
+      case ProjectRoundRobinSchedulingPolicy.KEY:
+        return new ProjectRoundRobinSchedulingPolicy();
+      case OrganizationRoundRobinSchedulingPolicy.KEY:
+        return new OrganizationRoundRobinSchedulingPolicy(dbClient);
+      case TaskTypePrioritySchedulingPolicy.KEY:
+        return new TaskTypePrioritySchedulingPolicy(ceConfiguration.getPrioritizedTaskTypes());
+      case ShortestJobFirstSchedulingPolicy.KEY:
+        return new ShortestJobFirstSchedulingPolicy(dbClient, system2);
+      default:
+        throw MessageException.of(format("Unsupported Compute Engine scheduling policy '%s'. Supported values are: %s, %s, %s, %s, %s",
+          key, FifoSchedulingPolicy.KEY, ProjectRoundRobinSchedulingPolicy.KEY, OrganizationRoundRobinSchedulingPolicy.KEY,
+          TaskTypePrioritySchedulingPolicy.KEY, ShortestJobFirstSchedulingPolicy.KEY));
+    }
+  }
+}
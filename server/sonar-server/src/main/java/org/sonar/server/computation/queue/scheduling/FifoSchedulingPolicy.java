@@ -17,38 +17,32 @@
  * along with this program; if not, write to the Free Software Foundation,
  * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
-package org.sonar.server.util;
+package org.sonar.server.computation.queue.scheduling;
 
-import com.google.common.base.Throwables;
-import org.apache.commons.io.IOUtils;
+import java.util.List;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeQueueDto;
 
-import java.io.EOFException;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
-import org.sonar.core.util.CloseableIterator;
-
-public class ObjectInputStreamIterator<E> extends CloseableIterator<E> {
+/**
+ * Peeks the oldest pending task first. This is the default policy.
+ */
+public class FifoSchedulingPolicy implements CeSchedulingPolicy {
 
-  private ObjectInputStream stream;
+  public static final String KEY = "fifo";
 
-  public ObjectInputStreamIterator(InputStream stream) throws IOException {
-    this.stream = new ObjectInputStream(stream);
+  @Override
+  public String getKey() {
+    return KEY;
   }
 
   @Override
-  protected E doNext() {
-    try {
-      return (E) stream.readObject();
-    } catch (EOFException e) {
-      return null;
-    } catch (Exception e) {
-      throw Throwables.propagate(e);
-    }
+  public int getMaxCandidates() {
+    // candidates are already ordered by date of creation, the oldest one is enough
+    return 1;
   }
 
   @Override
-  protected void doClose() {
-    IOUtils.closeQuietly(stream);
+  public List<CeQueueDto> sort(DbSession dbSession, List<CeQueueDto> candidates) {
+    return candidates;
   }
 }
@@ -0,0 +1,74 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue.scheduling;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.component.ComponentDto;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Round-robin between the organizations which have pending tasks, so that an organization submitting many analyses
+ * does not delay the analyses of the other organizations. Organization of a task is the organization of its
+ * component. Tasks without component, or which component does not exist anymore, are grouped together.
+ */
+public class OrganizationRoundRobinSchedulingPolicy extends RoundRobinSchedulingPolicy {
+
+  public static final String KEY = "organizationRoundRobin";
+  private static final String NO_ORGANIZATION = "";
+
+  private final DbClient dbClient;
+
+  public OrganizationRoundRobinSchedulingPolicy(DbClient dbClient) {
+    this.dbClient = dbClient;
+  }
+
+  @Override
+  public String getKey() {
+    return KEY;
+  }
+
+  @Override
+  protected Map<String, String> loadGroups(DbSession dbSession, List<CeQueueDto> tasks) {
+    List<String> componentUuids = tasks.stream()
+      .map(CeQueueDto::getComponentUuid)
+      .filter(Objects::nonNull)
+      .distinct()
+      .collect(toList());
+    Map<String, String> organizationByComponentUuid = dbClient.componentDao().selectByUuids(dbSession, componentUuids)
+      .stream()
+      .collect(toMap(ComponentDto::uuid, ComponentDto::getOrganizationUuid));
+
+    Map<String, String> groupByTaskUuid = new HashMap<>(tasks.size());
+    for (CeQueueDto task : tasks) {
+      String componentUuid = task.getComponentUuid();
+      String organizationUuid = componentUuid == null ? null : organizationByComponentUuid.get(componentUuid);
+      groupByTaskUuid.put(task.getUuid(), organizationUuid == null ? NO_ORGANIZATION : organizationUuid);
+    }
+    return groupByTaskUuid;
+  }
+}
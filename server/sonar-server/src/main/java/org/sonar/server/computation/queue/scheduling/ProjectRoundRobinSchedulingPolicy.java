@@ -0,0 +1,51 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue.scheduling;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeQueueDto;
+
+/**
+ * Round-robin between the projects which have pending tasks, so that a project submitting many analyses does not
+ * delay the analyses of the other projects.
+ */
+public class ProjectRoundRobinSchedulingPolicy extends RoundRobinSchedulingPolicy {
+
+  public static final String KEY = "projectRoundRobin";
+  private static final String NO_COMPONENT = "";
+
+  @Override
+  public String getKey() {
+    return KEY;
+  }
+
+  @Override
+  protected Map<String, String> loadGroups(DbSession dbSession, List<CeQueueDto> tasks) {
+    Map<String, String> groupByTaskUuid = new HashMap<>(tasks.size());
+    for (CeQueueDto task : tasks) {
+      String componentUuid = task.getComponentUuid();
+      groupByTaskUuid.put(task.getUuid(), componentUuid == null ? NO_COMPONENT : componentUuid);
+    }
+    return groupByTaskUuid;
+  }
+}
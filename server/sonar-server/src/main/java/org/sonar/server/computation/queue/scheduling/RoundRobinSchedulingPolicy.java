@@ -0,0 +1,75 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue.scheduling;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeQueueDto;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Serves in turn the groups of tasks (project, organization, ...) which have pending tasks: the group which was
+ * served the least recently goes first, and tasks of a group which was never served since startup go before all
+ * others. Tasks of a same group are peeked by ascending date of creation.
+ */
+abstract class RoundRobinSchedulingPolicy implements CeSchedulingPolicy {
+
+  static final int MAX_CANDIDATES = 100;
+  private static final long NEVER_SERVED = -1L;
+
+  private final AtomicLong sequence = new AtomicLong();
+  private final ConcurrentMap<String, Long> lastServedByGroup = new ConcurrentHashMap<>();
+
+  @Override
+  public int getMaxCandidates() {
+    return MAX_CANDIDATES;
+  }
+
+  @Override
+  public List<CeQueueDto> sort(DbSession dbSession, List<CeQueueDto> candidates) {
+    Map<String, String> groupByTaskUuid = loadGroups(dbSession, candidates);
+    List<CeQueueDto> sorted = new ArrayList<>(candidates);
+    // sort is stable: the order of creation is kept within a group
+    sorted.sort(Comparator.comparingLong(task -> lastServed(groupByTaskUuid.get(task.getUuid()))));
+    return sorted;
+  }
+
+  private long lastServed(String group) {
+    return lastServedByGroup.getOrDefault(group, NEVER_SERVED);
+  }
+
+  @Override
+  public void onPeek(DbSession dbSession, CeQueueDto task) {
+    String group = loadGroups(dbSession, singletonList(task)).get(task.getUuid());
+    lastServedByGroup.put(group, sequence.incrementAndGet());
+  }
+
+  /**
+   * @return the group of each of the specified tasks, by task uuid. Must not return {@code null} groups.
+   */
+  protected abstract Map<String, String> loadGroups(DbSession dbSession, List<CeQueueDto> tasks);
+}
@@ -0,0 +1,111 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue.scheduling;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.ComponentExecutionTimeDto;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Peeks first the tasks which are expected to be the shortest, with aging so that long tasks are not starved:
+ * tasks are sorted by decreasing response ratio {@code (waiting time + expected time) / expected time}.
+ * <p>
+ * The expected time of a task is the average execution time of the successful tasks of its component, as
+ * recorded in the activity. Tasks of components without history are expected to last the average of the known
+ * expected times of the candidates.
+ * </p>
+ */
+public class ShortestJobFirstSchedulingPolicy implements CeSchedulingPolicy {
+
+  public static final String KEY = "shortestJobFirst";
+  static final int MAX_CANDIDATES = 100;
+
+  private final DbClient dbClient;
+  private final System2 system2;
+
+  public ShortestJobFirstSchedulingPolicy(DbClient dbClient, System2 system2) {
+    this.dbClient = dbClient;
+    this.system2 = system2;
+  }
+
+  @Override
+  public String getKey() {
+    return KEY;
+  }
+
+  @Override
+  public int getMaxCandidates() {
+    return MAX_CANDIDATES;
+  }
+
+  @Override
+  public List<CeQueueDto> sort(DbSession dbSession, List<CeQueueDto> candidates) {
+    if (candidates.size() <= 1) {
+      return candidates;
+    }
+    Map<String, Long> expectedTimeByComponentUuid = loadExpectedTimes(dbSession, candidates);
+    long defaultExpectedTime = (long) expectedTimeByComponentUuid.values().stream().mapToLong(Long::longValue).average().orElse(0D);
+    long now = system2.now();
+
+    Map<String, Long> expectedTimeByTaskUuid = new HashMap<>(candidates.size());
+    Map<String, Double> ratioByTaskUuid = new HashMap<>(candidates.size());
+    for (CeQueueDto task : candidates) {
+      String componentUuid = task.getComponentUuid();
+      long expectedTime = componentUuid == null ? defaultExpectedTime : expectedTimeByComponentUuid.getOrDefault(componentUuid, defaultExpectedTime);
+      expectedTimeByTaskUuid.put(task.getUuid(), expectedTime);
+      ratioByTaskUuid.put(task.getUuid(), responseRatio(Math.max(0L, now - task.getCreatedAt()), expectedTime));
+    }
+    List<CeQueueDto> sorted = new ArrayList<>(candidates);
+    // ratios are equal when tasks did not wait yet, shortest task goes first then.
+    // Sort is stable: the order of creation is kept for tasks of same ratio and expected time
+    sorted.sort(Comparator.<CeQueueDto>comparingDouble(task -> -ratioByTaskUuid.get(task.getUuid()))
+      .thenComparingLong(task -> expectedTimeByTaskUuid.get(task.getUuid())));
+    return sorted;
+  }
+
+  private Map<String, Long> loadExpectedTimes(DbSession dbSession, List<CeQueueDto> candidates) {
+    List<String> componentUuids = candidates.stream()
+      .map(CeQueueDto::getComponentUuid)
+      .filter(Objects::nonNull)
+      .distinct()
+      .collect(toList());
+    Map<String, Long> result = new HashMap<>(componentUuids.size());
+    for (ComponentExecutionTimeDto dto : dbClient.ceActivityDao().selectAverageExecutionTimeByComponentUuids(dbSession, componentUuids)) {
+      result.put(dto.getComponentUuid(), dto.getAverageExecutionTimeMs());
+    }
+    return result;
+  }
+
+  static double responseRatio(long waitingTime, long expectedTime) {
+    // at least 1ms, so that tasks of unknown or instantaneous duration are not infinitely prioritized
+    long expected = Math.max(1L, expectedTime);
+    return (double) (waitingTime + expected) / expected;
+  }
+}
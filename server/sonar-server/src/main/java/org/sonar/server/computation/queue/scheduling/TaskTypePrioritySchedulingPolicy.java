@@ -0,0 +1,66 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue.scheduling;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeQueueDto;
+
+/**
+ * Peeks tasks by priority of their type, as defined by the ordered list of task types of property
+ * {@link org.sonar.server.computation.configuration.CeConfigurationImpl#CE_PRIORITIZED_TASK_TYPES_PROPERTY}.
+ * Tasks which type is not listed go last. Tasks of same priority are peeked by ascending date of creation.
+ */
+public class TaskTypePrioritySchedulingPolicy implements CeSchedulingPolicy {
+
+  public static final String KEY = "taskTypePriority";
+  static final int MAX_CANDIDATES = 100;
+
+  private final List<String> prioritizedTaskTypes;
+
+  public TaskTypePrioritySchedulingPolicy(List<String> prioritizedTaskTypes) {
+    this.prioritizedTaskTypes = new ArrayList<>(prioritizedTaskTypes);
+  }
+
+  @Override
+  public String getKey() {
+    return KEY;
+  }
+
+  @Override
+  public int getMaxCandidates() {
+    return MAX_CANDIDATES;
+  }
+
+  @Override
+  public List<CeQueueDto> sort(DbSession dbSession, List<CeQueueDto> candidates) {
+    List<CeQueueDto> sorted = new ArrayList<>(candidates);
+    // sort is stable: the order of creation is kept for tasks of same priority
+    sorted.sort(Comparator.comparingInt(task -> priority(task.getTaskType())));
+    return sorted;
+  }
+
+  private int priority(String taskType) {
+    int index = prioritizedTaskTypes.indexOf(taskType);
+    return index < 0 ? Integer.MAX_VALUE : index;
+  }
+}
@@ -21,6 +21,8 @@ package org.sonar.server.computation.task.projectanalysis.batch;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.Message;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Parser;
 import java.io.File;
@@ -28,21 +30,41 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Supplier;
 import javax.annotation.CheckForNull;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.LineReaderIterator;
+import org.sonar.scanner.protocol.output.FileStructure;
 import org.sonar.scanner.protocol.output.ScannerReport;
 
 public class BatchReportReaderImpl implements BatchReportReader {
 
+  /**
+   * Maximum size of the messages kept in {@link #messageCache}, in bytes of their serialized form
+   */
+  private static final long MESSAGE_CACHE_MAX_SIZE = 16L * 1024 * 1024;
+  /**
+   * Data of a component bigger than this size, in bytes of its serialized form, is streamed from the report
+   * instead of being loaded in {@link #messageCache}
+   */
+  private static final long MESSAGE_CACHE_MAX_ENTRY_SIZE = 1024L * 1024;
+
   private final BatchReportDirectoryHolder batchReportDirectoryHolder;
-  private org.sonar.scanner.protocol.output.ScannerReportReader delegate;
+  // data of components which are read by several steps, for example by the computation of the source hash then by the
+  // persistence of sources
+  private final MessageCache messageCache = new MessageCache(MESSAGE_CACHE_MAX_SIZE);
+  // volatile as the reader is shared by the steps executed concurrently
+  private volatile org.sonar.scanner.protocol.output.ScannerReportReader delegate;
   // caching of metadata which are read often
-  private ScannerReport.Metadata metadata;
+  private volatile ScannerReport.Metadata metadata;
 
   public BatchReportReaderImpl(BatchReportDirectoryHolder batchReportDirectoryHolder) {
     this.batchReportDirectoryHolder = batchReportDirectoryHolder;
@@ -94,13 +116,19 @@ public class BatchReportReaderImpl implements BatchReportReader {
   @CheckForNull
   public ScannerReport.Changesets readChangesets(int componentRef) {
     ensureInitialized();
-    return delegate.readChangesets(componentRef);
+    List<ScannerReport.Changesets> changesets = messageCache.get(FileStructure.Domain.CHANGESETS, componentRef,
+      delegate.sizeOf(FileStructure.Domain.CHANGESETS, componentRef), () -> {
+      ScannerReport.Changesets res = delegate.readChangesets(componentRef);
+      return res == null ? Collections.emptyList() : Collections.singletonList(res);
+    });
+    return changesets.isEmpty() ? null : changesets.get(0);
   }
 
   @Override
   public ScannerReport.Component readComponent(int componentRef) {
     ensureInitialized();
-    return delegate.readComponent(componentRef);
+    return messageCache.get(FileStructure.Domain.COMPONENT, componentRef, delegate.sizeOf(FileStructure.Domain.COMPONENT, componentRef),
+      () -> Collections.singletonList(delegate.readComponent(componentRef))).get(0);
   }
 
   @Override
@@ -118,25 +146,43 @@ public class BatchReportReaderImpl implements BatchReportReader {
   @Override
   public CloseableIterator<ScannerReport.CpdTextBlock> readCpdTextBlocks(int componentRef) {
     ensureInitialized();
-    return delegate.readCpdTextBlocks(componentRef);
+    return readCached(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef, () -> delegate.readCpdTextBlocks(componentRef));
   }
 
   @Override
   public CloseableIterator<ScannerReport.Symbol> readComponentSymbols(int componentRef) {
     ensureInitialized();
-    return delegate.readComponentSymbols(componentRef);
+    return readCached(FileStructure.Domain.SYMBOLS, componentRef, () -> delegate.readComponentSymbols(componentRef));
   }
 
   @Override
   public CloseableIterator<ScannerReport.SyntaxHighlightingRule> readComponentSyntaxHighlighting(int fileRef) {
     ensureInitialized();
-    return delegate.readComponentSyntaxHighlighting(fileRef);
+    return readCached(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef, () -> delegate.readComponentSyntaxHighlighting(fileRef));
   }
 
   @Override
   public CloseableIterator<ScannerReport.LineCoverage> readComponentCoverage(int fileRef) {
     ensureInitialized();
-    return delegate.readComponentCoverage(fileRef);
+    return readCached(FileStructure.Domain.COVERAGES, fileRef, () -> delegate.readComponentCoverage(fileRef));
+  }
+
+  /**
+   * Small data are loaded in {@link #messageCache}, big data are streamed from the report so that they are never
+   * fully loaded in memory.
+   */
+  private <M extends Message> CloseableIterator<M> readCached(FileStructure.Domain domain, int componentRef, Supplier<CloseableIterator<M>> reader) {
+    long size = delegate.sizeOf(domain, componentRef);
+    if (size > MESSAGE_CACHE_MAX_ENTRY_SIZE) {
+      return reader.get();
+    }
+    return CloseableIterator.from(messageCache.get(domain, componentRef, size, () -> toList(reader.get())).iterator());
+  }
+
+  private static <M extends Message> List<M> toList(CloseableIterator<M> messages) {
+    try (CloseableIterator<M> it = messages) {
+      return ImmutableList.copyOf(it);
+    }
   }
 
   @Override
@@ -248,4 +294,57 @@ public class BatchReportReaderImpl implements BatchReportReader {
       fileInputStream.close();
     }
   }
+
+  /**
+   * Least recently used messages of components, up to a maximum size. Messages are parsed out of the lock,
+   * so the same data may be parsed twice when read concurrently, which is harmless.
+   */
+  private static class MessageCache {
+    private final long maxSize;
+    private final LinkedHashMap<Long, CachedMessages> entries = new LinkedHashMap<>(16, 0.75F, true);
+    private long size = 0L;
+
+    private MessageCache(long maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    /**
+     * @param serializedSize size of the data in the report, used as the size of the cached messages
+     */
+    @SuppressWarnings("unchecked")
+    private <M extends Message> List<M> get(FileStructure.Domain domain, int componentRef, long serializedSize, Supplier<List<M>> reader) {
+      long key = ((long) domain.ordinal() << 32) | componentRef;
+      synchronized (this) {
+        CachedMessages cached = entries.get(key);
+        if (cached != null) {
+          return (List<M>) cached.messages;
+        }
+      }
+      List<M> messages = reader.get();
+      if (serializedSize <= maxSize) {
+        put(key, new CachedMessages(messages, serializedSize));
+      }
+      return messages;
+    }
+
+    private synchronized void put(long key, CachedMessages cached) {
+      CachedMessages previous = entries.put(key, cached);
+      size += cached.size - (previous == null ? 0L : previous.size);
+      Iterator<CachedMessages> it = entries.values().iterator();
+      while (size > maxSize && it.hasNext()) {
+        size -= it.next().size;
+        it.remove();
+      }
+    }
+  }
+
+  private static class CachedMessages {
+    private final List<? extends Message> messages;
+    private final long size;
+
+    private CachedMessages(List<? extends Message> messages, long size) {
+      this.messages = messages;
+      this.size = size;
+    }
+  }
 }
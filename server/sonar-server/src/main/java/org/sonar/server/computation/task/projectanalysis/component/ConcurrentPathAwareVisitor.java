@@ -0,0 +1,47 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.component;
+
+/**
+ * A {@link PathAwareVisitor} which can be used by {@link PathAwareCrawler} to visit subtrees concurrently.
+ * <p>
+ * When a subtree is visited concurrently, the stacked element of the parent of the subtree's root is a new element
+ * created by the {@link StackElementFactory} and private to the subtree. Once the subtree is visited, this element is
+ * merged into the actual stacked element of the parent by {@link #merge(Object, Object)}, from the thread which visits
+ * the parent.
+ * </p>
+ * <p>
+ * Implementations must therefore:
+ * <ul>
+ *   <li>be thread-safe, as well as all the components they use (repositories, holders, ...)</li>
+ *   <li>only change the stacked elements of the current Component and of its parent</li>
+ *   <li>aggregate values into the stacked elements in an order-independent way</li>
+ * </ul>
+ * </p>
+ */
+public interface ConcurrentPathAwareVisitor<T> extends PathAwareVisitor<T> {
+
+  /**
+   * Merges the stacked element {@code source}, fed by a subtree visited concurrently, into the stacked element
+   * {@code target} of the same Component.
+   */
+  void merge(T source, T target);
+
+}
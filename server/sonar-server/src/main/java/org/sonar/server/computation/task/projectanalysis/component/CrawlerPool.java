@@ -0,0 +1,63 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.component;
+
+import java.util.concurrent.ForkJoinPool;
+import javax.annotation.CheckForNull;
+import org.picocontainer.Startable;
+import org.sonar.server.computation.configuration.CeConfiguration;
+
+/**
+ * Holds the {@link ForkJoinPool} in which {@link PathAwareCrawler} visits subtrees concurrently, during the processing
+ * of a single CeTask. There is no pool when {@link CeConfiguration#getCrawlerConcurrency()} is 1, so that component
+ * trees are visited sequentially.
+ */
+public class CrawlerPool implements Startable {
+  private final int concurrency;
+  @CheckForNull
+  private ForkJoinPool pool;
+
+  public CrawlerPool(CeConfiguration ceConfiguration) {
+    this.concurrency = ceConfiguration.getCrawlerConcurrency();
+  }
+
+  @Override
+  public void start() {
+    if (concurrency > 1) {
+      this.pool = new ForkJoinPool(concurrency);
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (pool != null) {
+      pool.shutdownNow();
+      pool = null;
+    }
+  }
+
+  /**
+   * @return the pool, or {@code null} if the component tree must be visited sequentially
+   */
+  @CheckForNull
+  public ForkJoinPool get() {
+    return pool;
+  }
+}
@@ -71,4 +71,16 @@ final class DequeBasedPath<T> implements PathAwareVisitor.Path<T>, Iterable<Path
   public PathAwareVisitor.PathElement<T> pop() {
     return deque.pop();
   }
+
+  /**
+   * Copy of this path in which the {@link PathAwareVisitor.PathElement} of the current Component is replaced by
+   * the specified one.
+   */
+  public DequeBasedPath<T> copyReplacingCurrent(PathAwareVisitor.PathElement<T> pathElement) {
+    DequeBasedPath<T> copy = new DequeBasedPath<>();
+    copy.deque.addAll(deque);
+    copy.deque.pop();
+    copy.deque.addFirst(pathElement);
+    return copy;
+  }
 }
@@ -21,7 +21,14 @@ package org.sonar.server.computation.task.projectanalysis.component;
 
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 
 import static com.google.common.collect.FluentIterable.from;
@@ -35,45 +42,75 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
  * Component. It also provides a way to have an object associated to each Component and access it and all of its
  * parent's.
  * As for {@link DepthTraversalTypeAwareCrawler}, this crawler supports max depth visit and ordering.
+ * <p>
+ * When created with a {@link ForkJoinPool}, the subtrees of the children of each Component are visited concurrently
+ * in the pool, the leaves being visited by the thread which visits their parent. This requires the visitor to be a
+ * {@link ConcurrentPathAwareVisitor}.
+ * </p>
  */
 public final class PathAwareCrawler<T> implements ComponentCrawler {
   private final PathAwareVisitor<T> visitor;
   private final DequeBasedPath<T> stack = new DequeBasedPath<>();
+  @CheckForNull
+  private final ForkJoinPool pool;
 
   public PathAwareCrawler(PathAwareVisitor<T> visitor) {
     this.visitor = requireNonNull(visitor);
+    this.pool = null;
+  }
+
+  /**
+   * @param pool the pool in which subtrees are visited, or {@code null} to visit the tree sequentially
+   */
+  public PathAwareCrawler(ConcurrentPathAwareVisitor<T> visitor, @Nullable ForkJoinPool pool) {
+    this.visitor = requireNonNull(visitor);
+    this.pool = pool;
   }
 
   @Override
   public void visit(Component component) {
+    if (pool == null) {
+      visit(component, stack);
+    } else {
+      SubtreeVisit visit = new SubtreeVisit(component, new DequeBasedPath<>());
+      pool.invoke(visit);
+      visit.rethrowFailure();
+    }
+  }
+
+  private void visit(Component component, DequeBasedPath<T> path) {
     try {
-      visitImpl(component);
+      visitImpl(component, path);
     } catch (RuntimeException e) {
       VisitException.rethrowOrWrap(
         e,
         "Visit failed for Component {key=%s,type=%s} %s",
-        component.getKey(), component.getType(), new ComponentPathPrinter<>(stack));
+        component.getKey(), component.getType(), new ComponentPathPrinter<>(path));
     }
   }
 
-  private void visitImpl(Component component) {
+  private void visitImpl(Component component, DequeBasedPath<T> path) {
     if (!verifyDepth(component)) {
       return;
     }
 
-    stack.add(new PathElementImpl<>(component, createForComponent(component)));
+    path.add(new PathElementImpl<>(component, createForComponent(component)));
 
     if (this.visitor.getOrder() == PRE_ORDER) {
-      visitNode(component);
+      visitNode(component, path);
     }
 
-    visitChildren(component);
+    if (pool == null) {
+      visitChildren(component, path);
+    } else {
+      visitChildrenConcurrently(component, path);
+    }
 
     if (this.visitor.getOrder() == POST_ORDER) {
-      visitNode(component);
+      visitNode(component, path);
     }
 
-    stack.pop();
+    path.pop();
   }
 
   private boolean verifyDepth(Component component) {
@@ -81,37 +118,61 @@ public final class PathAwareCrawler<T> implements ComponentCrawler {
     return maxDepth.isSameAs(component.getType()) || maxDepth.isDeeperThan(component.getType());
   }
 
-  private void visitChildren(Component component) {
+  private void visitChildren(Component component, DequeBasedPath<T> path) {
     for (Component child : component.getChildren()) {
       if (verifyDepth(component)) {
-        visit(child);
+        visit(child, path);
       }
     }
   }
 
-  private void visitNode(Component component) {
-    this.visitor.visitAny(component, stack);
+  private void visitChildrenConcurrently(Component component, DequeBasedPath<T> path) {
+    if (!verifyDepth(component)) {
+      return;
+    }
+    List<SubtreeVisit> subtreeVisits = new ArrayList<>();
+    for (Component child : component.getChildren()) {
+      if (child.getChildren().isEmpty() || !verifyDepth(child)) {
+        // forking a task costs more than visiting a single Component
+        visit(child, path);
+      } else {
+        subtreeVisits.add(new SubtreeVisit(child, path.copyReplacingCurrent(new PathElementImpl<>(component, createForComponent(component)))));
+      }
+    }
+    if (subtreeVisits.isEmpty()) {
+      return;
+    }
+    ForkJoinTask.invokeAll(subtreeVisits);
+    ConcurrentPathAwareVisitor<T> concurrentVisitor = (ConcurrentPathAwareVisitor<T>) this.visitor;
+    for (SubtreeVisit subtreeVisit : subtreeVisits) {
+      subtreeVisit.rethrowFailure();
+      concurrentVisitor.merge(subtreeVisit.path.current(), path.current());
+    }
+  }
+
+  private void visitNode(Component component, DequeBasedPath<T> path) {
+    this.visitor.visitAny(component, path);
     switch (component.getType()) {
       case PROJECT:
-        this.visitor.visitProject(component, stack);
+        this.visitor.visitProject(component, path);
         break;
       case MODULE:
-        this.visitor.visitModule(component, stack);
+        this.visitor.visitModule(component, path);
         break;
       case DIRECTORY:
-        this.visitor.visitDirectory(component, stack);
+        this.visitor.visitDirectory(component, path);
         break;
       case FILE:
-        this.visitor.visitFile(component, stack);
+        this.visitor.visitFile(component, path);
         break;
       case VIEW:
-        this.visitor.visitView(component, stack);
+        this.visitor.visitView(component, path);
         break;
       case SUBVIEW:
-        this.visitor.visitSubView(component, stack);
+        this.visitor.visitSubView(component, path);
         break;
       case PROJECT_VIEW:
-        this.visitor.visitProjectView(component, stack);
+        this.visitor.visitProjectView(component, path);
         break;
       default:
         throw new IllegalArgumentException(format("Unsupported component type %s, no visitor method to call", component.getType()));
@@ -139,6 +200,37 @@ public final class PathAwareCrawler<T> implements ComponentCrawler {
     }
   }
 
+  /**
+   * Visit of a subtree in a {@link ForkJoinPool}. Any failure is kept to be rethrown as is by the thread which waits
+   * for the visit, rather than being rethrown by the pool which may wrap it or create a copy of it.
+   */
+  private final class SubtreeVisit extends RecursiveAction {
+    private final Component component;
+    private final DequeBasedPath<T> path;
+    @CheckForNull
+    private RuntimeException failure;
+
+    private SubtreeVisit(Component component, DequeBasedPath<T> path) {
+      this.component = component;
+      this.path = path;
+    }
+
+    @Override
+    protected void compute() {
+      try {
+        visit(component, path);
+      } catch (RuntimeException e) {
+        this.failure = e;
+      }
+    }
+
+    private void rethrowFailure() {
+      if (failure != null) {
+        throw failure;
+      }
+    }
+  }
+
   /**
    * A simple object wrapping the currentPath allowing to compute the string representing the path only if
    * the VisitException is actually built (ie. method {@link ComponentPathPrinter#toString()} is called
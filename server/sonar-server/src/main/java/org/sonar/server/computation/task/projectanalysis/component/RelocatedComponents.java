@@ -0,0 +1,57 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.component;
+
+import java.util.Set;
+import javax.annotation.CheckForNull;
+
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Uuids of the existing components which module path or path changed during the analysis, for example
+ * when a module is moved to another parent. Data copied from these components, like the module path and
+ * the directory of issues in the index, must be updated even if the data itself did not change.
+ */
+public class RelocatedComponents {
+
+  @CheckForNull
+  private Set<String> uuids;
+
+  public void setUuids(Set<String> uuids) {
+    requireNonNull(uuids, "Uuids cannot be null");
+    checkState(this.uuids == null, "Uuids have already been initialized");
+    this.uuids = newHashSet(uuids);
+  }
+
+  /**
+   * Whether components have been persisted, even if none of them was relocated
+   */
+  public boolean isInitialized() {
+    return uuids != null;
+  }
+
+  public Set<String> getUuids() {
+    checkState(uuids != null, "Uuids have not been initialized yet");
+    return uuids;
+  }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.duplication;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.api.utils.log.Profiler;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+
+/**
+ * Bloom filters, one per language, of the hashes of the blocks stored in table DUPLICATIONS_INDEX, so that the blocks
+ * which can't have any cross project duplicate are not looked for in database.
+ * <p>
+ * Filters are shared by all the tasks processed by the Compute Engine. The filter of a language is loaded from database
+ * when first used, then kept up to date through {@link #add(String, Collection)}, as the Compute Engine is the only
+ * process which inserts rows into DUPLICATIONS_INDEX. Rows deleted after the loading of a filter only increase its rate of
+ * false positives.
+ * </p>
+ */
+public class DuplicationIndexFilter {
+
+  private static final Logger LOGGER = Loggers.get(DuplicationIndexFilter.class);
+
+  private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+  // room is left for the blocks inserted after loading
+  private static final double EXPECTED_INSERTIONS_FACTOR = 1.5;
+  @VisibleForTesting
+  static final int MIN_EXPECTED_INSERTIONS = 100_000;
+  // about 60Mb per filter
+  private static final int MAX_EXPECTED_INSERTIONS = 50_000_000;
+
+  private final DbClient dbClient;
+  private final ConcurrentMap<String, LanguageFilter> filtersByLanguage = new ConcurrentHashMap<>();
+
+  public DuplicationIndexFilter(DbClient dbClient) {
+    this.dbClient = dbClient;
+  }
+
+  /**
+   * @return the hashes, among the specified ones, which may be indexed for the specified language. Hashes which are
+   *         not returned are guaranteed not to be indexed.
+   */
+  public List<String> filter(String language, Collection<String> hashes) {
+    LanguageFilter filter = filtersByLanguage.get(language);
+    if (filter == null) {
+      filter = filtersByLanguage.computeIfAbsent(language, this::load);
+    }
+    return filter.filter(hashes);
+  }
+
+  /**
+   * Must be called once the specified hashes are committed into DUPLICATIONS_INDEX, so that they are not filtered out
+   * by {@link #filter(String, Collection)}.
+   */
+  public void add(String language, Collection<String> hashes) {
+    // waits for the filter of the language to be loaded, if it is being loaded. If there is no filter yet, it will
+    // be loaded from database, which already contains the hashes
+    filtersByLanguage.computeIfPresent(language, (key, filter) -> filter.addAll(hashes) ? filter : null);
+  }
+
+  private LanguageFilter load(String language) {
+    Profiler profiler = Profiler.create(LOGGER).startDebug("Load duplication index of language " + language);
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      int count = dbClient.duplicationDao().countHashes(dbSession, language);
+      LanguageFilter filter = new LanguageFilter(expectedInsertions(count));
+      dbClient.duplicationDao().selectHashes(dbSession, language, context -> filter.add((String) context.getResultObject()));
+      profiler.stopDebug(String.format("Loaded %d hashes of duplication index of language %s", count, language));
+      return filter;
+    }
+  }
+
+  @VisibleForTesting
+  static int expectedInsertions(int count) {
+    return (int) Math.min(MAX_EXPECTED_INSERTIONS, Math.max(MIN_EXPECTED_INSERTIONS, count * EXPECTED_INSERTIONS_FACTOR));
+  }
+
+  private static class LanguageFilter {
+    private final BloomFilter<CharSequence> bloomFilter;
+    private final int expectedInsertions;
+    private int insertions = 0;
+
+    private LanguageFilter(int expectedInsertions) {
+      this.bloomFilter = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, FALSE_POSITIVE_PROBABILITY);
+      this.expectedInsertions = expectedInsertions;
+    }
+
+    private synchronized void add(String hash) {
+      bloomFilter.put(hash);
+      insertions++;
+    }
+
+    /**
+     * @return {@code false} if the filter is saturated, in which case it should be loaded again from database, with
+     *         more room
+     */
+    private synchronized boolean addAll(Collection<String> hashes) {
+      for (String hash : hashes) {
+        add(hash);
+      }
+      return insertions <= expectedInsertions || expectedInsertions >= MAX_EXPECTED_INSERTIONS;
+    }
+
+    private synchronized List<String> filter(Collection<String> hashes) {
+      List<String> res = new ArrayList<>(hashes.size());
+      for (String hash : hashes) {
+        if (bloomFilter.mightContain(hash)) {
+          res.add(hash);
+        }
+      }
+      return res;
+    }
+  }
+}
@@ -28,9 +28,11 @@ import com.google.common.collect.Sets;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
@@ -64,6 +66,10 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
 
 public class FileMoveDetectionStep implements ComputationStep {
   protected static final int MIN_REQUIRED_SCORE = 85;
+  /**
+   * Above this number of pairs of removed and added files, files are only compared to the files which are likely to be similar
+   */
+  static final long MAX_PAIRS_FOR_EXHAUSTIVE_SCORING = 1_000L;
   private static final Logger LOG = Loggers.get(FileMoveDetectionStep.class);
   private static final List<String> FILE_QUALIFIERS = asList(Qualifiers.FILE, Qualifiers.UNIT_TEST_FILE);
   private static final Splitter LINES_HASHES_SPLITTER = on('\n');
@@ -196,33 +202,41 @@ public class FileMoveDetectionStep implements ComputationStep {
     return builder.build();
   }
 
+  /**
+   * Scores each removed file against every added file, unless there are too many pairs of files. Each removed file is
+   * then scored only against the added files which are likely to be similar to it, according to {@link SimilarFilesIndex}.
+   */
   private ScoreMatrix computeScoreMatrix(Map<String, DbComponent> dtosByKey, Set<String> dbFileKeys, Map<String, File> reportFileSourcesByKey) {
-    int[][] scoreMatrix = new int[dbFileKeys.size()][reportFileSourcesByKey.size()];
-    int maxScore = 0;
+    Function<File, Set<String>> candidates;
+    if ((long) dbFileKeys.size() * reportFileSourcesByKey.size() <= MAX_PAIRS_FOR_EXHAUSTIVE_SCORING) {
+      candidates = fileInDb -> reportFileSourcesByKey.keySet();
+    } else {
+      SimilarFilesIndex<String> reportFilesIndex = new SimilarFilesIndex<>();
+      reportFileSourcesByKey.forEach(reportFilesIndex::add);
+      candidates = reportFilesIndex::getCandidates;
+    }
 
+    Map<Match, Integer> scores = new LinkedHashMap<>();
+    int maxScore = 0;
     try (DbSession dbSession = dbClient.openSession(false)) {
-      int dbFileIndex = 0;
       for (String removedFileKey : dbFileKeys) {
         File fileInDb = getFile(dbSession, dtosByKey.get(removedFileKey));
         if (fileInDb == null) {
           continue;
         }
 
-        int reportFileIndex = 0;
-        for (Map.Entry<String, File> reportFileSourceAndKey : reportFileSourcesByKey.entrySet()) {
-          File unmatchedFile = reportFileSourceAndKey.getValue();
-          int score = fileSimilarity.score(fileInDb, unmatchedFile);
-          scoreMatrix[dbFileIndex][reportFileIndex] = score;
+        for (String reportFileKey : candidates.apply(fileInDb)) {
+          int score = fileSimilarity.score(fileInDb, reportFileSourcesByKey.get(reportFileKey));
+          scores.put(new Match(removedFileKey, reportFileKey), score);
           if (score > maxScore) {
             maxScore = score;
           }
-          reportFileIndex++;
         }
-        dbFileIndex++;
       }
     }
+    LOG.debug("{} pairs of files compared out of {} removed and {} added files", scores.size(), dbFileKeys.size(), reportFileSourcesByKey.size());
 
-    return new ScoreMatrix(dbFileKeys, reportFileSourcesByKey, scoreMatrix, maxScore);
+    return new ScoreMatrix(dbFileKeys, reportFileSourcesByKey, scores, maxScore);
   }
 
   @CheckForNull
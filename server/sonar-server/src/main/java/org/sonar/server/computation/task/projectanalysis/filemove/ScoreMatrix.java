@@ -20,35 +20,46 @@
 package org.sonar.server.computation.task.projectanalysis.filemove;
 
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 
+/**
+ * Sparse matrix of the scores of db files and report files. Only the pairs of files which have actually been compared
+ * are stored, the score of any other pair being 0.
+ */
 final class ScoreMatrix {
   private final Set<String> dbFileKeys;
   private final Map<String, FileSimilarity.File> reportFileSourcesByKey;
-  private final int[][] scores;
+  private final Map<Match, Integer> scores;
   private final int maxScore;
 
-  public ScoreMatrix(Set<String> dbFileKeys, Map<String, FileSimilarity.File> reportFileSourcesByKey, int[][] scores, int maxScore) {
+  public ScoreMatrix(Set<String> dbFileKeys, Map<String, FileSimilarity.File> reportFileSourcesByKey, Map<Match, Integer> scores, int maxScore) {
     this.dbFileKeys = dbFileKeys;
     this.reportFileSourcesByKey = reportFileSourcesByKey;
     this.scores = scores;
     this.maxScore = maxScore;
   }
 
+  /**
+   * Visits the pairs of files which have been compared.
+   */
   public void accept(ScoreMatrixVisitor visitor) {
-    int dbFileIndex = 0;
-    for (String dbFileKey : dbFileKeys) {
-      int reportFileIndex = 0;
-      for (Map.Entry<String, FileSimilarity.File> reportFileSourceAndKey : reportFileSourcesByKey.entrySet()) {
-        int score = scores[dbFileIndex][reportFileIndex];
-        visitor.visit(dbFileKey, reportFileSourceAndKey.getKey(), score);
-        reportFileIndex++;
-      }
-      dbFileIndex++;
+    for (Map.Entry<Match, Integer> entry : scores.entrySet()) {
+      visitor.visit(entry.getKey().getDbKey(), entry.getKey().getReportKey(), entry.getValue());
     }
   }
 
+  public int getScore(String dbFileKey, String reportFileKey) {
+    Integer score = scores.get(new Match(dbFileKey, reportFileKey));
+    return score == null ? 0 : score;
+  }
+
+  /**
+   * Number of pairs of files which have been compared.
+   */
+  public int getSize() {
+    return scores.size();
+  }
+
   public String toCsv(char separator) {
     StringBuilder res = new StringBuilder();
     // first row: empty column, then one column for each report file (its key)
@@ -57,18 +68,12 @@ final class ScoreMatrix {
       res.append(reportEntry.getKey()).append(separator);
     }
     // rows with data: column with db file (its key), then one column for each value
-    accept(new ScoreMatrixVisitor() {
-      private String previousDbFileKey = null;
-
-      @Override
-      public void visit(String dbFileKey, String reportFileKey, int score) {
-        if (!Objects.equals(previousDbFileKey, dbFileKey)) {
-          res.append('\n').append(dbFileKey).append(separator);
-          previousDbFileKey = dbFileKey;
-        }
-        res.append(score).append(separator);
+    for (String dbFileKey : dbFileKeys) {
+      res.append('\n').append(dbFileKey).append(separator);
+      for (String reportFileKey : reportFileSourcesByKey.keySet()) {
+        res.append(getScore(dbFileKey, reportFileKey)).append(separator);
       }
-    });
+    }
     return res.toString();
   }
 
@@ -0,0 +1,153 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.filemove;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+
+/**
+ * Index of files by MinHash signature of their line hashes, which provides the files which may be similar to a given
+ * file without comparing it to every indexed file.
+ * <p>
+ * Lines are considered as a multiset: the n-th occurrence of a line hash is a distinct element, so that duplicated
+ * lines (blank lines, closing braces...) weigh as much as in {@link SourceSimilarityImpl}. The signature of a file is
+ * made of the minimum values of {@link #SIGNATURE_SIZE} hash functions applied to these elements. It is split into
+ * {@link #BANDS} bands of {@link #ROWS_PER_BAND} values (Locality Sensitive Hashing): two files are candidates when
+ * at least one band of their signatures is the same.
+ * </p>
+ * <p>
+ * A score of {@link FileMoveDetectionStep#MIN_REQUIRED_SCORE} means that at most 15% of the lines of the largest file
+ * are inserted, deleted or replaced, so that at least 85% of its lines are common to both files. The Jaccard index of
+ * the multisets of lines is then at least 0.85 / 1.15 = 0.74, and such files are candidates with a probability higher
+ * than 99.98%. Files with a Jaccard index lower than 0.2 are candidates with a probability lower than 4%.
+ * </p>
+ * <p>
+ * Candidates are only likely to be similar: their actual similarity must be computed by {@link FileSimilarity}.
+ * Files with no line are never candidates.
+ * </p>
+ */
+final class SimilarFilesIndex<K> {
+  static final int BANDS = 25;
+  static final int ROWS_PER_BAND = 4;
+  static final int SIGNATURE_SIZE = BANDS * ROWS_PER_BAND;
+
+  private static final long[] MULTIPLIERS = new long[SIGNATURE_SIZE];
+  private static final long[] INCREMENTS = new long[SIGNATURE_SIZE];
+
+  static {
+    // fixed seed, so that candidates do not change from one execution to another
+    Random random = new Random(20170101L);
+    for (int i = 0; i < SIGNATURE_SIZE; i++) {
+      // multiply-shift hashing requires odd multipliers
+      MULTIPLIERS[i] = random.nextLong() | 1L;
+      INCREMENTS[i] = random.nextLong();
+    }
+  }
+
+  private final List<Map<Long, List<K>>> filesByBand = new ArrayList<>(BANDS);
+
+  SimilarFilesIndex() {
+    for (int i = 0; i < BANDS; i++) {
+      filesByBand.add(new HashMap<>());
+    }
+  }
+
+  public SimilarFilesIndex<K> add(K key, FileSimilarity.File file) {
+    int[] signature = signature(file.getLineHashes());
+    if (signature != null) {
+      for (int band = 0; band < BANDS; band++) {
+        filesByBand.get(band).computeIfAbsent(bandHash(signature, band), k -> new ArrayList<>(1)).add(key);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Keys of the indexed files which may be similar to the specified file, in the order they have been indexed
+   * for a given band.
+   */
+  public Set<K> getCandidates(FileSimilarity.File file) {
+    int[] signature = signature(file.getLineHashes());
+    if (signature == null) {
+      return Collections.emptySet();
+    }
+    Set<K> candidates = new LinkedHashSet<>();
+    for (int band = 0; band < BANDS; band++) {
+      List<K> files = filesByBand.get(band).get(bandHash(signature, band));
+      if (files != null) {
+        candidates.addAll(files);
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * @return {@code null} if there is no line hash
+   */
+  @CheckForNull
+  static int[] signature(List<String> lineHashes) {
+    if (lineHashes.isEmpty()) {
+      return null;
+    }
+    int[] signature = new int[SIGNATURE_SIZE];
+    Arrays.fill(signature, Integer.MAX_VALUE);
+    Map<String, Integer> occurrencesByLineHash = new HashMap<>();
+    for (String lineHash : lineHashes) {
+      int occurrence = occurrencesByLineHash.merge(lineHash, 1, Integer::sum);
+      long value = mix(((long) lineHash.hashCode() << 32) | occurrence);
+      for (int i = 0; i < SIGNATURE_SIZE; i++) {
+        int hash = (int) ((MULTIPLIERS[i] * value + INCREMENTS[i]) >>> 33);
+        if (hash < signature[i]) {
+          signature[i] = hash;
+        }
+      }
+    }
+    return signature;
+  }
+
+  /**
+   * Finalizer of MurmurHash3, so that all the bits of the line hash and of its occurrence are spread over the value
+   */
+  private static long mix(long value) {
+    long res = value;
+    res ^= res >>> 33;
+    res *= 0xff51afd7ed558ccdL;
+    res ^= res >>> 33;
+    res *= 0xc4ceb9fe1a85ec53L;
+    res ^= res >>> 33;
+    return res;
+  }
+
+  private static long bandHash(int[] signature, int band) {
+    long hash = band;
+    for (int i = band * ROWS_PER_BAND; i < (band + 1) * ROWS_PER_BAND; i++) {
+      hash = 31 * hash + signature[i];
+    }
+    return hash;
+  }
+}
@@ -27,6 +27,7 @@ import java.util.Map;
 import javax.annotation.CheckForNull;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor;
+import org.sonar.server.computation.task.projectanalysis.component.ConcurrentPathAwareVisitor;
 import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.measure.Measure;
@@ -38,7 +39,15 @@ import org.sonar.server.computation.task.projectanalysis.period.PeriodHolder;
 
 import static java.util.Objects.requireNonNull;
 
-public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<FormulaExecutorComponentVisitor.Counters> {
+/**
+ * Executes {@link Formula}s on leaves and aggregates their counters on higher components.
+ * <p>
+ * As counters are aggregated in any order, this visitor can be used to visit subtrees concurrently, provided the
+ * {@link Formula}s and the {@link MeasureRepository} are thread-safe.
+ * </p>
+ */
+public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<FormulaExecutorComponentVisitor.Counters>
+  implements ConcurrentPathAwareVisitor<FormulaExecutorComponentVisitor.Counters> {
   private static final SimpleStackElementFactory<Counters> COUNTERS_FACTORY = new SimpleStackElementFactory<Counters>() {
 
     @Override
@@ -102,6 +111,13 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
     }
   }
 
+  @Override
+  public void merge(Counters source, Counters target) {
+    for (Map.Entry<Formula, Counter> entry : source.countersByFormula.entrySet()) {
+      target.aggregate(entry.getKey(), entry.getValue());
+    }
+  }
+
   @Override
   public void visitProject(Component project, Path<FormulaExecutorComponentVisitor.Counters> path) {
     process(project, path);
@@ -0,0 +1,445 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.issue.IssueComment;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.db.protobuf.DbIssues;
+import org.sonar.server.util.cache.RecordCodec;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compact binary encoding of {@link DefaultIssue} used by {@link IssueCache}. Fields are
+ * written in a fixed order, nullable values being prefixed by a presence flag. Only the
+ * values of unexpected types fallback to Java serialization.
+ */
+class DefaultIssueCodec implements RecordCodec<DefaultIssue> {
+
+  private static final int NULL_LENGTH = -1;
+
+  private static final byte VALUE_NULL = 0;
+  private static final byte VALUE_STRING = 1;
+  private static final byte VALUE_LONG = 2;
+  private static final byte VALUE_INTEGER = 3;
+  private static final byte VALUE_DOUBLE = 4;
+  private static final byte VALUE_DATE = 5;
+  private static final byte VALUE_SERIALIZED = 6;
+  private static final byte VALUE_DB_LOCATIONS = 7;
+  private static final byte VALUE_FIELD_DIFFS = 8;
+  /**
+   * Element of {@link DefaultIssue#changes()} which is the same instance as {@link DefaultIssue#currentChange()}
+   */
+  private static final byte VALUE_CURRENT_CHANGE = 9;
+
+  @Override
+  public void write(DefaultIssue issue, DataOutput out) throws IOException {
+    writeString(out, issue.key());
+    RuleType type = issue.type();
+    out.writeInt(type == null ? NULL_LENGTH : type.getDbConstant());
+    writeString(out, issue.componentUuid());
+    writeString(out, issue.componentKey());
+    writeString(out, issue.moduleUuid());
+    writeString(out, issue.moduleUuidPath());
+    writeString(out, issue.projectUuid());
+    writeString(out, issue.projectKey());
+    RuleKey ruleKey = issue.ruleKey();
+    writeString(out, ruleKey == null ? null : ruleKey.toString());
+    writeString(out, issue.language());
+    writeString(out, issue.severity());
+    out.writeBoolean(issue.manualSeverity());
+    writeString(out, issue.message());
+    Integer line = issue.line();
+    out.writeInt(line == null ? NULL_LENGTH : line);
+    writeNullableDouble(out, issue.gap());
+    writeNullableLong(out, issue.effortInMinutes());
+    writeString(out, issue.status());
+    writeString(out, issue.resolution());
+    writeString(out, issue.assignee());
+    writeString(out, issue.checksum());
+    writeAttributes(out, issue.attributes());
+    writeString(out, issue.authorLogin());
+    writeComments(out, issue.comments());
+    writeTags(out, issue.tags());
+    writeLocations(out, issue.getLocations());
+    writeDate(out, issue.creationDate());
+    writeDate(out, issue.updateDate());
+    writeDate(out, issue.closeDate());
+    FieldDiffs currentChange = issue.currentChange();
+    writeFieldDiffs(out, currentChange);
+    writeChanges(out, issue.changes(), currentChange);
+    out.writeBoolean(issue.isNew());
+    out.writeBoolean(issue.isBeingClosed());
+    out.writeBoolean(issue.isOnDisabledRule());
+    out.writeBoolean(issue.isChanged());
+    out.writeBoolean(issue.mustSendNotifications());
+    writeNullableLong(out, issue.selectedAt());
+  }
+
+  @Override
+  public DefaultIssue read(DataInput in) throws IOException {
+    DefaultIssue issue = new DefaultIssue();
+    issue.setKey(readString(in));
+    int type = in.readInt();
+    issue.setType(type == NULL_LENGTH ? null : RuleType.valueOf(type));
+    issue.setComponentUuid(readString(in));
+    issue.setComponentKey(readString(in));
+    issue.setModuleUuid(readString(in));
+    issue.setModuleUuidPath(readString(in));
+    issue.setProjectUuid(readString(in));
+    issue.setProjectKey(readString(in));
+    String ruleKey = readString(in);
+    issue.setRuleKey(ruleKey == null ? null : RuleKey.parse(ruleKey));
+    issue.setLanguage(readString(in));
+    issue.setSeverity(readString(in));
+    issue.setManualSeverity(in.readBoolean());
+    issue.setMessage(readString(in));
+    int line = in.readInt();
+    issue.setLine(line == NULL_LENGTH ? null : line);
+    issue.setGap(readNullableDouble(in));
+    Long effort = readNullableLong(in);
+    issue.setEffort(effort == null ? null : Duration.create(effort));
+    String status = readString(in);
+    if (status != null) {
+      // status can't be reset to null
+      issue.setStatus(status);
+    }
+    issue.setResolution(readString(in));
+    issue.setAssignee(readString(in));
+    issue.setChecksum(readString(in));
+    issue.setAttributes(readAttributes(in));
+    issue.setAuthorLogin(readString(in));
+    readComments(in, issue);
+    readTags(in, issue);
+    issue.setLocations(readValue(in));
+    issue.setCreationDate(readDate(in));
+    issue.setUpdateDate(readDate(in));
+    issue.setCloseDate(readDate(in));
+    FieldDiffs currentChange = readFieldDiffs(in);
+    List<FieldDiffs> changes = readChanges(in, currentChange);
+    if (currentChange != null) {
+      issue.setCurrentChange(currentChange);
+    }
+    if (changes != null) {
+      issue.setChanges(changes);
+    }
+    issue.setNew(in.readBoolean());
+    issue.setBeingClosed(in.readBoolean());
+    issue.setOnDisabledRule(in.readBoolean());
+    issue.setChanged(in.readBoolean());
+    issue.setSendNotifications(in.readBoolean());
+    issue.setSelectedAt(readNullableLong(in));
+    return issue;
+  }
+
+  private static void writeAttributes(DataOutput out, Map<String, String> attributes) throws IOException {
+    out.writeInt(attributes.size());
+    for (Map.Entry<String, String> entry : attributes.entrySet()) {
+      writeString(out, entry.getKey());
+      writeString(out, entry.getValue());
+    }
+  }
+
+  @CheckForNull
+  private static Map<String, String> readAttributes(DataInput in) throws IOException {
+    int size = in.readInt();
+    if (size == 0) {
+      return null;
+    }
+    Map<String, String> attributes = new HashMap<>(size);
+    for (int i = 0; i < size; i++) {
+      attributes.put(readString(in), readString(in));
+    }
+    return attributes;
+  }
+
+  private static void writeComments(DataOutput out, List<IssueComment> comments) throws IOException {
+    out.writeInt(comments.size());
+    for (IssueComment comment : comments) {
+      DefaultIssueComment defaultComment = (DefaultIssueComment) comment;
+      writeString(out, defaultComment.key());
+      writeString(out, defaultComment.issueKey());
+      writeString(out, defaultComment.userLogin());
+      writeString(out, defaultComment.markdownText());
+      writeDate(out, defaultComment.createdAt());
+      writeDate(out, defaultComment.updatedAt());
+      out.writeBoolean(defaultComment.isNew());
+    }
+  }
+
+  private static void readComments(DataInput in, DefaultIssue issue) throws IOException {
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      issue.addComment(new DefaultIssueComment()
+        .setKey(readString(in))
+        .setIssueKey(readString(in))
+        .setUserLogin(readString(in))
+        .setMarkdownText(readString(in))
+        .setCreatedAt(readDate(in))
+        .setUpdatedAt(readDate(in))
+        .setNew(in.readBoolean()));
+    }
+  }
+
+  private static void writeTags(DataOutput out, Set<String> tags) throws IOException {
+    out.writeInt(tags.size());
+    for (String tag : tags) {
+      writeString(out, tag);
+    }
+  }
+
+  private static void readTags(DataInput in, DefaultIssue issue) throws IOException {
+    int size = in.readInt();
+    if (size > 0) {
+      List<String> tags = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        tags.add(readString(in));
+      }
+      issue.setTags(tags);
+    }
+  }
+
+  private static void writeChanges(DataOutput out, List<FieldDiffs> changes, @Nullable FieldDiffs currentChange) throws IOException {
+    out.writeInt(changes.size());
+    for (FieldDiffs change : changes) {
+      if (currentChange != null && change == currentChange) {
+        out.writeByte(VALUE_CURRENT_CHANGE);
+      } else {
+        writeFieldDiffs(out, change);
+      }
+    }
+  }
+
+  @CheckForNull
+  private static List<FieldDiffs> readChanges(DataInput in, @Nullable FieldDiffs currentChange) throws IOException {
+    int size = in.readInt();
+    if (size == 0) {
+      return null;
+    }
+    List<FieldDiffs> changes = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      byte marker = in.readByte();
+      if (marker == VALUE_CURRENT_CHANGE) {
+        changes.add(currentChange);
+      } else {
+        changes.add(marker == VALUE_NULL ? null : readFieldDiffsBody(in));
+      }
+    }
+    return changes;
+  }
+
+  private static void writeFieldDiffs(DataOutput out, @Nullable FieldDiffs diffs) throws IOException {
+    if (diffs == null) {
+      out.writeByte(VALUE_NULL);
+      return;
+    }
+    out.writeByte(VALUE_FIELD_DIFFS);
+    writeString(out, diffs.issueKey());
+    writeString(out, diffs.userLogin());
+    writeDate(out, diffs.creationDate());
+    Map<String, FieldDiffs.Diff> entries = diffs.diffs();
+    out.writeInt(entries.size());
+    for (Map.Entry<String, FieldDiffs.Diff> entry : entries.entrySet()) {
+      writeString(out, entry.getKey());
+      writeValue(out, entry.getValue().oldValue());
+      writeValue(out, entry.getValue().newValue());
+    }
+  }
+
+  @CheckForNull
+  private static FieldDiffs readFieldDiffs(DataInput in) throws IOException {
+    byte marker = in.readByte();
+    return marker == VALUE_NULL ? null : readFieldDiffsBody(in);
+  }
+
+  private static FieldDiffs readFieldDiffsBody(DataInput in) throws IOException {
+    FieldDiffs diffs = new FieldDiffs()
+      .setIssueKey(readString(in))
+      .setUserLogin(readString(in))
+      .setCreationDate(readDate(in));
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      String field = readString(in);
+      Serializable oldValue = (Serializable) readValue(in);
+      Serializable newValue = (Serializable) readValue(in);
+      diffs.diffs().put(field, new FieldDiffs.Diff<>(oldValue, newValue));
+    }
+    return diffs;
+  }
+
+  private static void writeLocations(DataOutput out, @Nullable Object locations) throws IOException {
+    if (locations instanceof DbIssues.Locations) {
+      out.writeByte(VALUE_DB_LOCATIONS);
+      writeBytes(out, ((DbIssues.Locations) locations).toByteArray());
+    } else {
+      writeValue(out, locations);
+    }
+  }
+
+  private static void writeValue(DataOutput out, @Nullable Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(VALUE_NULL);
+    } else if (value instanceof String) {
+      out.writeByte(VALUE_STRING);
+      writeString(out, (String) value);
+    } else if (value instanceof Long) {
+      out.writeByte(VALUE_LONG);
+      out.writeLong((Long) value);
+    } else if (value instanceof Integer) {
+      out.writeByte(VALUE_INTEGER);
+      out.writeInt((Integer) value);
+    } else if (value instanceof Double) {
+      out.writeByte(VALUE_DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (value.getClass() == Date.class) {
+      out.writeByte(VALUE_DATE);
+      out.writeLong(((Date) value).getTime());
+    } else {
+      out.writeByte(VALUE_SERIALIZED);
+      writeBytes(out, serialize((Serializable) value));
+    }
+  }
+
+  @CheckForNull
+  private static Object readValue(DataInput in) throws IOException {
+    byte type = in.readByte();
+    switch (type) {
+      case VALUE_NULL:
+        return null;
+      case VALUE_STRING:
+        return readString(in);
+      case VALUE_LONG:
+        return in.readLong();
+      case VALUE_INTEGER:
+        return in.readInt();
+      case VALUE_DOUBLE:
+        return in.readDouble();
+      case VALUE_DATE:
+        return new Date(in.readLong());
+      case VALUE_DB_LOCATIONS:
+        return DbIssues.Locations.parseFrom(readBytes(in));
+      case VALUE_SERIALIZED:
+        return deserialize(readBytes(in));
+      default:
+        throw new IllegalStateException("Unsupported value type: " + type);
+    }
+  }
+
+  private static void writeString(DataOutput out, @Nullable String s) throws IOException {
+    writeBytes(out, s == null ? null : s.getBytes(UTF_8));
+  }
+
+  @CheckForNull
+  private static String readString(DataInput in) throws IOException {
+    byte[] bytes = readBytes(in);
+    return bytes == null ? null : new String(bytes, UTF_8);
+  }
+
+  private static void writeBytes(DataOutput out, @Nullable byte[] bytes) throws IOException {
+    if (bytes == null) {
+      out.writeInt(NULL_LENGTH);
+    } else {
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  @CheckForNull
+  private static byte[] readBytes(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length == NULL_LENGTH) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  private static void writeDate(DataOutput out, @Nullable Date date) throws IOException {
+    writeNullableLong(out, date == null ? null : date.getTime());
+  }
+
+  @CheckForNull
+  private static Date readDate(DataInput in) throws IOException {
+    Long time = readNullableLong(in);
+    return time == null ? null : new Date(time);
+  }
+
+  private static void writeNullableLong(DataOutput out, @Nullable Long l) throws IOException {
+    out.writeBoolean(l != null);
+    if (l != null) {
+      out.writeLong(l);
+    }
+  }
+
+  @CheckForNull
+  private static Long readNullableLong(DataInput in) throws IOException {
+    return in.readBoolean() ? in.readLong() : null;
+  }
+
+  private static void writeNullableDouble(DataOutput out, @Nullable Double d) throws IOException {
+    out.writeBoolean(d != null);
+    if (d != null) {
+      out.writeDouble(d);
+    }
+  }
+
+  @CheckForNull
+  private static Double readNullableDouble(DataInput in) throws IOException {
+    return in.readBoolean() ? in.readDouble() : null;
+  }
+
+  private static byte[] serialize(Serializable value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+      output.writeObject(value);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Object deserialize(byte[] bytes) throws IOException {
+    try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return input.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException("Fail to deserialize value", e);
+    }
+  }
+}
@@ -24,7 +24,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.Input;
 import org.sonar.core.issue.tracking.Tracking;
+import org.sonar.server.computation.configuration.CeConfiguration;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
@@ -42,11 +44,15 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
   private final MutableComponentIssuesRepository componentIssuesRepository;
   private final ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues;
   private final MovedFilesRepository movedFilesRepository;
+  private final CeConfiguration ceConfiguration;
+  private final IssuesInputHasher issuesInputHasher;
+  private final IssuesInputHashRepository issuesInputHashRepository;
 
   private final List<DefaultIssue> componentIssues = new ArrayList<>();
 
   public IntegrateIssuesVisitor(TrackerExecution tracker, IssueCache issueCache, IssueLifecycle issueLifecycle, IssueVisitors issueVisitors,
-    ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues, MutableComponentIssuesRepository componentIssuesRepository, MovedFilesRepository movedFilesRepository) {
+    ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues, MutableComponentIssuesRepository componentIssuesRepository, MovedFilesRepository movedFilesRepository,
+    CeConfiguration ceConfiguration, IssuesInputHasher issuesInputHasher, IssuesInputHashRepository issuesInputHashRepository) {
     super(CrawlerDepthLimit.FILE, POST_ORDER);
     this.tracker = tracker;
     this.issueCache = issueCache;
@@ -55,6 +61,9 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
     this.componentsWithUnprocessedIssues = componentsWithUnprocessedIssues;
     this.componentIssuesRepository = componentIssuesRepository;
     this.movedFilesRepository = movedFilesRepository;
+    this.ceConfiguration = ceConfiguration;
+    this.issuesInputHasher = issuesInputHasher;
+    this.issuesInputHashRepository = issuesInputHashRepository;
   }
 
   @Override
@@ -73,11 +82,18 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
   private void processIssues(Component component) {
     DiskCache<DefaultIssue>.DiskAppender cacheAppender = issueCache.newAppender();
     try {
-      Tracking<DefaultIssue, DefaultIssue> tracking = tracker.track(component);
-      issueVisitors.beforeComponent(component);
-      fillNewOpenIssues(component, tracking, cacheAppender);
-      fillExistingOpenIssues(component, tracking, cacheAppender);
-      closeUnmatchedBaseIssues(component, tracking, cacheAppender);
+      Input<DefaultIssue> rawInput = tracker.createRawInput(component);
+      Input<DefaultIssue> baseInput = tracker.createBaseInput(component);
+      if (isUnchangedSincePreviousAnalysis(component, rawInput)) {
+        issueVisitors.beforeComponent(component);
+        fillUnchangedOpenIssues(component, baseInput, cacheAppender);
+      } else {
+        Tracking<DefaultIssue, DefaultIssue> tracking = tracker.track(rawInput, baseInput);
+        issueVisitors.beforeComponent(component);
+        fillNewOpenIssues(component, tracking, cacheAppender);
+        fillExistingOpenIssues(component, tracking, cacheAppender);
+        closeUnmatchedBaseIssues(component, tracking, cacheAppender);
+      }
       issueVisitors.afterComponent(component);
     } catch (Exception e) {
       throw new IllegalStateException(String.format("Fail to process issues of component '%s'", component.getKey()), e);
@@ -86,6 +102,26 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
     }
   }
 
+  /**
+   * In incremental analysis mode, raw issues of a file are not tracked when they are the same as the ones tracked by the
+   * previous analysis: the open issues of the file are kept as they are in database. Moved files are always tracked, as
+   * their open issues belong to the original file.
+   */
+  private boolean isUnchangedSincePreviousAnalysis(Component component, Input<DefaultIssue> rawInput) {
+    if (!ceConfiguration.isIncrementalAnalysis() || component.getType() != Component.Type.FILE) {
+      return false;
+    }
+    String hash = issuesInputHasher.hash(component, rawInput.getIssues());
+    issuesInputHashRepository.setHash(component, hash);
+    return !movedFilesRepository.getOriginalFile(component).isPresent() && hash.equals(issuesInputHashRepository.getPreviousHash(component));
+  }
+
+  private void fillUnchangedOpenIssues(Component component, Input<DefaultIssue> baseInput, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
+    for (DefaultIssue issue : baseInput.getIssues()) {
+      process(component, issue, cacheAppender);
+    }
+  }
+
   private void fillNewOpenIssues(Component component, Tracking<DefaultIssue, DefaultIssue> tracking, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
     for (DefaultIssue issue : tracking.getUnmatchedRaws()) {
       issueLifecycle.initNewOpenIssue(issue);
@@ -0,0 +1,96 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.CheckForNull;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeActivityDto;
+import org.sonar.db.source.FileSourceDto;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Hashes of the inputs of the issues of files (see {@link IssuesInputHasher}), as computed by the current analysis
+ * and as persisted by the previous one.
+ * <p>
+ * Hashes of the previous analysis are ignored when the last task of the project failed, as its issues may not have been
+ * persisted while the hashes were.
+ * </p>
+ */
+public class IssuesInputHashRepository {
+
+  private final DbClient dbClient;
+  private final TreeRootHolder treeRootHolder;
+  private final Map<String, String> hashesByFileUuid = new ConcurrentHashMap<>();
+  @CheckForNull
+  private Map<String, String> previousHashesByFileUuid;
+
+  public IssuesInputHashRepository(DbClient dbClient, TreeRootHolder treeRootHolder) {
+    this.dbClient = dbClient;
+    this.treeRootHolder = treeRootHolder;
+  }
+
+  public void setHash(Component file, String hash) {
+    hashesByFileUuid.put(file.getUuid(), requireNonNull(hash, "Hash cannot be null"));
+  }
+
+  /**
+   * @return {@code null} if the hash has not been computed by the current analysis
+   */
+  @CheckForNull
+  public String getHash(Component file) {
+    return hashesByFileUuid.get(file.getUuid());
+  }
+
+  /**
+   * @return {@code null} if the previous analysis did not persist the hash or if it can't be trusted
+   */
+  @CheckForNull
+  public synchronized String getPreviousHash(Component file) {
+    if (previousHashesByFileUuid == null) {
+      previousHashesByFileUuid = loadPreviousHashes(treeRootHolder.getRoot().getUuid());
+    }
+    return previousHashesByFileUuid.get(file.getUuid());
+  }
+
+  private Map<String, String> loadPreviousHashes(String projectUuid) {
+    Map<String, String> hashes = new HashMap<>();
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      if (dbClient.ceActivityDao().countLastByStatusAndComponentUuid(dbSession, CeActivityDto.Status.FAILED, projectUuid) > 0) {
+        return hashes;
+      }
+      dbSession.select("org.sonar.db.source.FileSourceMapper.selectHashesForProject", ImmutableMap.of("projectUuid", projectUuid, "dataType", FileSourceDto.Type.SOURCE),
+        context -> {
+          FileSourceDto dto = (FileSourceDto) context.getResultObject();
+          if (dto.getIssuesInputHash() != null) {
+            hashes.put(dto.getFileUuid(), dto.getIssuesInputHash());
+          }
+        });
+    }
+    return hashes;
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import com.google.common.base.Optional;
+import com.google.protobuf.Message;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.server.debt.DebtRemediationFunction;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolder;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.qualityprofile.ActiveRule;
+import org.sonar.server.computation.task.projectanalysis.qualityprofile.ActiveRulesHolder;
+import org.sonar.server.qualityprofile.QualityProfile;
+
+/**
+ * Computes a hash of all the data the issues of a file are computed from, except the issues of the previous analysis:
+ * raw issues (after the execution of common rules and of issue filters), quality profile of the language of the file,
+ * active rules and rules of the raw issues, which define their severity and their effort.
+ * <p>
+ * When this hash did not change since the previous analysis, raw issues are the same as the ones which were tracked
+ * by the previous analysis, so the open issues of the file are still valid and do not need to be tracked again.
+ * </p>
+ */
+public class IssuesInputHasher {
+
+  /**
+   * To be incremented whenever the way issues are computed from their inputs changes, so that the issues
+   * tracked by previous versions are tracked again.
+   */
+  private static final int VERSION = 1;
+
+  private final AnalysisMetadataHolder analysisMetadataHolder;
+  private final ActiveRulesHolder activeRulesHolder;
+  private final RuleRepository ruleRepository;
+
+  public IssuesInputHasher(AnalysisMetadataHolder analysisMetadataHolder, ActiveRulesHolder activeRulesHolder, RuleRepository ruleRepository) {
+    this.analysisMetadataHolder = analysisMetadataHolder;
+    this.activeRulesHolder = activeRulesHolder;
+    this.ruleRepository = ruleRepository;
+  }
+
+  public String hash(Component file, Collection<DefaultIssue> rawIssues) {
+    Digest digest = new Digest();
+    digest.updateInt(VERSION);
+    updateQualityProfile(digest, file.getFileAttributes().getLanguageKey());
+
+    digest.updateInt(rawIssues.size());
+    TreeSet<RuleKey> ruleKeys = new TreeSet<>();
+    for (DefaultIssue issue : rawIssues) {
+      ruleKeys.add(issue.ruleKey());
+      digest.updateString(issue.ruleKey().toString());
+      digest.updateString(issue.line() == null ? null : String.valueOf(issue.line()));
+      digest.updateString(issue.checksum());
+      digest.updateString(issue.getMessage());
+      digest.updateString(issue.severity());
+      digest.updateString(issue.gap() == null ? null : String.valueOf(issue.gap()));
+      Message locations = issue.getLocations();
+      digest.updateBytes(locations == null ? null : locations.toByteArray());
+    }
+
+    digest.updateInt(ruleKeys.size());
+    for (RuleKey ruleKey : ruleKeys) {
+      updateRule(digest, ruleKey);
+    }
+    return digest.toHex();
+  }
+
+  private void updateQualityProfile(Digest digest, @Nullable String languageKey) {
+    QualityProfile qualityProfile = languageKey == null ? null : analysisMetadataHolder.getQProfilesByLanguage().get(languageKey);
+    if (qualityProfile == null) {
+      digest.updateString(null);
+    } else {
+      digest.updateString(qualityProfile.getQpKey());
+      digest.updateString(String.valueOf(qualityProfile.getRulesUpdatedAt().getTime()));
+    }
+  }
+
+  private void updateRule(Digest digest, RuleKey ruleKey) {
+    Optional<ActiveRule> activeRule = activeRulesHolder.get(ruleKey);
+    if (activeRule.isPresent()) {
+      digest.updateString(activeRule.get().getSeverity());
+      Map<String, String> params = new TreeMap<>(activeRule.get().getParams());
+      digest.updateInt(params.size());
+      for (Map.Entry<String, String> param : params.entrySet()) {
+        digest.updateString(param.getKey());
+        digest.updateString(param.getValue());
+      }
+    } else {
+      digest.updateString(null);
+    }
+
+    Optional<Rule> rule = ruleRepository.findByKey(ruleKey);
+    if (rule.isPresent()) {
+      digest.updateString(String.valueOf(rule.get().getStatus()));
+      digest.updateString(String.valueOf(rule.get().getType()));
+      DebtRemediationFunction function = rule.get().getRemediationFunction();
+      digest.updateString(function == null ? null : function.type().name());
+      digest.updateString(function == null ? null : function.gapMultiplier());
+      digest.updateString(function == null ? null : function.baseEffort());
+    } else {
+      digest.updateString(null);
+    }
+  }
+
+  private static class Digest {
+    private final MessageDigest messageDigest = DigestUtils.getMd5Digest();
+
+    private void updateString(@Nullable String value) {
+      updateBytes(value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void updateBytes(@Nullable byte[] bytes) {
+      // length prefix, so that the boundaries of the values are part of the hash. -1 stands for null.
+      if (bytes == null) {
+        updateInt(-1);
+      } else {
+        updateInt(bytes.length);
+        messageDigest.update(bytes);
+      }
+    }
+
+    private void updateInt(int value) {
+      messageDigest.update((byte) (value >>> 24));
+      messageDigest.update((byte) (value >>> 16));
+      messageDigest.update((byte) (value >>> 8));
+      messageDigest.update((byte) value);
+    }
+
+    private String toHex() {
+      return Hex.encodeHexString(messageDigest.digest());
+    }
+  }
+}
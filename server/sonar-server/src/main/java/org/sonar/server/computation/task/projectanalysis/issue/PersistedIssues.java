@@ -0,0 +1,56 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.util.Set;
+import javax.annotation.CheckForNull;
+
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Keys of the issues inserted or updated in database by the analysis, so that only
+ * these issues are indexed.
+ */
+public class PersistedIssues {
+
+  @CheckForNull
+  private Set<String> keys;
+
+  public void setKeys(Set<String> keys) {
+    requireNonNull(keys, "Keys cannot be null");
+    checkState(this.keys == null, "Keys have already been initialized");
+    this.keys = newHashSet(keys);
+  }
+
+  /**
+   * Whether issues have been persisted, even if none of them changed
+   */
+  public boolean isInitialized() {
+    return keys != null;
+  }
+
+  public Set<String> getKeys() {
+    checkState(keys != null, "Keys have not been initialized yet");
+    return keys;
+  }
+
+}
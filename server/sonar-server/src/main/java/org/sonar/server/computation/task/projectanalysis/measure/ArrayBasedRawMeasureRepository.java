@@ -0,0 +1,339 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.measure;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.Developer;
+import org.sonar.server.computation.task.projectanalysis.measure.MapBasedRawMeasureRepository.OverridePolicy;
+import org.sonar.server.computation.task.projectanalysis.metric.Metric;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Implementation of MeasureRepository which supports only raw measures of the Components of the analysis report,
+ * identified by their report ref, and identifies metrics by their id.
+ * <p>
+ * Measures of each Component are stored in columns of arrays of primitives, indexed by a slot allocated to each
+ * measure. Only measures which can not be represented by a numeric value and a variation (ie. string and level
+ * measures, measures with data, description, QualityGate status or developer) are kept as objects. Memory used by
+ * numeric measures is therefore about 30 bytes per measure, without any object per measure.
+ * </p>
+ * <p>
+ * The measures of a Component are guarded by their own lock, so that Components can be processed concurrently
+ * without contention. The lock of the repository is taken only to register a new Component.
+ * </p>
+ * <p>
+ * Numeric measures are created again each time they are read, so callers must not rely on their identity.
+ * </p>
+ *
+ * Intended to be used as a delegate of other MeasureRepository implementations (hence the final keyword).
+ */
+@ThreadSafe
+public final class ArrayBasedRawMeasureRepository implements MeasureRepository {
+  private static final int NOT_FOUND = -1;
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final int INITIAL_SLOTS_PER_COMPONENT = 8;
+  private static final Measure.ValueType[] VALUE_TYPES = Measure.ValueType.values();
+
+  private final Map<Integer, Metric> metricsById = new ConcurrentHashMap<>();
+
+  // measures of each Component, indexed by Component ref. Elements are set and the array is replaced only
+  // while holding the lock of the repository, so that no Component is lost when the array grows
+  private volatile AtomicReferenceArray<ComponentMeasures> measuresByRef = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+  /**
+   * @throws UnsupportedOperationException all the time, not supported
+   */
+  @Override
+  public Optional<Measure> getBaseMeasure(Component component, Metric metric) {
+    throw new UnsupportedOperationException("This implementation of MeasureRepository supports only raw measures");
+  }
+
+  @Override
+  public Optional<Measure> getRawMeasure(Component component, Metric metric) {
+    // fail fast
+    requireNonNull(component);
+    requireNonNull(metric);
+
+    ComponentMeasures measures = measuresOf(component);
+    return measures == null ? Optional.absent() : Optional.fromNullable(measures.get(metric, null));
+  }
+
+  @Override
+  public void add(Component component, Metric metric, Measure measure) {
+    requireNonNull(component);
+    checkValueTypeConsistency(metric, measure);
+
+    metricsById.putIfAbsent(metric.getId(), metric);
+    if (!getOrCreateMeasuresOf(component).addIfAbsent(metric, measure)) {
+      throw new UnsupportedOperationException(
+        format(
+          "a measure can be set only once for a specific Component (key=%s), Metric (key=%s). Use update method",
+          component.getKey(),
+          metric.getKey()));
+    }
+  }
+
+  @Override
+  public void update(Component component, Metric metric, Measure measure) {
+    requireNonNull(component);
+    checkValueTypeConsistency(metric, measure);
+
+    ComponentMeasures measures = measuresOf(component);
+    if (measures == null || !measures.updateIfPresent(metric, measure)) {
+      throw new UnsupportedOperationException(
+        format(
+          "a measure can be updated only if one already exists for a specific Component (key=%s), Metric (key=%s). Use add method",
+          component.getKey(),
+          metric.getKey()));
+    }
+  }
+
+  private static void checkValueTypeConsistency(Metric metric, Measure measure) {
+    checkArgument(
+      measure.getValueType() == Measure.ValueType.NO_VALUE || measure.getValueType() == metric.getType().getValueType(),
+      format(
+        "Measure's ValueType (%s) is not consistent with the Metric's ValueType (%s)",
+        measure.getValueType(), metric.getType().getValueType()));
+  }
+
+  @Override
+  public Set<Measure> getRawMeasures(Component component, Metric metric) {
+    requireNonNull(metric);
+    requireNonNull(component);
+    ComponentMeasures measures = measuresOf(component);
+    return measures == null ? ImmutableSet.of() : measures.getAll(metric);
+  }
+
+  @Override
+  public SetMultimap<String, Measure> getRawMeasures(Component component) {
+    ComponentMeasures measures = measuresOf(component);
+    return measures == null ? ImmutableSetMultimap.of() : measures.getAll(metricsById);
+  }
+
+  public void add(Component component, Metric metric, Measure measure, OverridePolicy overridePolicy) {
+    requireNonNull(component);
+    requireNonNull(measure);
+    requireNonNull(overridePolicy);
+
+    metricsById.putIfAbsent(metric.getId(), metric);
+    getOrCreateMeasuresOf(component).put(metric, measure, overridePolicy);
+  }
+
+  @CheckForNull
+  private ComponentMeasures measuresOf(Component component) {
+    int ref = component.getReportAttributes().getRef();
+    AtomicReferenceArray<ComponentMeasures> array = measuresByRef;
+    return ref < array.length() ? array.get(ref) : null;
+  }
+
+  private ComponentMeasures getOrCreateMeasuresOf(Component component) {
+    ComponentMeasures measures = measuresOf(component);
+    return measures != null ? measures : createMeasuresOf(component.getReportAttributes().getRef());
+  }
+
+  private synchronized ComponentMeasures createMeasuresOf(int ref) {
+    AtomicReferenceArray<ComponentMeasures> array = measuresByRef;
+    if (ref >= array.length()) {
+      AtomicReferenceArray<ComponentMeasures> grown = new AtomicReferenceArray<>(Math.max(ref + 1, 2 * array.length()));
+      for (int i = 0; i < array.length(); i++) {
+        grown.set(i, array.get(i));
+      }
+      array = grown;
+      measuresByRef = grown;
+    }
+    ComponentMeasures measures = array.get(ref);
+    if (measures == null) {
+      measures = new ComponentMeasures();
+      array.set(ref, measures);
+    }
+    return measures;
+  }
+
+  /**
+   * Measures of a Component. Methods are synchronized on the instance.
+   */
+  private static final class ComponentMeasures {
+    private int size = 0;
+    // columns, indexed by slot
+    private int[] metricIds = new int[INITIAL_SLOTS_PER_COMPONENT];
+    private byte[] valueTypes = new byte[INITIAL_SLOTS_PER_COMPONENT];
+    private double[] values = new double[INITIAL_SLOTS_PER_COMPONENT];
+    // NaN when the measure has no variation
+    private double[] variations = new double[INITIAL_SLOTS_PER_COMPONENT];
+    // null when the measure is stored as primitives
+    private Measure[] objectMeasures = new Measure[INITIAL_SLOTS_PER_COMPONENT];
+
+    @CheckForNull
+    synchronized Measure get(Metric metric, @Nullable Developer developer) {
+      int slot = findSlot(metric, developer);
+      return slot == NOT_FOUND ? null : measureAt(slot);
+    }
+
+    synchronized boolean addIfAbsent(Metric metric, Measure measure) {
+      if (findSlot(metric, measure.getDeveloper()) != NOT_FOUND) {
+        return false;
+      }
+      store(allocateSlot(metric), measure);
+      return true;
+    }
+
+    synchronized boolean updateIfPresent(Metric metric, Measure measure) {
+      int slot = findSlot(metric, measure.getDeveloper());
+      if (slot == NOT_FOUND) {
+        return false;
+      }
+      store(slot, measure);
+      return true;
+    }
+
+    synchronized void put(Metric metric, Measure measure, OverridePolicy overridePolicy) {
+      int slot = findSlot(metric, measure.getDeveloper());
+      if (slot == NOT_FOUND) {
+        slot = allocateSlot(metric);
+      } else if (overridePolicy == OverridePolicy.DO_NOT_OVERRIDE) {
+        return;
+      }
+      store(slot, measure);
+    }
+
+    synchronized Set<Measure> getAll(Metric metric) {
+      ImmutableSet.Builder<Measure> builder = ImmutableSet.builder();
+      // most recent measures first
+      for (int slot = size - 1; slot >= 0; slot--) {
+        if (metricIds[slot] == metric.getId()) {
+          builder.add(measureAt(slot));
+        }
+      }
+      return builder.build();
+    }
+
+    synchronized SetMultimap<String, Measure> getAll(Map<Integer, Metric> metricsById) {
+      ImmutableSetMultimap.Builder<String, Measure> builder = ImmutableSetMultimap.builder();
+      for (int slot = size - 1; slot >= 0; slot--) {
+        builder.put(metricsById.get(metricIds[slot]).getKey(), measureAt(slot));
+      }
+      return builder.build();
+    }
+
+    private int findSlot(Metric metric, @Nullable Developer developer) {
+      for (int slot = size - 1; slot >= 0; slot--) {
+        if (metricIds[slot] == metric.getId() && Objects.equals(developerAt(slot), developer)) {
+          return slot;
+        }
+      }
+      return NOT_FOUND;
+    }
+
+    private int allocateSlot(Metric metric) {
+      if (size == metricIds.length) {
+        int capacity = 2 * size;
+        metricIds = Arrays.copyOf(metricIds, capacity);
+        valueTypes = Arrays.copyOf(valueTypes, capacity);
+        values = Arrays.copyOf(values, capacity);
+        variations = Arrays.copyOf(variations, capacity);
+        objectMeasures = Arrays.copyOf(objectMeasures, capacity);
+      }
+      int slot = size;
+      size++;
+      metricIds[slot] = metric.getId();
+      return slot;
+    }
+
+    private void store(int slot, Measure measure) {
+      if (!isNumeric(measure)) {
+        objectMeasures[slot] = measure;
+        return;
+      }
+      objectMeasures[slot] = null;
+      valueTypes[slot] = (byte) measure.getValueType().ordinal();
+      values[slot] = numericValue(measure);
+      variations[slot] = measure.hasVariation() ? measure.getVariation() : Double.NaN;
+    }
+
+    private Measure measureAt(int slot) {
+      Measure measure = objectMeasures[slot];
+      if (measure != null) {
+        return measure;
+      }
+      Measure.ValueType valueType = VALUE_TYPES[valueTypes[slot]];
+      double variation = variations[slot];
+      return Measure.createNumeric(
+        valueType,
+        valueType == Measure.ValueType.NO_VALUE ? null : values[slot],
+        Double.isNaN(variation) ? null : variation);
+    }
+
+    @Nullable
+    private Developer developerAt(int slot) {
+      Measure measure = objectMeasures[slot];
+      return measure == null ? null : measure.getDeveloper();
+    }
+  }
+
+  private static boolean isNumeric(Measure measure) {
+    if (measure.getDeveloper() != null || measure.getData() != null || measure.getDescription() != null || measure.hasQualityGateStatus()) {
+      return false;
+    }
+    if (measure.hasVariation() && Double.isNaN(measure.getVariation())) {
+      return false;
+    }
+    switch (measure.getValueType()) {
+      case NO_VALUE:
+      case BOOLEAN:
+      case INT:
+      case LONG:
+      case DOUBLE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static double numericValue(Measure measure) {
+    switch (measure.getValueType()) {
+      case BOOLEAN:
+        return measure.getBooleanValue() ? 1.0d : 0.0d;
+      case INT:
+        return measure.getIntValue();
+      case LONG:
+        return measure.getLongValue();
+      case DOUBLE:
+        return measure.getDoubleValue();
+      default:
+        return 0.0d;
+    }
+  }
+}
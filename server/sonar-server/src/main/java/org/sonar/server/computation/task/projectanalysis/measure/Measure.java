@@ -99,6 +99,14 @@ public final class Measure {
     return new NewMeasureBuilder();
   }
 
+  /**
+   * Creates a measure with a numeric value (or no value) which is already rounded, for repositories which do not store
+   * measures as objects.
+   */
+  static Measure createNumeric(ValueType valueType, @Nullable Double value, @Nullable Double variation) {
+    return new Measure(valueType, null, value, null, null, null, null, variation);
+  }
+
   public static UpdateMeasureBuilder updatedMeasureBuilder(Measure measure) {
     return new UpdateMeasureBuilder(measure);
   }
@@ -0,0 +1,139 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.source;
+
+import com.google.protobuf.Message;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.duplication.DuplicationRepository;
+import org.sonar.server.computation.task.projectanalysis.duplication.TextBlock;
+
+/**
+ * Computes a hash of all the data the sources of a file are computed from: source code, coverage, SCM,
+ * highlighting, symbols and duplications. Sources do not need to be computed again when this hash did not
+ * change since the previous analysis.
+ * <p>
+ * The hash is computed from the raw data of the report, which is much cheaper than computing the sources.
+ * </p>
+ */
+public class ComputeFileSourceInputHash {
+
+  /**
+   * To be incremented whenever the way sources are computed from their inputs changes, so that the sources
+   * persisted by previous versions are computed again.
+   */
+  private static final int VERSION = 1;
+
+  private static final byte NO_SCM = 0;
+  private static final byte SCM_FROM_REPORT = 1;
+  private static final byte SCM_FROM_PREVIOUS_ANALYSIS = 2;
+
+  private final Component file;
+  private final BatchReportReader reportReader;
+  private final SourceLinesRepository sourceLinesRepository;
+  private final DuplicationRepository duplicationRepository;
+  private final MessageDigest digest = DigestUtils.getMd5Digest();
+
+  public ComputeFileSourceInputHash(Component file, BatchReportReader reportReader, SourceLinesRepository sourceLinesRepository,
+    DuplicationRepository duplicationRepository) {
+    this.file = file;
+    this.reportReader = reportReader;
+    this.sourceLinesRepository = sourceLinesRepository;
+    this.duplicationRepository = duplicationRepository;
+  }
+
+  public String compute() {
+    digest.reset();
+    updateInt(VERSION);
+    updateInt(file.getFileAttributes().getLines());
+    try (CloseableIterator<String> lines = sourceLinesRepository.readLines(file)) {
+      while (lines.hasNext()) {
+        updateBytes(lines.next().getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    int ref = file.getReportAttributes().getRef();
+    updateMessages(reportReader.readComponentCoverage(ref));
+    updateScm(reportReader.readChangesets(ref));
+    updateMessages(reportReader.readComponentSyntaxHighlighting(ref));
+    updateMessages(reportReader.readComponentSymbols(ref));
+    updateDuplications();
+    return Hex.encodeHexString(digest.digest());
+  }
+
+  private void updateScm(@Nullable ScannerReport.Changesets changesets) {
+    if (changesets == null) {
+      digest.update(NO_SCM);
+    } else if (changesets.getCopyFromPrevious()) {
+      // SCM data are copied from the previous analysis, which is reused as long as the source code is unchanged
+      digest.update(SCM_FROM_PREVIOUS_ANALYSIS);
+    } else {
+      digest.update(SCM_FROM_REPORT);
+      updateBytes(changesets.toByteArray());
+    }
+  }
+
+  private void updateMessages(CloseableIterator<? extends Message> messages) {
+    try (CloseableIterator<? extends Message> it = messages) {
+      int count = 0;
+      while (it.hasNext()) {
+        updateBytes(it.next().toByteArray());
+        count++;
+      }
+      // separates the messages of the different sections
+      updateInt(count);
+    }
+  }
+
+  /**
+   * Only the blocks of the file itself are used by {@link DuplicationLineReader}, in their natural order.
+   */
+  private void updateDuplications() {
+    List<TextBlock> textBlocks = DuplicationLineReader.extractAllDuplicatedTextBlocks(duplicationRepository.getDuplications(file));
+    Collections.sort(textBlocks);
+    updateInt(textBlocks.size());
+    for (TextBlock textBlock : textBlocks) {
+      updateInt(textBlock.getStart());
+      updateInt(textBlock.getEnd());
+    }
+  }
+
+  private void updateBytes(byte[] bytes) {
+    // length prefix, so that the boundaries of the values are part of the hash
+    updateInt(bytes.length);
+    digest.update(bytes);
+  }
+
+  private void updateInt(int value) {
+    digest.update((byte) (value >>> 24));
+    digest.update((byte) (value >>> 16));
+    digest.update((byte) (value >>> 8));
+    digest.update((byte) value);
+  }
+}
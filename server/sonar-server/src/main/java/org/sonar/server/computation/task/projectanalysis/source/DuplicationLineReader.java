@@ -80,7 +80,7 @@ public class DuplicationLineReader implements LineReader {
    *
    * @see {@link #createIndexOfDuplicatedTextBlocks(Iterable)}
    */
-  private static List<TextBlock> extractAllDuplicatedTextBlocks(Iterable<Duplication> duplications) {
+  static List<TextBlock> extractAllDuplicatedTextBlocks(Iterable<Duplication> duplications) {
     List<TextBlock> duplicatedBlock = new ArrayList<>(size(duplications));
     for (Duplication duplication : duplications) {
       duplicatedBlock.add(duplication.getOriginal());
@@ -19,21 +19,50 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import java.util.Set;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeActivityDto;
+import org.sonar.server.computation.task.projectanalysis.component.RelocatedComponents;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.issue.PersistedIssues;
 import org.sonar.server.computation.task.step.ComputationStep;
 import org.sonar.server.es.ProjectIndexer;
+import org.sonar.server.issue.index.IssueIndexer;
 
+/**
+ * Indexes the project. Only the issues persisted by the analysis are indexed, unless all the issues
+ * of the project must be indexed:
+ * <ul>
+ *   <li>when persisted issues are unknown</li>
+ *   <li>when they are too many, as indexing the whole project is then cheaper</li>
+ *   <li>when the previous task of the project failed, as its issues may have been persisted but not indexed</li>
+ *   <li>when components were relocated, as the module path and the directory of their unchanged issues must be
+ *   updated</li>
+ * </ul>
+ */
 public class IndexAnalysisStep implements ComputationStep {
 
+  static final int MAX_PERSISTED_ISSUES = 10_000;
+
   private static final Logger LOGGER = Loggers.get(IndexAnalysisStep.class);
 
   private final TreeRootHolder treeRootHolder;
+  private final PersistedIssues persistedIssues;
+  private final RelocatedComponents relocatedComponents;
+  private final DbClient dbClient;
+  private final IssueIndexer issueIndexer;
   private final ProjectIndexer[] indexers;
 
-  public IndexAnalysisStep(TreeRootHolder treeRootHolder, ProjectIndexer... indexers) {
+  public IndexAnalysisStep(TreeRootHolder treeRootHolder, PersistedIssues persistedIssues, RelocatedComponents relocatedComponents,
+    DbClient dbClient, IssueIndexer issueIndexer, ProjectIndexer... indexers) {
     this.treeRootHolder = treeRootHolder;
+    this.persistedIssues = persistedIssues;
+    this.relocatedComponents = relocatedComponents;
+    this.dbClient = dbClient;
+    this.issueIndexer = issueIndexer;
     this.indexers = indexers;
   }
 
@@ -41,8 +70,34 @@ public class IndexAnalysisStep implements ComputationStep {
   public void execute() {
     String projectUuid = treeRootHolder.getRoot().getUuid();
     for (ProjectIndexer indexer : indexers) {
-      LOGGER.debug("Call {}", indexer);
-      indexer.indexProject(projectUuid, ProjectIndexer.Cause.NEW_ANALYSIS);
+      if (indexer == issueIndexer && isIndexingOfPersistedIssuesEnough(projectUuid)) {
+        indexPersistedIssues();
+      } else {
+        LOGGER.debug("Call {}", indexer);
+        indexer.indexProject(projectUuid, ProjectIndexer.Cause.NEW_ANALYSIS);
+      }
+    }
+  }
+
+  private boolean isIndexingOfPersistedIssuesEnough(String projectUuid) {
+    return persistedIssues.isInitialized()
+      && persistedIssues.getKeys().size() <= MAX_PERSISTED_ISSUES
+      && relocatedComponents.isInitialized()
+      && relocatedComponents.getUuids().isEmpty()
+      && !hasLastTaskFailed(projectUuid);
+  }
+
+  private boolean hasLastTaskFailed(String projectUuid) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      return dbClient.ceActivityDao().countLastByStatusAndComponentUuid(dbSession, CeActivityDto.Status.FAILED, projectUuid) > 0;
+    }
+  }
+
+  private void indexPersistedIssues() {
+    Set<String> issueKeys = persistedIssues.getKeys();
+    LOGGER.debug("Index {} issues", issueKeys.size());
+    if (!issueKeys.isEmpty()) {
+      issueIndexer.index(issueKeys);
     }
   }
 
@@ -20,8 +20,10 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.base.Function;
+import com.google.common.base.Predicate;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import javax.annotation.Nonnull;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
@@ -31,6 +33,7 @@ import org.sonar.db.duplication.DuplicationUnitDto;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.ByteArray;
 import org.sonar.scanner.protocol.output.ScannerReport.CpdTextBlock;
+import org.sonar.server.computation.task.projectanalysis.analysis.Analysis;
 import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
@@ -39,8 +42,8 @@ import org.sonar.server.computation.task.projectanalysis.component.DepthTraversa
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicationStatusHolder;
+import org.sonar.server.computation.task.projectanalysis.duplication.DuplicationIndexFilter;
 import org.sonar.server.computation.task.projectanalysis.duplication.IntegrateCrossProjectDuplications;
-import org.sonar.server.computation.task.projectanalysis.analysis.Analysis;
 import org.sonar.server.computation.task.step.ComputationStep;
 
 import static com.google.common.collect.FluentIterable.from;
@@ -64,22 +67,26 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
   private final IntegrateCrossProjectDuplications integrateCrossProjectDuplications;
   private final CrossProjectDuplicationStatusHolder crossProjectDuplicationStatusHolder;
   private final DbClient dbClient;
+  private final DuplicationIndexFilter duplicationIndexFilter;
 
   public LoadCrossProjectDuplicationsRepositoryStep(TreeRootHolder treeRootHolder, BatchReportReader reportReader,
     AnalysisMetadataHolder analysisMetadataHolder, CrossProjectDuplicationStatusHolder crossProjectDuplicationStatusHolder,
-    IntegrateCrossProjectDuplications integrateCrossProjectDuplications, DbClient dbClient) {
+    IntegrateCrossProjectDuplications integrateCrossProjectDuplications, DbClient dbClient, DuplicationIndexFilter duplicationIndexFilter) {
     this.treeRootHolder = treeRootHolder;
     this.reportReader = reportReader;
     this.analysisMetadataHolder = analysisMetadataHolder;
     this.integrateCrossProjectDuplications = integrateCrossProjectDuplications;
     this.crossProjectDuplicationStatusHolder = crossProjectDuplicationStatusHolder;
     this.dbClient = dbClient;
+    this.duplicationIndexFilter = duplicationIndexFilter;
   }
 
   @Override
   public void execute() {
     if (crossProjectDuplicationStatusHolder.isEnabled()) {
-      new DepthTraversalTypeAwareCrawler(new CrossProjectDuplicationVisitor()).visit(treeRootHolder.getRoot());
+      CrossProjectDuplicationVisitor visitor = new CrossProjectDuplicationVisitor();
+      new DepthTraversalTypeAwareCrawler(visitor).visit(treeRootHolder.getRoot());
+      LOGGER.debug("{} cpd blocks, {} looked for in database, {} with cross project duplicates", visitor.blocks, visitor.lookedUpBlocks, visitor.duplicatedBlocks);
     }
   }
 
@@ -89,6 +96,9 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
   }
 
   private class CrossProjectDuplicationVisitor extends TypeAwareVisitorAdapter {
+    private int blocks = 0;
+    private int lookedUpBlocks = 0;
+    private int duplicatedBlocks = 0;
 
     private CrossProjectDuplicationVisitor() {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
@@ -102,11 +112,17 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
         return;
       }
 
-      Collection<String> hashes = from(cpdTextBlocks).transform(CpdTextBlockToHash.INSTANCE).toList();
+      Collection<String> hashes = filterIndexedHashes(file, from(cpdTextBlocks).transform(CpdTextBlockToHash.INSTANCE).toList());
+      blocks += cpdTextBlocks.size();
+      lookedUpBlocks += hashes.size();
+      if (hashes.isEmpty()) {
+        return;
+      }
       List<DuplicationUnitDto> dtos = selectDuplicates(file, hashes);
       if (dtos.isEmpty()) {
         return;
       }
+      duplicatedBlocks += from(cpdTextBlocks).filter(new HasHashIn(dtos)).size();
 
       Collection<Block> duplicatedBlocks = from(dtos).transform(DtoToBlock.INSTANCE).toList();
       Collection<Block> originBlocks = from(cpdTextBlocks).transform(new CpdTextBlockToBlock(file.getKey())).toList();
@@ -115,6 +131,14 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
       integrateCrossProjectDuplications.computeCpd(file, originBlocks, duplicatedBlocks);
     }
 
+    private Collection<String> filterIndexedHashes(Component file, Collection<String> hashes) {
+      String language = file.getFileAttributes().getLanguageKey();
+      if (language == null) {
+        return hashes;
+      }
+      return duplicationIndexFilter.filter(language, hashes);
+    }
+
     private List<DuplicationUnitDto> selectDuplicates(Component file, Collection<String> hashes) {
       try (DbSession dbSession = dbClient.openSession(false)) {
         Analysis projectAnalysis = analysisMetadataHolder.getBaseAnalysis();
@@ -133,6 +157,19 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
     }
   }
 
+  private static class HasHashIn implements Predicate<CpdTextBlock> {
+    private final Set<String> hashes;
+
+    private HasHashIn(List<DuplicationUnitDto> dtos) {
+      this.hashes = from(dtos).transform(DuplicationUnitDto::getHash).toSet();
+    }
+
+    @Override
+    public boolean apply(@Nonnull CpdTextBlock cpdTextBlock) {
+      return hashes.contains(cpdTextBlock.getHash());
+    }
+  }
+
   private enum DtoToBlock implements Function<DuplicationUnitDto, Block> {
     INSTANCE;
 
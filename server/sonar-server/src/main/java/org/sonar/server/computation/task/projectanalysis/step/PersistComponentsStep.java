@@ -22,6 +22,7 @@ package org.sonar.server.computation.task.projectanalysis.step;
 import com.google.common.base.Predicate;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -46,6 +47,7 @@ import org.sonar.server.computation.task.projectanalysis.component.MutableDisabl
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareCrawler;
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareVisitor;
 import org.sonar.server.computation.task.projectanalysis.component.PathAwareVisitorAdapter;
+import org.sonar.server.computation.task.projectanalysis.component.RelocatedComponents;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.step.ComputationStep;
 
@@ -66,16 +68,19 @@ public class PersistComponentsStep implements ComputationStep {
   private final System2 system2;
   private final MutableDisabledComponentsHolder disabledComponentsHolder;
   private final AnalysisMetadataHolder analysisMetadataHolder;
+  private final RelocatedComponents relocatedComponents;
 
   public PersistComponentsStep(DbClient dbClient, TreeRootHolder treeRootHolder,
     MutableDbIdsRepository dbIdsRepository, System2 system2,
-    MutableDisabledComponentsHolder disabledComponentsHolder, AnalysisMetadataHolder analysisMetadataHolder) {
+    MutableDisabledComponentsHolder disabledComponentsHolder, AnalysisMetadataHolder analysisMetadataHolder,
+    RelocatedComponents relocatedComponents) {
     this.dbClient = dbClient;
     this.treeRootHolder = treeRootHolder;
     this.dbIdsRepository = dbIdsRepository;
     this.system2 = system2;
     this.disabledComponentsHolder = disabledComponentsHolder;
     this.analysisMetadataHolder = analysisMetadataHolder;
+    this.relocatedComponents = relocatedComponents;
   }
 
   @Override
@@ -94,8 +99,9 @@ public class PersistComponentsStep implements ComputationStep {
       Map<String, ComponentDto> existingDtosByKeys = indexExistingDtosByKey(dbSession);
       // Insert or update the components in database. They are removed from existingDtosByKeys
       // at the same time.
-      new PathAwareCrawler<>(new PersistComponentStepsVisitor(existingDtosByKeys, dbSession))
-        .visit(treeRootHolder.getRoot());
+      PersistComponentStepsVisitor visitor = new PersistComponentStepsVisitor(existingDtosByKeys, dbSession);
+      new PathAwareCrawler<>(visitor).visit(treeRootHolder.getRoot());
+      relocatedComponents.setUuids(visitor.relocatedUuids);
 
       disableRemainingComponents(dbSession, existingDtosByKeys.values());
 
@@ -126,6 +132,7 @@ public class PersistComponentsStep implements ComputationStep {
 
     private final Map<String, ComponentDto> existingComponentDtosByKey;
     private final DbSession dbSession;
+    private final Set<String> relocatedUuids = new HashSet<>();
 
     public PersistComponentStepsVisitor(Map<String, ComponentDto> existingComponentDtosByKey, DbSession dbSession) {
       super(
@@ -209,6 +216,9 @@ public class PersistComponentsStep implements ComputationStep {
       }
       Optional<ComponentUpdateDto> update = compareForUpdate(existingComponent, componentDto);
       if (update.isPresent()) {
+        if (isRelocated(existingComponent, componentDto)) {
+          relocatedUuids.add(existingComponent.uuid());
+        }
         ComponentUpdateDto updateDto = update.get();
         dbClient.componentDao().update(dbSession, updateDto);
 
@@ -387,6 +397,14 @@ public class PersistComponentsStep implements ComputationStep {
 
   }
 
+  /**
+   * Whether the module path or the path of the component, which are copied into the documents of its issues, changed.
+   */
+  private static boolean isRelocated(ComponentDto existing, ComponentDto target) {
+    return !StringUtils.equals(existing.moduleUuidPath(), target.moduleUuidPath()) ||
+      !StringUtils.equals(existing.path(), target.path());
+  }
+
   private static Optional<ComponentUpdateDto> compareForUpdate(ComponentDto existing, ComponentDto target) {
     boolean hasDifferences = !StringUtils.equals(existing.getCopyResourceUuid(), target.getCopyResourceUuid()) ||
       !StringUtils.equals(existing.description(), target.description()) ||
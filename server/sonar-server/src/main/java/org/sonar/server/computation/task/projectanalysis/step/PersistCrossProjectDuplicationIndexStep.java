@@ -19,9 +19,14 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.duplication.DuplicationDao;
 import org.sonar.db.duplication.DuplicationUnitDto;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolder;
@@ -32,29 +37,32 @@ import org.sonar.server.computation.task.projectanalysis.component.DepthTraversa
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicationStatusHolder;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.projectanalysis.duplication.DuplicationIndexFilter;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
 
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
 /**
  * Persist cross project duplications text blocks into DUPLICATIONS_INDEX table
  */
-public class PersistCrossProjectDuplicationIndexStep implements ComputationStep {
+public class PersistCrossProjectDuplicationIndexStep implements ConcurrentComputationStep {
 
   private final DbClient dbClient;
   private final TreeRootHolder treeRootHolder;
   private final AnalysisMetadataHolder analysisMetadataHolder;
   private final BatchReportReader reportReader;
   private final CrossProjectDuplicationStatusHolder crossProjectDuplicationStatusHolder;
+  private final DuplicationIndexFilter duplicationIndexFilter;
 
   public PersistCrossProjectDuplicationIndexStep(CrossProjectDuplicationStatusHolder crossProjectDuplicationStatusHolder, DbClient dbClient,
     TreeRootHolder treeRootHolder, AnalysisMetadataHolder analysisMetadataHolder,
-    BatchReportReader reportReader) {
+    BatchReportReader reportReader, DuplicationIndexFilter duplicationIndexFilter) {
     this.dbClient = dbClient;
     this.treeRootHolder = treeRootHolder;
     this.analysisMetadataHolder = analysisMetadataHolder;
     this.reportReader = reportReader;
     this.crossProjectDuplicationStatusHolder = crossProjectDuplicationStatusHolder;
+    this.duplicationIndexFilter = duplicationIndexFilter;
   }
 
   @Override
@@ -68,6 +76,8 @@ public class PersistCrossProjectDuplicationIndexStep implements ComputationStep
       new DepthTraversalTypeAwareCrawler(new DuplicationVisitor(dbSession, analysisMetadataHolder.getUuid())).visit(project);
       dbSession.commit();
     }
+    // blocks are added to the filter only once committed, so that they are not missed by a filter loaded concurrently
+    new DepthTraversalTypeAwareCrawler(new IndexFilterVisitor()).visit(treeRootHolder.getRoot());
   }
 
   private class DuplicationVisitor extends TypeAwareVisitorAdapter {
@@ -109,6 +119,40 @@ public class PersistCrossProjectDuplicationIndexStep implements ComputationStep
     }
   }
 
+  private class IndexFilterVisitor extends TypeAwareVisitorAdapter {
+
+    private IndexFilterVisitor() {
+      super(CrawlerDepthLimit.FILE, PRE_ORDER);
+    }
+
+    @Override
+    public void visitFile(Component file) {
+      String language = file.getFileAttributes().getLanguageKey();
+      if (language == null) {
+        return;
+      }
+      List<String> hashes = new ArrayList<>();
+      try (CloseableIterator<ScannerReport.CpdTextBlock> blocks = reportReader.readCpdTextBlocks(file.getReportAttributes().getRef())) {
+        while (blocks.hasNext()) {
+          hashes.add(blocks.next().getHash());
+        }
+      }
+      if (!hashes.isEmpty()) {
+        duplicationIndexFilter.add(language, hashes);
+      }
+    }
+  }
+
+  @Override
+  public Set<Object> inputs() {
+    return ImmutableSet.of(TreeRootHolder.class, AnalysisMetadataHolder.class, BatchReportReader.class, CrossProjectDuplicationStatusHolder.class);
+  }
+
+  @Override
+  public Set<Object> outputs() {
+    return ImmutableSet.of(DuplicationDao.class);
+  }
+
   @Override
   public String getDescription() {
     return "Persist cross project duplications index";
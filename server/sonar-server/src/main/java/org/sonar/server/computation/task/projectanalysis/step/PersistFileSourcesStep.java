@@ -20,24 +20,36 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.ObjectUtils;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
-import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto;
 import org.sonar.db.source.FileSourceDto.Type;
 import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.server.computation.configuration.CeConfiguration;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
@@ -45,10 +57,12 @@ import org.sonar.server.computation.task.projectanalysis.component.DepthTraversa
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.duplication.DuplicationRepository;
+import org.sonar.server.computation.task.projectanalysis.issue.IssuesInputHashRepository;
 import org.sonar.server.computation.task.projectanalysis.scm.Changeset;
 import org.sonar.server.computation.task.projectanalysis.scm.ScmInfo;
 import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepository;
 import org.sonar.server.computation.task.projectanalysis.source.ComputeFileSourceData;
+import org.sonar.server.computation.task.projectanalysis.source.ComputeFileSourceInputHash;
 import org.sonar.server.computation.task.projectanalysis.source.CoverageLineReader;
 import org.sonar.server.computation.task.projectanalysis.source.DuplicationLineReader;
 import org.sonar.server.computation.task.projectanalysis.source.HighlightingLineReader;
@@ -57,11 +71,24 @@ import org.sonar.server.computation.task.projectanalysis.source.RangeOffsetConve
 import org.sonar.server.computation.task.projectanalysis.source.ScmLineReader;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepository;
 import org.sonar.server.computation.task.projectanalysis.source.SymbolsLineReader;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ComputationStepStatistics;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
 
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
-public class PersistFileSourcesStep implements ComputationStep {
+public class PersistFileSourcesStep implements ConcurrentComputationStep {
+
+  private static final Logger LOGGER = Loggers.get(PersistFileSourcesStep.class);
+
+  /**
+   * Maximum number of files whose data are computed in advance of their persistence
+   */
+  private static final int MAX_PENDING_FILES = 16;
+  /**
+   * Binary data of the sources are kept in memory until the JDBC batch is committed, so the batch is
+   * committed as soon as its data exceed this size, whatever the number of statements.
+   */
+  private static final long MAX_BATCH_DATA_SIZE = 16L * 1024 * 1024;
 
   private final DbClient dbClient;
   private final System2 system2;
@@ -70,9 +97,13 @@ public class PersistFileSourcesStep implements ComputationStep {
   private final SourceLinesRepository sourceLinesRepository;
   private final ScmInfoRepository scmInfoRepository;
   private final DuplicationRepository duplicationRepository;
+  private final IssuesInputHashRepository issuesInputHashRepository;
+  private final CeConfiguration ceConfiguration;
+  private final ComputationStepStatistics statistics;
 
   public PersistFileSourcesStep(DbClient dbClient, System2 system2, TreeRootHolder treeRootHolder, BatchReportReader reportReader, SourceLinesRepository sourceLinesRepository,
-    ScmInfoRepository scmInfoRepository, DuplicationRepository duplicationRepository) {
+    ScmInfoRepository scmInfoRepository, DuplicationRepository duplicationRepository, IssuesInputHashRepository issuesInputHashRepository,
+    CeConfiguration ceConfiguration, ComputationStepStatistics statistics) {
     this.dbClient = dbClient;
     this.system2 = system2;
     this.treeRootHolder = treeRootHolder;
@@ -80,30 +111,79 @@ public class PersistFileSourcesStep implements ComputationStep {
     this.sourceLinesRepository = sourceLinesRepository;
     this.scmInfoRepository = scmInfoRepository;
     this.duplicationRepository = duplicationRepository;
+    this.issuesInputHashRepository = issuesInputHashRepository;
+    this.ceConfiguration = ceConfiguration;
+    this.statistics = statistics;
   }
 
   @Override
   public void execute() {
-    // Don't use batch insert for file_sources since keeping all data in memory can produce OOM for big files
-    DbSession session = dbClient.openSession(false);
+    DbSession session = dbClient.openSession(true);
+    boolean incrementalAnalysis = ceConfiguration.isIncrementalAnalysis();
+    ExecutorService executor = createExecutor(ceConfiguration.getFileSourcesConcurrency());
+    FileSourceVisitor visitor = new FileSourceVisitor(session, executor, incrementalAnalysis);
     try {
-      new DepthTraversalTypeAwareCrawler(new FileSourceVisitor(session))
+      new DepthTraversalTypeAwareCrawler(visitor)
         .visit(treeRootHolder.getRoot());
+      visitor.persistPendingFiles();
+      session.commit();
+      if (incrementalAnalysis) {
+        LOGGER.debug("Sources of {} unchanged files are reused", visitor.unchangedFiles);
+      }
+      statistics.addCounter(this, "inserts", visitor.inserts);
+      statistics.addCounter(this, "updates", visitor.updates);
+      statistics.addCounter(this, "unchangedFiles", visitor.unchangedFiles);
     } finally {
+      visitor.cancelPendingFiles();
+      if (executor != null) {
+        executor.shutdownNow();
+      }
       MyBatis.closeQuietly(session);
     }
   }
 
+  /**
+   * The pool is dedicated to the step, so that the computation of the sources, which reads the report and
+   * allocates large buffers, neither competes with nor is sized like the visits of the component tree. At most
+   * {@link #MAX_PENDING_FILES} files are submitted to it at any time.
+   *
+   * @return {@code null} if line data must be computed by the calling thread
+   */
+  @CheckForNull
+  private static ExecutorService createExecutor(int concurrency) {
+    if (concurrency <= 1) {
+      return null;
+    }
+    return Executors.newFixedThreadPool(concurrency, new ThreadFactoryBuilder()
+      .setNameFormat(Thread.currentThread().getName() + "-sources-%d")
+      .setDaemon(true)
+      .build());
+  }
+
+  /**
+   * Line data of the files are computed and encoded in the pool of the step, if any, while the files
+   * visited before are persisted by the calling thread, in the order of the component tree.
+   */
   private class FileSourceVisitor extends TypeAwareVisitorAdapter {
 
     private final DbSession session;
+    @CheckForNull
+    private final ExecutorService executor;
+    private final Deque<PendingFile> pendingFiles = new ArrayDeque<>();
 
     private Map<String, FileSourceDto> previousFileSourcesByUuid = new HashMap<>();
     private String projectUuid;
+    private long batchDataSize = 0L;
+    private final boolean incrementalAnalysis;
+    private int unchangedFiles = 0;
+    private int inserts = 0;
+    private int updates = 0;
 
-    private FileSourceVisitor(DbSession session) {
+    private FileSourceVisitor(DbSession session, @Nullable ExecutorService executor, boolean incrementalAnalysis) {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
       this.session = session;
+      this.executor = executor;
+      this.incrementalAnalysis = incrementalAnalysis;
     }
 
     @Override
@@ -118,12 +198,54 @@ public class PersistFileSourcesStep implements ComputationStep {
 
     @Override
     public void visitFile(Component file) {
+      FileSourceDto previousDto = previousFileSourcesByUuid.get(file.getUuid());
+      String previousInputHash = previousDto == null ? null : previousDto.getInputHash();
+      if (executor == null) {
+        persistSource(file, computeSource(file, previousInputHash));
+        return;
+      }
+      pendingFiles.add(new PendingFile(file, executor.submit(() -> computeSource(file, previousInputHash))));
+      while (pendingFiles.size() > MAX_PENDING_FILES) {
+        persistNextPendingFile();
+      }
+    }
+
+    private void persistPendingFiles() {
+      while (!pendingFiles.isEmpty()) {
+        persistNextPendingFile();
+      }
+    }
+
+    private void persistNextPendingFile() {
+      PendingFile pendingFile = pendingFiles.remove();
+      persistSource(pendingFile.file, pendingFile.get());
+    }
+
+    private void cancelPendingFiles() {
+      for (PendingFile pendingFile : pendingFiles) {
+        pendingFile.source.cancel(true);
+      }
+      pendingFiles.clear();
+    }
+
+    /**
+     * @return {@code null} if the inputs of the sources did not change since the previous analysis, so
+     *         that the persisted sources are still valid
+     */
+    @CheckForNull
+    private FileSource computeSource(Component file, @Nullable String previousInputHash) {
+      String inputHash = null;
+      if (incrementalAnalysis) {
+        inputHash = computeInputHash(file);
+        if (inputHash.equals(previousInputHash)) {
+          return null;
+        }
+      }
       CloseableIterator<String> linesIterator = sourceLinesRepository.readLines(file);
       LineReaders lineReaders = new LineReaders(reportReader, scmInfoRepository, duplicationRepository, file);
       try {
         ComputeFileSourceData computeFileSourceData = new ComputeFileSourceData(linesIterator, lineReaders.readers(), file.getFileAttributes().getLines());
-        ComputeFileSourceData.Data fileSourceData = computeFileSourceData.compute();
-        persistSource(fileSourceData, file.getUuid(), lineReaders.getLatestChange());
+        return new FileSource(computeFileSourceData.compute(), lineReaders.getLatestChange(), inputHash);
       } catch (Exception e) {
         throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getKey()), e);
       } finally {
@@ -132,13 +254,33 @@ public class PersistFileSourcesStep implements ComputationStep {
       }
     }
 
-    private void persistSource(ComputeFileSourceData.Data fileSourceData, String componentUuid, @Nullable Changeset latestChange) {
-      DbFileSources.Data fileData = fileSourceData.getFileSourceData();
+    private String computeInputHash(Component file) {
+      try {
+        return new ComputeFileSourceInputHash(file, reportReader, sourceLinesRepository, duplicationRepository).compute();
+      } catch (Exception e) {
+        throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getKey()), e);
+      }
+    }
 
-      byte[] data = FileSourceDto.encodeSourceData(fileData);
-      String dataHash = DigestUtils.md5Hex(data);
-      String srcHash = fileSourceData.getSrcHash();
-      String lineHashes = fileSourceData.getLineHashes();
+    private void persistSource(Component file, @Nullable FileSource fileSource) {
+      String issuesInputHash = issuesInputHashRepository.getHash(file);
+      if (fileSource == null) {
+        unchangedFiles++;
+        persistIssuesInputHash(previousFileSourcesByUuid.remove(file.getUuid()), issuesInputHash);
+        return;
+      }
+      try {
+        persistSource(fileSource, file.getUuid(), issuesInputHash);
+      } catch (Exception e) {
+        throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getKey()), e);
+      }
+    }
+
+    private void persistSource(FileSource fileSource, String componentUuid, @Nullable String issuesInputHash) {
+      byte[] data = fileSource.data;
+      String dataHash = fileSource.dataHash;
+      String srcHash = fileSource.srcHash;
+      String lineHashes = fileSource.lineHashes;
       FileSourceDto previousDto = previousFileSourcesByUuid.get(componentUuid);
 
       if (previousDto == null) {
@@ -152,35 +294,103 @@ public class PersistFileSourcesStep implements ComputationStep {
           .setLineHashes(lineHashes)
           .setCreatedAt(system2.now())
           .setUpdatedAt(system2.now())
-          .setRevision(computeRevision(latestChange));
+          .setRevision(fileSource.revision)
+          .setInputHash(fileSource.inputHash)
+          .setIssuesInputHash(issuesInputHash);
         dbClient.fileSourceDao().insert(session, dto);
-        session.commit();
+        inserts++;
+        addToBatch(data);
       } else {
-        // Update only if data_hash has changed or if src_hash is missing or revision is missing (progressive migration)
+        // Update only if data_hash has changed or if src_hash is missing or revision is missing (progressive migration),
+        // or if input hash has to be stored or cleared
         boolean binaryDataUpdated = !dataHash.equals(previousDto.getDataHash());
         boolean srcHashUpdated = !srcHash.equals(previousDto.getSrcHash());
-        String revision = computeRevision(latestChange);
+        String revision = fileSource.revision;
         boolean revisionUpdated = !ObjectUtils.equals(revision, previousDto.getRevision());
-        if (binaryDataUpdated || srcHashUpdated || revisionUpdated) {
+        boolean inputHashUpdated = !ObjectUtils.equals(fileSource.inputHash, previousDto.getInputHash());
+        if (binaryDataUpdated || srcHashUpdated || revisionUpdated || inputHashUpdated) {
           previousDto
             .setBinaryData(data)
             .setDataHash(dataHash)
             .setSrcHash(srcHash)
             .setLineHashes(lineHashes)
             .setRevision(revision)
+            .setInputHash(fileSource.inputHash)
+            .setIssuesInputHash(issuesInputHash)
             .setUpdatedAt(system2.now());
           dbClient.fileSourceDao().update(session, previousDto);
-          session.commit();
+          updates++;
+          addToBatch(data);
+        } else {
+          persistIssuesInputHash(previousDto, issuesInputHash);
         }
+        // data of the previous analysis are not needed anymore
+        previousFileSourcesByUuid.remove(componentUuid);
+      }
+    }
+
+    /**
+     * Hash of the inputs of issues is stored along with the sources of the file, but changes independently
+     */
+    private void persistIssuesInputHash(@Nullable FileSourceDto previousDto, @Nullable String issuesInputHash) {
+      if (previousDto != null && !ObjectUtils.equals(issuesInputHash, previousDto.getIssuesInputHash())) {
+        dbClient.fileSourceDao().updateIssuesInputHash(session, previousDto.setIssuesInputHash(issuesInputHash));
       }
     }
 
+    private void addToBatch(byte[] data) {
+      batchDataSize += data.length;
+      if (batchDataSize >= MAX_BATCH_DATA_SIZE) {
+        session.commit();
+        batchDataSize = 0L;
+      }
+    }
+  }
+
+  private static class PendingFile {
+    private final Component file;
+    private final Future<FileSource> source;
+
+    private PendingFile(Component file, Future<FileSource> source) {
+      this.file = file;
+      this.source = source;
+    }
+
     @CheckForNull
-    private String computeRevision(@Nullable Changeset latestChange) {
-      if (latestChange == null) {
-        return null;
+    private FileSource get() {
+      try {
+        return source.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(String.format("Interrupted while computing sources of %s", file.getKey()), e);
+      } catch (ExecutionException e) {
+        Throwables.propagateIfPossible(e.getCause());
+        throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getKey()), e.getCause());
       }
-      return latestChange.getRevision();
+    }
+  }
+
+  /**
+   * Data of a file, ready to be persisted. Encoding and hashing are done at construction, so that they
+   * are executed by the thread which computes the line data.
+   */
+  private static class FileSource {
+    private final byte[] data;
+    private final String dataHash;
+    private final String srcHash;
+    private final String lineHashes;
+    @CheckForNull
+    private final String revision;
+    @CheckForNull
+    private final String inputHash;
+
+    private FileSource(ComputeFileSourceData.Data fileSourceData, @Nullable Changeset latestChange, @Nullable String inputHash) {
+      this.data = FileSourceDto.encodeSourceData(fileSourceData.getFileSourceData());
+      this.dataHash = DigestUtils.md5Hex(data);
+      this.srcHash = fileSourceData.getSrcHash();
+      this.lineHashes = fileSourceData.getLineHashes();
+      this.revision = latestChange == null ? null : latestChange.getRevision();
+      this.inputHash = inputHash;
     }
   }
 
@@ -235,6 +445,17 @@ public class PersistFileSourcesStep implements ComputationStep {
     }
   }
 
+  @Override
+  public Set<Object> inputs() {
+    return ImmutableSet.of(TreeRootHolder.class, BatchReportReader.class, SourceLinesRepository.class, ScmInfoRepository.class, DuplicationRepository.class,
+      IssuesInputHashRepository.class);
+  }
+
+  @Override
+  public Set<Object> outputs() {
+    return ImmutableSet.of(Type.SOURCE);
+  }
+
   @Override
   public String getDescription() {
     return "Persist sources";
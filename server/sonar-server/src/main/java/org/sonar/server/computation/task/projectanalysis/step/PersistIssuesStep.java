@@ -19,6 +19,8 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import java.util.HashSet;
+import java.util.Set;
 import org.sonar.api.issue.IssueComment;
 import org.sonar.api.utils.System2;
 import org.sonar.core.issue.DefaultIssue;
@@ -33,9 +35,11 @@ import org.sonar.db.issue.IssueChangeMapper;
 import org.sonar.db.issue.IssueDto;
 import org.sonar.db.issue.IssueMapper;
 import org.sonar.server.computation.task.projectanalysis.issue.IssueCache;
+import org.sonar.server.computation.task.projectanalysis.issue.PersistedIssues;
 import org.sonar.server.computation.task.projectanalysis.issue.RuleRepository;
 import org.sonar.server.computation.task.projectanalysis.issue.UpdateConflictResolver;
 import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ComputationStepStatistics;
 
 public class PersistIssuesStep implements ComputationStep {
 
@@ -44,14 +48,18 @@ public class PersistIssuesStep implements ComputationStep {
   private final UpdateConflictResolver conflictResolver;
   private final RuleRepository ruleRepository;
   private final IssueCache issueCache;
+  private final ComputationStepStatistics statistics;
+  private final PersistedIssues persistedIssues;
 
   public PersistIssuesStep(DbClient dbClient, System2 system2, UpdateConflictResolver conflictResolver,
-    RuleRepository ruleRepository, IssueCache issueCache) {
+    RuleRepository ruleRepository, IssueCache issueCache, ComputationStepStatistics statistics, PersistedIssues persistedIssues) {
     this.dbClient = dbClient;
     this.system2 = system2;
     this.conflictResolver = conflictResolver;
     this.ruleRepository = ruleRepository;
     this.issueCache = issueCache;
+    this.statistics = statistics;
+    this.persistedIssues = persistedIssues;
   }
 
   @Override
@@ -61,16 +69,28 @@ public class PersistIssuesStep implements ComputationStep {
     IssueChangeMapper changeMapper = session.getMapper(IssueChangeMapper.class);
 
     CloseableIterator<DefaultIssue> issues = issueCache.traverse();
+    int inserts = 0;
+    int updates = 0;
+    Set<String> persistedKeys = new HashSet<>();
     try {
       while (issues.hasNext()) {
         DefaultIssue issue = issues.next();
         boolean saved = persistIssueIfRequired(mapper, issue);
         if (saved) {
+          persistedKeys.add(issue.key());
           insertChanges(changeMapper, issue);
+          if (issue.isNew()) {
+            inserts++;
+          } else {
+            updates++;
+          }
         }
       }
       session.flushStatements();
       session.commit();
+      persistedIssues.setKeys(persistedKeys);
+      statistics.addCounter(this, "inserts", inserts);
+      statistics.addCounter(this, "updates", updates);
     } finally {
       MyBatis.closeQuietly(session);
       issues.close();
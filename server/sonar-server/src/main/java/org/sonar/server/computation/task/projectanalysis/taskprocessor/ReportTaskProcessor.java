@@ -20,18 +20,22 @@
 package org.sonar.server.computation.task.projectanalysis.taskprocessor;
 
 import java.util.Collections;
+import java.util.Optional;
 import java.util.Set;
 import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.Immutable;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.ce.queue.CeTaskResult;
 import org.sonar.ce.settings.SettingsLoader;
 import org.sonar.ce.taskprocessor.CeTaskProcessor;
 import org.sonar.core.platform.ComponentContainer;
 import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.db.protobuf.DbCe;
 import org.sonar.plugin.ce.ReportAnalysisComponentProvider;
 import org.sonar.server.computation.task.container.TaskContainer;
 import org.sonar.server.computation.task.projectanalysis.container.ContainerFactory;
 import org.sonar.server.computation.task.step.ComputationStepExecutor;
+import org.sonar.server.computation.task.step.ComputationStepStatistics;
 import org.sonar.server.computation.taskprocessor.TaskResultHolder;
 import org.sonar.server.setting.ThreadLocalSettings;
 
@@ -73,7 +77,9 @@ public class ReportTaskProcessor implements CeTaskProcessor {
 
     try {
       ceContainer.getComponentByType(ComputationStepExecutor.class).execute();
-      return ceContainer.getComponentByType(TaskResultHolder.class).getResult();
+      return new ReportTaskResult(
+        ceContainer.getComponentByType(TaskResultHolder.class).getResult(),
+        ceContainer.getComponentByType(ComputationStepStatistics.class).toProtobuf());
     } finally {
       ensureThreadLocalIsClean(ceContainer);
 
@@ -85,4 +91,25 @@ public class ReportTaskProcessor implements CeTaskProcessor {
   private static void ensureThreadLocalIsClean(TaskContainer ceContainer) {
     ceContainer.getComponentByType(ThreadLocalSettings.class).unload();
   }
+
+  @Immutable
+  private static class ReportTaskResult implements CeTaskResult {
+    private final CeTaskResult result;
+    private final DbCe.StepStatistics stepStatistics;
+
+    private ReportTaskResult(CeTaskResult result, DbCe.StepStatistics stepStatistics) {
+      this.result = result;
+      this.stepStatistics = stepStatistics;
+    }
+
+    @Override
+    public Optional<String> getAnalysisUuid() {
+      return result.getAnalysisUuid();
+    }
+
+    @Override
+    public Optional<DbCe.StepStatistics> getStepStatistics() {
+      return Optional.of(stepStatistics);
+    }
+  }
 }
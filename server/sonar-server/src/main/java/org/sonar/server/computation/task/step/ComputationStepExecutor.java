@@ -19,18 +19,36 @@
  */
 package org.sonar.server.computation.task.step;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.slf4j.MDC;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.logs.Profiler;
+import org.sonar.server.computation.configuration.CeConfiguration;
+
+import static java.util.Collections.disjoint;
 
 public final class ComputationStepExecutor {
   private static final Logger LOGGER = Loggers.get(ComputationStepExecutor.class);
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+  private static final long NANOS_PER_MILLI = 1_000_000L;
 
   private final ComputationSteps steps;
   @CheckForNull
   private final Listener listener;
+  private final int stepsConcurrency;
+  private final ComputationStepStatistics statistics;
 
   /**
    * Used when no {@link ComputationStepExecutor.Listener} is available in pico
@@ -41,8 +59,19 @@ public final class ComputationStepExecutor {
   }
 
   public ComputationStepExecutor(ComputationSteps steps, @Nullable Listener listener) {
+    this(steps, listener, 1, new ComputationStepStatistics());
+  }
+
+  public ComputationStepExecutor(ComputationSteps steps, @Nullable Listener listener, CeConfiguration ceConfiguration,
+    ComputationStepStatistics statistics) {
+    this(steps, listener, ceConfiguration.getStepsConcurrency(), statistics);
+  }
+
+  ComputationStepExecutor(ComputationSteps steps, @Nullable Listener listener, int stepsConcurrency, ComputationStepStatistics statistics) {
     this.steps = steps;
     this.listener = listener;
+    this.stepsConcurrency = stepsConcurrency;
+    this.statistics = statistics;
   }
 
   public void execute() {
@@ -59,11 +88,140 @@ public final class ComputationStepExecutor {
   }
 
   private void executeSteps(Profiler stepProfiler) {
-    for (ComputationStep step : steps.instances()) {
-      stepProfiler.start();
-      step.execute();
-      stepProfiler.stopDebug(step.getDescription());
+    if (stepsConcurrency <= 1) {
+      for (ComputationStep step : steps.instances()) {
+        executeStep(step, stepProfiler);
+      }
+    } else {
+      executeStepsConcurrently(stepProfiler);
+    }
+  }
+
+  /**
+   * CPU time and allocated bytes are measured on the current thread only, so they do not include the work that the
+   * step delegates to other threads.
+   */
+  private void executeStep(ComputationStep step, Profiler stepProfiler) {
+    long cpuTimeAtStart = currentThreadCpuTime();
+    long allocatedBytesAtStart = currentThreadAllocatedBytes();
+    stepProfiler.start();
+    step.execute();
+    String description = step.getDescription();
+    long durationMs = stepProfiler.stopDebug(description);
+    long cpuTimeNs = difference(currentThreadCpuTime(), cpuTimeAtStart);
+    statistics.add(step, description, durationMs, cpuTimeNs < 0 ? -1L : (cpuTimeNs / NANOS_PER_MILLI),
+      difference(currentThreadAllocatedBytes(), allocatedBytesAtStart));
+  }
+
+  private static long currentThreadCpuTime() {
+    if (THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled()) {
+      return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+    }
+    return -1L;
+  }
+
+  private static long currentThreadAllocatedBytes() {
+    if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+      if (sunThreadMXBean.isThreadAllocatedMemorySupported() && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+        return sunThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1L;
+  }
+
+  /**
+   * @return -1 if any of the values is not available
+   */
+  private static long difference(long end, long start) {
+    if (end < 0 || start < 0) {
+      return -1L;
+    }
+    return end - start;
+  }
+
+  /**
+   * Adjacent {@link ConcurrentComputationStep}s are grouped and executed on a bounded pool, each step waiting only
+   * for the previous steps of the group it conflicts with. Other steps are executed on the current thread, once all
+   * the previous steps are finished.
+   */
+  private void executeStepsConcurrently(Profiler stepProfiler) {
+    ExecutorService executorService = Executors.newFixedThreadPool(stepsConcurrency, new ThreadFactoryBuilder()
+      .setDaemon(true)
+      .setNameFormat(Thread.currentThread().getName() + "-step-%d")
+      .build());
+    try {
+      List<ConcurrentComputationStep> group = new ArrayList<>();
+      for (ComputationStep step : steps.instances()) {
+        if (step instanceof ConcurrentComputationStep) {
+          group.add((ConcurrentComputationStep) step);
+        } else {
+          executeGroup(group, executorService);
+          group.clear();
+          executeStep(step, stepProfiler);
+        }
+      }
+      executeGroup(group, executorService);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private void executeGroup(List<ConcurrentComputationStep> group, ExecutorService executorService) {
+    if (group.isEmpty()) {
+      return;
+    }
+    Map<String, String> loggingContext = MDC.getCopyOfContextMap();
+    List<CompletableFuture<Void>> futures = new ArrayList<>(group.size());
+    for (int i = 0; i < group.size(); i++) {
+      ConcurrentComputationStep step = group.get(i);
+      List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+      for (int j = 0; j < i; j++) {
+        if (conflict(group.get(j), step)) {
+          dependencies.add(futures.get(j));
+        }
+      }
+      futures.add(CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[dependencies.size()]))
+        .thenRunAsync(() -> executeStep(step, loggingContext), executorService));
+    }
+    // failure of the first step, in declaration order, is propagated
+    for (CompletableFuture<Void> future : futures) {
+      try {
+        future.join();
+      } catch (CompletionException e) {
+        throw propagate(e.getCause());
+      }
+    }
+  }
+
+  private void executeStep(ComputationStep step, @Nullable Map<String, String> loggingContext) {
+    if (loggingContext != null) {
+      MDC.setContextMap(loggingContext);
+    }
+    try {
+      executeStep(step, Profiler.create(LOGGER));
+    } finally {
+      MDC.clear();
+    }
+  }
+
+  private static boolean conflict(ConcurrentComputationStep previous, ConcurrentComputationStep next) {
+    return !disjoint(previous.outputs(), next.inputs())
+      || !disjoint(previous.outputs(), next.outputs())
+      || !disjoint(previous.inputs(), next.outputs());
+  }
+
+  private static RuntimeException propagate(Throwable t) {
+    if (t instanceof CompletionException && t.getCause() != null) {
+      return propagate(t.getCause());
+    }
+    if (t instanceof RuntimeException) {
+      return (RuntimeException) t;
+    }
+    if (t instanceof Error) {
+      throw (Error) t;
     }
+    return new IllegalStateException(t);
   }
 
   private void executeListener(boolean allStepsExecuted) {
@@ -0,0 +1,77 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.step;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.sonar.db.protobuf.DbCe;
+
+/**
+ * Statistics of the {@link ComputationStep}s executed by {@link ComputationStepExecutor}: durations and resources
+ * used, measured by the executor, and counters (rows persisted, files processed, ...) provided by the steps themselves
+ * through {@link #addCounter(ComputationStep, String, long)}.
+ * <p>
+ * Steps may be executed concurrently, hence this class is thread-safe.
+ * </p>
+ */
+public class ComputationStepStatistics {
+
+  private final Map<ComputationStep, DbCe.Step.Builder> stepsByInstance = new LinkedHashMap<>();
+
+  /**
+   * Adds the specified value to the counter {@code key} of the specified step.
+   */
+  public synchronized void addCounter(ComputationStep step, String key, long value) {
+    DbCe.Step.Builder builder = getOrCreate(step);
+    for (DbCe.Counter.Builder counter : builder.getCounterBuilderList()) {
+      if (counter.getKey().equals(key)) {
+        counter.setValue(counter.getValue() + value);
+        return;
+      }
+    }
+    builder.addCounterBuilder().setKey(key).setValue(value);
+  }
+
+  /**
+   * @param cpuTimeMs ignored if negative
+   * @param allocatedBytes ignored if negative
+   */
+  synchronized void add(ComputationStep step, String description, long durationMs, long cpuTimeMs, long allocatedBytes) {
+    DbCe.Step.Builder builder = getOrCreate(step)
+      .setDescription(description)
+      .setDurationMs(durationMs);
+    if (cpuTimeMs >= 0) {
+      builder.setCpuTimeMs(cpuTimeMs);
+    }
+    if (allocatedBytes >= 0) {
+      builder.setAllocatedBytes(allocatedBytes);
+    }
+  }
+
+  private DbCe.Step.Builder getOrCreate(ComputationStep step) {
+    return stepsByInstance.computeIfAbsent(step, s -> DbCe.Step.newBuilder());
+  }
+
+  public synchronized DbCe.StepStatistics toProtobuf() {
+    DbCe.StepStatistics.Builder builder = DbCe.StepStatistics.newBuilder();
+    stepsByInstance.values().forEach(builder::addStep);
+    return builder.build();
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.step;
+
+import java.util.Set;
+
+/**
+ * A {@link ComputationStep} which declares the data it reads and writes, so that
+ * {@link ComputationStepExecutor} can execute it concurrently with the adjacent steps it does not
+ * conflict with.
+ * <p>
+ * Data are usually identified by the types of the holders, repositories and DAOs the step uses, or
+ * by a more specific value (an enum constant for example) when the step accesses only a part of the
+ * data of a DAO. Two steps conflict when one of them writes data read or written by the other one.
+ * Steps which do not implement this interface are never executed concurrently with any other step.
+ * </p>
+ * <p>
+ * Implementations must not rely on thread-local state initialized by previous steps.
+ * </p>
+ */
+public interface ConcurrentComputationStep extends ComputationStep {
+
+  /**
+   * Identifiers of the data read by the step. Data read concurrently by several steps must be
+   * thread-safe for reads.
+   */
+  Set<Object> inputs();
+
+  /**
+   * Identifiers of the data written by the step.
+   */
+  Set<Object> outputs();
+
+}
@@ -0,0 +1,74 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+/**
+ * Size and concurrency of the bulk requests of an adaptive {@link BulkIndexer}, tuned from
+ * the responses of Elasticsearch:
+ * <ul>
+ *   <li>both are halved when documents are rejected, as the queues of Elasticsearch are full</li>
+ *   <li>both are decreased when a request is slower than {@link #SLOW_REQUEST_MS}</li>
+ *   <li>size, then concurrency, is increased when a request is faster than {@link #FAST_REQUEST_MS}</li>
+ * </ul>
+ * This class is thread-safe.
+ */
+class AdaptiveBulkSettings {
+
+  static final long SLOW_REQUEST_MS = 2_000L;
+  static final long FAST_REQUEST_MS = 500L;
+  static final long MIN_FLUSH_BYTE_SIZE = 256 * 1024L;
+  static final long MAX_FLUSH_BYTE_SIZE = 16 * 1024 * 1024L;
+
+  private final int maxConcurrentRequests;
+  private long flushByteSize;
+  private int concurrentRequests;
+
+  AdaptiveBulkSettings(long flushByteSize, int concurrentRequests, int maxConcurrentRequests) {
+    this.flushByteSize = flushByteSize;
+    this.concurrentRequests = concurrentRequests;
+    this.maxConcurrentRequests = Math.max(concurrentRequests, maxConcurrentRequests);
+  }
+
+  synchronized long flushByteSize() {
+    return flushByteSize;
+  }
+
+  synchronized int concurrentRequests() {
+    return concurrentRequests;
+  }
+
+  synchronized void onRejection() {
+    flushByteSize = Math.max(MIN_FLUSH_BYTE_SIZE, flushByteSize / 2);
+    concurrentRequests = Math.max(1, concurrentRequests / 2);
+  }
+
+  synchronized void onSuccess(long latencyMs) {
+    if (latencyMs > SLOW_REQUEST_MS) {
+      flushByteSize = Math.max(MIN_FLUSH_BYTE_SIZE, flushByteSize * 3 / 4);
+      concurrentRequests = Math.max(1, concurrentRequests - 1);
+    } else if (latencyMs < FAST_REQUEST_MS) {
+      if (flushByteSize < MAX_FLUSH_BYTE_SIZE) {
+        flushByteSize = Math.min(MAX_FLUSH_BYTE_SIZE, flushByteSize * 2);
+      } else {
+        concurrentRequests = Math.min(maxConcurrentRequests, concurrentRequests + 1);
+      }
+    }
+  }
+}
@@ -21,10 +21,14 @@ package org.sonar.server.es;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.Semaphore;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
@@ -39,6 +43,8 @@ import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHitField;
 import org.elasticsearch.search.sort.SortOrder;
@@ -55,6 +61,8 @@ import static java.lang.String.format;
  *   <li>bulk request is sent on the wire when its size is higher than 5Mb</li>
  *   <li>on large table indexing, replicas and automatic refresh can be temporarily disabled</li>
  *   <li>index refresh is optional (enabled by default)</li>
+ *   <li>documents rejected by Elasticsearch because its queues are full are sent again after a delay</li>
+ *   <li>size and concurrency of bulk requests can be tuned from the responses of Elasticsearch (see {@link #setAdaptive(boolean)})</li>
  * </ul>
  */
 public class BulkIndexer implements Startable {
@@ -63,16 +71,30 @@ public class BulkIndexer implements Startable {
   private static final long FLUSH_BYTE_SIZE = new ByteSizeValue(1, ByteSizeUnit.MB).bytes();
   private static final String REFRESH_INTERVAL_SETTING = "index.refresh_interval";
   private static final String ALREADY_STARTED_MESSAGE = "Bulk indexing is already started";
+  private static final int MAX_RETRIES = 5;
+  private static final long INITIAL_RETRY_DELAY_MS = 100L;
+  private static final int MAX_ADAPTIVE_CONCURRENT_REQUESTS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+  /**
+   * Large indexings in progress, by index name. Several large indexings of the same index
+   * can run concurrently (for example during initial indexing at startup): settings of the
+   * index are changed by the first one and restored by the last one.
+   */
+  private static final Map<String, LargeIndexing> LARGE_INDEXINGS = new HashMap<>();
 
   private final EsClient client;
   private final String indexName;
   private Size size = Size.REGULAR;
   private long flushByteSize = FLUSH_BYTE_SIZE;
+  private boolean adaptive = false;
+  private AdaptiveBulkSettings adaptiveSettings = null;
   private BulkRequestBuilder bulkRequest = null;
-  private Map<String, Object> largeInitialSettings = null;
   private final AtomicLong counter = new AtomicLong(0L);
   private final int concurrentRequests;
-  private final Semaphore semaphore;
+  private final Object requestsLock = new Object();
+  // guarded by requestsLock
+  private int inProgressRequests = 0;
+  private final Queue<Retry> retries = new ConcurrentLinkedQueue<>();
   private final ProgressLogger progress;
 
   public BulkIndexer(EsClient client, String indexName) {
@@ -83,7 +105,6 @@ public class BulkIndexer implements Startable {
 
     // see https://jira.sonarsource.com/browse/SONAR-8075
     this.concurrentRequests = Math.max(1, Runtime.getRuntime().availableProcessors() / 5);
-    this.semaphore = new Semaphore(concurrentRequests);
   }
 
   public enum Size {
@@ -109,28 +130,24 @@ public class BulkIndexer implements Startable {
     return this;
   }
 
+  /**
+   * Adaptive indexing starts with the flush size and the default number of concurrent requests,
+   * then tunes them from the latency of bulk requests and from the documents rejected by
+   * Elasticsearch (see {@link AdaptiveBulkSettings}). Disabled by default.
+   */
+  public BulkIndexer setAdaptive(boolean adaptive) {
+    Preconditions.checkState(bulkRequest == null, ALREADY_STARTED_MESSAGE);
+    this.adaptive = adaptive;
+    return this;
+  }
+
   @Override
   public void start() {
     Preconditions.checkState(bulkRequest == null, ALREADY_STARTED_MESSAGE);
     if (size == Size.LARGE) {
-      largeInitialSettings = Maps.newHashMap();
-      Map<String, Object> bulkSettings = Maps.newHashMap();
-      GetSettingsResponse settingsResp = client.nativeClient().admin().indices().prepareGetSettings(indexName).get();
-
-      // deactivate replicas
-      int initialReplicas = Integer.parseInt(settingsResp.getSetting(indexName, IndexMetaData.SETTING_NUMBER_OF_REPLICAS));
-      if (initialReplicas > 0) {
-        largeInitialSettings.put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, initialReplicas);
-        bulkSettings.put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0);
-      }
-
-      // deactivate periodical refresh
-      String refreshInterval = settingsResp.getSetting(indexName, REFRESH_INTERVAL_SETTING);
-      largeInitialSettings.put(REFRESH_INTERVAL_SETTING, refreshInterval);
-      bulkSettings.put(REFRESH_INTERVAL_SETTING, "-1");
-
-      updateSettings(bulkSettings);
+      startLargeIndexing();
     }
+    adaptiveSettings = adaptive ? new AdaptiveBulkSettings(flushByteSize, concurrentRequests, MAX_ADAPTIVE_CONCURRENT_REQUESTS) : null;
     bulkRequest = client.prepareBulk().setRefresh(false);
     counter.set(0L);
     progress.start();
@@ -138,7 +155,7 @@ public class BulkIndexer implements Startable {
 
   public void add(ActionRequest<?> request) {
     bulkRequest.request().add(request);
-    if (bulkRequest.request().estimatedSizeInBytes() >= flushByteSize) {
+    if (bulkRequest.request().estimatedSizeInBytes() >= currentFlushByteSize()) {
       executeBulk();
     }
   }
@@ -153,7 +170,7 @@ public class BulkIndexer implements Startable {
 
     // this search is synchronous. An optimization would be to be non-blocking,
     // but it requires to tracking pending requests in close().
-    // Same semaphore can't be reused because of potential deadlock (requires to acquire
+    // Same limit of concurrent requests can't be reused because of potential deadlock (requires to acquire
     // two locks)
     SearchResponse searchResponse = searchRequest.get();
 
@@ -200,27 +217,70 @@ public class BulkIndexer implements Startable {
 
   @Override
   public void stop() {
-    if (bulkRequest.numberOfActions() > 0) {
-      executeBulk();
-    }
     try {
-      if (semaphore.tryAcquire(concurrentRequests, 10, TimeUnit.MINUTES)) {
-        semaphore.release(concurrentRequests);
+      if (bulkRequest.numberOfActions() > 0) {
+        executeBulk();
+      }
+      awaitRequests();
+      while (!retries.isEmpty()) {
+        executeRetries();
+        awaitRequests();
+      }
+      client.prepareRefresh(indexName).get();
+    } finally {
+      progress.stop();
+      bulkRequest = null;
+      if (size == Size.LARGE) {
+        stopLargeIndexing();
       }
-    } catch (InterruptedException e) {
-      throw new IllegalStateException("Elasticsearch bulk requests still being executed after 10 minutes", e);
     }
-    progress.stop();
-    client.prepareRefresh(indexName).get();
-    if (size == Size.LARGE) {
-      // optimize lucene segments and revert index settings
-      // Optimization must be done before re-applying replicas:
-      // http://www.elasticsearch.org/blog/performance-considerations-elasticsearch-indexing/
-      client.prepareForceMerge(indexName).get();
+  }
 
-      updateSettings(largeInitialSettings);
+  private void startLargeIndexing() {
+    synchronized (LARGE_INDEXINGS) {
+      LargeIndexing largeIndexing = LARGE_INDEXINGS.get(indexName);
+      if (largeIndexing == null) {
+        Map<String, Object> initialSettings = Maps.newHashMap();
+        Map<String, Object> bulkSettings = Maps.newHashMap();
+        GetSettingsResponse settingsResp = client.nativeClient().admin().indices().prepareGetSettings(indexName).get();
+
+        // deactivate replicas
+        int initialReplicas = Integer.parseInt(settingsResp.getSetting(indexName, IndexMetaData.SETTING_NUMBER_OF_REPLICAS));
+        if (initialReplicas > 0) {
+          initialSettings.put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, initialReplicas);
+          bulkSettings.put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0);
+        }
+
+        // deactivate periodical refresh
+        String refreshInterval = settingsResp.getSetting(indexName, REFRESH_INTERVAL_SETTING);
+        initialSettings.put(REFRESH_INTERVAL_SETTING, refreshInterval);
+        bulkSettings.put(REFRESH_INTERVAL_SETTING, "-1");
+
+        updateSettings(bulkSettings);
+        largeIndexing = new LargeIndexing(initialSettings);
+        LARGE_INDEXINGS.put(indexName, largeIndexing);
+      }
+      largeIndexing.running++;
+    }
+  }
+
+  private void stopLargeIndexing() {
+    synchronized (LARGE_INDEXINGS) {
+      LargeIndexing largeIndexing = LARGE_INDEXINGS.get(indexName);
+      largeIndexing.running--;
+      if (largeIndexing.running == 0) {
+        LARGE_INDEXINGS.remove(indexName);
+
+        // optimize lucene segments and revert index settings
+        // Optimization must be done before re-applying replicas:
+        // http://www.elasticsearch.org/blog/performance-considerations-elasticsearch-indexing/
+        try {
+          client.prepareForceMerge(indexName).get();
+        } finally {
+          updateSettings(largeIndexing.initialSettings);
+        }
+      }
     }
-    bulkRequest = null;
   }
 
   private void updateSettings(Map<String, Object> settings) {
@@ -229,36 +289,192 @@ public class BulkIndexer implements Startable {
     req.get();
   }
 
+  private long currentFlushByteSize() {
+    return adaptiveSettings == null ? flushByteSize : adaptiveSettings.flushByteSize();
+  }
+
+  private int currentConcurrentRequests() {
+    return adaptiveSettings == null ? concurrentRequests : adaptiveSettings.concurrentRequests();
+  }
+
   private void executeBulk() {
+    // rejected documents are sent before new ones, so that indexing slows down when Elasticsearch is overloaded
+    if (!retries.isEmpty()) {
+      executeRetries();
+    }
     final BulkRequestBuilder req = this.bulkRequest;
     this.bulkRequest = client.prepareBulk().setRefresh(false);
-    semaphore.acquireUninterruptibly();
-    req.execute(new BulkResponseActionListener(req));
+    execute(req, 0);
+  }
+
+  private void execute(BulkRequestBuilder req, int attempt) {
+    acquireRequest();
+    client.getBulkIndexerStatistics().onRequestStarted();
+    req.execute(new BulkResponseActionListener(req, attempt));
+  }
+
+  /**
+   * Sends again the documents rejected by Elasticsearch, after a delay which grows exponentially
+   * with the number of attempts.
+   */
+  private void executeRetries() {
+    TreeMap<Integer, BulkRequestBuilder> requestsByAttempt = new TreeMap<>();
+    for (Retry retry = retries.poll(); retry != null; retry = retries.poll()) {
+      requestsByAttempt.computeIfAbsent(retry.attempt, a -> client.prepareBulk().setRefresh(false)).request().add(retry.request);
+    }
+    if (requestsByAttempt.isEmpty()) {
+      return;
+    }
+    int maxAttempt = requestsByAttempt.lastKey();
+    try {
+      Thread.sleep(INITIAL_RETRY_DELAY_MS << (maxAttempt - 1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting before sending again rejected documents", e);
+    }
+    requestsByAttempt.forEach((attempt, req) -> {
+      client.getBulkIndexerStatistics().onRetries(req.numberOfActions());
+      execute(req, attempt);
+    });
+  }
+
+  private void acquireRequest() {
+    boolean interrupted = false;
+    synchronized (requestsLock) {
+      while (inProgressRequests >= currentConcurrentRequests()) {
+        try {
+          requestsLock.wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      inProgressRequests++;
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void releaseRequest() {
+    synchronized (requestsLock) {
+      inProgressRequests--;
+      requestsLock.notifyAll();
+    }
+  }
+
+  private void awaitRequests() {
+    long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(10);
+    synchronized (requestsLock) {
+      try {
+        while (inProgressRequests > 0) {
+          long remaining = deadline - System.currentTimeMillis();
+          if (remaining <= 0) {
+            return;
+          }
+          requestsLock.wait(remaining);
+        }
+      } catch (InterruptedException e) {
+        throw new IllegalStateException("Elasticsearch bulk requests still being executed after 10 minutes", e);
+      }
+    }
+  }
+
+  private static boolean isRejection(BulkItemResponse item) {
+    return item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS || isRejection(item.getFailure().getCause());
+  }
+
+  private static boolean isRejection(Throwable e) {
+    return ExceptionsHelper.unwrap(e, EsRejectedExecutionException.class) != null;
+  }
+
+  private static class Retry {
+    private final ActionRequest<?> request;
+    private final int attempt;
+
+    Retry(ActionRequest<?> request, int attempt) {
+      this.request = request;
+      this.attempt = attempt;
+    }
+  }
+
+  private static class LargeIndexing {
+    private final Map<String, Object> initialSettings;
+    private int running = 0;
+
+    LargeIndexing(Map<String, Object> initialSettings) {
+      this.initialSettings = initialSettings;
+    }
   }
 
   private class BulkResponseActionListener implements ActionListener<BulkResponse> {
     private final BulkRequestBuilder req;
+    private final int attempt;
+    private final long startedAt = System.currentTimeMillis();
 
-    BulkResponseActionListener(BulkRequestBuilder req) {
+    BulkResponseActionListener(BulkRequestBuilder req, int attempt) {
       this.req = req;
+      this.attempt = attempt;
     }
 
     @Override
     public void onResponse(BulkResponse response) {
-      semaphore.release();
-      counter.addAndGet(response.getItems().length);
-
-      for (BulkItemResponse item : response.getItems()) {
-        if (item.isFailed()) {
-          LOGGER.error("index [{}], type [{}], id [{}], message [{}]", item.getIndex(), item.getType(), item.getId(), item.getFailureMessage());
+      try {
+        int rejected = 0;
+        for (BulkItemResponse item : response.getItems()) {
+          if (item.isFailed()) {
+            if (isRejection(item)) {
+              rejected++;
+              retryOrLog(req.request().requests().get(item.getItemId()), item);
+            } else {
+              LOGGER.error("index [{}], type [{}], id [{}], message [{}]", item.getIndex(), item.getType(), item.getId(), item.getFailureMessage());
+            }
+          }
+        }
+        counter.addAndGet(response.getItems().length - (long) rejected);
+        BulkIndexerStatistics statistics = client.getBulkIndexerStatistics();
+        statistics.onRequestFinished(response.getItems().length, req.request().estimatedSizeInBytes());
+        if (rejected > 0) {
+          statistics.onRejections(rejected);
         }
+        if (adaptiveSettings != null) {
+          if (rejected > 0) {
+            adaptiveSettings.onRejection();
+          } else {
+            adaptiveSettings.onSuccess(System.currentTimeMillis() - startedAt);
+          }
+        }
+      } finally {
+        // released once rejected documents are queued, so that they are sent again by stop()
+        releaseRequest();
+      }
+    }
+
+    private void retryOrLog(ActionRequest<?> request, BulkItemResponse item) {
+      if (attempt < MAX_RETRIES) {
+        retries.add(new Retry(request, attempt + 1));
+      } else {
+        LOGGER.error("index [{}], type [{}], id [{}], message [{}] (rejected {} times)", item.getIndex(), item.getType(), item.getId(), item.getFailureMessage(),
+          attempt + 1);
       }
     }
 
     @Override
     public void onFailure(Throwable e) {
-      semaphore.release();
-      LOGGER.error("Fail to execute bulk index request: " + req, e);
+      try {
+        BulkIndexerStatistics statistics = client.getBulkIndexerStatistics();
+        statistics.onRequestFinished(0L, 0L);
+        if (isRejection(e) && attempt < MAX_RETRIES) {
+          statistics.onRejections(req.numberOfActions());
+          if (adaptiveSettings != null) {
+            adaptiveSettings.onRejection();
+          }
+          req.request().requests().forEach(request -> retries.add(new Retry(request, attempt + 1)));
+        } else {
+          LOGGER.error("Fail to execute bulk index request: " + req, e);
+        }
+      } finally {
+        releaseRequest();
+      }
     }
   }
 }
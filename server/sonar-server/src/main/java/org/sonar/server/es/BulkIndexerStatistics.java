@@ -0,0 +1,116 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.sonar.api.utils.System2;
+
+/**
+ * Statistics of the bulk requests executed by {@link BulkIndexer}, exported by
+ * {@link org.sonar.server.platform.monitoring.EsMonitor}. Throughput is computed over the
+ * periods during which at least one bulk request is in progress, so idle periods do not
+ * lower it. This class is thread-safe.
+ */
+public class BulkIndexerStatistics {
+
+  private final System2 system2;
+  private final AtomicLong docs = new AtomicLong(0L);
+  private final AtomicLong bytes = new AtomicLong(0L);
+  private final AtomicLong rejections = new AtomicLong(0L);
+  private final AtomicLong retries = new AtomicLong(0L);
+
+  // guarded by this
+  private int inProgressRequests = 0;
+  private long activeSince = 0L;
+  private long activeMillis = 0L;
+
+  public BulkIndexerStatistics() {
+    this(System2.INSTANCE);
+  }
+
+  BulkIndexerStatistics(System2 system2) {
+    this.system2 = system2;
+  }
+
+  synchronized void onRequestStarted() {
+    if (inProgressRequests == 0) {
+      activeSince = system2.now();
+    }
+    inProgressRequests++;
+  }
+
+  synchronized void onRequestFinished(long requestDocs, long requestBytes) {
+    inProgressRequests--;
+    if (inProgressRequests == 0) {
+      activeMillis += system2.now() - activeSince;
+    }
+    docs.addAndGet(requestDocs);
+    bytes.addAndGet(requestBytes);
+  }
+
+  void onRejections(long rejectedDocs) {
+    rejections.addAndGet(rejectedDocs);
+  }
+
+  void onRetries(long retriedDocs) {
+    retries.addAndGet(retriedDocs);
+  }
+
+  /**
+   * Number of documents sent in bulk requests, including the retried ones
+   */
+  public long getDocs() {
+    return docs.get();
+  }
+
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  /**
+   * Number of documents rejected by Elasticsearch because its queues were full
+   */
+  public long getRejections() {
+    return rejections.get();
+  }
+
+  /**
+   * Number of rejected documents which have been sent again
+   */
+  public long getRetries() {
+    return retries.get();
+  }
+
+  public double getDocsPerSecond() {
+    return perSecond(docs.get());
+  }
+
+  public double getBytesPerSecond() {
+    return perSecond(bytes.get());
+  }
+
+  private synchronized double perSecond(long count) {
+    long millis = activeMillis;
+    if (inProgressRequests > 0) {
+      millis += system2.now() - activeSince;
+    }
+    return millis == 0L ? 0.0 : (count * 1000.0 / millis);
+  }
+}
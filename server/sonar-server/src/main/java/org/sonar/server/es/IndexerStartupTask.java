@@ -19,7 +19,15 @@
  */
 package org.sonar.server.es;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import org.elasticsearch.action.admin.cluster.health.ClusterHealthAction;
 import org.elasticsearch.action.admin.indices.close.CloseIndexAction;
@@ -32,9 +40,12 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.api.utils.log.Profiler;
 
-import static java.util.Arrays.stream;
 import static java.util.stream.Collectors.toSet;
 
+/**
+ * Indexes the types which have never been fully indexed. Indexers are independent, so they
+ * are executed concurrently.
+ */
 public class IndexerStartupTask {
 
   private static final Logger LOG = Loggers.get(IndexerStartupTask.class);
@@ -52,8 +63,7 @@ public class IndexerStartupTask {
 
   public void execute() {
     if (indexesAreEnabled()) {
-      stream(indexers)
-        .forEach(this::indexEmptyTypes);
+      indexEmptyTypes();
     }
   }
 
@@ -61,15 +71,54 @@ public class IndexerStartupTask {
     return !settings.getBoolean("sonar.internal.es.disableIndexes");
   }
 
-  private void indexEmptyTypes(StartupIndexer indexer) {
-    Set<IndexType> uninizializedTypes = getUninitializedTypes(indexer);
-    if (!uninizializedTypes.isEmpty()) {
-      Profiler profiler = Profiler.create(LOG);
-      profiler.startInfo(getLogMessage(uninizializedTypes, "..."));
-      indexer.indexOnStartup(uninizializedTypes);
-      uninizializedTypes.forEach(this::setInitialized);
-      profiler.stopInfo(getLogMessage(uninizializedTypes, "done"));
+  private void indexEmptyTypes() {
+    Map<StartupIndexer, Set<IndexType>> uninitializedTypesByIndexer = new LinkedHashMap<>();
+    for (StartupIndexer indexer : indexers) {
+      Set<IndexType> uninitializedTypes = getUninitializedTypes(indexer);
+      if (!uninitializedTypes.isEmpty()) {
+        uninitializedTypesByIndexer.put(indexer, uninitializedTypes);
+      }
+    }
+    if (uninitializedTypesByIndexer.isEmpty()) {
+      return;
+    }
+
+    ExecutorService executorService = Executors.newFixedThreadPool(uninitializedTypesByIndexer.size(),
+      new ThreadFactoryBuilder().setNameFormat("StartupIndexer-%d").build());
+    Map<Future<?>, Set<IndexType>> indexings = new LinkedHashMap<>();
+    uninitializedTypesByIndexer.forEach((indexer, types) -> indexings.put(executorService.submit(() -> indexEmptyTypes(indexer, types)), types));
+    // indexes are closed to be marked as initialized, so it can't be done while other indexers are writing into them
+    Set<IndexType> initializedTypes = new LinkedHashSet<>();
+    RuntimeException failure = null;
+    try {
+      for (Map.Entry<Future<?>, Set<IndexType>> indexing : indexings.entrySet()) {
+        try {
+          indexing.getKey().get();
+          initializedTypes.addAll(indexing.getValue());
+        } catch (ExecutionException e) {
+          // types of the failed indexer stay uninitialized, other indexers are awaited
+          if (failure == null) {
+            failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } finally {
+      executorService.shutdownNow();
     }
+    initializedTypes.forEach(this::setInitialized);
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private static void indexEmptyTypes(StartupIndexer indexer, Set<IndexType> uninitializedTypes) {
+    Profiler profiler = Profiler.create(LOG);
+    profiler.startInfo(getLogMessage(uninitializedTypes, "..."));
+    indexer.indexOnStartup(uninitializedTypes);
+    profiler.stopInfo(getLogMessage(uninitializedTypes, "done"));
   }
 
   private Set<IndexType> getUninitializedTypes(StartupIndexer indexer) {
@@ -115,7 +164,7 @@ public class IndexerStartupTask {
     return "index." + SETTING_PREFIX_INITIAL_INDEXING_FINISHED + indexType.getType();
   }
 
-  private String getLogMessage(Set<IndexType> emptyTypes, String suffix) {
+  private static String getLogMessage(Set<IndexType> emptyTypes, String suffix) {
     String s = emptyTypes.size() == 1 ? "" : "s";
     String typeList = emptyTypes.stream().map(Object::toString).collect(Collectors.joining(","));
     return String.format("Indexing of type%s %s %s", s, typeList, suffix);
@@ -20,15 +20,29 @@
 package org.sonar.server.issue.index;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.sonar.api.resources.Qualifiers;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.ProgressLogger;
 import org.sonar.server.es.BulkIndexer;
 import org.sonar.server.es.BulkIndexer.Size;
 import org.sonar.server.es.EsClient;
@@ -46,16 +60,23 @@ import static org.sonar.server.issue.index.IssueIndexDefinition.INDEX_TYPE_ISSUE
 
 public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer, StartupIndexer {
 
+  private static final Logger LOGGER = Loggers.get(IssueIndexer.class);
   private static final String DELETE_ERROR_MESSAGE = "Fail to delete some issues of project [%s]";
   private static final int MAX_BATCH_SIZE = 1000;
   private static final AuthorizationScope AUTHORIZATION_SCOPE = new AuthorizationScope(INDEX_TYPE_ISSUE, project -> Qualifiers.PROJECT.equals(project.getQualifier()));
 
   private final EsClient esClient;
   private final IssueIteratorFactory issueIteratorFactory;
+  private final int startupThreads;
 
   public IssueIndexer(EsClient esClient, IssueIteratorFactory issueIteratorFactory) {
+    this(esClient, issueIteratorFactory, Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)));
+  }
+
+  IssueIndexer(EsClient esClient, IssueIteratorFactory issueIteratorFactory, int startupThreads) {
     this.esClient = esClient;
     this.issueIteratorFactory = issueIteratorFactory;
+    this.startupThreads = startupThreads;
   }
 
   @Override
@@ -68,9 +89,73 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer, S
     return ImmutableSet.of(INDEX_TYPE_ISSUE);
   }
 
+  /**
+   * Issues are partitioned by project. Projects are indexed by several workers, each of them
+   * having its own database cursor and bulk requests.
+   */
   @Override
   public void indexOnStartup(Set<IndexType> emptyIndexTypes) {
-    doIndex(createBulkIndexer(Size.LARGE), (String) null);
+    Queue<String> projectUuids = new ConcurrentLinkedQueue<>(issueIteratorFactory.selectProjectUuids());
+    if (projectUuids.isEmpty()) {
+      return;
+    }
+    int threads = Math.min(startupThreads, projectUuids.size());
+    AtomicLong indexedProjects = new AtomicLong(0L);
+    AtomicBoolean cancelled = new AtomicBoolean(false);
+    ProgressLogger progress = new ProgressLogger("Progress[IssueIndexer]", indexedProjects, LOGGER)
+      .setPluralLabel("projects");
+    ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("IssueIndexer-%d").build());
+    CompletionService<Void> completionService = new ExecutorCompletionService<>(executorService);
+    progress.start();
+    try {
+      for (int i = 0; i < threads; i++) {
+        completionService.submit(() -> indexProjects(projectUuids, indexedProjects, cancelled), null);
+      }
+      for (int i = 0; i < threads; i++) {
+        // fail as soon as a worker fails
+        completionService.take().get();
+      }
+    } catch (ExecutionException e) {
+      // Unwrap ExecutionException
+      throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } finally {
+      // workers are not interrupted, so that they can stop their bulk indexing and restore index settings
+      cancelled.set(true);
+      executorService.shutdown();
+      awaitTermination(executorService);
+      progress.stop();
+    }
+  }
+
+  private static void awaitTermination(ExecutorService executorService) {
+    try {
+      while (!executorService.awaitTermination(1, TimeUnit.MINUTES)) {
+        LOGGER.info("Waiting for issue indexing workers to stop");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void indexProjects(Queue<String> projectUuids, AtomicLong indexedProjects, AtomicBoolean cancelled) {
+    BulkIndexer bulk = createBulkIndexer(Size.LARGE);
+    bulk.start();
+    try {
+      for (String projectUuid = projectUuids.poll(); projectUuid != null && !cancelled.get(); projectUuid = projectUuids.poll()) {
+        try (IssueIterator issues = issueIteratorFactory.createForProject(projectUuid)) {
+          while (issues.hasNext()) {
+            bulk.add(newIndexRequest(issues.next()));
+          }
+        }
+        indexedProjects.incrementAndGet();
+      }
+    } finally {
+      // index settings are restored by the last worker to stop, even if some of them failed
+      bulk.stop();
+    }
   }
 
   @Override
@@ -157,7 +242,9 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer, S
 
   private BulkIndexer createBulkIndexer(Size bulkSize) {
     return new BulkIndexer(esClient, INDEX_TYPE_ISSUE.getIndex())
-      .setSize(bulkSize);
+      .setSize(bulkSize)
+      // initial indexing is tuned to the capacity of Elasticsearch
+      .setAdaptive(bulkSize == Size.LARGE);
   }
 
   private static IndexRequest newIndexRequest(IssueDoc issue) {
@@ -41,6 +41,7 @@ import org.sonar.server.es.Facets;
 import org.sonar.server.issue.ActionFinder;
 import org.sonar.server.issue.TransitionService;
 import org.sonar.server.user.UserSession;
+import org.sonar.server.ws.ReferenceDataCache;
 import org.sonarqube.ws.client.issue.IssuesWsParameters;
 
 import static com.google.common.collect.Lists.newArrayList;
@@ -59,12 +60,15 @@ public class SearchResponseLoader {
   private final DbClient dbClient;
   private final ActionFinder actionService;
   private final TransitionService transitionService;
+  private final ReferenceDataCache referenceDataCache;
 
-  public SearchResponseLoader(UserSession userSession, DbClient dbClient, ActionFinder actionService, TransitionService transitionService) {
+  public SearchResponseLoader(UserSession userSession, DbClient dbClient, ActionFinder actionService, TransitionService transitionService,
+    ReferenceDataCache referenceDataCache) {
     this.userSession = userSession;
     this.dbClient = dbClient;
     this.actionService = actionService;
     this.transitionService = transitionService;
+    this.referenceDataCache = referenceDataCache;
   }
 
   /**
@@ -90,7 +94,7 @@ public class SearchResponseLoader {
 
   private void loadUsers(Collector collector, DbSession dbSession, SearchResponseData result) {
     if (collector.contains(USERS)) {
-      result.setUsers(dbClient.userDao().selectByLogins(dbSession, collector.<String>get(USERS)));
+      result.setUsers(referenceDataCache.selectUsersByLogins(dbSession, collector.<String>get(USERS)));
     }
   }
 
@@ -113,7 +117,7 @@ public class SearchResponseLoader {
 
   private void loadRules(Collector collector, DbSession dbSession, SearchResponseData result) {
     if (collector.contains(RULES)) {
-      result.setRules(dbClient.ruleDao().selectByKeys(dbSession, collector.<RuleKey>get(RULES)));
+      result.setRules(referenceDataCache.selectRulesByKeys(dbSession, collector.<RuleKey>get(RULES)));
     }
   }
 
@@ -134,7 +138,7 @@ public class SearchResponseLoader {
     if (components == null) {
       return;
     }
-    dbClient.organizationDao().selectByUuids(
+    referenceDataCache.selectOrganizationsByUuids(
       dbSession,
       components.stream().map(ComponentDto::getOrganizationUuid).collect(Collectors.toSet()))
       .forEach(result::addOrganization);
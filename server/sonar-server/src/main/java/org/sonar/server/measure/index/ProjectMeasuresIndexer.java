@@ -111,7 +111,9 @@ public class ProjectMeasuresIndexer implements ProjectIndexer, NeedAuthorization
 
   private BulkIndexer createBulkIndexer(Size bulkSize) {
     return new BulkIndexer(esClient, INDEX_TYPE_PROJECT_MEASURES.getIndex())
-      .setSize(bulkSize);
+      .setSize(bulkSize)
+      // initial indexing is tuned to the capacity of Elasticsearch
+      .setAdaptive(bulkSize == Size.LARGE);
   }
 
   private static IndexRequest newIndexRequest(ProjectMeasuresDoc doc) {
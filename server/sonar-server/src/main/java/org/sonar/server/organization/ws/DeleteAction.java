@@ -32,6 +32,7 @@ import org.sonar.server.organization.DefaultOrganization;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.OrganizationFlags;
 import org.sonar.server.user.UserSession;
+import org.sonar.server.ws.ReferenceDataCache;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static org.sonar.server.organization.ws.OrganizationsWsSupport.PARAM_KEY;
@@ -46,14 +47,16 @@ public class DeleteAction implements OrganizationsAction {
   private final DefaultOrganizationProvider defaultOrganizationProvider;
   private final ComponentCleanerService componentCleanerService;
   private final OrganizationFlags organizationFlags;
+  private final ReferenceDataCache referenceDataCache;
 
   public DeleteAction(UserSession userSession, DbClient dbClient, DefaultOrganizationProvider defaultOrganizationProvider,
-    ComponentCleanerService componentCleanerService, OrganizationFlags organizationFlags) {
+    ComponentCleanerService componentCleanerService, OrganizationFlags organizationFlags, ReferenceDataCache referenceDataCache) {
     this.userSession = userSession;
     this.dbClient = dbClient;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
     this.componentCleanerService = componentCleanerService;
     this.organizationFlags = organizationFlags;
+    this.referenceDataCache = referenceDataCache;
   }
 
   @Override
@@ -97,6 +100,7 @@ public class DeleteAction implements OrganizationsAction {
       deletePermissions(dbSession, organizationDto.getUuid());
       deleteGroups(dbSession, organizationDto.getUuid());
       deleteOrganization(key, dbSession);
+      referenceDataCache.invalidateOrganization(organizationDto.getUuid());
 
       response.noContent();
     }
@@ -31,6 +31,7 @@ import org.sonar.db.organization.OrganizationDto;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.organization.OrganizationFlags;
 import org.sonar.server.user.UserSession;
+import org.sonar.server.ws.ReferenceDataCache;
 import org.sonarqube.ws.Organizations;
 
 import static java.lang.String.format;
@@ -49,13 +50,15 @@ public class UpdateAction implements OrganizationsAction {
   private final OrganizationsWsSupport wsSupport;
   private final DbClient dbClient;
   private final OrganizationFlags organizationFlags;
+  private final ReferenceDataCache referenceDataCache;
 
   public UpdateAction(UserSession userSession, OrganizationsWsSupport wsSupport, DbClient dbClient,
-    OrganizationFlags organizationFlags) {
+    OrganizationFlags organizationFlags, ReferenceDataCache referenceDataCache) {
     this.userSession = userSession;
     this.wsSupport = wsSupport;
     this.dbClient = dbClient;
     this.organizationFlags = organizationFlags;
+    this.referenceDataCache = referenceDataCache;
   }
 
   @Override
@@ -101,6 +104,7 @@ public class UpdateAction implements OrganizationsAction {
         .setAvatarUrl(updateRequest.getAvatar().or(dto::getAvatarUrl));
       dbClient.organizationDao().update(dbSession, dto);
       dbSession.commit();
+      referenceDataCache.invalidateOrganization(dto.getUuid());
 
       writeResponse(request, response, dto);
     }
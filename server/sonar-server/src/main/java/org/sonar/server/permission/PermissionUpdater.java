@@ -28,6 +28,7 @@ import java.util.Set;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.server.permission.index.PermissionIndexer;
+import org.sonar.server.user.UserAuthorizationCache;
 
 /**
  * Add or remove global/project permissions to a group. This class
@@ -40,20 +41,30 @@ public class PermissionUpdater {
   private final PermissionIndexer permissionIndexer;
   private final UserPermissionChanger userPermissionChanger;
   private final GroupPermissionChanger groupPermissionChanger;
+  private final UserAuthorizationCache authorizationCache;
 
   public PermissionUpdater(DbClient dbClient, PermissionIndexer permissionIndexer,
-                           UserPermissionChanger userPermissionChanger, GroupPermissionChanger groupPermissionChanger) {
+                           UserPermissionChanger userPermissionChanger, GroupPermissionChanger groupPermissionChanger,
+                           UserAuthorizationCache authorizationCache) {
     this.dbClient = dbClient;
     this.permissionIndexer = permissionIndexer;
     this.userPermissionChanger = userPermissionChanger;
     this.groupPermissionChanger = groupPermissionChanger;
+    this.authorizationCache = authorizationCache;
   }
 
   public void apply(DbSession dbSession, Collection<PermissionChange> changes) {
     Set<Long> projectIds = new HashSet<>();
     List<String> projectOrViewUuids = new ArrayList<>();
+    Set<String> changedUserLogins = new HashSet<>();
+    boolean groupChanged = false;
     for (PermissionChange change : changes) {
       boolean changed = doApply(dbSession, change);
+      if (changed && change instanceof UserPermissionChange) {
+        changedUserLogins.add(((UserPermissionChange) change).getUserId().getLogin());
+      } else if (changed) {
+        groupChanged = true;
+      }
       Optional<ProjectId> projectId = change.getProjectId();
       if (changed && projectId.isPresent()) {
         projectIds.add(projectId.get().getId());
@@ -64,12 +75,21 @@ public class PermissionUpdater {
       dbClient.resourceDao().updateAuthorizationDate(projectId, dbSession);
     }
     dbSession.commit();
+    invalidateAuthorizations(changedUserLogins, groupChanged);
 
     if (!projectIds.isEmpty()) {
       permissionIndexer.indexProjectsByUuids(dbSession, projectOrViewUuids);
     }
   }
 
+  private void invalidateAuthorizations(Set<String> changedUserLogins, boolean groupChanged) {
+    if (groupChanged) {
+      authorizationCache.invalidateAll();
+    } else {
+      changedUserLogins.forEach(authorizationCache::invalidateUser);
+    }
+  }
+
   private boolean doApply(DbSession dbSession, PermissionChange change) {
     if (change instanceof UserPermissionChange) {
       return userPermissionChanger.apply(dbSession, (UserPermissionChange) change);
@@ -31,6 +31,7 @@ import org.elasticsearch.cluster.health.ClusterHealthStatus;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.server.es.BulkIndexerStatistics;
 import org.sonar.server.es.EsClient;
 
 import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
@@ -66,6 +67,26 @@ public class EsMonitor extends BaseMonitorMBean implements EsMonitorMBean {
     return clusterStats().getNodesStats().getCounts().getTotal();
   }
 
+  @Override
+  public double getBulkIndexingDocsPerSecond() {
+    return esClient.getBulkIndexerStatistics().getDocsPerSecond();
+  }
+
+  @Override
+  public double getBulkIndexingBytesPerSecond() {
+    return esClient.getBulkIndexerStatistics().getBytesPerSecond();
+  }
+
+  @Override
+  public long getBulkIndexingRejections() {
+    return esClient.getBulkIndexerStatistics().getRejections();
+  }
+
+  @Override
+  public long getBulkIndexingRetries() {
+    return esClient.getBulkIndexerStatistics().getRetries();
+  }
+
   @Override
   public Map<String, Object> attributes() {
     try {
@@ -74,6 +95,7 @@ public class EsMonitor extends BaseMonitorMBean implements EsMonitorMBean {
       attributes.put("Indices", indexAttributes());
       attributes.put("Number of Nodes", getNumberOfNodes());
       attributes.put("Nodes", nodeAttributes());
+      attributes.put("Bulk Indexing", bulkIndexingAttributes());
       return attributes;
     } catch (Exception es) {
       Loggers.get(EsMonitor.class).warn("Failed to retrieve ES attributes. There will be only a single \"state\" attribute.", es);
@@ -97,6 +119,17 @@ public class EsMonitor extends BaseMonitorMBean implements EsMonitorMBean {
     return indices;
   }
 
+  private LinkedHashMap<String, Object> bulkIndexingAttributes() {
+    BulkIndexerStatistics statistics = esClient.getBulkIndexerStatistics();
+    LinkedHashMap<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("Docs", statistics.getDocs());
+    attributes.put("Docs per Second", String.format("%.1f", statistics.getDocsPerSecond()));
+    attributes.put("Throughput", byteCountToDisplaySize((long) statistics.getBytesPerSecond()) + "/s");
+    attributes.put("Rejected Docs", statistics.getRejections());
+    attributes.put("Retried Docs", statistics.getRetries());
+    return attributes;
+  }
+
   /**
    * map of {node name -> node attributes}
    */
@@ -26,4 +26,8 @@ package org.sonar.server.platform.monitoring;
 public interface EsMonitorMBean {
   String getState();
   int getNumberOfNodes();
+  double getBulkIndexingDocsPerSecond();
+  double getBulkIndexingBytesPerSecond();
+  long getBulkIndexingRejections();
+  long getBulkIndexingRetries();
 }
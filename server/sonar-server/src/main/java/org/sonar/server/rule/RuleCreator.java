@@ -41,6 +41,7 @@ import org.sonar.server.exceptions.Errors;
 import org.sonar.server.exceptions.Message;
 import org.sonar.server.rule.index.RuleIndexer;
 import org.sonar.server.util.TypeValidations;
+import org.sonar.server.ws.ReferenceDataCache;
 
 import static com.google.common.collect.Lists.newArrayList;
 
@@ -51,12 +52,14 @@ public class RuleCreator {
   private final RuleIndexer ruleIndexer;
   private final DbClient dbClient;
   private final TypeValidations typeValidations;
+  private final ReferenceDataCache referenceDataCache;
 
-  public RuleCreator(System2 system2, RuleIndexer ruleIndexer, DbClient dbClient, TypeValidations typeValidations) {
+  public RuleCreator(System2 system2, RuleIndexer ruleIndexer, DbClient dbClient, TypeValidations typeValidations, ReferenceDataCache referenceDataCache) {
     this.system2 = system2;
     this.ruleIndexer = ruleIndexer;
     this.dbClient = dbClient;
     this.typeValidations = typeValidations;
+    this.referenceDataCache = referenceDataCache;
   }
 
   public RuleKey create(NewCustomRule newRule) {
@@ -203,6 +206,7 @@ public class RuleCreator {
         ruleDto.setStatus(RuleStatus.READY)
           .setUpdatedAt(system2.now());
         dbClient.ruleDao().update(dbSession, ruleDto);
+        referenceDataCache.invalidateRule(ruleDto.getKey());
       }
     } else {
       throw new IllegalArgumentException(String.format("A rule with the key '%s' already exists", ruleDto.getKey().rule()));
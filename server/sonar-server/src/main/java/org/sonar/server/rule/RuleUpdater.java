@@ -46,6 +46,7 @@ import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleParamDto;
 import org.sonar.server.rule.index.RuleIndexer;
 import org.sonar.server.user.UserSession;
+import org.sonar.server.ws.ReferenceDataCache;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Strings.isNullOrEmpty;
@@ -59,11 +60,13 @@ public class RuleUpdater {
   private final DbClient dbClient;
   private final RuleIndexer ruleIndexer;
   private final System2 system;
+  private final ReferenceDataCache referenceDataCache;
 
-  public RuleUpdater(DbClient dbClient, RuleIndexer ruleIndexer, System2 system) {
+  public RuleUpdater(DbClient dbClient, RuleIndexer ruleIndexer, System2 system, ReferenceDataCache referenceDataCache) {
     this.dbClient = dbClient;
     this.ruleIndexer = ruleIndexer;
     this.system = system;
+    this.referenceDataCache = referenceDataCache;
   }
 
   /**
@@ -96,6 +99,7 @@ public class RuleUpdater {
     update(dbSession, context.rule);
     updateParameters(dbSession, update, context);
     dbSession.commit();
+    referenceDataCache.invalidateRule(context.rule.getKey());
     ruleIndexer.index();
     return true;
   }
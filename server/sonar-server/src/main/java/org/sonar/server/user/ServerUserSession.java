@@ -23,7 +23,6 @@ import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -50,18 +49,17 @@ public class ServerUserSession extends AbstractUserSession {
   private final DbClient dbClient;
   private final OrganizationFlags organizationFlags;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
-  private final Supplier<Collection<GroupDto>> groups = Suppliers.memoize(this::loadGroups);
+  private final UserAuthorizationCache.Entry authorizations;
   private final Supplier<Boolean> isSystemAdministratorSupplier = Suppliers.memoize(this::loadIsSystemAdministrator);
   private final Map<String, String> projectUuidByComponentUuid = newHashMap();
-  private Map<String, Set<OrganizationPermission>> permissionsByOrganizationUuid;
-  private Map<String, Set<String>> permissionsByProjectUuid;
 
   ServerUserSession(DbClient dbClient, OrganizationFlags organizationFlags,
-    DefaultOrganizationProvider defaultOrganizationProvider, @Nullable UserDto userDto) {
+    DefaultOrganizationProvider defaultOrganizationProvider, UserAuthorizationCache authorizationCache, @Nullable UserDto userDto) {
     this.dbClient = dbClient;
     this.organizationFlags = organizationFlags;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
     this.userDto = userDto;
+    this.authorizations = authorizationCache.get(userDto == null ? null : userDto.getLogin());
   }
 
   private Collection<GroupDto> loadGroups() {
@@ -69,7 +67,7 @@ public class ServerUserSession extends AbstractUserSession {
       return Collections.emptyList();
     }
     try (DbSession dbSession = dbClient.openSession(false)) {
-      return dbClient.groupDao().selectByUserLogin(dbSession, userDto.getLogin());
+      return Collections.unmodifiableList(dbClient.groupDao().selectByUserLogin(dbSession, userDto.getLogin()));
     }
   }
 
@@ -93,7 +91,7 @@ public class ServerUserSession extends AbstractUserSession {
 
   @Override
   public Collection<GroupDto> getGroups() {
-    return groups.get();
+    return authorizations.getGroups(this::loadGroups);
   }
 
   @Override
@@ -108,10 +106,7 @@ public class ServerUserSession extends AbstractUserSession {
 
   @Override
   protected boolean hasPermissionImpl(OrganizationPermission permission, String organizationUuid) {
-    if (permissionsByOrganizationUuid == null) {
-      permissionsByOrganizationUuid = new HashMap<>();
-    }
-    Set<OrganizationPermission> permissions = permissionsByOrganizationUuid.computeIfAbsent(organizationUuid, this::loadOrganizationPermissions);
+    Set<OrganizationPermission> permissions = authorizations.getOrganizationPermissions(organizationUuid, this::loadOrganizationPermissions);
     return permissions.contains(permission);
   }
 
@@ -148,10 +143,7 @@ public class ServerUserSession extends AbstractUserSession {
 
   @Override
   protected boolean hasProjectUuidPermission(String permission, String projectUuid) {
-    if (permissionsByProjectUuid == null) {
-      permissionsByProjectUuid = new HashMap<>();
-    }
-    Set<String> permissions = permissionsByProjectUuid.computeIfAbsent(projectUuid, this::loadProjectPermissions);
+    Set<String> permissions = authorizations.getProjectPermissions(projectUuid, this::loadProjectPermissions);
     return permissions.contains(permission);
   }
 
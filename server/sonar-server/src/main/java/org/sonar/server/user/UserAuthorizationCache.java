@@ -0,0 +1,135 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.sonar.api.server.ServerSide;
+import org.sonar.db.permission.OrganizationPermission;
+import org.sonar.db.user.GroupDto;
+
+/**
+ * Server-wide cache of the groups and permissions loaded by {@link ServerUserSession}, so that
+ * the successive requests of a user, typically authenticated by a token, do not load them again.
+ * Anonymous requests share a single entry.
+ * <p>
+ * Entries expire {@link #TTL_SECONDS} seconds after being created. Components changing permissions,
+ * group memberships or applying permission templates must invalidate the users they impact.
+ * </p>
+ */
+@ServerSide
+public class UserAuthorizationCache {
+
+  static final long MAX_SIZE = 10_000L;
+  static final long TTL_SECONDS = 30L;
+
+  // not a valid login
+  private static final String ANONYMOUS_KEY = "";
+
+  private final LoadingCache<String, Entry> entries;
+
+  public UserAuthorizationCache() {
+    this(Ticker.systemTicker());
+  }
+
+  UserAuthorizationCache(Ticker ticker) {
+    this.entries = CacheBuilder.newBuilder()
+      .maximumSize(MAX_SIZE)
+      .expireAfterWrite(TTL_SECONDS, TimeUnit.SECONDS)
+      .ticker(ticker)
+      .build(new CacheLoader<String, Entry>() {
+        @Override
+        public Entry load(String key) {
+          return new Entry();
+        }
+      });
+  }
+
+  /**
+   * @param login login of the user, or {@code null} for anonymous
+   */
+  Entry get(@Nullable String login) {
+    return entries.getUnchecked(login == null ? ANONYMOUS_KEY : login);
+  }
+
+  /**
+   * To be called when the permissions or the groups of a single user are changed.
+   */
+  public void invalidateUser(String login) {
+    entries.invalidate(login);
+  }
+
+  /**
+   * To be called when a change may impact several users, for example when permissions of
+   * a group are changed or when a permission template is applied.
+   */
+  public void invalidateAll() {
+    entries.invalidateAll();
+  }
+
+  /**
+   * Groups and permissions of a user. An invalidated entry is dropped from the cache, so
+   * values loaded concurrently to the invalidation are not visible to next requests.
+   */
+  static class Entry {
+    private volatile Collection<GroupDto> groups;
+    private final Map<String, Set<OrganizationPermission>> permissionsByOrganizationUuid = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> permissionsByProjectUuid = new ConcurrentHashMap<>();
+
+    Collection<GroupDto> getGroups(Supplier<Collection<GroupDto>> loader) {
+      Collection<GroupDto> result = groups;
+      if (result == null) {
+        result = loader.get();
+        groups = result;
+      }
+      return result;
+    }
+
+    Set<OrganizationPermission> getOrganizationPermissions(String organizationUuid, Function<String, Set<OrganizationPermission>> loader) {
+      return get(permissionsByOrganizationUuid, organizationUuid, loader);
+    }
+
+    Set<String> getProjectPermissions(String projectUuid, Function<String, Set<String>> loader) {
+      return get(permissionsByProjectUuid, projectUuid, loader);
+    }
+
+    /**
+     * Unlike {@link Map#computeIfAbsent(Object, Function)}, the database is not requested while holding a lock
+     */
+    private static <V> V get(Map<String, V> map, String key, Function<String, V> loader) {
+      V value = map.get(key);
+      if (value == null) {
+        value = loader.apply(key);
+        map.putIfAbsent(key, value);
+      }
+      return value;
+    }
+  }
+}
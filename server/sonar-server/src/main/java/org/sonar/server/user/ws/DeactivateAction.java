@@ -36,8 +36,10 @@ import org.sonar.db.permission.OrganizationPermission;
 import org.sonar.db.user.UserDto;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.organization.DefaultOrganizationProvider;
+import org.sonar.server.user.UserAuthorizationCache;
 import org.sonar.server.user.UserSession;
 import org.sonar.server.user.index.UserIndexer;
+import org.sonar.server.ws.ReferenceDataCache;
 
 import static java.lang.String.format;
 import static java.util.Collections.singletonList;
@@ -53,14 +55,18 @@ public class DeactivateAction implements UsersWsAction {
   private final UserSession userSession;
   private final UserJsonWriter userWriter;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
+  private final ReferenceDataCache referenceDataCache;
+  private final UserAuthorizationCache authorizationCache;
 
   public DeactivateAction(DbClient dbClient, UserIndexer userIndexer, UserSession userSession, UserJsonWriter userWriter,
-    DefaultOrganizationProvider defaultOrganizationProvider) {
+    DefaultOrganizationProvider defaultOrganizationProvider, ReferenceDataCache referenceDataCache, UserAuthorizationCache authorizationCache) {
     this.dbClient = dbClient;
     this.userIndexer = userIndexer;
     this.userSession = userSession;
     this.userWriter = userWriter;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
+    this.referenceDataCache = referenceDataCache;
+    this.authorizationCache = authorizationCache;
   }
 
   @Override
@@ -94,6 +100,8 @@ public class DeactivateAction implements UsersWsAction {
       dbClient.userTokenDao().deleteByLogin(dbSession, login);
       dbClient.userDao().deactivateUserByLogin(dbSession, login);
       dbSession.commit();
+      referenceDataCache.invalidateUser(login);
+      authorizationCache.invalidateUser(login);
     }
 
     userIndexer.index(login);
@@ -19,46 +19,56 @@
  */
 package org.sonar.server.util.cache;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
-import java.io.OutputStream;
-import java.io.Serializable;
-import org.apache.commons.io.FileUtils;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import org.apache.commons.io.IOUtils;
 import org.sonar.api.utils.System2;
 import org.sonar.core.util.CloseableIterator;
-import org.sonar.server.util.ObjectInputStreamIterator;
+
+import static java.lang.String.format;
 
 /**
- * Serialize and deserialize objects on disk. No search capabilities, only traversal (full scan).
+ * Append-only store of records on disk. No search capabilities, only traversal (full scan).
+ * <p>
+ * Each record is encoded by a {@link RecordCodec} and written with its length as prefix,
+ * so that the file can be traversed as many times as needed through memory-mapped windows,
+ * without any Java serialization.
  */
-public class DiskCache<O extends Serializable> {
+public class DiskCache<O> {
+
+  private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+  private static final long MAPPED_WINDOW_SIZE = 64L * 1024 * 1024;
+  private static final int LENGTH_PREFIX_SIZE = 4;
 
   private final File file;
   private final System2 system2;
+  private final RecordCodec<O> codec;
 
-  public DiskCache(File file, System2 system2) {
+  public DiskCache(File file, System2 system2, RecordCodec<O> codec) {
     this.system2 = system2;
     this.file = file;
-    OutputStream output = null;
+    this.codec = codec;
+    FileChannel channel = null;
     boolean threw = true;
     try {
-      // writes the serialization stream header required when calling "traverse()"
-      // on empty stream. Moreover it allows to call multiple times "newAppender()"
-      output = new ObjectOutputStream(new FileOutputStream(file));
-      output.flush();
+      // empties the file, so that the cache starts with zero records
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
       threw = false;
     } catch (IOException e) {
       throw new IllegalStateException("Fail to write into file: " + file, e);
     } finally {
       if (threw) {
         // do not hide initial exception
-        IOUtils.closeQuietly(output);
+        IOUtils.closeQuietly(channel);
       } else {
         // raise an exception if can't close
-        system2.close(output);
+        system2.close(channel);
       }
     }
   }
@@ -69,23 +79,21 @@ public class DiskCache<O extends Serializable> {
 
   public CloseableIterator<O> traverse() {
     try {
-      return new ObjectInputStreamIterator<>(FileUtils.openInputStream(file));
+      return new RecordIterator(FileChannel.open(file.toPath(), StandardOpenOption.READ));
     } catch (IOException e) {
       throw new IllegalStateException("Fail to traverse file: " + file, e);
     }
   }
 
   public class DiskAppender implements AutoCloseable {
-    private final ObjectOutputStream output;
+    private final FileChannel channel;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+    private final RecordBytes recordBytes = new RecordBytes();
+    private final DataOutputStream recordOutput = new DataOutputStream(recordBytes);
 
     private DiskAppender() {
       try {
-        this.output = new ObjectOutputStream(new FileOutputStream(file, true)) {
-          @Override
-          protected void writeStreamHeader() throws IOException {
-            // do not write stream headers as it's already done in constructor of DiskCache
-          }
-        };
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
       } catch (IOException e) {
         throw new IllegalStateException("Fail to open file " + file, e);
       }
@@ -93,17 +101,115 @@ public class DiskCache<O extends Serializable> {
 
     public DiskAppender append(O object) {
       try {
-        output.writeObject(object);
-        output.reset();
+        recordBytes.reset();
+        codec.write(object, recordOutput);
+        int length = recordBytes.size();
+        if (writeBuffer.remaining() < LENGTH_PREFIX_SIZE + length) {
+          flush();
+        }
+        if (writeBuffer.remaining() < LENGTH_PREFIX_SIZE + length) {
+          // record does not fit into the write buffer, bypass it
+          writeBuffer.putInt(length);
+          flush();
+          writeFully(ByteBuffer.wrap(recordBytes.bytes(), 0, length));
+        } else {
+          writeBuffer.putInt(length);
+          writeBuffer.put(recordBytes.bytes(), 0, length);
+        }
         return this;
       } catch (IOException e) {
         throw new IllegalStateException("Fail to write into file " + file, e);
       }
     }
 
+    private void flush() throws IOException {
+      writeBuffer.flip();
+      writeFully(writeBuffer);
+      writeBuffer.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+
     @Override
     public void close() {
-      system2.close(output);
+      try {
+        flush();
+      } catch (IOException e) {
+        IOUtils.closeQuietly(channel);
+        throw new IllegalStateException("Fail to write into file " + file, e);
+      }
+      system2.close(channel);
+    }
+  }
+
+  private class RecordIterator extends CloseableIterator<O> {
+    private final FileChannel channel;
+    private final long size;
+    private long position = 0L;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    private RecordIterator(FileChannel channel) throws IOException {
+      this.channel = channel;
+      this.size = channel.size();
+    }
+
+    @Override
+    protected O doNext() {
+      if (position >= size) {
+        return null;
+      }
+      try {
+        int length = slice(position, LENGTH_PREFIX_SIZE).getInt();
+        ByteBuffer record = slice(position + LENGTH_PREFIX_SIZE, length);
+        position += LENGTH_PREFIX_SIZE + length;
+        return codec.read(new ByteBufferDataInput(record));
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to read file " + file, e);
+      }
+    }
+
+    /**
+     * Returns a view of the bytes [start, start + length[ of the file. The mapped window
+     * is moved forward only when the requested bytes are not already mapped.
+     */
+    private ByteBuffer slice(long start, int length) throws IOException {
+      if (length < 0 || start + length > size) {
+        throw new IllegalStateException(format("Corrupted record at offset %d of file %s", start, file));
+      }
+      if (window == null || start < windowStart || start + length > windowStart + window.capacity()) {
+        long mappedSize = Math.min(size - start, Math.max(length, MAPPED_WINDOW_SIZE));
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, mappedSize);
+        windowStart = start;
+      }
+      ByteBuffer slice = window.duplicate();
+      int offset = (int) (start - windowStart);
+      slice.limit(offset + length);
+      slice.position(offset);
+      return slice.slice();
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+      window = null;
+      channel.close();
+    }
+  }
+
+  /**
+   * Gives access to the internal array, so that encoded records are copied only once.
+   */
+  private static class RecordBytes extends ByteArrayOutputStream {
+    private RecordBytes() {
+      super(1024);
+    }
+
+    private byte[] bytes() {
+      return buf;
     }
   }
 }
@@ -0,0 +1,174 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.organization.OrganizationDto;
+import org.sonar.db.rule.RuleDto;
+import org.sonar.db.user.UserDto;
+import org.sonar.server.platform.monitoring.Monitor;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Server-wide cache of the rules, users and organizations loaded to format the responses of
+ * web services, as most responses reference the same few of them. Entries are evicted when
+ * the cache is full or {@link #TTL_MINUTES} minutes after being loaded, and are invalidated
+ * when the web server updates them. Cached DTOs are shared by requests and must not be modified.
+ * <p>
+ * DTOs loaded while an invalidation of the same type occurs are returned but not cached, as they
+ * may have been read before the update was committed.
+ */
+public class ReferenceDataCache implements Monitor {
+
+  static final long MAX_SIZE = 10_000L;
+  static final long TTL_MINUTES = 5L;
+
+  private final DbClient dbClient;
+  private final Entries<RuleKey, RuleDto> rules;
+  private final Entries<String, UserDto> users;
+  private final Entries<String, OrganizationDto> organizations;
+
+  public ReferenceDataCache(DbClient dbClient) {
+    this(dbClient, Ticker.systemTicker());
+  }
+
+  ReferenceDataCache(DbClient dbClient, Ticker ticker) {
+    this.dbClient = dbClient;
+    this.rules = new Entries<>(ticker);
+    this.users = new Entries<>(ticker);
+    this.organizations = new Entries<>(ticker);
+  }
+
+  /**
+   * Same as {@link org.sonar.db.rule.RuleDao#selectByKeys(DbSession, Collection)}
+   */
+  public List<RuleDto> selectRulesByKeys(DbSession dbSession, Collection<RuleKey> keys) {
+    return select(rules, keys, missingKeys -> dbClient.ruleDao().selectByKeys(dbSession, missingKeys), RuleDto::getKey);
+  }
+
+  /**
+   * Same as {@link org.sonar.db.user.UserDao#selectByLogins(DbSession, Collection)}
+   */
+  public List<UserDto> selectUsersByLogins(DbSession dbSession, Collection<String> logins) {
+    return select(users, logins, missingLogins -> dbClient.userDao().selectByLogins(dbSession, missingLogins), UserDto::getLogin);
+  }
+
+  /**
+   * Same as {@link org.sonar.db.organization.OrganizationDao#selectByUuids(DbSession, java.util.Set)}
+   */
+  public List<OrganizationDto> selectOrganizationsByUuids(DbSession dbSession, Collection<String> uuids) {
+    return select(organizations, uuids, missingUuids -> dbClient.organizationDao().selectByUuids(dbSession, missingUuids.stream().collect(toSet())),
+      OrganizationDto::getUuid);
+  }
+
+  private static <K, V> List<V> select(Entries<K, V> entries, Collection<K> keys, Function<List<K>, List<V>> loader, Function<V, K> keyFunction) {
+    Map<K, V> cached = entries.cache.getAllPresent(keys);
+    List<V> result = new ArrayList<>(cached.values());
+    List<K> missingKeys = keys.stream().filter(key -> !cached.containsKey(key)).distinct().collect(toList());
+    if (!missingKeys.isEmpty()) {
+      long generation = entries.generation.get();
+      List<V> loaded = loader.apply(missingKeys);
+      entries.putAll(generation, loaded, keyFunction);
+      result.addAll(loaded);
+    }
+    return result;
+  }
+
+  public void invalidateRule(RuleKey key) {
+    rules.invalidate(key);
+  }
+
+  public void invalidateUser(String login) {
+    users.invalidate(login);
+  }
+
+  public void invalidateOrganization(String uuid) {
+    organizations.invalidate(uuid);
+  }
+
+  @Override
+  public String name() {
+    return "Reference Data Cache";
+  }
+
+  @Override
+  public Map<String, Object> attributes() {
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    addAttributes(attributes, "Rules", rules.cache);
+    addAttributes(attributes, "Users", users.cache);
+    addAttributes(attributes, "Organizations", organizations.cache);
+    return attributes;
+  }
+
+  private static void addAttributes(Map<String, Object> attributes, String label, Cache<?, ?> cache) {
+    CacheStats stats = cache.stats();
+    attributes.put(label + " Size", cache.size());
+    attributes.put(label + " Hits", stats.hitCount());
+    attributes.put(label + " Misses", stats.missCount());
+    attributes.put(label + " Hit Rate", String.format("%.1f%%", 100 * stats.hitRate()));
+  }
+
+  private static final class Entries<K, V> {
+    private final Cache<K, V> cache;
+    /**
+     * Incremented on each invalidation, so that DTOs loaded concurrently are not cached
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private Entries(Ticker ticker) {
+      this.cache = CacheBuilder.newBuilder()
+        .maximumSize(MAX_SIZE)
+        .expireAfterWrite(TTL_MINUTES, TimeUnit.MINUTES)
+        .ticker(ticker)
+        .recordStats()
+        .build();
+    }
+
+    /**
+     * Caches the DTOs loaded from DB, unless an invalidation occurred since {@code loadGeneration} was read
+     */
+    private synchronized void putAll(long loadGeneration, List<V> dtos, Function<V, K> keyFunction) {
+      if (generation.get() == loadGeneration) {
+        dtos.forEach(dto -> cache.put(keyFunction.apply(dto), dto));
+      }
+    }
+
+    private synchronized void invalidate(K key) {
+      generation.incrementAndGet();
+      cache.invalidate(key);
+    }
+  }
+}
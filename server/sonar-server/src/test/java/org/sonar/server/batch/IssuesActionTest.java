@@ -20,7 +20,10 @@
 package org.sonar.server.batch;
 
 import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -309,6 +312,39 @@ public class IssuesActionTest {
     assertThat(serverIssue.getModuleKey()).isEqualTo(MODULE_KEY);
   }
 
+  @Test
+  public void return_technical_update_date() throws Exception {
+    ComponentDto project = ComponentTesting.newProjectDto(db.getDefaultOrganization(), PROJECT_UUID).setKey(PROJECT_KEY);
+    db.getDbClient().componentDao().insert(db.getSession(), project);
+    db.getSession().commit();
+    indexIssues(IssueDocTesting.newDoc("EFGH", project).setTechnicalUpdateDate(new Date(1_500_000_000_000L)));
+
+    addBrowsePermissionOnComponent(project);
+    WsTester.TestRequest request = tester.newGetRequest("batch", "issues").setParam("key", PROJECT_KEY);
+
+    ServerIssue serverIssue = ServerIssue.parseDelimitedFrom(new ByteArrayInputStream(request.execute().output()));
+    assertThat(serverIssue.getUpdatedAt()).isEqualTo(1_500_000_000_000L);
+  }
+
+  @Test
+  public void return_only_issues_changed_since_given_date_including_closed_ones() throws Exception {
+    ComponentDto project = ComponentTesting.newProjectDto(db.getDefaultOrganization(), PROJECT_UUID).setKey(PROJECT_KEY);
+    ComponentDto file = ComponentTesting.newFileDto(project, null, FILE_UUID).setKey(FILE_KEY);
+    db.getDbClient().componentDao().insert(db.getSession(), project, file);
+    db.getSession().commit();
+    indexIssues(
+      IssueDocTesting.newDoc("OLD", file).setStatus("OPEN").setTechnicalUpdateDate(new Date(1_000L)),
+      IssueDocTesting.newDoc("CHANGED", file).setStatus("OPEN").setTechnicalUpdateDate(new Date(2_000L)),
+      IssueDocTesting.newDoc("CLOSED", file).setStatus("CLOSED").setResolution("FIXED").setTechnicalUpdateDate(new Date(3_000L)),
+      IssueDocTesting.newDoc("CLOSED_BEFORE", file).setStatus("CLOSED").setResolution("FIXED").setTechnicalUpdateDate(new Date(1_000L)));
+
+    addBrowsePermissionOnComponent(project);
+    WsTester.TestRequest request = tester.newGetRequest("batch", "issues").setParam("key", PROJECT_KEY).setParam("changedSince", "2000");
+
+    assertThat(readIssueKeys(request)).containsOnly("CHANGED", "CLOSED");
+    assertThat(readIssueKeys(tester.newGetRequest("batch", "issues").setParam("key", PROJECT_KEY))).containsOnly("OLD", "CHANGED");
+  }
+
   @Test
   public void fail_without_browse_permission_on_file() throws Exception {
     ComponentDto project = db.components().insertProject();
@@ -319,6 +355,17 @@ public class IssuesActionTest {
     tester.newGetRequest("batch", "issues").setParam("key", file.key()).execute();
   }
 
+  private static List<String> readIssueKeys(WsTester.TestRequest request) throws Exception {
+    List<String> keys = new ArrayList<>();
+    ByteArrayInputStream input = new ByteArrayInputStream(request.execute().output());
+    ServerIssue serverIssue = ServerIssue.parseDelimitedFrom(input);
+    while (serverIssue != null) {
+      keys.add(serverIssue.getKey());
+      serverIssue = ServerIssue.parseDelimitedFrom(input);
+    }
+    return keys;
+  }
+
   private void indexIssues(IssueDoc... issues) {
     issueIndexer.index(Arrays.asList(issues).iterator());
     for (IssueDoc issue : issues) {
@@ -34,6 +34,7 @@ import org.sonar.db.ce.CeQueueDto;
 import org.sonar.db.ce.CeTaskTypes;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.organization.OrganizationDto;
+import org.sonar.db.protobuf.DbCe;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.tester.UserSessionRule;
@@ -43,6 +44,7 @@ import org.sonarqube.ws.WsCe;
 
 import static java.util.Collections.singleton;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.sonar.db.permission.OrganizationPermission.SCAN;
 import static org.sonarqube.ws.MediaTypes.PROTOBUF;
 
@@ -189,6 +191,50 @@ public class TaskActionTest {
     assertThat(task.getScannerContext()).isEqualTo(scannerContext);
   }
 
+  @Test
+  public void return_step_statistics_of_activity_when_additionalField_is_set() {
+    logInAsRoot();
+
+    persist(createActivityDto(SOME_TASK_UUID).setStepStatistics(newStepStatistics().toByteArray()));
+
+    TestResponse wsResponse = ws.newRequest()
+      .setMediaType(PROTOBUF)
+      .setParam("id", SOME_TASK_UUID)
+      .setParam("additionalFields", "stepStatistics")
+      .execute();
+
+    WsCe.TaskResponse taskResponse = Protobuf.read(wsResponse.getInputStream(), WsCe.TaskResponse.PARSER);
+    WsCe.Task task = taskResponse.getTask();
+    assertThat(task.getStepsCount()).isEqualTo(2);
+    WsCe.TaskStep step = task.getSteps(0);
+    assertThat(step.getDescription()).isEqualTo("Persist issues");
+    assertThat(step.getDurationMs()).isEqualTo(10L);
+    assertThat(step.getCpuTimeMs()).isEqualTo(8L);
+    assertThat(step.getAllocatedBytes()).isEqualTo(1_000L);
+    assertThat(step.getCounters()).containsOnly(entry("inserts", 3L));
+    step = task.getSteps(1);
+    assertThat(step.getDescription()).isEqualTo("Persist sources");
+    assertThat(step.getDurationMs()).isEqualTo(20L);
+    assertThat(step.hasCpuTimeMs()).isFalse();
+    assertThat(step.hasAllocatedBytes()).isFalse();
+    assertThat(step.getCounters()).isEmpty();
+  }
+
+  @Test
+  public void do_not_return_step_statistics_of_activity_when_additionalField_is_not_set() {
+    logInAsRoot();
+
+    persist(createActivityDto(SOME_TASK_UUID).setStepStatistics(newStepStatistics().toByteArray()));
+
+    TestResponse wsResponse = ws.newRequest()
+      .setMediaType(PROTOBUF)
+      .setParam("id", SOME_TASK_UUID)
+      .execute();
+
+    WsCe.TaskResponse taskResponse = Protobuf.read(wsResponse.getInputStream(), WsCe.TaskResponse.PARSER);
+    assertThat(taskResponse.getTask().getStepsCount()).isEqualTo(0);
+  }
+
   @Test
   public void do_not_return_scannerContext_of_activity_with_scannerContext_when_additionalField_is_not_set() {
     logInAsRoot();
@@ -388,6 +434,20 @@ public class TaskActionTest {
     userSession.logIn().setSystemAdministrator();
   }
 
+  private static DbCe.StepStatistics newStepStatistics() {
+    return DbCe.StepStatistics.newBuilder()
+      .addStep(DbCe.Step.newBuilder()
+        .setDescription("Persist issues")
+        .setDurationMs(10L)
+        .setCpuTimeMs(8L)
+        .setAllocatedBytes(1_000L)
+        .addCounter(DbCe.Counter.newBuilder().setKey("inserts").setValue(3L)))
+      .addStep(DbCe.Step.newBuilder()
+        .setDescription("Persist sources")
+        .setDurationMs(20L))
+      .build();
+  }
+
   private void logInAsRoot() {
     userSession.logIn().setRoot();
   }
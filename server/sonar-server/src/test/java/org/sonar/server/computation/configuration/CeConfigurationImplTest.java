@@ -29,6 +29,12 @@ import org.sonar.api.utils.MessageException;
 
 import static java.lang.Math.abs;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.configuration.CeConfigurationImpl.CE_CRAWLER_CONCURRENCY_PROPERTY;
+import static org.sonar.server.computation.configuration.CeConfigurationImpl.CE_FILE_SOURCES_CONCURRENCY_PROPERTY;
+import static org.sonar.server.computation.configuration.CeConfigurationImpl.CE_INCREMENTAL_ANALYSIS_PROPERTY;
+import static org.sonar.server.computation.configuration.CeConfigurationImpl.CE_PRIORITIZED_TASK_TYPES_PROPERTY;
+import static org.sonar.server.computation.configuration.CeConfigurationImpl.CE_SCHEDULING_POLICY_PROPERTY;
+import static org.sonar.server.computation.configuration.CeConfigurationImpl.CE_STEPS_CONCURRENCY_PROPERTY;
 import static org.sonar.server.computation.configuration.CeConfigurationImpl.CE_WORKERS_COUNT_PROPERTY;
 
 public class CeConfigurationImplTest {
@@ -103,6 +109,118 @@ public class CeConfigurationImplTest {
     new CeConfigurationImpl(settings);
   }
 
+  @Test
+  public void getStepsConcurrency_returns_1_when_property_is_not_defined() {
+    assertThat(new CeConfigurationImpl(settings).getStepsConcurrency()).isEqualTo(1);
+  }
+
+  @Test
+  public void getStepsConcurrency_returns_value_of_property() {
+    settings.setProperty(CE_STEPS_CONCURRENCY_PROPERTY, 4);
+
+    assertThat(new CeConfigurationImpl(settings).getStepsConcurrency()).isEqualTo(4);
+  }
+
+  @Test
+  public void constructor_throws_MessageException_when_steps_concurrency_property_is_0() {
+    settings.setProperty(CE_STEPS_CONCURRENCY_PROPERTY, "0");
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("value '0' of property " + CE_STEPS_CONCURRENCY_PROPERTY + " is invalid. " +
+      "It must an integer strictly greater than 0");
+
+    new CeConfigurationImpl(settings);
+  }
+
+  @Test
+  public void getCrawlerConcurrency_returns_1_when_property_is_not_defined() {
+    assertThat(new CeConfigurationImpl(settings).getCrawlerConcurrency()).isEqualTo(1);
+  }
+
+  @Test
+  public void getCrawlerConcurrency_returns_value_of_property() {
+    settings.setProperty(CE_CRAWLER_CONCURRENCY_PROPERTY, 4);
+
+    assertThat(new CeConfigurationImpl(settings).getCrawlerConcurrency()).isEqualTo(4);
+  }
+
+  @Test
+  public void constructor_throws_MessageException_when_crawler_concurrency_property_is_not_a_number() {
+    settings.setProperty(CE_CRAWLER_CONCURRENCY_PROPERTY, "foo");
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("value 'foo' of property " + CE_CRAWLER_CONCURRENCY_PROPERTY + " is invalid. " +
+      "It must an integer strictly greater than 0");
+
+    new CeConfigurationImpl(settings);
+  }
+
+  @Test
+  public void getFileSourcesConcurrency_returns_1_when_property_is_not_defined() {
+    assertThat(new CeConfigurationImpl(settings).getFileSourcesConcurrency()).isEqualTo(1);
+  }
+
+  @Test
+  public void getFileSourcesConcurrency_returns_value_of_property() {
+    settings.setProperty(CE_FILE_SOURCES_CONCURRENCY_PROPERTY, 2);
+
+    assertThat(new CeConfigurationImpl(settings).getFileSourcesConcurrency()).isEqualTo(2);
+  }
+
+  @Test
+  public void constructor_throws_MessageException_when_file_sources_concurrency_property_is_not_a_number() {
+    settings.setProperty(CE_FILE_SOURCES_CONCURRENCY_PROPERTY, "foo");
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("value 'foo' of property " + CE_FILE_SOURCES_CONCURRENCY_PROPERTY + " is invalid. " +
+      "It must an integer strictly greater than 0");
+
+    new CeConfigurationImpl(settings);
+  }
+
+  @Test
+  public void isIncrementalAnalysis_returns_false_when_property_is_not_defined() {
+    assertThat(new CeConfigurationImpl(settings).isIncrementalAnalysis()).isFalse();
+  }
+
+  @Test
+  public void isIncrementalAnalysis_returns_value_of_property() {
+    settings.setProperty(CE_INCREMENTAL_ANALYSIS_PROPERTY, true);
+
+    assertThat(new CeConfigurationImpl(settings).isIncrementalAnalysis()).isTrue();
+  }
+
+  @Test
+  public void getSchedulingPolicy_returns_fifo_when_property_is_not_defined() {
+    assertThat(new CeConfigurationImpl(settings).getSchedulingPolicy()).isEqualTo("fifo");
+  }
+
+  @Test
+  public void getSchedulingPolicy_returns_fifo_when_property_is_space_chars() {
+    settings.setProperty(CE_SCHEDULING_POLICY_PROPERTY, "  ");
+
+    assertThat(new CeConfigurationImpl(settings).getSchedulingPolicy()).isEqualTo("fifo");
+  }
+
+  @Test
+  public void getSchedulingPolicy_returns_trimmed_value_of_property() {
+    settings.setProperty(CE_SCHEDULING_POLICY_PROPERTY, " shortestJobFirst ");
+
+    assertThat(new CeConfigurationImpl(settings).getSchedulingPolicy()).isEqualTo("shortestJobFirst");
+  }
+
+  @Test
+  public void getPrioritizedTaskTypes_returns_empty_list_when_property_is_not_defined() {
+    assertThat(new CeConfigurationImpl(settings).getPrioritizedTaskTypes()).isEmpty();
+  }
+
+  @Test
+  public void getPrioritizedTaskTypes_returns_values_of_property() {
+    settings.setProperty(CE_PRIORITIZED_TASK_TYPES_PROPERTY, "REPORT, DEV_REFRESH");
+
+    assertThat(new CeConfigurationImpl(settings).getPrioritizedTaskTypes()).containsExactly("REPORT", "DEV_REFRESH");
+  }
+
   private void expectMessageException(int value) {
     expectedException.expect(MessageException.class);
     expectedException.expectMessage("value '" + value + "' of property " + CE_WORKERS_COUNT_PROPERTY + " is invalid. " +
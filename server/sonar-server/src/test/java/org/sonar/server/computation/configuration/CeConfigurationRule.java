@@ -19,6 +19,9 @@
  */
 package org.sonar.server.computation.configuration;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import org.junit.rules.ExternalResource;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -28,6 +31,12 @@ import static com.google.common.base.Preconditions.checkArgument;
  */
 public class CeConfigurationRule extends ExternalResource implements CeConfiguration {
   private int workerCount = CeConfigurationImpl.DEFAULT_WORKER_COUNT;
+  private int stepsConcurrency = CeConfigurationImpl.DEFAULT_STEPS_CONCURRENCY;
+  private int crawlerConcurrency = CeConfigurationImpl.DEFAULT_CRAWLER_CONCURRENCY;
+  private int fileSourcesConcurrency = CeConfigurationImpl.DEFAULT_FILE_SOURCES_CONCURRENCY;
+  private boolean incrementalAnalysis = false;
+  private String schedulingPolicy = CeConfigurationImpl.DEFAULT_SCHEDULING_POLICY;
+  private List<String> prioritizedTaskTypes = Collections.emptyList();
   private long queuePollingDelay = CeConfigurationImpl.DEFAULT_QUEUE_POLLING_DELAY;
 
   @Override
@@ -41,6 +50,69 @@ public class CeConfigurationRule extends ExternalResource implements CeConfigura
     return this;
   }
 
+  @Override
+  public int getStepsConcurrency() {
+    return stepsConcurrency;
+  }
+
+  public CeConfigurationRule setStepsConcurrency(int stepsConcurrency) {
+    checkArgument(stepsConcurrency >= 1, "steps concurrency must be >= 1");
+    this.stepsConcurrency = stepsConcurrency;
+    return this;
+  }
+
+  @Override
+  public int getCrawlerConcurrency() {
+    return crawlerConcurrency;
+  }
+
+  public CeConfigurationRule setCrawlerConcurrency(int crawlerConcurrency) {
+    checkArgument(crawlerConcurrency >= 1, "crawler concurrency must be >= 1");
+    this.crawlerConcurrency = crawlerConcurrency;
+    return this;
+  }
+
+  @Override
+  public int getFileSourcesConcurrency() {
+    return fileSourcesConcurrency;
+  }
+
+  public CeConfigurationRule setFileSourcesConcurrency(int fileSourcesConcurrency) {
+    checkArgument(fileSourcesConcurrency >= 1, "file sources concurrency must be >= 1");
+    this.fileSourcesConcurrency = fileSourcesConcurrency;
+    return this;
+  }
+
+  @Override
+  public boolean isIncrementalAnalysis() {
+    return incrementalAnalysis;
+  }
+
+  public CeConfigurationRule setIncrementalAnalysis(boolean incrementalAnalysis) {
+    this.incrementalAnalysis = incrementalAnalysis;
+    return this;
+  }
+
+  @Override
+  public String getSchedulingPolicy() {
+    return schedulingPolicy;
+  }
+
+  public CeConfigurationRule setSchedulingPolicy(String schedulingPolicy) {
+    this.schedulingPolicy = schedulingPolicy;
+    return this;
+  }
+
+  @Override
+  public List<String> getPrioritizedTaskTypes() {
+    return prioritizedTaskTypes;
+  }
+
+  public CeConfigurationRule setPrioritizedTaskTypes(String... prioritizedTaskTypes) {
+    this.prioritizedTaskTypes = Arrays.asList(prioritizedTaskTypes);
+    return this;
+  }
+
   @Override
   public long getQueuePollingDelay() {
     return queuePollingDelay;
@@ -19,14 +19,17 @@
  */
 package org.sonar.server.computation.monitoring;
 
+import java.util.Map;
 import java.util.Random;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.Mockito;
+import org.sonar.ce.monitoring.StepTotals;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.protobuf.DbCe;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
@@ -133,6 +136,59 @@ public class CEQueueStatusImplTest {
     assertThat(underTest.getProcessingTime()).isEqualTo(calls);
   }
 
+  @Test
+  public void addStepStatistics_sums_statistics_by_step() {
+    underTest.addStepStatistics(DbCe.StepStatistics.newBuilder()
+      .addStep(DbCe.Step.newBuilder().setDescription("step1").setDurationMs(10L).setCpuTimeMs(8L).setAllocatedBytes(100L))
+      .addStep(DbCe.Step.newBuilder().setDescription("step2").setDurationMs(20L))
+      .build());
+    underTest.addStepStatistics(DbCe.StepStatistics.newBuilder()
+      .addStep(DbCe.Step.newBuilder().setDescription("step1").setDurationMs(30L).setCpuTimeMs(25L).setAllocatedBytes(400L))
+      .build());
+
+    Map<String, StepTotals> stepTotals = underTest.getStepTotals();
+    assertThat(stepTotals.keySet()).containsOnly("step1", "step2");
+    assertThat(stepTotals.get("step1").toString()).isEqualTo("executions=2, durationMs=40, cpuTimeMs=33, allocatedBytes=500");
+    assertThat(stepTotals.get("step2").toString()).isEqualTo("executions=1, durationMs=20, cpuTimeMs=0, allocatedBytes=0");
+  }
+
+  @Test
+  public void wait_times_are_zero_when_no_task_was_peeked() {
+    assertThat(underTest.getMeanWaitTime()).isEqualTo(0);
+    assertThat(underTest.getWaitTime95thPercentile()).isEqualTo(0);
+  }
+
+  @Test
+  public void addWaitTime_updates_mean_and_95th_percentile() {
+    for (int i = 1; i <= 100; i++) {
+      underTest.addWaitTime(i * 10L);
+    }
+
+    assertThat(underTest.getMeanWaitTime()).isEqualTo(505);
+    assertThat(underTest.getWaitTime95thPercentile()).isEqualTo(950);
+  }
+
+  @Test
+  public void percentile_of_wait_time_is_computed_on_most_recent_values() {
+    for (int i = 0; i < CEQueueStatusImpl.WAIT_TIME_WINDOW_SIZE; i++) {
+      underTest.addWaitTime(100_000L);
+    }
+    for (int i = 0; i < CEQueueStatusImpl.WAIT_TIME_WINDOW_SIZE; i++) {
+      underTest.addWaitTime(10L);
+    }
+
+    assertThat(underTest.getWaitTime95thPercentile()).isEqualTo(10);
+    assertThat(underTest.getMeanWaitTime()).isEqualTo(50_005);
+  }
+
+  @Test
+  public void addWaitTime_throws_IAE_if_time_is_negative() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Wait time can not be < 0");
+
+    underTest.addWaitTime(-1);
+  }
+
   @Test
   public void count_Pending_from_database() {
     when(dbClient.ceQueueDao().countByStatus(any(DbSession.class), eq(CeQueueDto.Status.PENDING))).thenReturn(42);
@@ -19,13 +19,18 @@
  */
 package org.sonar.server.computation.monitoring;
 
+import com.google.common.collect.ImmutableMap;
 import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
 import javax.annotation.CheckForNull;
 import javax.management.InstanceNotFoundException;
 import javax.management.ObjectInstance;
 import javax.management.ObjectName;
 import org.junit.Test;
 import org.sonar.ce.monitoring.CEQueueStatus;
+import org.sonar.ce.monitoring.StepTotals;
+import org.sonar.db.protobuf.DbCe;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
 import org.sonar.server.computation.configuration.CeConfiguration;
 
@@ -37,6 +42,8 @@ public class CeTasksMBeanImplTest {
   private static final long ERROR_COUNT = 10;
   private static final long SUCCESS_COUNT = 13;
   private static final long PROCESSING_TIME = 987;
+  private static final long MEAN_WAIT_TIME = 1_200;
+  private static final long WAIT_TIME_95TH_PERCENTILE = 5_400;
   private static final int WORKER_COUNT = 56;
 
   private CeTasksMBeanImpl underTest = new CeTasksMBeanImpl(new DumbCEQueueStatus(), new DumbCeConfiguration());
@@ -59,18 +66,29 @@ public class CeTasksMBeanImplTest {
     assertThat(underTest.getErrorCount()).isEqualTo(ERROR_COUNT);
     assertThat(underTest.getSuccessCount()).isEqualTo(SUCCESS_COUNT);
     assertThat(underTest.getProcessingTime()).isEqualTo(PROCESSING_TIME);
+    assertThat(underTest.getMeanWaitTime()).isEqualTo(MEAN_WAIT_TIME);
+    assertThat(underTest.getWaitTime95thPercentile()).isEqualTo(WAIT_TIME_95TH_PERCENTILE);
   }
 
   @Test
   public void getWorkerCount_delegates_to_the_CEConfiguration_instance() {
     assertThat(underTest.getWorkerCount()).isEqualTo(WORKER_COUNT);
+    assertThat(underTest.getSchedulingPolicy()).isEqualTo("shortestJobFirst");
   }
 
   @Test
   public void export_system_info() {
     ProtobufSystemInfo.Section section = underTest.toProtobuf();
     assertThat(section.getName()).isEqualTo("Compute Engine Tasks");
-    assertThat(section.getAttributesCount()).isEqualTo(6);
+    assertThat(section.getAttributesCount()).isEqualTo(10);
+    assertThat(section.getAttributes(6).getKey()).isEqualTo("Scheduling Policy");
+    assertThat(section.getAttributes(6).getStringValue()).isEqualTo("shortestJobFirst");
+    assertThat(section.getAttributes(7).getKey()).isEqualTo("Mean Wait Time (ms)");
+    assertThat(section.getAttributes(7).getLongValue()).isEqualTo(MEAN_WAIT_TIME);
+    assertThat(section.getAttributes(8).getKey()).isEqualTo("Wait Time 95th Percentile (ms)");
+    assertThat(section.getAttributes(8).getLongValue()).isEqualTo(WAIT_TIME_95TH_PERCENTILE);
+    assertThat(section.getAttributes(9).getKey()).isEqualTo("Step Persist issues");
+    assertThat(section.getAttributes(9).getStringValue()).isEqualTo("executions=2, durationMs=30, cpuTimeMs=20, allocatedBytes=1000");
   }
 
   /**
@@ -119,6 +137,31 @@ public class CeTasksMBeanImplTest {
       return PROCESSING_TIME;
     }
 
+    @Override
+    public void addStepStatistics(DbCe.StepStatistics stepStatistics) {
+      methodNotImplemented();
+    }
+
+    @Override
+    public void addWaitTime(long waitTime) {
+      methodNotImplemented();
+    }
+
+    @Override
+    public long getMeanWaitTime() {
+      return MEAN_WAIT_TIME;
+    }
+
+    @Override
+    public long getWaitTime95thPercentile() {
+      return WAIT_TIME_95TH_PERCENTILE;
+    }
+
+    @Override
+    public Map<String, StepTotals> getStepTotals() {
+      return ImmutableMap.of("Persist issues", new StepTotals(2, 30, 20, 1000));
+    }
+
     private long methodNotImplemented() {
       throw new UnsupportedOperationException("Not Implemented");
     }
@@ -130,6 +173,36 @@ public class CeTasksMBeanImplTest {
       return WORKER_COUNT;
     }
 
+    @Override
+    public int getStepsConcurrency() {
+      throw new UnsupportedOperationException("getStepsConcurrency is not implemented");
+    }
+
+    @Override
+    public int getCrawlerConcurrency() {
+      throw new UnsupportedOperationException("getCrawlerConcurrency is not implemented");
+    }
+
+    @Override
+    public int getFileSourcesConcurrency() {
+      throw new UnsupportedOperationException("getFileSourcesConcurrency is not implemented");
+    }
+
+    @Override
+    public boolean isIncrementalAnalysis() {
+      throw new UnsupportedOperationException("isIncrementalAnalysis is not implemented");
+    }
+
+    @Override
+    public String getSchedulingPolicy() {
+      return "shortestJobFirst";
+    }
+
+    @Override
+    public List<String> getPrioritizedTaskTypes() {
+      throw new UnsupportedOperationException("getPrioritizedTaskTypes is not implemented");
+    }
+
     @Override
     public long getQueuePollingDelay() {
       throw new UnsupportedOperationException("getQueuePollingDelay is not implemented");
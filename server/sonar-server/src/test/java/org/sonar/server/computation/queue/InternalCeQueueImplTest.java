@@ -22,14 +22,16 @@ package org.sonar.server.computation.queue;
 import com.google.common.base.Optional;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.Nullable;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
-import org.sonar.api.utils.System2;
+import org.mockito.ArgumentCaptor;
 import org.sonar.api.utils.internal.TestSystem2;
 import org.sonar.ce.monitoring.CEQueueStatus;
+import org.sonar.ce.monitoring.StepTotals;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.ce.queue.CeTaskResult;
 import org.sonar.ce.queue.CeTaskSubmit;
@@ -42,22 +44,30 @@ import org.sonar.db.ce.CeQueueDto;
 import org.sonar.db.ce.CeTaskTypes;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
+import org.sonar.db.protobuf.DbCe;
 import org.sonar.server.computation.monitoring.CEQueueStatusImpl;
+import org.sonar.server.computation.queue.scheduling.CeSchedulingPolicy;
+import org.sonar.server.computation.queue.scheduling.FifoSchedulingPolicy;
+import org.sonar.server.computation.queue.scheduling.TaskTypePrioritySchedulingPolicy;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.guava.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class InternalCeQueueImplTest {
 
   private static final String AN_ANALYSIS_UUID = "U1";
 
-  private System2 system2 = new TestSystem2().setNow(1_450_000_000_000L);
+  private TestSystem2 system2 = new TestSystem2().setNow(1_450_000_000_000L);
 
   @Rule
   public ExpectedException expectedException = ExpectedException.none();
@@ -69,7 +79,7 @@ public class InternalCeQueueImplTest {
   private UuidFactory uuidFactory = UuidFactoryImpl.INSTANCE;
   private CEQueueStatus queueStatus = new CEQueueStatusImpl(dbTester.getDbClient());
   private DefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.from(dbTester);
-  private InternalCeQueue underTest = new InternalCeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, queueStatus, defaultOrganizationProvider);
+  private InternalCeQueue underTest = newInternalCeQueue(new FifoSchedulingPolicy());
 
   @Test
   public void submit_returns_task_populated_from_CeTaskSubmit_and_creates_CeQueue_row() {
@@ -182,6 +192,27 @@ public class InternalCeQueueImplTest {
     assertThat(history.get().getAnalysisUuid()).isNull();
   }
 
+  @Test
+  public void remove_saves_step_statistics_in_CeActivity_and_aggregates_them_in_queue_status() {
+    CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    DbCe.StepStatistics stepStatistics = DbCe.StepStatistics.newBuilder()
+      .addStep(DbCe.Step.newBuilder().setDescription("Persist issues").setDurationMs(10L).setCpuTimeMs(5L).setAllocatedBytes(100L))
+      .build();
+    CeTaskResult taskResult = newTaskResult(AN_ANALYSIS_UUID);
+    when(taskResult.getStepStatistics()).thenReturn(java.util.Optional.of(stepStatistics));
+
+    Optional<CeTask> peek = underTest.peek();
+    underTest.remove(peek.get(), CeActivityDto.Status.SUCCESS, taskResult, null);
+
+    Optional<CeActivityDto> history = dbTester.getDbClient().ceActivityDao().selectByUuid(dbTester.getSession(), task.getUuid());
+    assertThat(history.get().parseStepStatistics()).isEqualTo(stepStatistics);
+    StepTotals totals = queueStatus.getStepTotals().get("Persist issues");
+    assertThat(totals.getExecutionCount()).isEqualTo(1L);
+    assertThat(totals.getDurationMs()).isEqualTo(10L);
+    assertThat(totals.getCpuTimeMs()).isEqualTo(5L);
+    assertThat(totals.getAllocatedBytes()).isEqualTo(100L);
+  }
+
   @Test
   public void remove_sets_snapshotId_in_CeActivity_when_CeTaskResult_has_no_snapshot_id() {
     CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
@@ -241,6 +272,86 @@ public class InternalCeQueueImplTest {
     assertThat(peek.isPresent()).isFalse();
   }
 
+  @Test
+  public void peek_records_wait_time_of_task() throws Exception {
+    submit(CeTaskTypes.REPORT, "PROJECT_1");
+    system2.setNow(1_450_000_000_000L + 3_000L);
+
+    underTest.peek();
+
+    assertThat(queueStatus.getMeanWaitTime()).isEqualTo(3_000L);
+    assertThat(queueStatus.getWaitTime95thPercentile()).isEqualTo(3_000L);
+  }
+
+  @Test
+  public void peek_follows_order_of_scheduling_policy() throws Exception {
+    underTest = newInternalCeQueue(new TaskTypePrioritySchedulingPolicy(asList("HIGH", "MEDIUM")));
+    CeTask low = submit("LOW", "PROJECT_1");
+    CeTask medium = submit("MEDIUM", "PROJECT_2");
+    CeTask high = submit("HIGH", "PROJECT_3");
+
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(high.getUuid());
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(medium.getUuid());
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(low.getUuid());
+    assertThat(underTest.peek().isPresent()).isFalse();
+  }
+
+  @Test
+  public void peek_skips_candidates_which_are_not_pending_anymore() throws Exception {
+    CeQueueDto alreadyPeeked = new CeQueueDto().setUuid("ALREADY_PEEKED");
+    CeSchedulingPolicy policy = mock(CeSchedulingPolicy.class);
+    when(policy.getMaxCandidates()).thenReturn(10);
+    when(policy.sort(any(DbSession.class), anyListOf(CeQueueDto.class))).thenAnswer(invocation -> {
+      List<CeQueueDto> candidates = new ArrayList<>();
+      candidates.add(alreadyPeeked);
+      candidates.addAll((List<CeQueueDto>) invocation.getArguments()[1]);
+      return candidates;
+    });
+    underTest = newInternalCeQueue(policy);
+    CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
+
+    Optional<CeTask> peek = underTest.peek();
+
+    assertThat(peek.get().getUuid()).isEqualTo(task.getUuid());
+    ArgumentCaptor<CeQueueDto> peeked = ArgumentCaptor.forClass(CeQueueDto.class);
+    verify(policy).onPeek(any(DbSession.class), peeked.capture());
+    assertThat(peeked.getValue().getUuid()).isEqualTo(task.getUuid());
+    assertThat(queueStatus.getInProgressCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void peek_skips_other_tasks_of_component_which_task_is_peeked_concurrently() throws Exception {
+    CeTask first = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTask second = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTask other = submit(CeTaskTypes.REPORT, "PROJECT_2");
+    CeSchedulingPolicy policy = mock(CeSchedulingPolicy.class);
+    when(policy.getMaxCandidates()).thenReturn(10);
+    when(policy.sort(any(DbSession.class), anyListOf(CeQueueDto.class))).thenAnswer(invocation -> {
+      // another worker peeks the first task, while the candidates are still those of a previous state of the queue
+      dbTester.getDbClient().ceQueueDao().peek(dbTester.getSession(), first.getUuid());
+      return asList(
+        selectQueueDto(first.getUuid()).setStatus(CeQueueDto.Status.PENDING),
+        selectQueueDto(second.getUuid()),
+        selectQueueDto(other.getUuid()));
+    });
+    underTest = newInternalCeQueue(policy);
+
+    Optional<CeTask> peek = underTest.peek();
+
+    assertThat(peek.get().getUuid()).isEqualTo(other.getUuid());
+    assertThat(selectQueueDto(second.getUuid()).getStatus()).isEqualTo(CeQueueDto.Status.PENDING);
+  }
+
+  @Test
+  public void peek_only_oldest_task_of_component() throws Exception {
+    CeTask first = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    submit(CeTaskTypes.REPORT, "PROJECT_1");
+    underTest = newInternalCeQueue(new TaskTypePrioritySchedulingPolicy(singletonList(CeTaskTypes.REPORT)));
+
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(first.getUuid());
+    assertThat(underTest.peek().isPresent()).isFalse();
+  }
+
   @Test
   public void peek_nothing_if_paused() throws Exception {
     submit(CeTaskTypes.REPORT, "PROJECT_1");
@@ -344,6 +455,14 @@ public class InternalCeQueueImplTest {
     return ComponentTesting.newProjectDto(dbTester.getDefaultOrganization(), uuid).setName("name_" + uuid).setKey("key_" + uuid);
   }
 
+  private InternalCeQueueImpl newInternalCeQueue(CeSchedulingPolicy schedulingPolicy) {
+    return new InternalCeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, queueStatus, defaultOrganizationProvider, schedulingPolicy);
+  }
+
+  private CeQueueDto selectQueueDto(String uuid) {
+    return dbTester.getDbClient().ceQueueDao().selectByUuid(dbTester.getSession(), uuid).get();
+  }
+
   private CeTask submit(String reportType, String componentUuid) {
     return underTest.submit(createTaskSubmit(reportType, componentUuid, null));
   }
@@ -363,6 +482,7 @@ public class InternalCeQueueImplTest {
   private CeTaskResult newTaskResult(@Nullable String analysisUuid) {
     CeTaskResult taskResult = mock(CeTaskResult.class);
     when(taskResult.getAnalysisUuid()).thenReturn(java.util.Optional.ofNullable(analysisUuid));
+    when(taskResult.getStepStatistics()).thenReturn(java.util.Optional.empty());
     return taskResult;
   }
 
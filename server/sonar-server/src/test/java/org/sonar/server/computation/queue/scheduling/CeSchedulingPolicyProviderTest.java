@@ -0,0 +1,91 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue.scheduling;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.utils.MessageException;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.server.computation.configuration.CeConfigurationRule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class CeSchedulingPolicyProviderTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public CeConfigurationRule ceConfiguration = new CeConfigurationRule();
+
+  private DbClient dbClient = mock(DbClient.class);
+  private CeSchedulingPolicyProvider underTest = new CeSchedulingPolicyProvider();
+
+  @Test
+  public void provide_fifo_by_default() {
+    assertThat(provide()).isInstanceOf(FifoSchedulingPolicy.class);
+  }
+
+  @Test
+  public void provide_configured_policy() {
+    assertThat(provide("projectRoundRobin")).isInstanceOf(ProjectRoundRobinSchedulingPolicy.class);
+    assertThat(provide("organizationRoundRobin")).isInstanceOf(OrganizationRoundRobinSchedulingPolicy.class);
+    assertThat(provide("shortestJobFirst")).isInstanceOf(ShortestJobFirstSchedulingPolicy.class);
+  }
+
+  @Test
+  public void provide_task_type_priority_with_configured_types() {
+    ceConfiguration.setSchedulingPolicy("taskTypePriority").setPrioritizedTaskTypes("REPORT");
+
+    CeSchedulingPolicy policy = provide();
+
+    assertThat(policy).isInstanceOf(TaskTypePrioritySchedulingPolicy.class);
+    assertThat(policy.getKey()).isEqualTo("taskTypePriority");
+  }
+
+  @Test
+  public void provide_a_singleton() {
+    CeSchedulingPolicy policy = provide();
+
+    assertThat(provide()).isSameAs(policy);
+  }
+
+  @Test
+  public void fail_with_MessageException_if_policy_is_unknown() {
+    ceConfiguration.setSchedulingPolicy("lifo");
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("Unsupported Compute Engine scheduling policy 'lifo'. " +
+      "Supported values are: fifo, projectRoundRobin, organizationRoundRobin, taskTypePriority, shortestJobFirst");
+
+    provide();
+  }
+
+  private CeSchedulingPolicy provide(String key) {
+    ceConfiguration.setSchedulingPolicy(key);
+    return new CeSchedulingPolicyProvider().provide(ceConfiguration, dbClient, System2.INSTANCE);
+  }
+
+  private CeSchedulingPolicy provide() {
+    return underTest.provide(ceConfiguration, dbClient, System2.INSTANCE);
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue.scheduling;
+
+import java.util.List;
+import org.junit.Test;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeQueueDto;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class FifoSchedulingPolicyTest {
+
+  private FifoSchedulingPolicy underTest = new FifoSchedulingPolicy();
+
+  @Test
+  public void only_the_oldest_task_is_a_candidate() {
+    assertThat(underTest.getKey()).isEqualTo("fifo");
+    assertThat(underTest.getMaxCandidates()).isEqualTo(1);
+  }
+
+  @Test
+  public void sort_keeps_order_of_creation() {
+    List<CeQueueDto> candidates = asList(new CeQueueDto().setUuid("T1"), new CeQueueDto().setUuid("T2"));
+
+    assertThat(underTest.sort(mock(DbSession.class), candidates)).containsExactlyElementsOf(candidates);
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue.scheduling;
+
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.organization.OrganizationDto;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OrganizationRoundRobinSchedulingPolicyTest {
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private DbSession dbSession = db.getSession();
+  private OrganizationRoundRobinSchedulingPolicy underTest = new OrganizationRoundRobinSchedulingPolicy(db.getDbClient());
+
+  @Test
+  public void key_and_max_candidates() {
+    assertThat(underTest.getKey()).isEqualTo("organizationRoundRobin");
+    assertThat(underTest.getMaxCandidates()).isEqualTo(RoundRobinSchedulingPolicy.MAX_CANDIDATES);
+  }
+
+  @Test
+  public void organizations_are_served_in_turn() {
+    OrganizationDto org1 = db.organizations().insert();
+    OrganizationDto org2 = db.organizations().insert();
+    ComponentDto project1OfOrg1 = db.components().insertProject(org1);
+    ComponentDto project2OfOrg1 = db.components().insertProject(org1);
+    ComponentDto projectOfOrg2 = db.components().insertProject(org2);
+    CeQueueDto task1 = task("T1", project1OfOrg1);
+    CeQueueDto task2 = task("T2", project2OfOrg1);
+    CeQueueDto task3 = task("T3", projectOfOrg2);
+
+    assertThat(sort(asList(task1, task2, task3))).containsExactly("T1", "T2", "T3");
+
+    underTest.onPeek(dbSession, task1);
+
+    // another project of the same organization waits for the other organizations
+    assertThat(sort(asList(task2, task3))).containsExactly("T3", "T2");
+  }
+
+  @Test
+  public void tasks_of_unknown_components_are_grouped_together() {
+    OrganizationDto org = db.organizations().insert();
+    ComponentDto project = db.components().insertProject(org);
+    CeQueueDto unknown1 = new CeQueueDto().setUuid("U1").setComponentUuid("UNKNOWN_1");
+    CeQueueDto unknown2 = new CeQueueDto().setUuid("U2").setComponentUuid("UNKNOWN_2");
+    CeQueueDto noComponent = new CeQueueDto().setUuid("N1");
+    CeQueueDto task = task("T1", project);
+
+    underTest.onPeek(dbSession, unknown1);
+
+    assertThat(sort(asList(unknown2, noComponent, task))).containsExactly("T1", "U2", "N1");
+  }
+
+  private List<String> sort(List<CeQueueDto> candidates) {
+    return underTest.sort(dbSession, candidates).stream().map(CeQueueDto::getUuid).collect(toList());
+  }
+
+  private static CeQueueDto task(String uuid, ComponentDto component) {
+    return new CeQueueDto().setUuid(uuid).setComponentUuid(component.uuid());
+  }
+}
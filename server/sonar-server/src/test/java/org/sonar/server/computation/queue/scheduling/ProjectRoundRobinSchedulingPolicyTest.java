@@ -0,0 +1,88 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue.scheduling;
+
+import java.util.List;
+import javax.annotation.Nullable;
+import org.junit.Test;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeQueueDto;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class ProjectRoundRobinSchedulingPolicyTest {
+
+  private DbSession dbSession = mock(DbSession.class);
+  private ProjectRoundRobinSchedulingPolicy underTest = new ProjectRoundRobinSchedulingPolicy();
+
+  @Test
+  public void key_and_max_candidates() {
+    assertThat(underTest.getKey()).isEqualTo("projectRoundRobin");
+    assertThat(underTest.getMaxCandidates()).isEqualTo(RoundRobinSchedulingPolicy.MAX_CANDIDATES);
+  }
+
+  @Test
+  public void keep_order_of_creation_when_no_project_was_served() {
+    List<CeQueueDto> candidates = asList(task("A1", "A"), task("A2", "A"), task("B1", "B"));
+
+    assertThat(sort(candidates)).containsExactly("A1", "A2", "B1");
+  }
+
+  @Test
+  public void projects_are_served_in_turn() {
+    CeQueueDto a1 = task("A1", "A");
+    CeQueueDto a2 = task("A2", "A");
+    CeQueueDto a3 = task("A3", "A");
+    CeQueueDto b1 = task("B1", "B");
+    CeQueueDto b2 = task("B2", "B");
+    CeQueueDto c1 = task("C1", "C");
+
+    underTest.onPeek(dbSession, a1);
+    assertThat(sort(asList(a2, a3, b1, b2, c1))).containsExactly("B1", "B2", "C1", "A2", "A3");
+
+    underTest.onPeek(dbSession, b1);
+    assertThat(sort(asList(a2, a3, b2, c1))).containsExactly("C1", "A2", "A3", "B2");
+
+    underTest.onPeek(dbSession, c1);
+    assertThat(sort(asList(a2, a3, b2))).containsExactly("A2", "A3", "B2");
+  }
+
+  @Test
+  public void tasks_without_component_are_grouped_together() {
+    CeQueueDto noComponent1 = task("N1", null);
+    CeQueueDto noComponent2 = task("N2", null);
+    CeQueueDto a1 = task("A1", "A");
+
+    underTest.onPeek(dbSession, noComponent1);
+
+    assertThat(sort(asList(noComponent2, a1))).containsExactly("A1", "N2");
+  }
+
+  private List<String> sort(List<CeQueueDto> candidates) {
+    return underTest.sort(dbSession, candidates).stream().map(CeQueueDto::getUuid).collect(toList());
+  }
+
+  private static CeQueueDto task(String uuid, @Nullable String componentUuid) {
+    return new CeQueueDto().setUuid(uuid).setComponentUuid(componentUuid);
+  }
+}
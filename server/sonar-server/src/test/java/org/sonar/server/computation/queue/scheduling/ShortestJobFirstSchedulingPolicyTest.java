@@ -0,0 +1,124 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue.scheduling;
+
+import java.util.List;
+import javax.annotation.Nullable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeActivityDto;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskTypes;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShortestJobFirstSchedulingPolicyTest {
+
+  private static final long NOW = 1_500_000_000_000L;
+  private static final long ONE_MINUTE = 60_000L;
+
+  private TestSystem2 system2 = new TestSystem2().setNow(NOW);
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private DbSession dbSession = db.getSession();
+  private ShortestJobFirstSchedulingPolicy underTest = new ShortestJobFirstSchedulingPolicy(db.getDbClient(), system2);
+
+  @Test
+  public void key_and_max_candidates() {
+    assertThat(underTest.getKey()).isEqualTo("shortestJobFirst");
+    assertThat(underTest.getMaxCandidates()).isEqualTo(ShortestJobFirstSchedulingPolicy.MAX_CANDIDATES);
+  }
+
+  @Test
+  public void shortest_tasks_go_first_when_waiting_times_are_equal() {
+    insertActivity("LONG", 10 * ONE_MINUTE);
+    insertActivity("LONG", 20 * ONE_MINUTE);
+    insertActivity("SHORT", ONE_MINUTE);
+
+    List<CeQueueDto> candidates = asList(task("T1", "LONG", NOW), task("T2", "SHORT", NOW));
+
+    assertThat(sort(candidates)).containsExactly("T2", "T1");
+  }
+
+  @Test
+  public void long_tasks_are_not_starved() {
+    insertActivity("LONG", 10 * ONE_MINUTE);
+    insertActivity("SHORT", ONE_MINUTE);
+
+    // response ratio of T1 is (60 + 10) / 10 = 7, response ratio of T2 is (5 + 1) / 1 = 6
+    List<CeQueueDto> candidates = asList(task("T1", "LONG", NOW - 60 * ONE_MINUTE), task("T2", "SHORT", NOW - 5 * ONE_MINUTE));
+
+    assertThat(sort(candidates)).containsExactly("T1", "T2");
+  }
+
+  @Test
+  public void tasks_without_history_are_expected_to_last_the_average_of_known_durations() {
+    insertActivity("LONG", 9 * ONE_MINUTE);
+    insertActivity("SHORT", ONE_MINUTE);
+
+    // expected time of T2 and T3 is 5 minutes
+    List<CeQueueDto> candidates = asList(task("T1", "LONG", NOW), task("T2", "NEW", NOW), task("T3", null, NOW), task("T4", "SHORT", NOW));
+
+    assertThat(sort(candidates)).containsExactly("T4", "T2", "T3", "T1");
+  }
+
+  @Test
+  public void keep_order_of_creation_when_no_history() {
+    List<CeQueueDto> candidates = asList(task("T1", "P1", NOW - ONE_MINUTE), task("T2", "P2", NOW - ONE_MINUTE), task("T3", "P3", NOW));
+
+    assertThat(sort(candidates)).containsExactly("T1", "T2", "T3");
+  }
+
+  @Test
+  public void responseRatio_is_at_least_one() {
+    assertThat(ShortestJobFirstSchedulingPolicy.responseRatio(0L, 0L)).isEqualTo(1D);
+    assertThat(ShortestJobFirstSchedulingPolicy.responseRatio(0L, 100L)).isEqualTo(1D);
+    assertThat(ShortestJobFirstSchedulingPolicy.responseRatio(100L, 100L)).isEqualTo(2D);
+    assertThat(ShortestJobFirstSchedulingPolicy.responseRatio(10L, 0L)).isEqualTo(11D);
+  }
+
+  private List<String> sort(List<CeQueueDto> candidates) {
+    return underTest.sort(dbSession, candidates).stream().map(CeQueueDto::getUuid).collect(toList());
+  }
+
+  private void insertActivity(String componentUuid, long executionTimeMs) {
+    CeQueueDto queueDto = new CeQueueDto()
+      .setUuid(componentUuid + executionTimeMs)
+      .setTaskType(CeTaskTypes.REPORT)
+      .setComponentUuid(componentUuid);
+    CeActivityDto dto = new CeActivityDto(queueDto)
+      .setStatus(CeActivityDto.Status.SUCCESS)
+      .setExecutionTimeMs(executionTimeMs);
+    db.getDbClient().ceActivityDao().insert(dbSession, dto);
+    dbSession.commit();
+  }
+
+  private static CeQueueDto task(String uuid, @Nullable String componentUuid, long createdAt) {
+    return new CeQueueDto().setUuid(uuid).setComponentUuid(componentUuid).setCreatedAt(createdAt);
+  }
+}
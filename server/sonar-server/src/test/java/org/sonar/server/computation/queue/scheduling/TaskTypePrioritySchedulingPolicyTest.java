@@ -0,0 +1,65 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue.scheduling;
+
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeQueueDto;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class TaskTypePrioritySchedulingPolicyTest {
+
+  private DbSession dbSession = mock(DbSession.class);
+
+  @Test
+  public void key_and_max_candidates() {
+    TaskTypePrioritySchedulingPolicy underTest = new TaskTypePrioritySchedulingPolicy(Collections.emptyList());
+
+    assertThat(underTest.getKey()).isEqualTo("taskTypePriority");
+    assertThat(underTest.getMaxCandidates()).isEqualTo(TaskTypePrioritySchedulingPolicy.MAX_CANDIDATES);
+  }
+
+  @Test
+  public void tasks_are_sorted_by_priority_of_type_then_by_order_of_creation() {
+    TaskTypePrioritySchedulingPolicy underTest = new TaskTypePrioritySchedulingPolicy(asList("HIGH", "MEDIUM"));
+    List<CeQueueDto> candidates = asList(task("T1", "OTHER"), task("T2", "MEDIUM"), task("T3", "HIGH"), task("T4", "MEDIUM"), task("T5", "OTHER"));
+
+    assertThat(underTest.sort(dbSession, candidates).stream().map(CeQueueDto::getUuid).collect(toList()))
+      .containsExactly("T3", "T2", "T4", "T1", "T5");
+  }
+
+  @Test
+  public void keep_order_of_creation_if_no_task_types_are_prioritized() {
+    TaskTypePrioritySchedulingPolicy underTest = new TaskTypePrioritySchedulingPolicy(Collections.emptyList());
+    List<CeQueueDto> candidates = asList(task("T1", "B"), task("T2", "A"));
+
+    assertThat(underTest.sort(dbSession, candidates)).containsExactlyElementsOf(candidates);
+  }
+
+  private static CeQueueDto task(String uuid, String type) {
+    return new CeQueueDto().setUuid(uuid).setTaskType(type);
+  }
+}
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.task.projectanalysis.batch;
 
+import com.google.common.base.Strings;
 import java.io.File;
 import java.io.IOException;
 import org.apache.commons.io.FileUtils;
@@ -132,10 +133,10 @@ public class BatchReportReaderImplTest {
   }
 
   @Test
-  public void readChangesets_is_not_cached() {
+  public void readChangesets_is_cached() {
     writer.writeComponentChangesets(CHANGESETS);
 
-    assertThat(underTest.readChangesets(COMPONENT_REF)).isNotSameAs(underTest.readChangesets(COMPONENT_REF));
+    assertThat(underTest.readChangesets(COMPONENT_REF)).isSameAs(underTest.readChangesets(COMPONENT_REF));
   }
 
   @Test(expected = IllegalStateException.class)
@@ -151,10 +152,24 @@ public class BatchReportReaderImplTest {
   }
 
   @Test
-  public void readComponent_is_not_cached() {
+  public void readComponent_is_cached() {
     writer.writeComponent(COMPONENT);
 
-    assertThat(underTest.readComponent(COMPONENT_REF)).isNotSameAs(underTest.readComponent(COMPONENT_REF));
+    assertThat(underTest.readComponent(COMPONENT_REF)).isSameAs(underTest.readComponent(COMPONENT_REF));
+  }
+
+  @Test
+  public void read_packed_report() {
+    writer.writeComponent(COMPONENT);
+    writer.writeComponentIssues(COMPONENT_REF, of(ISSUE));
+    writer.writeComponentCoverage(COMPONENT_REF, of(COVERAGE_1, COVERAGE_2));
+    writer.pack();
+
+    assertThat(underTest.readComponent(COMPONENT_REF)).isEqualTo(COMPONENT);
+    assertThat(underTest.readComponentIssues(COMPONENT_REF)).containsExactly(ISSUE);
+    assertThat(underTest.readComponentCoverage(COMPONENT_REF)).containsExactly(COVERAGE_1, COVERAGE_2);
+    assertThat(underTest.readComponentCoverage(COMPONENT_REF)).containsExactly(COVERAGE_1, COVERAGE_2);
+    assertThat(underTest.readChangesets(COMPONENT_REF)).isNull();
   }
 
   @Test
@@ -223,6 +238,27 @@ public class BatchReportReaderImplTest {
     assertThat(underTest.readCpdTextBlocks(COMPONENT_REF)).isNotSameAs(underTest.readCpdTextBlocks(COMPONENT_REF));
   }
 
+  @Test
+  public void small_data_of_component_is_read_from_cache() {
+    writer.writeCpdTextBlocks(COMPONENT_REF, of(ScannerReport.CpdTextBlock.newBuilder().setHash("small").build()));
+
+    assertThat(underTest.readCpdTextBlocks(COMPONENT_REF).next()).isSameAs(underTest.readCpdTextBlocks(COMPONENT_REF).next());
+  }
+
+  @Test
+  public void big_data_of_component_is_streamed_from_report() {
+    ScannerReport.CpdTextBlock bigBlock = ScannerReport.CpdTextBlock.newBuilder().setHash(Strings.repeat("a", 2 * 1024 * 1024)).build();
+    writer.writeCpdTextBlocks(COMPONENT_REF, of(bigBlock));
+    writer.pack();
+
+    try (CloseableIterator<ScannerReport.CpdTextBlock> first = underTest.readCpdTextBlocks(COMPONENT_REF);
+      CloseableIterator<ScannerReport.CpdTextBlock> second = underTest.readCpdTextBlocks(COMPONENT_REF)) {
+      ScannerReport.CpdTextBlock block = first.next();
+      assertThat(block).isEqualTo(bigBlock);
+      assertThat(second.next()).isEqualTo(bigBlock).isNotSameAs(block);
+    }
+  }
+
   @Test
   public void readComponentSymbols_returns_empty_list_if_file_does_not_exist() {
     assertThat(underTest.readComponentSymbols(COMPONENT_REF)).isEmpty();
@@ -0,0 +1,186 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.fail;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.DIRECTORY;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.FILE;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.MODULE;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.PROJECT;
+import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.POST_ORDER;
+
+public class ConcurrentPathAwareCrawlerTest {
+
+  private static final ReportComponent SOME_TREE_ROOT = ReportComponent.builder(PROJECT, 1)
+    .addChildren(
+      ReportComponent.builder(MODULE, 11)
+        .addChildren(
+          ReportComponent.builder(DIRECTORY, 111)
+            .addChildren(
+              ReportComponent.builder(FILE, 1111).build(),
+              ReportComponent.builder(FILE, 1112).build())
+            .build(),
+          ReportComponent.builder(DIRECTORY, 112)
+            .addChildren(
+              ReportComponent.builder(FILE, 1121).build())
+            .build(),
+          ReportComponent.builder(FILE, 113).build())
+        .build(),
+      ReportComponent.builder(MODULE, 12)
+        .addChildren(
+          ReportComponent.builder(MODULE, 121)
+            .addChildren(
+              ReportComponent.builder(DIRECTORY, 1211)
+                .addChildren(
+                  ReportComponent.builder(FILE, 12111).build())
+                .build())
+            .build())
+        .build())
+    .build();
+
+  private ForkJoinPool pool = new ForkJoinPool(4);
+
+  @After
+  public void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void aggregates_values_of_subtrees_visited_concurrently() {
+    FileCountVisitor visitor = new FileCountVisitor(CrawlerDepthLimit.LEAVES);
+
+    new PathAwareCrawler<>(visitor, pool).visit(SOME_TREE_ROOT);
+
+    assertThat(visitor.fileCounts).containsOnly(
+      entry(1, 5),
+      entry(11, 4),
+      entry(111, 2),
+      entry(112, 1),
+      entry(12, 1),
+      entry(121, 1),
+      entry(1211, 1));
+  }
+
+  @Test
+  public void visit_concurrently_gives_same_result_as_visit_sequentially() {
+    FileCountVisitor concurrentVisitor = new FileCountVisitor(CrawlerDepthLimit.LEAVES);
+    FileCountVisitor sequentialVisitor = new FileCountVisitor(CrawlerDepthLimit.LEAVES);
+
+    new PathAwareCrawler<>(concurrentVisitor, pool).visit(SOME_TREE_ROOT);
+    new PathAwareCrawler<>(sequentialVisitor, null).visit(SOME_TREE_ROOT);
+
+    assertThat(concurrentVisitor.fileCounts).isEqualTo(sequentialVisitor.fileCounts);
+  }
+
+  @Test
+  public void visit_concurrently_supports_max_depth() {
+    FileCountVisitor visitor = new FileCountVisitor(CrawlerDepthLimit.MODULE);
+
+    new PathAwareCrawler<>(visitor, pool).visit(SOME_TREE_ROOT);
+
+    assertThat(visitor.fileCounts).containsOnly(
+      entry(1, 0),
+      entry(11, 0),
+      entry(12, 0),
+      entry(121, 0));
+  }
+
+  @Test
+  public void exception_thrown_in_subtree_is_rethrown_with_path_of_failing_component() {
+    RuntimeException failure = new IllegalStateException("failure on 1211");
+    FileCountVisitor visitor = new FileCountVisitor(CrawlerDepthLimit.LEAVES) {
+      @Override
+      public void visitDirectory(Component directory, Path<Counter> path) {
+        if (directory.getReportAttributes().getRef() == 1211) {
+          throw failure;
+        }
+        super.visitDirectory(directory, path);
+      }
+    };
+
+    try {
+      new PathAwareCrawler<>(visitor, pool).visit(SOME_TREE_ROOT);
+      fail("a VisitException should have been raised");
+    } catch (VisitException e) {
+      assertThat(e.getCause()).isSameAs(failure);
+      assertThat(e.getMessage()).isEqualTo("Visit failed for Component {key=key_1211,type=DIRECTORY}  located key_121(type=MODULE)->key_12(type=MODULE)->key_1(type=PROJECT)");
+    }
+  }
+
+  private static class Counter {
+    private int files = 0;
+  }
+
+  /**
+   * Counts the files of each Component, and records the count of every Component which is not a file
+   */
+  private static class FileCountVisitor extends PathAwareVisitorAdapter<Counter> implements ConcurrentPathAwareVisitor<Counter> {
+    private final Map<Integer, Integer> fileCounts = new ConcurrentHashMap<>();
+
+    private FileCountVisitor(CrawlerDepthLimit maxDepth) {
+      super(maxDepth, POST_ORDER, new SimpleStackElementFactory<Counter>() {
+        @Override
+        public Counter createForAny(Component component) {
+          return new Counter();
+        }
+      });
+    }
+
+    @Override
+    public void merge(Counter source, Counter target) {
+      target.files += source.files;
+    }
+
+    @Override
+    public void visitFile(Component file, Path<Counter> path) {
+      path.parent().files++;
+    }
+
+    @Override
+    public void visitDirectory(Component directory, Path<Counter> path) {
+      aggregate(directory, path);
+    }
+
+    @Override
+    public void visitModule(Component module, Path<Counter> path) {
+      aggregate(module, path);
+    }
+
+    @Override
+    public void visitProject(Component project, Path<Counter> path) {
+      aggregate(project, path);
+    }
+
+    private void aggregate(Component component, Path<Counter> path) {
+      fileCounts.put(component.getReportAttributes().getRef(), path.current().files);
+      if (!path.isRoot()) {
+        path.parent().files += path.current().files;
+      }
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.component;
+
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.server.computation.configuration.CeConfigurationRule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CrawlerPoolTest {
+
+  @Rule
+  public CeConfigurationRule ceConfiguration = new CeConfigurationRule();
+
+  @Test
+  public void no_pool_when_crawler_concurrency_is_1() {
+    CrawlerPool underTest = new CrawlerPool(ceConfiguration);
+
+    underTest.start();
+
+    assertThat(underTest.get()).isNull();
+  }
+
+  @Test
+  public void no_pool_before_start() {
+    ceConfiguration.setCrawlerConcurrency(4);
+
+    assertThat(new CrawlerPool(ceConfiguration).get()).isNull();
+  }
+
+  @Test
+  public void pool_has_parallelism_of_crawler_concurrency() {
+    ceConfiguration.setCrawlerConcurrency(3);
+    CrawlerPool underTest = new CrawlerPool(ceConfiguration);
+
+    underTest.start();
+
+    assertThat(underTest.get().getParallelism()).isEqualTo(3);
+    underTest.stop();
+  }
+
+  @Test
+  public void stop_shuts_down_pool() {
+    ceConfiguration.setCrawlerConcurrency(2);
+    CrawlerPool underTest = new CrawlerPool(ceConfiguration);
+    underTest.start();
+    ForkJoinPool pool = underTest.get();
+
+    underTest.stop();
+
+    assertThat(pool.isShutdown()).isTrue();
+    assertThat(underTest.get()).isNull();
+  }
+
+  @Test
+  public void stop_does_nothing_when_there_is_no_pool() {
+    CrawlerPool underTest = new CrawlerPool(ceConfiguration);
+    underTest.start();
+
+    underTest.stop();
+
+    assertThat(underTest.get()).isNull();
+  }
+}
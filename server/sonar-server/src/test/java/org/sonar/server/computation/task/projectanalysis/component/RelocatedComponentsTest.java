@@ -0,0 +1,80 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.component;
+
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static com.google.common.collect.Sets.newHashSet;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RelocatedComponentsTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private RelocatedComponents underTest = new RelocatedComponents();
+
+  @Test
+  public void set_uuids() {
+    assertThat(underTest.isInitialized()).isFalse();
+
+    underTest.setUuids(newHashSet("ABCD", "EFGH"));
+
+    assertThat(underTest.isInitialized()).isTrue();
+    assertThat(underTest.getUuids()).containsOnly("ABCD", "EFGH");
+  }
+
+  @Test
+  public void set_uuids_makes_a_copy_of_input_uuids() {
+    Set<String> uuids = newHashSet("ABCD", "EFGH");
+    underTest.setUuids(uuids);
+
+    uuids.remove("ABCD");
+    assertThat(underTest.getUuids()).containsOnly("ABCD", "EFGH");
+  }
+
+  @Test
+  public void fail_with_NPE_when_setting_null_uuids() {
+    thrown.expect(NullPointerException.class);
+    thrown.expectMessage("Uuids cannot be null");
+
+    underTest.setUuids(null);
+  }
+
+  @Test
+  public void fail_with_ISE_when_setting_uuids_twice() {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Uuids have already been initialized");
+
+    underTest.setUuids(newHashSet("ABCD"));
+    underTest.setUuids(newHashSet("EFGH"));
+  }
+
+  @Test
+  public void fail_with_ISE_when_getting_uuids_and_not_initialized() {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Uuids have not been initialized yet");
+
+    underTest.getUuids();
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.duplication;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.ComponentTesting;
+import org.sonar.db.duplication.DuplicationUnitDto;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.task.projectanalysis.duplication.DuplicationIndexFilter.MIN_EXPECTED_INSERTIONS;
+
+public class DuplicationIndexFilterTest {
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+
+  private DbClient dbClient = dbTester.getDbClient();
+  private DbSession dbSession = dbTester.getSession();
+
+  private DuplicationIndexFilter underTest = new DuplicationIndexFilter(dbClient);
+
+  @Test
+  public void filter_out_hashes_which_are_not_indexed() {
+    insertBlock(insertFile("java"), "hash1");
+    insertBlock(insertFile("java"), "hash2");
+
+    assertThat(underTest.filter("java", asList("hash1", "hash2", "hash3", "hash4"))).containsExactly("hash1", "hash2");
+  }
+
+  @Test
+  public void filter_out_hashes_indexed_for_other_languages() {
+    insertBlock(insertFile("java"), "hash1");
+    insertBlock(insertFile("js"), "hash2");
+
+    assertThat(underTest.filter("java", asList("hash1", "hash2"))).containsExactly("hash1");
+    assertThat(underTest.filter("js", asList("hash1", "hash2"))).containsExactly("hash2");
+    assertThat(underTest.filter("xoo", asList("hash1", "hash2"))).isEmpty();
+  }
+
+  @Test
+  public void filter_out_hashes_of_disabled_files() {
+    insertBlock(insertFile("java", false), "hash1");
+
+    assertThat(underTest.filter("java", singletonList("hash1"))).isEmpty();
+  }
+
+  @Test
+  public void filter_is_loaded_once() {
+    insertBlock(insertFile("java"), "hash1");
+    assertThat(underTest.filter("java", singletonList("hash1"))).containsExactly("hash1");
+
+    insertBlock(insertFile("java"), "hash2");
+
+    assertThat(underTest.filter("java", singletonList("hash2"))).isEmpty();
+  }
+
+  @Test
+  public void added_hashes_are_not_filtered_out() {
+    assertThat(underTest.filter("java", singletonList("hash1"))).isEmpty();
+
+    insertBlock(insertFile("java"), "hash1");
+    underTest.add("java", singletonList("hash1"));
+
+    assertThat(underTest.filter("java", singletonList("hash1"))).containsExactly("hash1");
+  }
+
+  @Test
+  public void hashes_added_before_loading_of_filter_are_loaded_from_database() {
+    insertBlock(insertFile("java"), "hash1");
+    underTest.add("java", singletonList("hash1"));
+
+    assertThat(underTest.filter("java", singletonList("hash1"))).containsExactly("hash1");
+  }
+
+  @Test
+  public void filter_is_loaded_again_when_saturated() {
+    assertThat(underTest.filter("java", singletonList("hash1"))).isEmpty();
+    ComponentDto file = insertFile("java");
+    insertBlock(file, "hash1");
+    for (int i = 0; i <= MIN_EXPECTED_INSERTIONS; i++) {
+      underTest.add("java", singletonList("added_hash" + i));
+    }
+
+    // filter was dropped, then loaded again from database
+    assertThat(underTest.filter("java", asList("hash1", "added_hash0"))).containsExactly("hash1");
+  }
+
+  @Test
+  public void expected_insertions_leave_room_for_added_hashes() {
+    assertThat(DuplicationIndexFilter.expectedInsertions(0)).isEqualTo(MIN_EXPECTED_INSERTIONS);
+    assertThat(DuplicationIndexFilter.expectedInsertions(1_000_000)).isEqualTo(1_500_000);
+    assertThat(DuplicationIndexFilter.expectedInsertions(Integer.MAX_VALUE)).isEqualTo(50_000_000);
+  }
+
+  private ComponentDto insertFile(String language) {
+    return insertFile(language, true);
+  }
+
+  private ComponentDto insertFile(String language, boolean enabled) {
+    ComponentDto project = ComponentTesting.newProjectDto(dbTester.organizations().insert());
+    dbClient.componentDao().insert(dbSession, project);
+    ComponentDto file = ComponentTesting.newFileDto(project, null).setLanguage(language).setEnabled(enabled);
+    dbClient.componentDao().insert(dbSession, file);
+    dbSession.commit();
+    return file;
+  }
+
+  private void insertBlock(ComponentDto file, String hash) {
+    dbClient.duplicationDao().insert(dbSession, new DuplicationUnitDto()
+      .setHash(hash)
+      .setStartLine(1)
+      .setEndLine(10)
+      .setIndexInFile(0)
+      .setAnalysisUuid("ANALYSIS_UUID")
+      .setComponentUuid(file.uuid()));
+    dbSession.commit();
+  }
+}
@@ -454,6 +454,118 @@ public class FileMoveDetectionStepTest {
     assertThat(originalFile5.getUuid()).isEqualTo(dtos[3].uuid());
   }
 
+  @Test
+  public void execute_detects_moves_without_comparing_every_removed_file_to_every_added_file() {
+    analysisMetadataHolder.setBaseAnalysis(ANALYSIS);
+    int fileCount = 50;
+    String[] dbKeys = new String[fileCount];
+    Component[] reportFiles = new Component[fileCount];
+    for (int i = 0; i < fileCount; i++) {
+      dbKeys[i] = "removed_" + i;
+      reportFiles[i] = fileComponent(10 + i);
+    }
+    mockComponents(dbKeys);
+    for (int i = 0; i < fileCount; i++) {
+      String[] content = generateContent(i, 40);
+      mockContentOfFileInDb(dbKeys[i], content);
+      // moved files are slightly modified
+      content[20] = "modified line";
+      setFileContentInReport(reportFiles[i].getReportAttributes().getRef(), content);
+    }
+    setFilesInReport(reportFiles);
+    CountingFileSimilarity countingFileSimilarity = new CountingFileSimilarity(fileSimilarity);
+
+    new FileMoveDetectionStep(analysisMetadataHolder, treeRootHolder, dbClient, sourceLinesRepository, countingFileSimilarity, movedFilesRepository)
+      .execute();
+
+    assertThat(movedFilesRepository.getComponentsWithOriginal()).containsOnly(reportFiles);
+    for (int i = 0; i < fileCount; i++) {
+      assertThat(movedFilesRepository.getOriginalFile(reportFiles[i]).get().getKey()).isEqualTo(dbKeys[i]);
+    }
+    assertThat(countingFileSimilarity.count).isLessThan(2 * fileCount);
+  }
+
+  @Test
+  public void execute_compares_every_removed_file_to_every_added_file_when_there_are_few_files() {
+    analysisMetadataHolder.setBaseAnalysis(ANALYSIS);
+    int fileCount = 3;
+    String[] dbKeys = new String[fileCount];
+    Component[] reportFiles = new Component[fileCount];
+    for (int i = 0; i < fileCount; i++) {
+      dbKeys[i] = "removed_" + i;
+      reportFiles[i] = fileComponent(10 + i);
+      mockContentOfFileInDb(dbKeys[i], generateContent(i, 40));
+      setFileContentInReport(reportFiles[i].getReportAttributes().getRef(), generateContent(fileCount + i, 40));
+    }
+    mockComponents(dbKeys);
+    setFilesInReport(reportFiles);
+    CountingFileSimilarity countingFileSimilarity = new CountingFileSimilarity(fileSimilarity);
+
+    new FileMoveDetectionStep(analysisMetadataHolder, treeRootHolder, dbClient, sourceLinesRepository, countingFileSimilarity, movedFilesRepository)
+      .execute();
+
+    assertThat(movedFilesRepository.getComponentsWithOriginal()).isEmpty();
+    assertThat(countingFileSimilarity.count).isEqualTo(fileCount * fileCount);
+  }
+
+  @Test
+  public void execute_detects_move_of_file_with_many_duplicated_lines_among_many_files() {
+    analysisMetadataHolder.setBaseAnalysis(ANALYSIS);
+    int fileCount = 40;
+    String[] dbKeys = new String[fileCount + 1];
+    Component[] reportFiles = new Component[fileCount + 1];
+    for (int i = 0; i < fileCount; i++) {
+      dbKeys[i] = "removed_" + i;
+      reportFiles[i] = fileComponent(10 + i);
+      mockContentOfFileInDb(dbKeys[i], generateContent(i, 40));
+      // other added files are not similar to removed files
+      setFileContentInReport(reportFiles[i].getReportAttributes().getRef(), generateContent(fileCount + i, 40));
+    }
+    // mostly blank lines and closing braces, 15% of lines are modified
+    String[] content = new String[40];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = i % 8 == 0 ? ("line " + i) : (i % 2 == 0 ? "}" : "");
+    }
+    dbKeys[fileCount] = "removed_with_duplicated_lines";
+    mockContentOfFileInDb(dbKeys[fileCount], content);
+    for (int i = 0; i < 6; i++) {
+      content[1 + 6 * i] = "modified line " + i;
+    }
+    reportFiles[fileCount] = fileComponent(10 + fileCount);
+    setFileContentInReport(reportFiles[fileCount].getReportAttributes().getRef(), content);
+    mockComponents(dbKeys);
+    setFilesInReport(reportFiles);
+    assertThat((long) dbKeys.length * reportFiles.length).isGreaterThan(FileMoveDetectionStep.MAX_PAIRS_FOR_EXHAUSTIVE_SCORING);
+
+    underTest.execute();
+
+    assertThat(movedFilesRepository.getComponentsWithOriginal()).containsOnly(reportFiles[fileCount]);
+    assertThat(movedFilesRepository.getOriginalFile(reportFiles[fileCount]).get().getKey()).isEqualTo(dbKeys[fileCount]);
+  }
+
+  private static String[] generateContent(int fileIndex, int lineCount) {
+    String[] content = new String[lineCount];
+    for (int i = 0; i < lineCount; i++) {
+      content[i] = "line " + i + " of file " + fileIndex;
+    }
+    return content;
+  }
+
+  private static class CountingFileSimilarity implements FileSimilarity {
+    private final FileSimilarity delegate;
+    private int count = 0;
+
+    private CountingFileSimilarity(FileSimilarity delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public int score(FileSimilarity.File file1, FileSimilarity.File file2) {
+      count++;
+      return delegate.score(file1, file2);
+    }
+  }
+
   /**
    * JH: A bug was encountered in the algorithm and I didn't manage to forge a simpler test case.
    */
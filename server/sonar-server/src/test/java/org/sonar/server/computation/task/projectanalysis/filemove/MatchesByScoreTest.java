@@ -43,7 +43,7 @@ public class MatchesByScoreTest {
   public void creates_returns_always_the_same_instance_of_maxScore_is_less_than_min_required_score() {
     Set<String> doesNotMatterDbFileKeys = emptySet();
     Map<String, FileSimilarity.File> doesNotMatterReportFiles = Collections.emptyMap();
-    int[][] doesNotMatterScores = new int[0][0];
+    Map<Match, Integer> doesNotMatterScores = Collections.emptyMap();
 
     ScoreMatrix scoreMatrix1 = new ScoreMatrix(doesNotMatterDbFileKeys, doesNotMatterReportFiles, doesNotMatterScores, MIN_REQUIRED_SCORE - 1);
     MatchesByScore matchesByScore = MatchesByScore.create(scoreMatrix1);
@@ -58,11 +58,10 @@ public class MatchesByScoreTest {
   @Test
   public void creates_supports_score_with_same_value_as_min_required_score() {
     int maxScore = 92;
-    int[][] scores = {
-      {maxScore},
-      {8},
-      {85},
-    };
+    Map<Match, Integer> scores = ImmutableMap.of(
+      new Match("A", "1"), maxScore,
+      new Match("B", "1"), 8,
+      new Match("C", "1"), 85);
     MatchesByScore matchesByScore = MatchesByScore.create(new ScoreMatrix(
       of("A", "B", "C"), ImmutableMap.of("1", fileOf("1")), scores, maxScore));
 
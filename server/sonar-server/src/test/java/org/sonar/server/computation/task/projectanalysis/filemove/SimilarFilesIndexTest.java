@@ -0,0 +1,152 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.filemove;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SimilarFilesIndexTest {
+
+  private SimilarFilesIndex<String> underTest = new SimilarFilesIndex<>();
+
+  @Test
+  public void identical_files_are_candidates() {
+    underTest.add("A", file(lines("a", 0, 30)));
+
+    assertThat(underTest.getCandidates(file(lines("a", 0, 30)))).containsOnly("A");
+  }
+
+  @Test
+  public void files_with_a_few_modified_lines_are_candidates() {
+    List<String> lines = lines("a", 0, 30);
+    underTest.add("A", file(lines));
+    lines.set(3, "modified");
+    lines.set(17, "modified too");
+    lines.remove(25);
+
+    assertThat(underTest.getCandidates(file(lines))).containsOnly("A");
+  }
+
+  @Test
+  public void files_with_different_lines_are_not_candidates() {
+    underTest.add("A", file(lines("a", 0, 30)));
+    underTest.add("B", file(lines("b", 0, 30)));
+
+    assertThat(underTest.getCandidates(file(lines("c", 0, 30)))).isEmpty();
+    assertThat(underTest.getCandidates(file(lines("b", 0, 30)))).containsOnly("B");
+  }
+
+  @Test
+  public void order_of_lines_does_not_matter() {
+    List<String> lines = lines("a", 0, 30);
+    underTest.add("A", file(lines));
+    Collections.reverse(lines);
+
+    assertThat(underTest.getCandidates(file(lines))).containsOnly("A");
+  }
+
+  @Test
+  public void all_similar_files_are_candidates() {
+    underTest.add("A", file(lines("a", 0, 30)));
+    underTest.add("B", file(lines("a", 0, 30)));
+    underTest.add("C", file(lines("c", 0, 30)));
+
+    assertThat(underTest.getCandidates(file(lines("a", 0, 30)))).containsExactly("A", "B");
+  }
+
+  @Test
+  public void files_without_lines_are_never_candidates() {
+    underTest.add("A", file(Collections.emptyList()));
+
+    assertThat(underTest.getCandidates(file(Collections.emptyList()))).isEmpty();
+  }
+
+  @Test
+  public void signature_is_null_when_there_is_no_line() {
+    assertThat(SimilarFilesIndex.signature(Collections.emptyList())).isNull();
+  }
+
+  @Test
+  public void signature_depends_on_occurrences_of_lines() {
+    List<String> lines = lines("a", 0, 10);
+    List<String> duplicatedLines = new ArrayList<>(lines);
+    duplicatedLines.addAll(lines);
+
+    assertThat(SimilarFilesIndex.signature(duplicatedLines))
+      .hasSize(SimilarFilesIndex.SIGNATURE_SIZE)
+      .isNotEqualTo(SimilarFilesIndex.signature(lines));
+  }
+
+  @Test
+  public void files_with_many_duplicated_lines_and_min_required_score_are_candidates() {
+    SourceSimilarityImpl sourceSimilarity = new SourceSimilarityImpl();
+    Random random = new Random(42L);
+    for (int fileIndex = 0; fileIndex < 200; fileIndex++) {
+      List<String> lines = duplicatedLines(random, fileIndex, 60);
+      SimilarFilesIndex<String> index = new SimilarFilesIndex<>();
+      index.add("A", file(lines));
+
+      // 15% of the lines are replaced by new lines
+      List<String> modifiedLines = new ArrayList<>(lines);
+      for (int i = 0; i < 9; i++) {
+        modifiedLines.set(random.nextInt(modifiedLines.size()), "new line " + i);
+      }
+
+      if (sourceSimilarity.score(lines, modifiedLines) >= FileMoveDetectionStep.MIN_REQUIRED_SCORE) {
+        assertThat(index.getCandidates(file(modifiedLines))).containsOnly("A");
+      }
+    }
+  }
+
+  /**
+   * Lines of a file made mostly of blank lines and closing braces
+   */
+  private static List<String> duplicatedLines(Random random, int fileIndex, int count) {
+    List<String> res = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      int kind = random.nextInt(10);
+      if (kind < 4) {
+        res.add("");
+      } else if (kind < 8) {
+        res.add("}");
+      } else {
+        res.add("line " + random.nextInt(3) + " of file " + fileIndex);
+      }
+    }
+    return res;
+  }
+
+  private static List<String> lines(String prefix, int from, int to) {
+    List<String> res = new ArrayList<>();
+    for (int i = from; i < to; i++) {
+      res.add(prefix + "_line_hash_" + i);
+    }
+    return res;
+  }
+
+  private static FileSimilarity.File file(List<String> lineHashes) {
+    return new FileSimilarity.File("path", lineHashes);
+  }
+}
@@ -21,6 +21,7 @@ package org.sonar.server.computation.task.projectanalysis.formula;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.measures.CoreMetrics;
@@ -112,6 +113,32 @@ public class ReportFormulaExecutorComponentVisitorTest {
     assertAddedRawMeasure(FILE_3_REF, 2);
   }
 
+  @Test
+  public void verify_aggregation_on_value_when_subtrees_are_visited_concurrently() throws Exception {
+    treeRootHolder.setRoot(BALANCED_COMPONENT_TREE);
+
+    measureRepository.addRawMeasure(FILE_1_REF, LINES_KEY, newMeasureBuilder().create(10));
+    measureRepository.addRawMeasure(FILE_2_REF, LINES_KEY, newMeasureBuilder().create(8));
+    measureRepository.addRawMeasure(FILE_3_REF, LINES_KEY, newMeasureBuilder().create(2));
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      new PathAwareCrawler<>(formulaExecutorComponentVisitor(new FakeFormula()), pool)
+        .visit(BALANCED_COMPONENT_TREE);
+    } finally {
+      pool.shutdownNow();
+    }
+
+    assertAddedRawMeasure(ROOT_REF, 20);
+    assertAddedRawMeasure(MODULE_1_REF, 18);
+    assertAddedRawMeasure(111, 18);
+    assertAddedRawMeasure(FILE_1_REF, 10);
+    assertAddedRawMeasure(FILE_2_REF, 8);
+    assertAddedRawMeasure(MODULE_2_REF, 2);
+    assertAddedRawMeasure(DIRECTORY_2_REF, 2);
+    assertAddedRawMeasure(FILE_3_REF, 2);
+  }
+
   @Test
   public void verify_multi_metric_formula_support_and_aggregation() throws Exception {
     treeRootHolder.setRoot(BALANCED_COMPONENT_TREE);
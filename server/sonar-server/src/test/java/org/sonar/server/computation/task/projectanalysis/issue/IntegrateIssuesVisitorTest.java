@@ -42,6 +42,8 @@ import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleTesting;
 import org.sonar.scanner.protocol.Constants;
 import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.server.computation.configuration.CeConfigurationRule;
+import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolderRule;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
@@ -56,10 +58,13 @@ import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Sets.newHashSet;
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.sonar.server.computation.task.projectanalysis.component.ReportComponent.builder;
 
@@ -98,6 +103,8 @@ public class IntegrateIssuesVisitorTest {
   public ComponentIssuesRepositoryRule componentIssuesRepository = new ComponentIssuesRepositoryRule(treeRootHolder);
   @Rule
   public SourceLinesRepositoryRule fileSourceRepository = new SourceLinesRepositoryRule();
+  @Rule
+  public AnalysisMetadataHolderRule analysisMetadataHolder = new AnalysisMetadataHolderRule();
 
   ArgumentCaptor<DefaultIssue> defaultIssueCaptor = ArgumentCaptor.forClass(DefaultIssue.class);
 
@@ -115,6 +122,9 @@ public class IntegrateIssuesVisitorTest {
   IssueVisitor issueVisitor = mock(IssueVisitor.class);
   IssueVisitors issueVisitors = new IssueVisitors(new IssueVisitor[] {issueVisitor});
   ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues = new ComponentsWithUnprocessedIssues();
+  CeConfigurationRule ceConfiguration = new CeConfigurationRule();
+  IssuesInputHasher issuesInputHasher = new IssuesInputHasher(analysisMetadataHolder, activeRulesHolderRule, ruleRepositoryRule);
+  IssuesInputHashRepository issuesInputHashRepository = mock(IssuesInputHashRepository.class);
 
   TypeAwareVisitor underTest;
 
@@ -124,7 +134,8 @@ public class IntegrateIssuesVisitorTest {
     issueCache = new IssueCache(temp.newFile(), System2.INSTANCE);
     when(issueFilter.accept(any(DefaultIssue.class), eq(FILE))).thenReturn(true);
     when(movedFilesRepository.getOriginalFile(any(Component.class))).thenReturn(Optional.<MovedFilesRepository.OriginalFile>absent());
-    underTest = new IntegrateIssuesVisitor(tracker, issueCache, issueLifecycle, issueVisitors, componentsWithUnprocessedIssues, componentIssuesRepository, movedFilesRepository);
+    underTest = new IntegrateIssuesVisitor(tracker, issueCache, issueLifecycle, issueVisitors, componentsWithUnprocessedIssues, componentIssuesRepository, movedFilesRepository,
+      ceConfiguration, issuesInputHasher, issuesInputHashRepository);
   }
 
   @Test
@@ -275,6 +286,83 @@ public class IntegrateIssuesVisitorTest {
     assertThat(componentsWithUnprocessedIssues.getUuids()).isEmpty();
   }
 
+  @Test
+  public void do_not_compute_hash_of_issues_inputs_if_analysis_is_not_incremental() {
+    componentsWithUnprocessedIssues.setUuids(newHashSet(FILE_UUID));
+    addBaseIssue(RuleTesting.XOO_X1);
+    reportReader.putIssues(FILE_REF, asList(newReportIssue(RuleTesting.XOO_X1)));
+    fileSourceRepository.addLine(FILE_REF, "line1");
+
+    underTest.visitAny(FILE);
+
+    verify(issueLifecycle).mergeExistingOpenIssue(any(DefaultIssue.class), any(DefaultIssue.class));
+    verifyZeroInteractions(issuesInputHashRepository);
+  }
+
+  @Test
+  public void keep_open_issues_of_file_without_tracking_if_issues_inputs_are_unchanged() {
+    ceConfiguration.setIncrementalAnalysis(true);
+    componentsWithUnprocessedIssues.setUuids(newHashSet(FILE_UUID));
+    addBaseIssue(RuleTesting.XOO_X1);
+    reportReader.putIssues(FILE_REF, asList(newReportIssue(RuleTesting.XOO_X1)));
+    fileSourceRepository.addLine(FILE_REF, "line1");
+    String hash = issuesInputHasher.hash(FILE, tracker.createRawInput(FILE).getIssues());
+    when(issuesInputHashRepository.getPreviousHash(FILE)).thenReturn(hash);
+
+    underTest.visitAny(FILE);
+
+    verify(issueLifecycle, never()).mergeExistingOpenIssue(any(DefaultIssue.class), any(DefaultIssue.class));
+    verify(issueLifecycle, never()).initNewOpenIssue(any(DefaultIssue.class));
+    verify(issueLifecycle).doAutomaticTransition(defaultIssueCaptor.capture());
+    assertThat(defaultIssueCaptor.getValue().key()).isEqualTo("ISSUE");
+    verify(issueVisitor).onIssue(eq(FILE), defaultIssueCaptor.capture());
+    List<DefaultIssue> issues = newArrayList(issueCache.traverse());
+    assertThat(issues).extracting(DefaultIssue::key, DefaultIssue::severity).containsExactly(tuple("ISSUE", Severity.MAJOR));
+    assertThat(componentIssuesRepository.getIssues(FILE)).hasSize(1);
+    verify(issuesInputHashRepository).setHash(FILE, hash);
+  }
+
+  @Test
+  public void track_issues_if_issues_inputs_changed() {
+    ceConfiguration.setIncrementalAnalysis(true);
+    componentsWithUnprocessedIssues.setUuids(newHashSet(FILE_UUID));
+    addBaseIssue(RuleTesting.XOO_X1);
+    reportReader.putIssues(FILE_REF, asList(newReportIssue(RuleTesting.XOO_X1)));
+    fileSourceRepository.addLine(FILE_REF, "line1");
+    when(issuesInputHashRepository.getPreviousHash(FILE)).thenReturn("PREVIOUS_HASH");
+
+    underTest.visitAny(FILE);
+
+    verify(issueLifecycle).mergeExistingOpenIssue(any(DefaultIssue.class), any(DefaultIssue.class));
+    verify(issuesInputHashRepository).setHash(FILE, issuesInputHasher.hash(FILE, tracker.createRawInput(FILE).getIssues()));
+  }
+
+  @Test
+  public void track_issues_of_moved_file_even_if_issues_inputs_are_unchanged() {
+    ceConfiguration.setIncrementalAnalysis(true);
+    componentsWithUnprocessedIssues.setUuids(newHashSet(FILE_UUID));
+    addBaseIssue(RuleTesting.XOO_X1);
+    reportReader.putIssues(FILE_REF, asList(newReportIssue(RuleTesting.XOO_X1)));
+    fileSourceRepository.addLine(FILE_REF, "line1");
+    String hash = issuesInputHasher.hash(FILE, tracker.createRawInput(FILE).getIssues());
+    when(issuesInputHashRepository.getPreviousHash(FILE)).thenReturn(hash);
+    when(movedFilesRepository.getOriginalFile(FILE))
+      .thenReturn(Optional.of(new MovedFilesRepository.OriginalFile(4851, FILE_UUID, FILE_KEY)));
+
+    underTest.visitAny(FILE);
+
+    verify(issueLifecycle).mergeExistingOpenIssue(any(DefaultIssue.class), any(DefaultIssue.class));
+  }
+
+  private static ScannerReport.Issue newReportIssue(RuleKey ruleKey) {
+    return ScannerReport.Issue.newBuilder()
+      .setMsg("the message")
+      .setRuleRepository(ruleKey.repository())
+      .setRuleKey(ruleKey.rule())
+      .setSeverity(Constants.Severity.BLOCKER)
+      .build();
+  }
+
   private void addBaseIssue(RuleKey ruleKey) {
     ComponentDto project = ComponentTesting.newProjectDto(dbTester.organizations().insert(), PROJECT_UUID).setKey(PROJECT_KEY);
     ComponentDto file = ComponentTesting.newFileDto(project, null, FILE_UUID).setKey(FILE_KEY);
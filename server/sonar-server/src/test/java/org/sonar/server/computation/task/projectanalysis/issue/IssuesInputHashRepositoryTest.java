@@ -0,0 +1,108 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import javax.annotation.Nullable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeActivityDto;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.db.source.FileSourceDto;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IssuesInputHashRepositoryTest {
+
+  private static final String PROJECT_UUID = "PROJECT_UUID";
+  private static final Component FILE_1 = ReportComponent.builder(Component.Type.FILE, 2).setUuid("FILE_1").build();
+  private static final Component FILE_2 = ReportComponent.builder(Component.Type.FILE, 3).setUuid("FILE_2").build();
+  private static final Component FILE_3 = ReportComponent.builder(Component.Type.FILE, 4).setUuid("FILE_3").build();
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
+
+  private IssuesInputHashRepository underTest = new IssuesInputHashRepository(dbTester.getDbClient(), treeRootHolder);
+
+  @Before
+  public void setUp() {
+    treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).addChildren(FILE_1, FILE_2, FILE_3).build());
+  }
+
+  @Test
+  public void hashes_of_current_analysis() {
+    underTest.setHash(FILE_1, "HASH_1");
+
+    assertThat(underTest.getHash(FILE_1)).isEqualTo("HASH_1");
+    assertThat(underTest.getHash(FILE_2)).isNull();
+  }
+
+  @Test
+  public void load_hashes_of_previous_analysis() {
+    insertFileSource("FILE_1", "PREVIOUS_HASH_1");
+    insertFileSource("FILE_2", null);
+    insertActivity("TASK1", CeActivityDto.Status.FAILED);
+    insertActivity("TASK2", CeActivityDto.Status.SUCCESS);
+
+    assertThat(underTest.getPreviousHash(FILE_1)).isEqualTo("PREVIOUS_HASH_1");
+    assertThat(underTest.getPreviousHash(FILE_2)).isNull();
+    assertThat(underTest.getPreviousHash(FILE_3)).isNull();
+  }
+
+  @Test
+  public void ignore_hashes_of_previous_analysis_if_last_task_failed() {
+    insertFileSource("FILE_1", "PREVIOUS_HASH_1");
+    insertActivity("TASK1", CeActivityDto.Status.SUCCESS);
+    insertActivity("TASK2", CeActivityDto.Status.FAILED);
+
+    assertThat(underTest.getPreviousHash(FILE_1)).isNull();
+  }
+
+  private void insertFileSource(String fileUuid, @Nullable String issuesInputHash) {
+    dbTester.getDbClient().fileSourceDao().insert(dbTester.getSession(), new FileSourceDto()
+      .setProjectUuid(PROJECT_UUID)
+      .setFileUuid(fileUuid)
+      .setDataType(FileSourceDto.Type.SOURCE)
+      .setBinaryData(new byte[0])
+      .setDataHash("DATA_HASH")
+      .setSrcHash("SRC_HASH")
+      .setCreatedAt(1_000L)
+      .setUpdatedAt(1_000L)
+      .setIssuesInputHash(issuesInputHash));
+    dbTester.commit();
+  }
+
+  private void insertActivity(String taskUuid, CeActivityDto.Status status) {
+    CeQueueDto queueDto = new CeQueueDto()
+      .setUuid(taskUuid)
+      .setTaskType(CeTaskTypes.REPORT)
+      .setComponentUuid(PROJECT_UUID);
+    dbTester.getDbClient().ceActivityDao().insert(dbTester.getSession(), new CeActivityDto(queueDto).setStatus(status));
+    dbTester.commit();
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.server.debt.DebtRemediationFunction;
+import org.sonar.api.server.debt.internal.DefaultDebtRemediationFunction;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.db.protobuf.DbCommons;
+import org.sonar.db.protobuf.DbIssues;
+import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolderRule;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.qualityprofile.ActiveRule;
+import org.sonar.server.computation.task.projectanalysis.qualityprofile.ActiveRulesHolderRule;
+import org.sonar.server.qualityprofile.QualityProfile;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IssuesInputHasherTest {
+
+  private static final RuleKey RULE_KEY = RuleKey.of("xoo", "x1");
+  private static final Component FILE = ReportComponent.builder(Component.Type.FILE, 2).setUuid("FILE_UUID").setKey("FILE_KEY")
+    .setFileAttributes(new FileAttributes(false, "xoo", 10)).build();
+
+  @Rule
+  public AnalysisMetadataHolderRule analysisMetadataHolder = new AnalysisMetadataHolderRule();
+  @Rule
+  public ActiveRulesHolderRule activeRulesHolder = new ActiveRulesHolderRule();
+  @Rule
+  public RuleRepositoryRule ruleRepository = new RuleRepositoryRule();
+
+  private DumbRule rule;
+  private IssuesInputHasher underTest = new IssuesInputHasher(analysisMetadataHolder, activeRulesHolder, ruleRepository);
+
+  @Before
+  public void setUp() {
+    analysisMetadataHolder.setQProfilesByLanguage(ImmutableMap.of("xoo", new QualityProfile("QP1", "Sonar way", "xoo", new Date(1_000L))));
+    activeRulesHolder.put(new ActiveRule(RULE_KEY, Severity.MAJOR, ImmutableMap.of("max", "10"), 1_000L));
+    rule = ruleRepository.add(RULE_KEY).setFunction(new DefaultDebtRemediationFunction(DebtRemediationFunction.Type.LINEAR, "5min", null));
+  }
+
+  @Test
+  public void hash_is_the_same_for_the_same_inputs() {
+    assertThat(underTest.hash(FILE, asList(newIssue(), newIssue().setLine(2))))
+      .isEqualTo(underTest.hash(FILE, asList(newIssue(), newIssue().setLine(2))))
+      .hasSize(32);
+  }
+
+  @Test
+  public void hash_changes_with_raw_issues() {
+    String hash = underTest.hash(FILE, singleIssue(newIssue()));
+
+    assertThat(underTest.hash(FILE, Collections.emptyList())).isNotEqualTo(hash);
+    assertThat(underTest.hash(FILE, asList(newIssue(), newIssue()))).isNotEqualTo(hash);
+    assertThat(underTest.hash(FILE, singleIssue(newIssue().setLine(2)))).isNotEqualTo(hash);
+    assertThat(underTest.hash(FILE, singleIssue(newIssue().setLine(null)))).isNotEqualTo(hash);
+    assertThat(underTest.hash(FILE, singleIssue(newIssue().setMessage("other message")))).isNotEqualTo(hash);
+    assertThat(underTest.hash(FILE, singleIssue(newIssue().setChecksum("other checksum")))).isNotEqualTo(hash);
+    assertThat(underTest.hash(FILE, singleIssue(newIssue().setSeverity(Severity.BLOCKER)))).isNotEqualTo(hash);
+    assertThat(underTest.hash(FILE, singleIssue(newIssue().setGap(3d)))).isNotEqualTo(hash);
+    assertThat(underTest.hash(FILE, singleIssue(newIssue().setLocations(locations(2))))).isNotEqualTo(hash);
+  }
+
+  @Test
+  public void hash_changes_with_quality_profile() {
+    String hash = underTest.hash(FILE, singleIssue(newIssue()));
+
+    analysisMetadataHolder.setQProfilesByLanguage(ImmutableMap.of("xoo", new QualityProfile("QP1", "Sonar way", "xoo", new Date(2_000L))));
+
+    assertThat(underTest.hash(FILE, singleIssue(newIssue()))).isNotEqualTo(hash);
+  }
+
+  @Test
+  public void hash_changes_with_active_rule() {
+    String hash = underTest.hash(FILE, singleIssue(newIssue()));
+
+    activeRulesHolder.put(new ActiveRule(RULE_KEY, Severity.MAJOR, ImmutableMap.of("max", "20"), 1_000L));
+
+    assertThat(underTest.hash(FILE, singleIssue(newIssue()))).isNotEqualTo(hash);
+  }
+
+  @Test
+  public void hash_changes_with_remediation_function_of_rule() {
+    String hash = underTest.hash(FILE, singleIssue(newIssue()));
+
+    rule.setFunction(new DefaultDebtRemediationFunction(DebtRemediationFunction.Type.LINEAR, "10min", null));
+
+    assertThat(underTest.hash(FILE, singleIssue(newIssue()))).isNotEqualTo(hash);
+  }
+
+  private static List<DefaultIssue> singleIssue(DefaultIssue issue) {
+    return Collections.singletonList(issue);
+  }
+
+  private static DefaultIssue newIssue() {
+    return new DefaultIssue()
+      .setRuleKey(RULE_KEY)
+      .setLine(1)
+      .setChecksum("checksum")
+      .setMessage("message")
+      .setSeverity(Severity.MAJOR)
+      .setLocations(locations(1));
+  }
+
+  private static DbIssues.Locations locations(int line) {
+    return DbIssues.Locations.newBuilder()
+      .setTextRange(DbCommons.TextRange.newBuilder().setStartLine(line).setEndLine(line))
+      .build();
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static com.google.common.collect.Sets.newHashSet;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PersistedIssuesTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private PersistedIssues underTest = new PersistedIssues();
+
+  @Test
+  public void set_keys() {
+    assertThat(underTest.isInitialized()).isFalse();
+
+    underTest.setKeys(newHashSet("ABCD", "EFGH"));
+
+    assertThat(underTest.isInitialized()).isTrue();
+    assertThat(underTest.getKeys()).containsOnly("ABCD", "EFGH");
+  }
+
+  @Test
+  public void set_keys_makes_a_copy_of_input_keys() {
+    Set<String> keys = newHashSet("ABCD", "EFGH");
+    underTest.setKeys(keys);
+
+    keys.remove("ABCD");
+    assertThat(underTest.getKeys()).containsOnly("ABCD", "EFGH");
+  }
+
+  @Test
+  public void fail_with_NPE_when_setting_null_keys() {
+    thrown.expect(NullPointerException.class);
+    thrown.expectMessage("Keys cannot be null");
+
+    underTest.setKeys(null);
+  }
+
+  @Test
+  public void fail_with_ISE_when_setting_keys_twice() {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Keys have already been initialized");
+
+    underTest.setKeys(newHashSet("ABCD"));
+    underTest.setKeys(newHashSet("EFGH"));
+  }
+
+  @Test
+  public void fail_with_ISE_when_getting_keys_and_not_initialized() {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Keys have not been initialized yet");
+
+    underTest.getKeys();
+  }
+}
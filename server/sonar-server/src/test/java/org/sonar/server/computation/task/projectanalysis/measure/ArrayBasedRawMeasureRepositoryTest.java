@@ -0,0 +1,247 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.measure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.Developer;
+import org.sonar.server.computation.task.projectanalysis.component.DumbDeveloper;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.measure.MapBasedRawMeasureRepository.OverridePolicy;
+import org.sonar.server.computation.task.projectanalysis.metric.Metric;
+import org.sonar.server.computation.task.projectanalysis.metric.MetricImpl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.guava.api.Assertions.assertThat;
+import static org.sonar.server.computation.task.projectanalysis.measure.Measure.newMeasureBuilder;
+
+public class ArrayBasedRawMeasureRepositoryTest {
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private static final ReportComponent FILE_COMPONENT = ReportComponent.builder(Component.Type.FILE, 1).setKey("file key").build();
+  private static final ReportComponent OTHER_COMPONENT = ReportComponent.builder(Component.Type.FILE, 2).setKey("other key").build();
+  private static final Developer SOME_DEVELOPER = new DumbDeveloper("DEV1");
+
+  private static final Metric INT_METRIC = new MetricImpl(1, "int_metric", "int metric", Metric.MetricType.INT);
+  private static final Metric LONG_METRIC = new MetricImpl(2, "long_metric", "long metric", Metric.MetricType.WORK_DUR);
+  private static final Metric DOUBLE_METRIC = new MetricImpl(3, "double_metric", "double metric", Metric.MetricType.FLOAT);
+  private static final Metric BOOLEAN_METRIC = new MetricImpl(4, "boolean_metric", "boolean metric", Metric.MetricType.BOOL);
+  private static final Metric STRING_METRIC = new MetricImpl(5, "string_metric", "string metric", Metric.MetricType.STRING);
+  private static final Metric LEVEL_METRIC = new MetricImpl(6, "level_metric", "level metric", Metric.MetricType.LEVEL);
+
+  private ArrayBasedRawMeasureRepository underTest = new ArrayBasedRawMeasureRepository();
+
+  @Test
+  public void getBaseMeasure_is_not_supported() {
+    expectedException.expect(UnsupportedOperationException.class);
+
+    underTest.getBaseMeasure(FILE_COMPONENT, INT_METRIC);
+  }
+
+  @Test
+  public void getRawMeasure_returns_absent_when_there_is_no_measure() {
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC)).isAbsent();
+  }
+
+  @Test
+  public void getRawMeasure_returns_numeric_measures_stored_as_primitives() {
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().setVariation(-3d).create(12));
+    underTest.add(FILE_COMPONENT, LONG_METRIC, newMeasureBuilder().create(12_345_678_901L));
+    underTest.add(FILE_COMPONENT, DOUBLE_METRIC, newMeasureBuilder().create(1.23456d, 3));
+    underTest.add(FILE_COMPONENT, BOOLEAN_METRIC, newMeasureBuilder().create(true));
+
+    Measure intMeasure = underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).get();
+    assertThat(intMeasure.getValueType()).isEqualTo(Measure.ValueType.INT);
+    assertThat(intMeasure.getIntValue()).isEqualTo(12);
+    assertThat(intMeasure.getVariation()).isEqualTo(-3d);
+    Measure longMeasure = underTest.getRawMeasure(FILE_COMPONENT, LONG_METRIC).get();
+    assertThat(longMeasure.getLongValue()).isEqualTo(12_345_678_901L);
+    assertThat(longMeasure.hasVariation()).isFalse();
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, DOUBLE_METRIC).get().getDoubleValue()).isEqualTo(1.235d);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, BOOLEAN_METRIC).get().getBooleanValue()).isTrue();
+    assertThat(underTest.getRawMeasure(OTHER_COMPONENT, INT_METRIC)).isAbsent();
+  }
+
+  @Test
+  public void getRawMeasure_returns_NO_VALUE_measure() {
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().setVariation(2d).createNoValue());
+
+    Measure measure = underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).get();
+    assertThat(measure.getValueType()).isEqualTo(Measure.ValueType.NO_VALUE);
+    assertThat(measure.getVariation()).isEqualTo(2d);
+  }
+
+  @Test
+  public void getRawMeasure_returns_same_instance_for_measures_which_are_not_numeric() {
+    Measure stringMeasure = newMeasureBuilder().create("some value");
+    Measure levelMeasure = newMeasureBuilder().create(Measure.Level.OK);
+    Measure withData = newMeasureBuilder().create(5, "some data");
+    Measure withQualityGateStatus = newMeasureBuilder().setQualityGateStatus(new QualityGateStatus(Measure.Level.ERROR)).create(5d, 1);
+    underTest.add(FILE_COMPONENT, STRING_METRIC, stringMeasure);
+    underTest.add(FILE_COMPONENT, LEVEL_METRIC, levelMeasure);
+    underTest.add(FILE_COMPONENT, INT_METRIC, withData);
+    underTest.add(FILE_COMPONENT, DOUBLE_METRIC, withQualityGateStatus);
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, STRING_METRIC).get()).isSameAs(stringMeasure);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, LEVEL_METRIC).get()).isSameAs(levelMeasure);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).get()).isSameAs(withData);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, DOUBLE_METRIC).get()).isSameAs(withQualityGateStatus);
+  }
+
+  @Test
+  public void add_throws_UOE_if_measure_already_exists() {
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create(1));
+
+    expectedException.expect(UnsupportedOperationException.class);
+    expectedException.expectMessage("a measure can be set only once for a specific Component (key=file key), Metric (key=int_metric). Use update method");
+
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create(2));
+  }
+
+  @Test
+  public void add_throws_IAE_if_value_type_of_measure_is_not_the_one_of_metric() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Measure's ValueType (STRING) is not consistent with the Metric's ValueType (INT)");
+
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create("some value"));
+  }
+
+  @Test
+  public void update_throws_UOE_if_measure_does_not_exist() {
+    expectedException.expect(UnsupportedOperationException.class);
+    expectedException.expectMessage("a measure can be updated only if one already exists for a specific Component (key=file key), Metric (key=int_metric). Use add method");
+
+    underTest.update(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create(1));
+  }
+
+  @Test
+  public void update_replaces_numeric_measure_by_object_measure_and_vice_versa() {
+    Measure withData = newMeasureBuilder().create(2, "some data");
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create(1));
+
+    underTest.update(FILE_COMPONENT, INT_METRIC, withData);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).get()).isSameAs(withData);
+
+    underTest.update(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create(3));
+    Measure measure = underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).get();
+    assertThat(measure.getIntValue()).isEqualTo(3);
+    assertThat(measure.getData()).isNull();
+  }
+
+  @Test
+  public void add_with_DO_NOT_OVERRIDE_policy_keeps_existing_measure() {
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create(1));
+
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create(2), OverridePolicy.DO_NOT_OVERRIDE);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).get().getIntValue()).isEqualTo(1);
+
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create(2), OverridePolicy.OVERRIDE);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).get().getIntValue()).isEqualTo(2);
+  }
+
+  @Test
+  public void developer_measures_are_distinct_from_measure_without_developer() {
+    Measure developerMeasure = newMeasureBuilder().forDeveloper(SOME_DEVELOPER).create(2);
+    underTest.add(FILE_COMPONENT, INT_METRIC, developerMeasure);
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC)).isAbsent();
+
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create(1));
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).get().getIntValue()).isEqualTo(1);
+    assertThat(underTest.getRawMeasures(FILE_COMPONENT, INT_METRIC)).hasSize(2).contains(developerMeasure);
+  }
+
+  @Test
+  public void getRawMeasures_returns_measures_of_component_by_metric_key() {
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create(1));
+    underTest.add(FILE_COMPONENT, STRING_METRIC, newMeasureBuilder().create("some value"));
+    underTest.add(OTHER_COMPONENT, DOUBLE_METRIC, newMeasureBuilder().create(1d, 1));
+
+    assertThat(underTest.getRawMeasures(FILE_COMPONENT).keySet()).containsOnly(INT_METRIC.getKey(), STRING_METRIC.getKey());
+    assertThat(underTest.getRawMeasures(FILE_COMPONENT).get(INT_METRIC.getKey()).iterator().next().getIntValue()).isEqualTo(1);
+    assertThat(underTest.getRawMeasures(OTHER_COMPONENT).keySet()).containsOnly(DOUBLE_METRIC.getKey());
+    assertThat(underTest.getRawMeasures(ReportComponent.builder(Component.Type.FILE, 100_000).build()).isEmpty()).isTrue();
+    assertThat(underTest.getRawMeasures(OTHER_COMPONENT, INT_METRIC)).isEmpty();
+  }
+
+  @Test
+  public void stores_more_measures_than_initial_capacity() {
+    int componentCount = 3_000;
+    for (int ref = 1; ref <= componentCount; ref++) {
+      Component component = ReportComponent.builder(Component.Type.FILE, ref).build();
+      underTest.add(component, INT_METRIC, newMeasureBuilder().create(ref));
+      underTest.add(component, LONG_METRIC, newMeasureBuilder().create(2L * ref));
+    }
+
+    for (int ref = 1; ref <= componentCount; ref++) {
+      Component component = ReportComponent.builder(Component.Type.FILE, ref).build();
+      assertThat(underTest.getRawMeasure(component, INT_METRIC).get().getIntValue()).isEqualTo(ref);
+      assertThat(underTest.getRawMeasure(component, LONG_METRIC).get().getLongValue()).isEqualTo(2L * ref);
+    }
+  }
+
+  @Test
+  public void stores_measures_of_components_concurrently() throws Exception {
+    int componentCount = 2_000;
+    int metricCount = 20;
+    int threads = 4;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int thread = t;
+        futures.add(executor.submit(() -> {
+          for (int ref = 1 + thread; ref <= componentCount; ref += threads) {
+            Component component = ReportComponent.builder(Component.Type.FILE, ref).build();
+            for (int metricId = 1; metricId <= metricCount; metricId++) {
+              underTest.add(component, intMetric(metricId), newMeasureBuilder().create(ref * metricId));
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    for (int ref = 1; ref <= componentCount; ref++) {
+      Component component = ReportComponent.builder(Component.Type.FILE, ref).build();
+      assertThat(underTest.getRawMeasures(component).size()).isEqualTo(metricCount);
+      for (int metricId = 1; metricId <= metricCount; metricId++) {
+        assertThat(underTest.getRawMeasure(component, intMetric(metricId)).get().getIntValue()).isEqualTo(ref * metricId);
+      }
+    }
+  }
+
+  private static Metric intMetric(int id) {
+    return new MetricImpl(100 + id, "int_metric_" + id, "int metric " + id, Metric.MetricType.INT);
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.source;
+
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.protocol.output.ScannerReport.SyntaxHighlightingRule.HighlightingType;
+import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicate;
+import org.sonar.server.computation.task.projectanalysis.duplication.Duplication;
+import org.sonar.server.computation.task.projectanalysis.duplication.DuplicationRepository;
+import org.sonar.server.computation.task.projectanalysis.duplication.InnerDuplicate;
+import org.sonar.server.computation.task.projectanalysis.duplication.TextBlock;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ComputeFileSourceInputHashTest {
+
+  private static final int FILE_REF = 2;
+
+  @Rule
+  public BatchReportReaderRule reportReader = new BatchReportReaderRule();
+  @Rule
+  public SourceLinesRepositoryRule sourceLinesRepository = new SourceLinesRepositoryRule();
+
+  private DuplicationRepository duplicationRepository = mock(DuplicationRepository.class);
+  private Component file = ReportComponent.builder(Component.Type.FILE, FILE_REF).setFileAttributes(new FileAttributes(false, "java", 2)).build();
+
+  @Before
+  public void setUp() {
+    when(duplicationRepository.getDuplications(file)).thenReturn(Collections.emptyList());
+  }
+
+  @Test
+  public void hash_is_the_same_when_inputs_are_the_same() {
+    sourceLinesRepository.addLines(FILE_REF, "line1", "line2");
+    putCoverage(1);
+    String hash = computeHash();
+
+    assertThat(hash).hasSize(32);
+    assertThat(computeHash()).isEqualTo(hash);
+  }
+
+  @Test
+  public void hash_changes_when_source_code_changes() {
+    sourceLinesRepository.addLines(FILE_REF, "line1", "line2");
+    String hash = computeHash();
+
+    sourceLinesRepository.addLines(FILE_REF, "line3");
+
+    assertThat(computeHash()).isNotEqualTo(hash);
+  }
+
+  @Test
+  public void hash_takes_boundaries_of_lines_into_account() {
+    SourceLinesRepositoryRule otherSourceLines = new SourceLinesRepositoryRule();
+    sourceLinesRepository.addLines(FILE_REF, "ab", "c");
+    otherSourceLines.addLines(FILE_REF, "a", "bc");
+
+    assertThat(computeHash()).isNotEqualTo(new ComputeFileSourceInputHash(file, reportReader, otherSourceLines, duplicationRepository).compute());
+  }
+
+  @Test
+  public void hash_changes_when_coverage_changes() {
+    sourceLinesRepository.addLines(FILE_REF, "line1", "line2");
+    putCoverage(1);
+    String hash = computeHash();
+
+    putCoverage(2);
+
+    assertThat(computeHash()).isNotEqualTo(hash);
+  }
+
+  @Test
+  public void hash_changes_when_highlighting_or_symbols_change() {
+    sourceLinesRepository.addLines(FILE_REF, "line1", "line2");
+    String hash = computeHash();
+
+    reportReader.putSyntaxHighlighting(FILE_REF, singletonList(ScannerReport.SyntaxHighlightingRule.newBuilder()
+      .setRange(ScannerReport.TextRange.newBuilder().setStartLine(1).setEndLine(1).setStartOffset(0).setEndOffset(4))
+      .setType(HighlightingType.ANNOTATION)
+      .build()));
+    String hashWithHighlighting = computeHash();
+    reportReader.putSymbols(FILE_REF, singletonList(ScannerReport.Symbol.newBuilder()
+      .setDeclaration(ScannerReport.TextRange.newBuilder().setStartLine(1).setEndLine(1).setStartOffset(0).setEndOffset(4))
+      .build()));
+
+    assertThat(hashWithHighlighting).isNotEqualTo(hash);
+    assertThat(computeHash()).isNotIn(hash, hashWithHighlighting);
+  }
+
+  @Test
+  public void hash_changes_when_changesets_change() {
+    sourceLinesRepository.addLines(FILE_REF, "line1", "line2");
+    String hashWithoutScm = computeHash();
+
+    putChangesets("rev1");
+    String hash = computeHash();
+    putChangesets("rev2");
+
+    assertThat(hash).isNotEqualTo(hashWithoutScm);
+    assertThat(computeHash()).isNotIn(hashWithoutScm, hash);
+  }
+
+  @Test
+  public void hash_changes_when_changesets_are_copied_from_previous_analysis() {
+    sourceLinesRepository.addLines(FILE_REF, "line1", "line2");
+    String hashWithoutScm = computeHash();
+    reportReader.putChangesets(ScannerReport.Changesets.newBuilder().setComponentRef(FILE_REF).setCopyFromPrevious(true).build());
+
+    assertThat(computeHash()).isNotEqualTo(hashWithoutScm);
+  }
+
+  @Test
+  public void hash_depends_only_on_duplicated_blocks_of_the_file() {
+    sourceLinesRepository.addLines(FILE_REF, "line1", "line2");
+    String hashWithoutDuplication = computeHash();
+
+    when(duplicationRepository.getDuplications(file))
+      .thenReturn(singletonList(new Duplication(new TextBlock(1, 2), singletonList(new CrossProjectDuplicate("other_file", new TextBlock(1, 2))))));
+    String hash = computeHash();
+    when(duplicationRepository.getDuplications(file))
+      .thenReturn(singletonList(new Duplication(new TextBlock(1, 2), singletonList(new CrossProjectDuplicate("another_file", new TextBlock(5, 6))))));
+    String hashWithOtherCrossProjectDuplicate = computeHash();
+    when(duplicationRepository.getDuplications(file))
+      .thenReturn(singletonList(new Duplication(new TextBlock(1, 1), asList(new InnerDuplicate(new TextBlock(2, 2))))));
+
+    assertThat(hash).isNotEqualTo(hashWithoutDuplication);
+    assertThat(hashWithOtherCrossProjectDuplicate).isEqualTo(hash);
+    assertThat(computeHash()).isNotIn(hashWithoutDuplication, hash);
+  }
+
+  private String computeHash() {
+    return new ComputeFileSourceInputHash(file, reportReader, sourceLinesRepository, duplicationRepository).compute();
+  }
+
+  private void putCoverage(int hits) {
+    reportReader.putCoverage(FILE_REF, singletonList(ScannerReport.LineCoverage.newBuilder().setLine(1).setHits(hits > 0).setConditions(hits).build()));
+  }
+
+  private void putChangesets(String revision) {
+    reportReader.putChangesets(ScannerReport.Changesets.newBuilder()
+      .setComponentRef(FILE_REF)
+      .addChangeset(ScannerReport.Changesets.Changeset.newBuilder().setRevision(revision).setAuthor("john").setDate(123456789L))
+      .addChangesetIndexByLine(0)
+      .addChangesetIndexByLine(0)
+      .build());
+  }
+}
@@ -19,18 +19,33 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.Collections;
+import java.util.Set;
+import java.util.stream.IntStream;
 import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeActivityDto;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskTypes;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.RelocatedComponents;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.component.ViewsComponent;
+import org.sonar.server.computation.task.projectanalysis.issue.PersistedIssues;
 import org.sonar.server.computation.task.step.ComputationStep;
 import org.sonar.server.es.ProjectIndexer;
+import org.sonar.server.issue.index.IssueIndexer;
 
+import static java.util.stream.Collectors.toSet;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.PROJECT;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.VIEW;
 
@@ -43,9 +58,15 @@ public class IndexAnalysisStepTest extends BaseStepTest {
   public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
   @Rule
   public BatchReportReaderRule reportReader = new BatchReportReaderRule();
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
 
+  private PersistedIssues persistedIssues = new PersistedIssues();
+  private RelocatedComponents relocatedComponents = new RelocatedComponents();
   private ProjectIndexer componentIndexer = mock(ProjectIndexer.class);
-  private IndexAnalysisStep underTest = new IndexAnalysisStep(treeRootHolder, componentIndexer);
+  private IssueIndexer issueIndexer = mock(IssueIndexer.class);
+  private IndexAnalysisStep underTest = new IndexAnalysisStep(treeRootHolder, persistedIssues, relocatedComponents, dbTester.getDbClient(), issueIndexer,
+    componentIndexer, issueIndexer);
 
   @Test
   public void call_indexByProjectUuid_of_indexer_for_project() {
@@ -67,6 +88,119 @@ public class IndexAnalysisStepTest extends BaseStepTest {
     verify(componentIndexer).indexProject(PROJECT_UUID, ProjectIndexer.Cause.NEW_ANALYSIS);
   }
 
+  @Test
+  public void index_only_persisted_issues() {
+    Component project = ReportComponent.builder(PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).build();
+    treeRootHolder.setRoot(project);
+    persistedIssues.setKeys(ImmutableSet.of("ISSUE1", "ISSUE2"));
+
+    relocatedComponents.setUuids(Collections.emptySet());
+    underTest.execute();
+
+    verify(componentIndexer).indexProject(PROJECT_UUID, ProjectIndexer.Cause.NEW_ANALYSIS);
+    verify(issueIndexer).index(ImmutableSet.of("ISSUE1", "ISSUE2"));
+    verifyNoMoreInteractions(issueIndexer);
+  }
+
+  @Test
+  public void do_not_index_issues_if_none_persisted() {
+    Component project = ReportComponent.builder(PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).build();
+    treeRootHolder.setRoot(project);
+    persistedIssues.setKeys(Collections.emptySet());
+
+    relocatedComponents.setUuids(Collections.emptySet());
+    underTest.execute();
+
+    verifyZeroInteractions(issueIndexer);
+  }
+
+  @Test
+  public void index_all_issues_of_project_if_persisted_issues_are_unknown() {
+    Component project = ReportComponent.builder(PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).build();
+    treeRootHolder.setRoot(project);
+
+    underTest.execute();
+
+    verify(issueIndexer).indexProject(PROJECT_UUID, ProjectIndexer.Cause.NEW_ANALYSIS);
+    verifyNoMoreInteractions(issueIndexer);
+  }
+
+  @Test
+  public void index_all_issues_of_project_if_last_task_failed() {
+    Component project = ReportComponent.builder(PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).build();
+    treeRootHolder.setRoot(project);
+    persistedIssues.setKeys(ImmutableSet.of("ISSUE1"));
+    insertActivity("TASK1", CeActivityDto.Status.SUCCESS);
+    insertActivity("TASK2", CeActivityDto.Status.FAILED);
+
+    underTest.execute();
+
+    verify(issueIndexer).indexProject(PROJECT_UUID, ProjectIndexer.Cause.NEW_ANALYSIS);
+    verifyNoMoreInteractions(issueIndexer);
+  }
+
+  @Test
+  public void index_only_persisted_issues_if_last_task_succeeded() {
+    Component project = ReportComponent.builder(PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).build();
+    treeRootHolder.setRoot(project);
+    persistedIssues.setKeys(ImmutableSet.of("ISSUE1"));
+    insertActivity("TASK1", CeActivityDto.Status.FAILED);
+    insertActivity("TASK2", CeActivityDto.Status.SUCCESS);
+
+    relocatedComponents.setUuids(Collections.emptySet());
+    underTest.execute();
+
+    verify(issueIndexer).index(ImmutableSet.of("ISSUE1"));
+    verifyNoMoreInteractions(issueIndexer);
+  }
+
+  @Test
+  public void index_all_issues_of_project_if_too_many_persisted_issues() {
+    Component project = ReportComponent.builder(PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).build();
+    treeRootHolder.setRoot(project);
+    Set<String> keys = IntStream.rangeClosed(0, IndexAnalysisStep.MAX_PERSISTED_ISSUES).mapToObj(i -> "ISSUE" + i).collect(toSet());
+    persistedIssues.setKeys(keys);
+
+    underTest.execute();
+
+    verify(issueIndexer).indexProject(PROJECT_UUID, ProjectIndexer.Cause.NEW_ANALYSIS);
+    verifyNoMoreInteractions(issueIndexer);
+  }
+
+  @Test
+  public void index_all_issues_of_project_if_components_were_relocated() {
+    Component project = ReportComponent.builder(PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).build();
+    treeRootHolder.setRoot(project);
+    persistedIssues.setKeys(ImmutableSet.of("ISSUE1"));
+    relocatedComponents.setUuids(ImmutableSet.of("MODULE_UUID"));
+
+    underTest.execute();
+
+    verify(issueIndexer).indexProject(PROJECT_UUID, ProjectIndexer.Cause.NEW_ANALYSIS);
+    verifyNoMoreInteractions(issueIndexer);
+  }
+
+  @Test
+  public void index_all_issues_of_project_if_relocated_components_are_unknown() {
+    Component project = ReportComponent.builder(PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).build();
+    treeRootHolder.setRoot(project);
+    persistedIssues.setKeys(ImmutableSet.of("ISSUE1"));
+
+    underTest.execute();
+
+    verify(issueIndexer).indexProject(PROJECT_UUID, ProjectIndexer.Cause.NEW_ANALYSIS);
+    verifyNoMoreInteractions(issueIndexer);
+  }
+
+  private void insertActivity(String taskUuid, CeActivityDto.Status status) {
+    CeQueueDto queueDto = new CeQueueDto()
+      .setUuid(taskUuid)
+      .setTaskType(CeTaskTypes.REPORT)
+      .setComponentUuid(PROJECT_UUID);
+    dbTester.getDbClient().ceActivityDao().insert(dbTester.getSession(), new CeActivityDto(queueDto).setStatus(status));
+    dbTester.commit();
+  }
+
   @Override
   protected ComputationStep step() {
     return underTest;
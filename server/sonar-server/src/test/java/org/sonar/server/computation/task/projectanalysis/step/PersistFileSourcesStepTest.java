@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.base.Throwables;
 import java.util.Arrays;
 import org.junit.Before;
 import org.junit.Rule;
@@ -28,12 +29,14 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
+import org.sonar.db.protobuf.DbCe;
 import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto;
 import org.sonar.db.source.FileSourceDto.Type;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReport.Component.ComponentType;
 import org.sonar.scanner.protocol.output.ScannerReport.SyntaxHighlightingRule.HighlightingType;
+import org.sonar.server.computation.configuration.CeConfigurationRule;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
@@ -42,15 +45,20 @@ import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolde
 import org.sonar.server.computation.task.projectanalysis.duplication.Duplicate;
 import org.sonar.server.computation.task.projectanalysis.duplication.Duplication;
 import org.sonar.server.computation.task.projectanalysis.duplication.DuplicationRepositoryRule;
+import org.sonar.server.computation.task.projectanalysis.issue.IssuesInputHashRepository;
 import org.sonar.server.computation.task.projectanalysis.duplication.InnerDuplicate;
 import org.sonar.server.computation.task.projectanalysis.duplication.TextBlock;
 import org.sonar.server.computation.task.projectanalysis.scm.Changeset;
 import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepositoryRule;
+import org.sonar.server.computation.task.projectanalysis.source.ComputeFileSourceInputHash;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepositoryRule;
 import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ComputationStepStatistics;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -61,6 +69,7 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
   private static final String PROJECT_KEY = "PROJECT_KEY";
   private static final String FILE_UUID = "FILE";
   private static final long NOW = 123456789L;
+  private static final long PAST = 15000L;
 
   private System2 system2 = mock(System2.class);
 
@@ -83,12 +92,17 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
   private DbClient dbClient = dbTester.getDbClient();
   private DbSession session = dbTester.getSession();
 
+  private CeConfigurationRule ceConfiguration = new CeConfigurationRule();
+  private IssuesInputHashRepository issuesInputHashRepository = new IssuesInputHashRepository(dbClient, treeRootHolder);
+  private ComputationStepStatistics statistics = new ComputationStepStatistics();
+
   private PersistFileSourcesStep underTest;
 
   @Before
   public void setup() {
     when(system2.now()).thenReturn(NOW);
-    underTest = new PersistFileSourcesStep(dbClient, system2, treeRootHolder, reportReader, fileSourceRepository, scmInfoRepository, duplicationRepository);
+    underTest = new PersistFileSourcesStep(dbClient, system2, treeRootHolder, reportReader, fileSourceRepository, scmInfoRepository, duplicationRepository, issuesInputHashRepository,
+      ceConfiguration, statistics);
   }
 
   @Override
@@ -118,6 +132,41 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(data.getLines(0).getSource()).isEqualTo("line1");
     assertThat(data.getLines(1).getLine()).isEqualTo(2);
     assertThat(data.getLines(1).getSource()).isEqualTo("line2");
+    assertCounters(1L, 0L, 0L);
+  }
+
+  @Test
+  public void persist_sources_of_files_computed_concurrently() {
+    ceConfiguration.setFileSourcesConcurrency(4);
+    int numberOfFiles = 40;
+    initReportWithFiles(numberOfFiles);
+
+    underTest.execute();
+
+    assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(numberOfFiles);
+    for (int i = 1; i <= numberOfFiles; i++) {
+      FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, "FILE_" + i);
+      assertThat(fileSourceDto.getProjectUuid()).isEqualTo(PROJECT_UUID);
+      DbFileSources.Data data = fileSourceDto.getSourceData();
+      assertThat(data.getLinesCount()).isEqualTo(i);
+      assertThat(data.getLines(i - 1).getSource()).isEqualTo("line" + i + "_" + i);
+    }
+  }
+
+  @Test
+  public void fail_when_sources_of_a_file_computed_concurrently_cannot_be_read() {
+    ceConfiguration.setFileSourcesConcurrency(4);
+    Component fileWithoutSource = ReportComponent.builder(Component.Type.FILE, 1_000).setUuid("FILE_WITHOUT_SOURCE").setKey("MODULE_KEY:src/Bar.java")
+      .setFileAttributes(new FileAttributes(false, null, 1)).build();
+    initReportWithFiles(20, fileWithoutSource);
+
+    try {
+      underTest.execute();
+      fail("an IllegalStateException should have been raised");
+    } catch (IllegalStateException e) {
+      // the file is the last one of the tree, so its sources are persisted once the tree is visited
+      assertThat(Throwables.getRootCause(e)).hasMessageContaining("File '" + fileWithoutSource + "' has no source code");
+    }
   }
 
   @Test
@@ -311,6 +360,7 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(fileSourceDto.getDataHash()).isEqualTo(dataHash);
     assertThat(fileSourceDto.getCreatedAt()).isEqualTo(past);
     assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(past);
+    assertCounters(0L, 0L, 0L);
   }
 
   @Test
@@ -456,6 +506,149 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(fileSourceDto.getRevision()).isNull();
   }
 
+  @Test
+  public void do_not_store_input_hash_when_incremental_analysis_is_disabled() {
+    initBasicReport(2);
+
+    underTest.execute();
+
+    assertThat(dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID).getInputHash()).isNull();
+  }
+
+  @Test
+  public void store_input_hash_when_incremental_analysis_is_enabled() {
+    ceConfiguration.setIncrementalAnalysis(true);
+    initBasicReport(2);
+
+    underTest.execute();
+
+    assertThat(dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID).getInputHash()).isEqualTo(computeInputHash());
+  }
+
+  @Test
+  public void reuse_sources_when_input_hash_did_not_change() {
+    ceConfiguration.setIncrementalAnalysis(true);
+    initBasicReport(2);
+    insertPreviousSources(computeInputHash());
+
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    // sources are not computed again
+    assertThat(fileSourceDto.getDataHash()).isEqualTo("PREVIOUS_DATA_HASH");
+    assertThat(fileSourceDto.getSourceData().getLines(0).getSource()).isEqualTo("previous line");
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(PAST);
+    assertCounters(0L, 0L, 1L);
+  }
+
+  @Test
+  public void compute_sources_when_input_hash_changed() {
+    ceConfiguration.setIncrementalAnalysis(true);
+    initBasicReport(2);
+    insertPreviousSources(computeInputHash());
+    reportReader.putCoverage(FILE_REF, newArrayList(ScannerReport.LineCoverage.newBuilder().setLine(1).setHits(true).build()));
+
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    assertThat(fileSourceDto.getSourceData().getLines(0).getSource()).isEqualTo("line1");
+    assertThat(fileSourceDto.getSourceData().getLines(0).getLineHits()).isEqualTo(1);
+    assertThat(fileSourceDto.getInputHash()).isEqualTo(computeInputHash());
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW);
+  }
+
+  @Test
+  public void compute_sources_and_clear_input_hash_when_incremental_analysis_is_disabled() {
+    initBasicReport(2);
+    insertPreviousSources(computeInputHash());
+
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    assertThat(fileSourceDto.getSourceData().getLines(0).getSource()).isEqualTo("line1");
+    assertThat(fileSourceDto.getInputHash()).isNull();
+  }
+
+  @Test
+  public void store_issues_input_hash_with_sources() {
+    initBasicReport(2);
+    issuesInputHashRepository.setHash(treeRootHolder.getComponentByRef(FILE_REF), "ISSUES_INPUT_HASH");
+
+    underTest.execute();
+
+    assertThat(dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID).getIssuesInputHash()).isEqualTo("ISSUES_INPUT_HASH");
+  }
+
+  @Test
+  public void update_only_issues_input_hash_when_sources_are_reused() {
+    ceConfiguration.setIncrementalAnalysis(true);
+    initBasicReport(2);
+    insertPreviousSources(computeInputHash());
+    issuesInputHashRepository.setHash(treeRootHolder.getComponentByRef(FILE_REF), "ISSUES_INPUT_HASH");
+
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    assertThat(fileSourceDto.getIssuesInputHash()).isEqualTo("ISSUES_INPUT_HASH");
+    assertThat(fileSourceDto.getDataHash()).isEqualTo("PREVIOUS_DATA_HASH");
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(PAST);
+    assertCounters(0L, 0L, 1L);
+  }
+
+  @Test
+  public void clear_issues_input_hash_when_it_is_not_computed() {
+    initBasicReport(2);
+    insertPreviousSources(null);
+    FileSourceDto previous = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    dbClient.fileSourceDao().updateIssuesInputHash(session, previous.setIssuesInputHash("PREVIOUS_ISSUES_INPUT_HASH"));
+    session.commit();
+
+    underTest.execute();
+
+    assertThat(dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID).getIssuesInputHash()).isNull();
+  }
+
+  private String computeInputHash() {
+    return new ComputeFileSourceInputHash(treeRootHolder.getComponentByRef(FILE_REF), reportReader, fileSourceRepository, duplicationRepository).compute();
+  }
+
+  private void insertPreviousSources(String inputHash) {
+    dbClient.fileSourceDao().insert(session, new FileSourceDto()
+      .setProjectUuid(PROJECT_UUID)
+      .setFileUuid(FILE_UUID)
+      .setDataType(Type.SOURCE)
+      .setSrcHash("PREVIOUS_SRC_HASH")
+      .setLineHashes("PREVIOUS_LINE_HASHES")
+      .setDataHash("PREVIOUS_DATA_HASH")
+      .setSourceData(DbFileSources.Data.newBuilder()
+        .addLines(DbFileSources.Line.newBuilder().setLine(1).setSource("previous line"))
+        .build())
+      .setInputHash(inputHash)
+      .setCreatedAt(PAST)
+      .setUpdatedAt(PAST));
+    session.commit();
+  }
+
+  private void initReportWithFiles(int numberOfFiles, Component... otherFiles) {
+    ReportComponent.Builder module = ReportComponent.builder(Component.Type.MODULE, 2).setUuid("MODULE").setKey("MODULE_KEY");
+    for (int i = 1; i <= numberOfFiles; i++) {
+      int fileRef = 10 + i;
+      module.addChildren(ReportComponent.builder(Component.Type.FILE, fileRef).setUuid("FILE_" + i).setKey("MODULE_KEY:src/Foo" + i + ".java")
+        .setFileAttributes(new FileAttributes(false, null, i)).build());
+      for (int line = 1; line <= i; line++) {
+        fileSourceRepository.addLine(fileRef, "line" + line + "_" + i);
+      }
+    }
+    module.addChildren(otherFiles);
+    treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).addChildren(module.build()).build());
+  }
+
+  private void assertCounters(long inserts, long updates, long unchangedFiles) {
+    assertThat(statistics.toProtobuf().getStep(0).getCounterList())
+      .extracting(DbCe.Counter::getKey, DbCe.Counter::getValue)
+      .containsExactly(tuple("inserts", inserts), tuple("updates", updates), tuple("unchangedFiles", unchangedFiles));
+  }
+
   private void initBasicReport(int numberOfLines) {
     treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).addChildren(
       ReportComponent.builder(Component.Type.MODULE, 2).setUuid("MODULE").setKey("MODULE_KEY").addChildren(
@@ -39,16 +39,20 @@ import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
 import org.sonar.db.issue.IssueDto;
 import org.sonar.db.organization.OrganizationDto;
+import org.sonar.db.protobuf.DbCe;
 import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleTesting;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
 import org.sonar.server.computation.task.projectanalysis.issue.IssueCache;
+import org.sonar.server.computation.task.projectanalysis.issue.PersistedIssues;
 import org.sonar.server.computation.task.projectanalysis.issue.RuleRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.issue.UpdateConflictResolver;
 import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ComputationStepStatistics;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -73,6 +77,10 @@ public class PersistIssuesStepTest extends BaseStepTest {
 
   IssueCache issueCache;
 
+  ComputationStepStatistics statistics = new ComputationStepStatistics();
+
+  PersistedIssues persistedIssues = new PersistedIssues();
+
   ComputationStep step;
 
   @Override
@@ -87,7 +95,7 @@ public class PersistIssuesStepTest extends BaseStepTest {
     when(system2.now()).thenReturn(NOW);
     reportReader.setMetadata(ScannerReport.Metadata.getDefaultInstance());
 
-    step = new PersistIssuesStep(dbClient, system2, new UpdateConflictResolver(), new RuleRepositoryImpl(dbClient), issueCache);
+    step = new PersistIssuesStep(dbClient, system2, new UpdateConflictResolver(), new RuleRepositoryImpl(dbClient), issueCache, statistics, persistedIssues);
   }
 
   @After
@@ -128,6 +136,32 @@ public class PersistIssuesStepTest extends BaseStepTest {
     assertThat(result.getSeverity()).isEqualTo(Severity.BLOCKER);
     assertThat(result.getStatus()).isEqualTo(Issue.STATUS_OPEN);
     assertThat(result.getType()).isEqualTo(RuleType.BUG.getDbConstant());
+    assertThat(statistics.toProtobuf().getStep(0).getCounterList())
+      .extracting(DbCe.Counter::getKey, DbCe.Counter::getValue)
+      .containsExactly(tuple("inserts", 1L), tuple("updates", 0L));
+    assertThat(persistedIssues.getKeys()).containsOnly("ISSUE");
+  }
+
+  @Test
+  public void do_not_persist_unchanged_issue() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+
+    issueCache.newAppender().append(new DefaultIssue()
+      .setKey("ISSUE")
+      .setType(RuleType.CODE_SMELL)
+      .setRuleKey(RuleKey.of("xoo", "S01"))
+      .setComponentUuid("COMPONENT")
+      .setProjectUuid("PROJECT")
+      .setSeverity(Severity.BLOCKER)
+      .setStatus(Issue.STATUS_OPEN)
+      .setNew(false)
+      .setChanged(false)
+      ).close();
+
+    step.execute();
+
+    assertThat(persistedIssues.isInitialized()).isTrue();
+    assertThat(persistedIssues.getKeys()).isEmpty();
   }
 
   @Test
@@ -151,6 +185,10 @@ public class PersistIssuesStepTest extends BaseStepTest {
     step.execute();
 
     dbTester.assertDbUnit(getClass(), "close_issue-result.xml", "issues");
+    assertThat(statistics.toProtobuf().getStep(0).getCounterList())
+      .extracting(DbCe.Counter::getKey, DbCe.Counter::getValue)
+      .containsExactly(tuple("inserts", 0L), tuple("updates", 1L));
+    assertThat(persistedIssues.getKeys()).containsOnly("ISSUE");
   }
 
   @Test
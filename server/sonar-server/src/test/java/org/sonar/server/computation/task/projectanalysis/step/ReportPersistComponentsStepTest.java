@@ -36,6 +36,7 @@ import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
 import org.sonar.server.computation.task.projectanalysis.component.MutableDbIdsRepositoryRule;
 import org.sonar.server.computation.task.projectanalysis.component.MutableDisabledComponentsHolder;
+import org.sonar.server.computation.task.projectanalysis.component.RelocatedComponents;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.step.ComputationStep;
 
@@ -72,6 +73,7 @@ public class ReportPersistComponentsStepTest extends BaseStepTest {
   private DbClient dbClient = dbTester.getDbClient();
   private Date now;
   private MutableDisabledComponentsHolder disabledComponentsHolder = mock(MutableDisabledComponentsHolder.class, RETURNS_DEEP_STUBS);
+  private RelocatedComponents relocatedComponents = new RelocatedComponents();
   private PersistComponentsStep underTest;
 
   @Before
@@ -80,7 +82,8 @@ public class ReportPersistComponentsStepTest extends BaseStepTest {
     when(system2.now()).thenReturn(now.getTime());
 
     dbTester.organizations().insertForUuid(ORGANIZATION_UUID);
-    underTest = new PersistComponentsStep(dbClient, treeRootHolder, dbIdsRepository, system2, disabledComponentsHolder, analysisMetadataHolder);
+    underTest = new PersistComponentsStep(dbClient, treeRootHolder, dbIdsRepository, system2, disabledComponentsHolder, analysisMetadataHolder,
+      relocatedComponents);
   }
 
   @Override
@@ -403,6 +406,7 @@ public class ReportPersistComponentsStepTest extends BaseStepTest {
         .addChildren(
           builder(Component.Type.MODULE, 2).setUuid("BCDE").setKey(MODULE_KEY)
             .setName("Module")
+            .setPath("module")
             .addChildren(
               builder(DIRECTORY, 3).setUuid("CDEF").setKey("MODULE_KEY:src/main/java/dir")
                 .setPath("src/main/java/dir")
@@ -415,6 +419,7 @@ public class ReportPersistComponentsStepTest extends BaseStepTest {
         .build());
 
     underTest.execute();
+    assertThat(relocatedComponents.getUuids()).isEmpty();
 
     assertThat(dbTester.countRowsOfTable("projects")).isEqualTo(4);
     assertThat(dbClient.componentDao().selectByKey(dbTester.getSession(), PROJECT_KEY).get().getId()).isEqualTo(project.getId());
@@ -477,11 +482,13 @@ public class ReportPersistComponentsStepTest extends BaseStepTest {
             .setUuid("BCDE")
             .setKey(MODULE_KEY)
             .setName("New Module")
+            .setPath("module")
             .setDescription("New module description")
             .build())
         .build());
 
     underTest.execute();
+    assertThat(relocatedComponents.getUuids()).isEmpty();
 
     // functional transaction not finished, "A-fields" are not updated yet
     assertNameAndDescription(PROJECT_KEY, "Project", "Project description");
@@ -518,6 +525,7 @@ public class ReportPersistComponentsStepTest extends BaseStepTest {
         .build());
 
     underTest.execute();
+    assertThat(relocatedComponents.getUuids()).containsOnly("BCDE");
 
     assertThat(dbClient.componentDao().selectByKey(dbTester.getSession(), MODULE_KEY).get().path()).isEqualTo("path");
 
@@ -549,9 +557,11 @@ public class ReportPersistComponentsStepTest extends BaseStepTest {
         .addChildren(
           builder(Component.Type.MODULE, 2).setUuid("EDCB").setKey("MODULE_A")
             .setName("Module A")
+            .setPath("module")
             .addChildren(
               builder(Component.Type.MODULE, 3).setUuid("BCDE").setKey("MODULE_B")
                 .setName("Module B")
+                .setPath("module")
                 .addChildren(
                   builder(DIRECTORY, 4).setUuid("CDEF").setKey("MODULE_B:src/main/java/dir")
                     .setPath("src/main/java/dir")
@@ -565,6 +575,7 @@ public class ReportPersistComponentsStepTest extends BaseStepTest {
         .build());
 
     underTest.execute();
+    assertThat(relocatedComponents.getUuids()).containsOnly("BCDE", "CDEF", "DEFG");
 
     // commit the functional transaction
     dbClient.componentDao().applyBChangesForRootComponentUuid(dbTester.getSession(), project.uuid());
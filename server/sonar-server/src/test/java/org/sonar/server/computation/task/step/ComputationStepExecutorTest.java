@@ -19,18 +19,26 @@
  */
 package org.sonar.server.computation.task.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.InOrder;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.db.protobuf.DbCe;
 import org.sonar.server.computation.task.ChangeLogLevel;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
@@ -49,6 +57,7 @@ public class ComputationStepExecutorTest {
   private final ComputationStep computationStep1 = mockComputationStep("step1");
   private final ComputationStep computationStep2 = mockComputationStep("step2");
   private final ComputationStep computationStep3 = mockComputationStep("step3");
+  private final ComputationStepStatistics statistics = new ComputationStepStatistics();
 
   @Test
   public void execute_call_execute_on_each_ComputationStep_in_order_returned_by_instances_method() {
@@ -152,6 +161,120 @@ public class ComputationStepExecutorTest {
     new ComputationStepExecutor(mockComputationSteps(computationStep1), listener).execute();
   }
 
+  @Test
+  public void execute_records_statistics_of_each_step_in_order() {
+    ComputationStep step2 = new ComputationStep() {
+      @Override
+      public void execute() {
+        statistics.addCounter(this, "rows", 5);
+        statistics.addCounter(this, "rows", 2);
+        statistics.addCounter(this, "files", 1);
+      }
+
+      @Override
+      public String getDescription() {
+        return "step2";
+      }
+    };
+
+    new ComputationStepExecutor(mockComputationSteps(computationStep1, step2), listener, 1, statistics).execute();
+
+    DbCe.StepStatistics stepStatistics = statistics.toProtobuf();
+    assertThat(stepStatistics.getStepList()).extracting(DbCe.Step::getDescription).containsExactly("step1", "step2");
+    for (DbCe.Step step : stepStatistics.getStepList()) {
+      assertThat(step.hasDurationMs()).isTrue();
+      assertThat(step.getDurationMs()).isGreaterThanOrEqualTo(0L);
+      if (step.hasCpuTimeMs()) {
+        assertThat(step.getCpuTimeMs()).isGreaterThanOrEqualTo(0L);
+      }
+      if (step.hasAllocatedBytes()) {
+        assertThat(step.getAllocatedBytes()).isGreaterThanOrEqualTo(0L);
+      }
+    }
+    assertThat(stepStatistics.getStep(0).getCounterList()).isEmpty();
+    assertThat(stepStatistics.getStep(1).getCounterList())
+      .extracting(DbCe.Counter::getKey, DbCe.Counter::getValue)
+      .containsExactly(tuple("rows", 7L), tuple("files", 1L));
+  }
+
+  @Test
+  public void execute_records_statistics_of_concurrent_steps() {
+    List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    ConcurrentComputationStep step1 = new RecordingStep("step1", executed, ImmutableSet.of("a"), ImmutableSet.of("b"));
+    ConcurrentComputationStep step2 = new RecordingStep("step2", executed, ImmutableSet.of("a"), ImmutableSet.of("c"));
+
+    new ComputationStepExecutor(mockComputationSteps(step1, step2), listener, 2, statistics).execute();
+
+    assertThat(statistics.toProtobuf().getStepList()).extracting(DbCe.Step::getDescription).containsOnly("step1", "step2");
+  }
+
+  @Test
+  public void execute_runs_independent_concurrent_steps_concurrently() {
+    CountDownLatch latch = new CountDownLatch(2);
+    List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    ConcurrentComputationStep step1 = new AwaitingStep("step1", latch, executed, ImmutableSet.of("a"), ImmutableSet.of("b"));
+    ConcurrentComputationStep step2 = new AwaitingStep("step2", latch, executed, ImmutableSet.of("a"), ImmutableSet.of("c"));
+
+    new ComputationStepExecutor(mockComputationSteps(step1, step2), listener, 2, statistics).execute();
+
+    assertThat(executed).containsOnly("step1", "step2");
+    verify(listener).finished(true);
+  }
+
+  @Test
+  public void execute_runs_conflicting_concurrent_steps_in_order() {
+    List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    ConcurrentComputationStep step1 = new RecordingStep("step1", executed, ImmutableSet.of("a"), ImmutableSet.of("b"));
+    ConcurrentComputationStep step2 = new RecordingStep("step2", executed, ImmutableSet.of("b"), ImmutableSet.of("c"));
+    ConcurrentComputationStep step3 = new RecordingStep("step3", executed, ImmutableSet.of("c"), ImmutableSet.of("d"));
+
+    new ComputationStepExecutor(mockComputationSteps(step1, step2, step3), listener, 3, statistics).execute();
+
+    assertThat(executed).containsExactly("step1", "step2", "step3");
+  }
+
+  @Test
+  public void execute_does_not_run_other_steps_concurrently() {
+    List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    ConcurrentComputationStep step1 = new RecordingStep("step1", executed, ImmutableSet.of("a"), ImmutableSet.of("b"));
+    ComputationStep step2 = new ComputationStep() {
+      @Override
+      public void execute() {
+        executed.add("step2");
+      }
+
+      @Override
+      public String getDescription() {
+        return "step2";
+      }
+    };
+    ConcurrentComputationStep step3 = new RecordingStep("step3", executed, ImmutableSet.of("c"), ImmutableSet.of("d"));
+
+    new ComputationStepExecutor(mockComputationSteps(step1, step2, step3), listener, 3, statistics).execute();
+
+    assertThat(executed).containsExactly("step1", "step2", "step3");
+  }
+
+  @Test
+  public void execute_let_exception_thrown_by_concurrent_step_go_up_as_is() {
+    RuntimeException toBeThrown = new RuntimeException("simulating failing execute Step method");
+    ConcurrentComputationStep step1 = new RecordingStep("step1", new ArrayList<>(), ImmutableSet.of("a"), ImmutableSet.of("b")) {
+      @Override
+      public void execute() {
+        throw toBeThrown;
+      }
+    };
+    ConcurrentComputationStep step2 = new RecordingStep("step2", new ArrayList<>(), ImmutableSet.of("a"), ImmutableSet.of("c"));
+
+    try {
+      new ComputationStepExecutor(mockComputationSteps(step1, step2), listener, 2, statistics).execute();
+      fail("exception toBeThrown should have been raised");
+    } catch (RuntimeException e) {
+      assertThat(e).isSameAs(toBeThrown);
+      verify(listener).finished(false);
+    }
+  }
+
   private static ComputationSteps mockComputationSteps(ComputationStep... computationSteps) {
     ComputationSteps steps = mock(ComputationSteps.class);
     when(steps.instances()).thenReturn(Arrays.asList(computationSteps));
@@ -163,4 +286,64 @@ public class ComputationStepExecutorTest {
     when(mock.getDescription()).thenReturn(desc);
     return mock;
   }
+
+  private static class RecordingStep implements ConcurrentComputationStep {
+    private final String description;
+    private final List<String> executed;
+    private final Set<Object> inputs;
+    private final Set<Object> outputs;
+
+    private RecordingStep(String description, List<String> executed, Set<Object> inputs, Set<Object> outputs) {
+      this.description = description;
+      this.executed = executed;
+      this.inputs = inputs;
+      this.outputs = outputs;
+    }
+
+    @Override
+    public void execute() {
+      executed.add(description);
+    }
+
+    @Override
+    public Set<Object> inputs() {
+      return inputs;
+    }
+
+    @Override
+    public Set<Object> outputs() {
+      return outputs;
+    }
+
+    @Override
+    public String getDescription() {
+      return description;
+    }
+  }
+
+  /**
+   * Blocks until all the steps sharing the same latch are started
+   */
+  private static class AwaitingStep extends RecordingStep {
+    private final CountDownLatch latch;
+
+    private AwaitingStep(String description, CountDownLatch latch, List<String> executed, Set<Object> inputs, Set<Object> outputs) {
+      super(description, executed, inputs, outputs);
+      this.latch = latch;
+    }
+
+    @Override
+    public void execute() {
+      latch.countDown();
+      try {
+        if (!latch.await(10, TimeUnit.SECONDS)) {
+          throw new IllegalStateException("steps are not executed concurrently");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+      super.execute();
+    }
+  }
 }
@@ -0,0 +1,84 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.es.AdaptiveBulkSettings.MAX_FLUSH_BYTE_SIZE;
+import static org.sonar.server.es.AdaptiveBulkSettings.MIN_FLUSH_BYTE_SIZE;
+
+public class AdaptiveBulkSettingsTest {
+
+  private static final long ONE_MB = 1024 * 1024L;
+
+  private AdaptiveBulkSettings underTest = new AdaptiveBulkSettings(ONE_MB, 2, 4);
+
+  @Test
+  public void start_with_initial_settings() {
+    assertThat(underTest.flushByteSize()).isEqualTo(ONE_MB);
+    assertThat(underTest.concurrentRequests()).isEqualTo(2);
+  }
+
+  @Test
+  public void halve_size_and_concurrency_on_rejection() {
+    underTest.onRejection();
+
+    assertThat(underTest.flushByteSize()).isEqualTo(ONE_MB / 2);
+    assertThat(underTest.concurrentRequests()).isEqualTo(1);
+
+    for (int i = 0; i < 10; i++) {
+      underTest.onRejection();
+    }
+    assertThat(underTest.flushByteSize()).isEqualTo(MIN_FLUSH_BYTE_SIZE);
+    assertThat(underTest.concurrentRequests()).isEqualTo(1);
+  }
+
+  @Test
+  public void decrease_size_and_concurrency_on_slow_requests() {
+    underTest.onSuccess(AdaptiveBulkSettings.SLOW_REQUEST_MS + 1);
+
+    assertThat(underTest.flushByteSize()).isEqualTo(ONE_MB * 3 / 4);
+    assertThat(underTest.concurrentRequests()).isEqualTo(1);
+  }
+
+  @Test
+  public void do_not_change_settings_on_requests_of_expected_latency() {
+    underTest.onSuccess(AdaptiveBulkSettings.FAST_REQUEST_MS);
+    underTest.onSuccess(AdaptiveBulkSettings.SLOW_REQUEST_MS);
+
+    assertThat(underTest.flushByteSize()).isEqualTo(ONE_MB);
+    assertThat(underTest.concurrentRequests()).isEqualTo(2);
+  }
+
+  @Test
+  public void increase_size_then_concurrency_on_fast_requests() {
+    underTest.onSuccess(0L);
+    assertThat(underTest.flushByteSize()).isEqualTo(2 * ONE_MB);
+    assertThat(underTest.concurrentRequests()).isEqualTo(2);
+
+    for (int i = 0; i < 10; i++) {
+      underTest.onSuccess(0L);
+    }
+    assertThat(underTest.flushByteSize()).isEqualTo(MAX_FLUSH_BYTE_SIZE);
+    // bounded by max concurrency
+    assertThat(underTest.concurrentRequests()).isEqualTo(4);
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BulkIndexerStatisticsTest {
+
+  private System2 system2 = mock(System2.class);
+  private BulkIndexerStatistics underTest = new BulkIndexerStatistics(system2);
+
+  @Test
+  public void no_requests() {
+    assertThat(underTest.getDocs()).isZero();
+    assertThat(underTest.getBytes()).isZero();
+    assertThat(underTest.getDocsPerSecond()).isZero();
+    assertThat(underTest.getBytesPerSecond()).isZero();
+    assertThat(underTest.getRejections()).isZero();
+    assertThat(underTest.getRetries()).isZero();
+  }
+
+  @Test
+  public void throughput_is_computed_over_periods_of_activity() {
+    when(system2.now()).thenReturn(1_000L);
+    underTest.onRequestStarted();
+    when(system2.now()).thenReturn(1_500L);
+    underTest.onRequestStarted();
+    when(system2.now()).thenReturn(2_000L);
+    underTest.onRequestFinished(100L, 1_000L);
+    underTest.onRequestFinished(200L, 3_000L);
+
+    // idle period is ignored
+    when(system2.now()).thenReturn(10_000L);
+    underTest.onRequestStarted();
+    when(system2.now()).thenReturn(11_000L);
+    underTest.onRequestFinished(300L, 2_000L);
+
+    assertThat(underTest.getDocs()).isEqualTo(600L);
+    assertThat(underTest.getBytes()).isEqualTo(6_000L);
+    assertThat(underTest.getDocsPerSecond()).isEqualTo(300.0);
+    assertThat(underTest.getBytesPerSecond()).isEqualTo(3_000.0);
+  }
+
+  @Test
+  public void throughput_includes_requests_in_progress() {
+    when(system2.now()).thenReturn(1_000L);
+    underTest.onRequestStarted();
+    when(system2.now()).thenReturn(2_000L);
+    underTest.onRequestFinished(100L, 1_000L);
+    underTest.onRequestStarted();
+    when(system2.now()).thenReturn(4_000L);
+
+    assertThat(underTest.getDocsPerSecond()).isEqualTo(100.0 / 3);
+  }
+
+  @Test
+  public void count_rejections_and_retries() {
+    underTest.onRejections(3L);
+    underTest.onRejections(2L);
+    underTest.onRetries(4L);
+
+    assertThat(underTest.getRejections()).isEqualTo(5L);
+    assertThat(underTest.getRetries()).isEqualTo(4L);
+  }
+}
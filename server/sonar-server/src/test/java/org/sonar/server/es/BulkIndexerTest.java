@@ -20,16 +20,26 @@
 package org.sonar.server.es;
 
 import com.google.common.collect.ImmutableMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.action.bulk.BulkAction;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.server.es.BulkIndexer.Size;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
 import static org.sonar.server.es.FakeIndexDefinition.INDEX;
 import static org.sonar.server.es.FakeIndexDefinition.INDEX_TYPE_FAKE;
 
@@ -86,6 +96,74 @@ public class BulkIndexerTest {
     assertThat(replicas()).isEqualTo(1);
   }
 
+  @Test
+  public void settings_are_restored_by_the_last_of_concurrent_large_indexings() {
+    BulkIndexer indexer1 = new BulkIndexer(esTester.client(), INDEX).setSize(Size.LARGE);
+    BulkIndexer indexer2 = new BulkIndexer(esTester.client(), INDEX).setSize(Size.LARGE);
+    indexer1.start();
+    indexer2.start();
+    assertThat(replicas()).isEqualTo(0);
+
+    indexer1.add(newIndexRequest(1));
+    indexer1.stop();
+
+    // replicas are still disabled as the second indexing is in progress
+    assertThat(replicas()).isEqualTo(0);
+
+    indexer2.add(newIndexRequest(2));
+    indexer2.stop();
+
+    assertThat(count()).isEqualTo(2);
+    assertThat(replicas()).isEqualTo(1);
+  }
+
+  @Test
+  public void adaptive_indexing() {
+    long initialDocs = esTester.client().getBulkIndexerStatistics().getDocs();
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), INDEX)
+      .setFlushByteSize(500)
+      .setSize(Size.LARGE)
+      .setAdaptive(true);
+    indexer.start();
+    for (int i = 0; i < 100; i++) {
+      indexer.add(newIndexRequest(i));
+    }
+    indexer.stop();
+
+    assertThat(count()).isEqualTo(100);
+    assertThat(replicas()).isEqualTo(1);
+    BulkIndexerStatistics statistics = esTester.client().getBulkIndexerStatistics();
+    assertThat(statistics.getDocs() - initialDocs).isEqualTo(100);
+    assertThat(statistics.getBytes()).isGreaterThan(0L);
+  }
+
+  @Test
+  public void rejected_documents_are_sent_again() {
+    EsClient client = spy(esTester.client());
+    AtomicInteger rejectedRequests = new AtomicInteger(2);
+    doAnswer(invocation -> new BulkRequestBuilder(esTester.client().nativeClient(), BulkAction.INSTANCE) {
+      @Override
+      public void execute(ActionListener<BulkResponse> listener) {
+        if (rejectedRequests.getAndDecrement() > 0) {
+          listener.onResponse(rejectAll(request()));
+        } else {
+          super.execute(listener);
+        }
+      }
+    }).when(client).prepareBulk();
+
+    BulkIndexer indexer = new BulkIndexer(client, INDEX).setAdaptive(true);
+    indexer.start();
+    indexer.add(newIndexRequest(1));
+    indexer.add(newIndexRequest(2));
+    indexer.stop();
+
+    assertThat(count()).isEqualTo(2);
+    BulkIndexerStatistics statistics = client.getBulkIndexerStatistics();
+    assertThat(statistics.getRejections()).isEqualTo(4L);
+    assertThat(statistics.getRetries()).isEqualTo(4L);
+  }
+
   @Test
   public void bulk_delete() throws Exception {
     int max = 500;
@@ -114,6 +192,15 @@ public class BulkIndexerTest {
     return Integer.parseInt(settingsResp.getSetting(INDEX, IndexMetaData.SETTING_NUMBER_OF_REPLICAS));
   }
 
+  private static BulkResponse rejectAll(BulkRequest request) {
+    BulkItemResponse[] items = new BulkItemResponse[request.numberOfActions()];
+    for (int i = 0; i < items.length; i++) {
+      items[i] = new BulkItemResponse(i, "index", new BulkItemResponse.Failure(INDEX, INDEX_TYPE_FAKE.getType(), null,
+        new EsRejectedExecutionException("rejected execution")));
+    }
+    return new BulkResponse(items, 0L);
+  }
+
   private IndexRequest newIndexRequest(int intField) {
     return new IndexRequest(INDEX, INDEX_TYPE_FAKE.getType())
       .source(ImmutableMap.of(FakeIndexDefinition.INT_FIELD, intField));
@@ -20,14 +20,22 @@
 package org.sonar.server.es;
 
 import com.google.common.collect.ImmutableSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
 import org.sonar.api.config.MapSettings;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -76,6 +84,43 @@ public class IndexerStartupTaskTest {
     verifyNoMoreInteractions(indexer);
   }
 
+  @Test
+  public void indexers_are_executed_concurrently() throws Exception {
+    CountDownLatch started = new CountDownLatch(2);
+    StartupIndexer indexer1 = createIndexer();
+    StartupIndexer indexer2 = createIndexer();
+    Answer<Void> awaitOtherIndexer = invocation -> {
+      started.countDown();
+      assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+      return null;
+    };
+    doAnswer(awaitOtherIndexer).when(indexer1).indexOnStartup(any());
+    doAnswer(awaitOtherIndexer).when(indexer2).indexOnStartup(any());
+
+    new IndexerStartupTask(es.client(), settings, indexer1, indexer2).execute();
+
+    verify(indexer1).indexOnStartup(Mockito.eq(ImmutableSet.of(INDEX_TYPE_FAKE)));
+    verify(indexer2).indexOnStartup(Mockito.eq(ImmutableSet.of(INDEX_TYPE_FAKE)));
+  }
+
+  @Test
+  public void types_of_failed_indexer_are_indexed_again_on_next_startup() throws Exception {
+    StartupIndexer indexer1 = createIndexer();
+    doThrow(new IllegalStateException("failure")).when(indexer1).indexOnStartup(any());
+
+    try {
+      emulateStartup(indexer1);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("failure");
+    }
+
+    StartupIndexer indexer2 = createIndexer();
+    emulateStartup(indexer2);
+
+    verify(indexer2).indexOnStartup(Mockito.eq(ImmutableSet.of(INDEX_TYPE_FAKE)));
+  }
+
   private void insertDocumentIntoIndex() {
     es.putDocuments(INDEX_TYPE_FAKE, new FakeDoc());
   }
@@ -24,18 +24,23 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.config.MapSettings;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
+import org.sonar.db.issue.IssueDto;
 import org.sonar.server.es.EsTester;
 import org.sonar.server.es.ProjectIndexer;
 
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.sonar.server.issue.IssueDocTesting.newDoc;
@@ -47,7 +52,7 @@ public class IssueIndexerTest {
   private System2 system2 = System2.INSTANCE;
 
   @Rule
-  public EsTester esTester = new EsTester(new IssueIndexDefinition(new MapSettings()));
+  public EsTester esTester = new EsTester(new IssueIndexDefinition(new MapSettings().setProperty("sonar.search.issues.replicas", 1)));
 
   @Rule
   public DbTester dbTester = DbTester.create(system2);
@@ -62,6 +67,51 @@ public class IssueIndexerTest {
     verify(indexer).indexOnStartup(null);
   }
 
+  @Test
+  public void index_issues_of_all_projects_on_startup() {
+    List<IssueDto> issues = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      issues.add(dbTester.issues().insertIssue());
+    }
+
+    new IssueIndexer(esTester.client(), new IssueIteratorFactory(dbTester.getDbClient()), 3).indexOnStartup(null);
+
+    verifyIssueKeys(issues.stream().map(IssueDto::getKey).toArray(String[]::new));
+  }
+
+  @Test
+  public void index_settings_are_restored_when_a_worker_fails_on_startup() {
+    List<IssueDto> issues = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      issues.add(dbTester.issues().insertIssue());
+    }
+    String failingProjectUuid = issues.get(1).getProjectUuid();
+    IssueIteratorFactory issueIteratorFactory = spy(new IssueIteratorFactory(dbTester.getDbClient()));
+    doThrow(new IllegalStateException("Fail to read issues")).when(issueIteratorFactory).createForProject(failingProjectUuid);
+    assertThat(replicas()).isEqualTo(1);
+
+    try {
+      new IssueIndexer(esTester.client(), issueIteratorFactory, 2).indexOnStartup(null);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Fail to read issues");
+    }
+
+    assertThat(replicas()).isEqualTo(1);
+
+    // next indexings are not affected
+    new IssueIndexer(esTester.client(), new IssueIteratorFactory(dbTester.getDbClient()), 2).indexOnStartup(null);
+    verifyIssueKeys(issues.stream().map(IssueDto::getKey).toArray(String[]::new));
+    assertThat(replicas()).isEqualTo(1);
+  }
+
+  @Test
+  public void index_nothing_on_startup_if_no_issues() {
+    underTest.indexOnStartup(null);
+
+    assertThat(esTester.countDocuments(IssueIndexDefinition.INDEX_TYPE_ISSUE)).isEqualTo(0L);
+  }
+
   @Test
   public void index_nothing() {
     underTest.index(Collections.emptyIterator());
@@ -198,6 +248,11 @@ public class IssueIndexerTest {
       newDoc().setKey(issueKey).setProjectUuid(projectUuid));
   }
 
+  private int replicas() {
+    GetSettingsResponse settings = esTester.client().nativeClient().admin().indices().prepareGetSettings(IssueIndexDefinition.INDEX_TYPE_ISSUE.getIndex()).get();
+    return Integer.parseInt(settings.getSetting(IssueIndexDefinition.INDEX_TYPE_ISSUE.getIndex(), IndexMetaData.SETTING_NUMBER_OF_REPLICAS));
+  }
+
   private void verifyIssueKeys(String... expectedKeys) {
     List<IssueDoc> issues = esTester.getDocuments(IssueIndexDefinition.INDEX_TYPE_ISSUE, IssueDoc.class);
     assertThat(issues).extracting(IssueDoc::key).containsOnly(expectedKeys);
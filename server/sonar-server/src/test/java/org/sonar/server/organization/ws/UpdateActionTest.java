@@ -33,6 +33,7 @@ import org.sonar.server.exceptions.UnauthorizedException;
 import org.sonar.server.organization.OrganizationValidationImpl;
 import org.sonar.server.organization.TestOrganizationFlags;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.ws.ReferenceDataCache;
 import org.sonar.server.ws.TestRequest;
 import org.sonar.server.ws.WsActionTester;
 import org.sonarqube.ws.MediaTypes;
@@ -40,6 +41,7 @@ import org.sonarqube.ws.Organizations;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonar.server.organization.ws.OrganizationsWsTestSupport.STRING_257_CHARS_LONG;
 import static org.sonar.server.organization.ws.OrganizationsWsTestSupport.STRING_65_CHARS_LONG;
@@ -61,7 +63,8 @@ public class UpdateActionTest {
   public ExpectedException expectedException = ExpectedException.none();
 
   private TestOrganizationFlags organizationFlags = TestOrganizationFlags.standalone().setEnabled(true);
-  private UpdateAction underTest = new UpdateAction(userSession, new OrganizationsWsSupport(new OrganizationValidationImpl()), dbTester.getDbClient(), organizationFlags);
+  private ReferenceDataCache referenceDataCache = mock(ReferenceDataCache.class);
+  private UpdateAction underTest = new UpdateAction(userSession, new OrganizationsWsSupport(new OrganizationValidationImpl()), dbTester.getDbClient(), organizationFlags, referenceDataCache);
   private WsActionTester wsTester = new WsActionTester(underTest);
 
   @Test
@@ -172,6 +175,7 @@ public class UpdateActionTest {
     logInAsAdministrator(org);
 
     verifyResponseAndDb(executeKeyRequest(org.getKey(), null), org, org.getName(), DATE_2);
+    verify(referenceDataCache).invalidateOrganization(org.getUuid());
   }
 
   @Test
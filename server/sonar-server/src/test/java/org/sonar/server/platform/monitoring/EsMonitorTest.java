@@ -110,4 +110,16 @@ public class EsMonitorTest {
     assertThat(attributes).hasSize(1);
     assertThat(attributes.get("State")).isEqualTo("some cause message");
   }
+
+  @Test
+  public void bulk_indexing_attributes() {
+    Map<String, Object> attributes = underTest.attributes();
+    Map bulkAttributes = (Map) attributes.get("Bulk Indexing");
+
+    assertThat(bulkAttributes).containsOnlyKeys("Docs", "Docs per Second", "Throughput", "Rejected Docs", "Retried Docs");
+    assertThat(underTest.getBulkIndexingRejections()).isEqualTo(esTester.client().getBulkIndexerStatistics().getRejections());
+    assertThat(underTest.getBulkIndexingRetries()).isEqualTo(esTester.client().getBulkIndexerStatistics().getRetries());
+    assertThat(underTest.getBulkIndexingDocsPerSecond()).isGreaterThanOrEqualTo(0.0);
+    assertThat(underTest.getBulkIndexingBytesPerSecond()).isGreaterThanOrEqualTo(0.0);
+  }
 }
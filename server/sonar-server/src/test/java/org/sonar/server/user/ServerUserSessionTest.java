@@ -71,6 +71,7 @@ public class ServerUserSessionTest {
   private DbClient dbClient = db.getDbClient();
   private UserDto userDto = newUserDto().setLogin(LOGIN);
   private TestOrganizationFlags organizationFlags = TestOrganizationFlags.standalone();
+  private UserAuthorizationCache authorizationCache = new UserAuthorizationCache();
   private TestDefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.from(db);
   private OrganizationDto organization;
   private ComponentDto project;
@@ -125,6 +126,33 @@ public class ServerUserSessionTest {
     assertThat(session.getGroups()).extracting(GroupDto::getId).containsOnly(group1.getId());
   }
 
+  @Test
+  public void groups_and_permissions_are_shared_by_the_sessions_of_a_user_until_invalidated() {
+    GroupDto group = db.users().insertGroup();
+    assertThat(newUserSession(userDto).getGroups()).isEmpty();
+    assertThat(newUserSession(userDto).hasComponentUuidPermission(UserRole.USER, FILE_UUID)).isFalse();
+
+    db.users().insertMember(group, userDto);
+    addProjectPermissions(project, UserRole.USER);
+    assertThat(newUserSession(userDto).getGroups()).isEmpty();
+    assertThat(newUserSession(userDto).hasComponentUuidPermission(UserRole.USER, FILE_UUID)).isFalse();
+
+    authorizationCache.invalidateUser(userDto.getLogin());
+    assertThat(newUserSession(userDto).getGroups()).extracting(GroupDto::getId).containsOnly(group.getId());
+    assertThat(newUserSession(userDto).hasComponentUuidPermission(UserRole.USER, FILE_UUID)).isTrue();
+  }
+
+  @Test
+  public void permissions_are_shared_by_anonymous_sessions_until_invalidated() {
+    assertThat(newAnonymousSession().hasPermission(PROVISION_PROJECTS, organization.getUuid())).isFalse();
+
+    db.users().insertPermissionOnAnyone(organization, PROVISION_PROJECTS);
+    assertThat(newAnonymousSession().hasPermission(PROVISION_PROJECTS, organization.getUuid())).isFalse();
+
+    authorizationCache.invalidateAll();
+    assertThat(newAnonymousSession().hasPermission(PROVISION_PROJECTS, organization.getUuid())).isTrue();
+  }
+
   @Test
   public void isRoot_is_false_is_flag_root_is_false_on_UserDto() {
     assertThat(newUserSession(ROOT_USER_DTO).isRoot()).isTrue();
@@ -406,7 +434,7 @@ public class ServerUserSessionTest {
   }
 
   private ServerUserSession newUserSession(@Nullable UserDto userDto) {
-    return new ServerUserSession(dbClient, organizationFlags, defaultOrganizationProvider, userDto);
+    return new ServerUserSession(dbClient, organizationFlags, defaultOrganizationProvider, authorizationCache, userDto);
   }
 
   private ServerUserSession newAnonymousSession() {
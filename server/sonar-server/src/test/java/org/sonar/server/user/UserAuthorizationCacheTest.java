@@ -0,0 +1,134 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.google.common.base.Ticker;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.sonar.db.user.GroupDto;
+
+import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.db.permission.OrganizationPermission.ADMINISTER;
+
+public class UserAuthorizationCacheTest {
+
+  private FakeTicker ticker = new FakeTicker();
+  private UserAuthorizationCache underTest = new UserAuthorizationCache(ticker);
+
+  @Test
+  public void entry_is_shared_by_the_requests_of_a_user() {
+    assertThat(underTest.get("john")).isSameAs(underTest.get("john"));
+    assertThat(underTest.get("john")).isNotSameAs(underTest.get("jane"));
+  }
+
+  @Test
+  public void entry_is_shared_by_anonymous_requests() {
+    assertThat(underTest.get(null)).isSameAs(underTest.get(null));
+    assertThat(underTest.get(null)).isNotSameAs(underTest.get("john"));
+  }
+
+  @Test
+  public void permissions_are_loaded_once() {
+    AtomicInteger loads = new AtomicInteger();
+    UserAuthorizationCache.Entry entry = underTest.get("john");
+
+    for (int i = 0; i < 3; i++) {
+      assertThat(entry.getProjectPermissions("P1", uuid -> {
+        loads.incrementAndGet();
+        return newHashSet("user");
+      })).containsOnly("user");
+    }
+    assertThat(entry.getOrganizationPermissions("O1", uuid -> newHashSet(ADMINISTER))).containsOnly(ADMINISTER);
+    assertThat(entry.getOrganizationPermissions("O1", uuid -> Collections.emptySet())).containsOnly(ADMINISTER);
+
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void groups_are_loaded_once() {
+    GroupDto group = new GroupDto().setId(1);
+    UserAuthorizationCache.Entry entry = underTest.get("john");
+
+    assertThat(entry.getGroups(() -> singletonList(group))).containsExactly(group);
+    assertThat(entry.getGroups(Collections::emptyList)).containsExactly(group);
+  }
+
+  @Test
+  public void invalidate_user() {
+    UserAuthorizationCache.Entry john = underTest.get("john");
+    UserAuthorizationCache.Entry jane = underTest.get("jane");
+
+    underTest.invalidateUser("john");
+
+    assertThat(underTest.get("john")).isNotSameAs(john);
+    assertThat(underTest.get("jane")).isSameAs(jane);
+  }
+
+  @Test
+  public void invalidate_all() {
+    UserAuthorizationCache.Entry john = underTest.get("john");
+    UserAuthorizationCache.Entry anonymous = underTest.get(null);
+
+    underTest.invalidateAll();
+
+    assertThat(underTest.get("john")).isNotSameAs(john);
+    assertThat(underTest.get(null)).isNotSameAs(anonymous);
+  }
+
+  @Test
+  public void entries_expire_after_ttl() {
+    UserAuthorizationCache.Entry entry = underTest.get("john");
+
+    ticker.advance(UserAuthorizationCache.TTL_SECONDS - 1, TimeUnit.SECONDS);
+    assertThat(underTest.get("john")).isSameAs(entry);
+
+    ticker.advance(1, TimeUnit.SECONDS);
+    assertThat(underTest.get("john")).isNotSameAs(entry);
+  }
+
+  @Test
+  public void permissions_loaded_from_an_invalidated_entry_are_not_visible_to_next_requests() {
+    UserAuthorizationCache.Entry entry = underTest.get("john");
+
+    underTest.invalidateUser("john");
+    Set<String> stalePermissions = entry.getProjectPermissions("P1", uuid -> newHashSet("admin"));
+
+    assertThat(stalePermissions).containsOnly("admin");
+    assertThat(underTest.get("john").getProjectPermissions("P1", uuid -> newHashSet("user"))).containsOnly("user");
+  }
+
+  private static class FakeTicker extends Ticker {
+    private long nanos = 0L;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    void advance(long duration, TimeUnit unit) {
+      nanos += unit.toNanos(duration);
+    }
+  }
+}
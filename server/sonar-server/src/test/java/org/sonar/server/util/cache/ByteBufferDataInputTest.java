@@ -0,0 +1,104 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.util.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class ByteBufferDataInputTest {
+
+  @Test
+  public void read_values_written_by_DataOutput() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    output.writeBoolean(true);
+    output.writeByte(-1);
+    output.writeShort(-2);
+    output.writeChar('c');
+    output.writeInt(42);
+    output.writeLong(43L);
+    output.writeFloat(1.5f);
+    output.writeDouble(2.5d);
+    output.writeUTF("été");
+
+    ByteBufferDataInput underTest = new ByteBufferDataInput(ByteBuffer.wrap(bytes.toByteArray()));
+
+    assertThat(underTest.readBoolean()).isTrue();
+    assertThat(underTest.readUnsignedByte()).isEqualTo(255);
+    assertThat(underTest.readUnsignedShort()).isEqualTo(65534);
+    assertThat(underTest.readChar()).isEqualTo('c');
+    assertThat(underTest.readInt()).isEqualTo(42);
+    assertThat(underTest.readLong()).isEqualTo(43L);
+    assertThat(underTest.readFloat()).isEqualTo(1.5f);
+    assertThat(underTest.readDouble()).isEqualTo(2.5d);
+    assertThat(underTest.readUTF()).isEqualTo("été");
+  }
+
+  @Test
+  public void read_lines_like_DataInputStream() throws IOException {
+    byte[] bytes = "first\nsecond\r\nthird\rlast".getBytes(ISO_8859_1);
+    ByteBufferDataInput underTest = new ByteBufferDataInput(ByteBuffer.wrap(bytes));
+    DataInputStream expected = new DataInputStream(new ByteArrayInputStream(bytes));
+
+    for (int i = 0; i < 5; i++) {
+      assertThat(underTest.readLine()).isEqualTo(expected.readLine());
+    }
+    assertThat(underTest.readLine()).isNull();
+  }
+
+  @Test
+  public void read_empty_lines() {
+    ByteBufferDataInput underTest = new ByteBufferDataInput(ByteBuffer.wrap("\n\r\n".getBytes(ISO_8859_1)));
+
+    assertThat(underTest.readLine()).isEmpty();
+    assertThat(underTest.readLine()).isEmpty();
+    assertThat(underTest.readLine()).isNull();
+  }
+
+  @Test
+  public void skip_at_most_remaining_bytes() {
+    ByteBufferDataInput underTest = new ByteBufferDataInput(ByteBuffer.wrap(new byte[] {1, 2, 3}));
+
+    assertThat(underTest.skipBytes(2)).isEqualTo(2);
+    assertThat(underTest.skipBytes(2)).isEqualTo(1);
+  }
+
+  @Test
+  public void fail_with_EOFException_at_end_of_buffer() throws IOException {
+    ByteBufferDataInput underTest = new ByteBufferDataInput(ByteBuffer.wrap(new byte[] {1, 2}));
+
+    try {
+      underTest.readInt();
+      fail();
+    } catch (EOFException e) {
+      assertThat(e).hasMessage("Unexpected end of record");
+    }
+  }
+}
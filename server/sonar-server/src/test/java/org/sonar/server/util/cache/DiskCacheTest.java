@@ -19,26 +19,45 @@
  */
 package org.sonar.server.util.cache;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import org.apache.commons.lang.StringUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.utils.System2;
 import org.sonar.core.util.CloseableIterator;
 
-import java.io.ObjectOutputStream;
-import java.io.Serializable;
-
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
 
 public class DiskCacheTest {
 
+  private static final RecordCodec<String> STRING_CODEC = new RecordCodec<String>() {
+    @Override
+    public void write(String object, DataOutput output) throws IOException {
+      byte[] bytes = object.getBytes(UTF_8);
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+
+    @Override
+    public String read(DataInput input) throws IOException {
+      byte[] bytes = new byte[input.readInt()];
+      input.readFully(bytes);
+      return new String(bytes, UTF_8);
+    }
+  };
+
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
 
   @Test
   public void write_and_read() throws Exception {
-    DiskCache<String> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE);
+    DiskCache<String> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE, STRING_CODEC);
     try (CloseableIterator<String> traverse = cache.traverse()) {
       assertThat(traverse).isEmpty();
     }
@@ -52,10 +71,65 @@ public class DiskCacheTest {
     }
   }
 
+  @Test
+  public void traverse_multiple_times() throws Exception {
+    DiskCache<String> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE, STRING_CODEC);
+    cache.newAppender()
+      .append("foo")
+      .append("bar")
+      .close();
+
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).containsExactly("foo", "bar");
+    }
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).containsExactly("foo", "bar");
+    }
+  }
+
+  @Test
+  public void append_with_multiple_appenders() throws Exception {
+    DiskCache<String> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE, STRING_CODEC);
+    cache.newAppender().append("foo").close();
+    cache.newAppender().append("bar").close();
+
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).containsExactly("foo", "bar");
+    }
+  }
+
+  @Test
+  public void write_and_read_records_bigger_than_write_buffer() throws Exception {
+    String big = StringUtils.repeat("a", 40_000);
+    String bigger = StringUtils.repeat("b", 100_000);
+    DiskCache<String> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE, STRING_CODEC);
+    cache.newAppender()
+      .append("foo")
+      .append(big)
+      .append(bigger)
+      .append("bar")
+      .close();
+
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).containsExactly("foo", big, bigger, "bar");
+    }
+  }
+
+  @Test
+  public void constructor_clears_existing_file() throws Exception {
+    File file = temp.newFile();
+    new DiskCache<>(file, System2.INSTANCE, STRING_CODEC).newAppender().append("foo").close();
+
+    DiskCache<String> cache = new DiskCache<>(file, System2.INSTANCE, STRING_CODEC);
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).isEmpty();
+    }
+  }
+
   @Test
   public void fail_if_file_is_not_writable() throws Exception {
     try {
-      new DiskCache<>(temp.newFolder(), System2.INSTANCE);
+      new DiskCache<>(temp.newFolder(), System2.INSTANCE, STRING_CODEC);
       fail();
     } catch (IllegalStateException e) {
       assertThat(e).hasMessageContaining("Fail to write into file");
@@ -63,18 +137,44 @@ public class DiskCacheTest {
   }
 
   @Test
-  public void fail_to_serialize() throws Exception {
-    class Unserializable implements Serializable {
-      private void writeObject(ObjectOutputStream out) {
+  public void fail_to_encode() throws Exception {
+    DiskCache<String> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE, new RecordCodec<String>() {
+      @Override
+      public void write(String object, DataOutput output) {
         throw new UnsupportedOperationException("expected error");
       }
-    }
-    DiskCache<Serializable> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE);
+
+      @Override
+      public String read(DataInput input) {
+        throw new UnsupportedOperationException();
+      }
+    });
     try {
-      cache.newAppender().append(new Unserializable());
+      cache.newAppender().append("foo");
       fail();
     } catch (UnsupportedOperationException e) {
       assertThat(e).hasMessage("expected error");
     }
   }
+
+  @Test
+  public void fail_to_encode_with_io_error() throws Exception {
+    DiskCache<String> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE, new RecordCodec<String>() {
+      @Override
+      public void write(String object, DataOutput output) throws IOException {
+        throw new IOException("expected error");
+      }
+
+      @Override
+      public String read(DataInput input) {
+        throw new UnsupportedOperationException();
+      }
+    });
+    try {
+      cache.newAppender().append("foo");
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessageContaining("Fail to write into file");
+    }
+  }
 }
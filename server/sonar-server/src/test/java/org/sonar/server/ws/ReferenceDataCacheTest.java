@@ -0,0 +1,166 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import com.google.common.base.Ticker;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.organization.OrganizationDto;
+import org.sonar.db.rule.RuleDto;
+import org.sonar.db.user.UserDao;
+import org.sonar.db.user.UserDto;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonar.db.rule.RuleTesting.newRuleDto;
+
+public class ReferenceDataCacheTest {
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private DbClient dbClient = db.getDbClient();
+  private DbSession dbSession = db.getSession();
+  private FakeTicker ticker = new FakeTicker();
+  private ReferenceDataCache underTest = new ReferenceDataCache(dbClient, ticker);
+
+  @Test
+  public void select_rules_loads_only_missing_rules_from_db() {
+    RuleDto rule1 = db.rules().insertRule(newRuleDto());
+    RuleDto rule2 = db.rules().insertRule(newRuleDto());
+
+    assertThat(underTest.selectRulesByKeys(dbSession, singletonList(rule1.getKey()))).extracting(RuleDto::getKey).containsExactly(rule1.getKey());
+    assertThat(underTest.selectRulesByKeys(dbSession, asList(rule1.getKey(), rule2.getKey()))).extracting(RuleDto::getKey)
+      .containsOnly(rule1.getKey(), rule2.getKey());
+
+    assertThat(underTest.attributes())
+      .containsEntry("Rules Size", 2L)
+      .containsEntry("Rules Hits", 1L)
+      .containsEntry("Rules Misses", 2L);
+  }
+
+  @Test
+  public void updated_rule_is_returned_once_invalidated() {
+    RuleDto rule = db.rules().insertRule(newRuleDto().setName("old name"));
+    underTest.selectRulesByKeys(dbSession, singletonList(rule.getKey()));
+
+    dbClient.ruleDao().update(dbSession, rule.setName("new name"));
+    dbSession.commit();
+    assertThat(underTest.selectRulesByKeys(dbSession, singletonList(rule.getKey()))).extracting(RuleDto::getName).containsExactly("old name");
+
+    underTest.invalidateRule(rule.getKey());
+    assertThat(underTest.selectRulesByKeys(dbSession, singletonList(rule.getKey()))).extracting(RuleDto::getName).containsExactly("new name");
+  }
+
+  @Test
+  public void users_expire_after_ttl() {
+    UserDto user = db.users().insertUser(u -> u.setName("old name"));
+    underTest.selectUsersByLogins(dbSession, singletonList(user.getLogin()));
+
+    dbClient.userDao().update(dbSession, user.setName("new name"));
+    dbSession.commit();
+    ticker.advance(TimeUnit.MINUTES.toSeconds(ReferenceDataCache.TTL_MINUTES) - 1, TimeUnit.SECONDS);
+    assertThat(underTest.selectUsersByLogins(dbSession, singletonList(user.getLogin()))).extracting(UserDto::getName).containsExactly("old name");
+
+    ticker.advance(1, TimeUnit.SECONDS);
+    assertThat(underTest.selectUsersByLogins(dbSession, singletonList(user.getLogin()))).extracting(UserDto::getName).containsExactly("new name");
+  }
+
+  @Test
+  public void invalidate_user() {
+    UserDto user = db.users().insertUser();
+    underTest.selectUsersByLogins(dbSession, singletonList(user.getLogin()));
+
+    underTest.invalidateUser(user.getLogin());
+
+    assertThat(underTest.attributes()).containsEntry("Users Size", 0L);
+  }
+
+  @Test
+  public void select_and_invalidate_organizations() {
+    OrganizationDto organization = db.organizations().insert();
+
+    assertThat(underTest.selectOrganizationsByUuids(dbSession, singletonList(organization.getUuid()))).extracting(OrganizationDto::getUuid)
+      .containsExactly(organization.getUuid());
+    assertThat(underTest.selectOrganizationsByUuids(dbSession, singletonList(organization.getUuid()))).hasSize(1);
+    assertThat(underTest.attributes())
+      .containsEntry("Organizations Size", 1L)
+      .containsEntry("Organizations Hit Rate", String.format("%.1f%%", 50d));
+
+    underTest.invalidateOrganization(organization.getUuid());
+
+    assertThat(underTest.attributes()).containsEntry("Organizations Size", 0L);
+  }
+
+  @Test
+  public void users_loaded_during_an_invalidation_are_not_cached() {
+    UserDto user = new UserDto().setLogin("john").setName("old name");
+    DbClient mockedDbClient = mock(DbClient.class);
+    UserDao userDao = mock(UserDao.class);
+    when(mockedDbClient.userDao()).thenReturn(userDao);
+    ReferenceDataCache cache = new ReferenceDataCache(mockedDbClient, ticker);
+    when(userDao.selectByLogins(any(), any())).thenAnswer(invocation -> {
+      // user is updated and invalidated by another request while it is being read
+      cache.invalidateUser(user.getLogin());
+      return singletonList(user);
+    });
+
+    assertThat(cache.selectUsersByLogins(dbSession, singletonList(user.getLogin()))).containsExactly(user);
+    assertThat(cache.attributes()).containsEntry("Users Size", 0L);
+
+    cache.selectUsersByLogins(dbSession, singletonList(user.getLogin()));
+    verify(userDao, times(2)).selectByLogins(any(), any());
+  }
+
+  @Test
+  public void unknown_keys_are_ignored() {
+    assertThat(underTest.selectUsersByLogins(dbSession, singletonList("unknown"))).isEmpty();
+    assertThat(underTest.attributes()).containsEntry("Users Size", 0L);
+  }
+
+  @Test
+  public void test_monitor_name() {
+    assertThat(underTest.name()).isEqualTo("Reference Data Cache");
+  }
+
+  private static class FakeTicker extends Ticker {
+    private long nanos = 0L;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    void advance(long duration, TimeUnit unit) {
+      nanos += unit.toNanos(duration);
+    }
+  }
+}
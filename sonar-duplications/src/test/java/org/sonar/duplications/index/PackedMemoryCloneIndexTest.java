@@ -28,6 +28,10 @@ import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.is;
@@ -142,6 +146,40 @@ public class PackedMemoryCloneIndexTest {
     index.getBySequenceHash(new ByteArray(1L));
   }
 
+  @Test
+  public void concurrent_queries_do_not_interfere() throws Exception {
+    for (int i = 0; i < 1000; i++) {
+      index.insert(newBlock("r" + i, i % 10));
+    }
+    // sorts the index
+    assertThat(index.noResources()).isEqualTo(1000);
+
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Integer>> results = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        long hash = i % 10;
+        String resourceId = "r" + i;
+        results.add(executorService.submit(() -> {
+          int found = 0;
+          for (int j = 0; j < 100; j++) {
+            for (Block block : index.getBySequenceHash(new ByteArray(hash))) {
+              assertThat(block.getBlockHash()).isEqualTo(new ByteArray(hash));
+              found++;
+            }
+            found += index.getByResourceId(resourceId).size();
+          }
+          return found;
+        }));
+      }
+      for (Future<Integer> result : results) {
+        assertThat(result.get()).isEqualTo(100 * (100 + 1));
+      }
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
   private static Block newBlock(String resourceId, long hash) {
     return Block.builder()
         .setResourceId(resourceId)
@@ -40,7 +40,7 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
   private final Consumer<DefaultInputFile> metadataGenerator;
   private Status status;
   private Charset charset;
-  private Metadata metadata;
+  private volatile Metadata metadata;
   private boolean publish;
 
   public DefaultInputFile(DefaultIndexedFile indexedFile, Consumer<DefaultInputFile> metadataGenerator) {
@@ -53,7 +53,12 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
 
   public void checkMetadata() {
     if (metadata == null) {
-      metadataGenerator.accept(this);
+      // metadata can be lazily requested by sensors executed concurrently
+      synchronized (this) {
+        if (metadata == null) {
+          metadataGenerator.accept(this);
+        }
+      }
     }
   }
 
@@ -0,0 +1,373 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.batch.fs.internal.FileMetadata.LineHashConsumer;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Computes in a single pass over the characters of a file everything {@link FileMetadata} provides:
+ * line counts, line offsets, hash of the file and hashes of lines.
+ * <p>
+ * Bytes are read in bulk from a {@link FileChannel}, memory-mapped for large files, and decoded into a
+ * reusable char buffer. Characters to hash are encoded in reusable buffers, so nothing is allocated
+ * per line, except the line hashes given to the {@link LineHashConsumer}. Results are the same
+ * as the ones of {@link FileMetadata#readFile(File, Charset, FileMetadata.CharHandler...)}: ends of lines
+ * are {@code \r\n}, {@code \n} or {@code \r}, a BOM is ignored and characters are hashed as UTF-8.
+ * Mapped files are unmapped as soon as they are read.
+ * <p>
+ * Not thread-safe, an instance must be used to read a single file.
+ */
+final class MetadataComputer {
+
+  // keeps the logger of the previous implementation
+  private static final Logger LOG = Loggers.get(FileMetadata.class);
+
+  private static final char LINE_FEED = '\n';
+  private static final char CARRIAGE_RETURN = '\r';
+  private static final char REPLACEMENT_CHARACTER = '\ufffd';
+  private static final int CHAR_BUFFER_SIZE = 8 * 1024;
+  private static final int BYTE_BUFFER_SIZE = 16 * 1024;
+  private static final long MAPPING_THRESHOLD = 256L * 1024;
+
+  private final File file;
+  private final Charset encoding;
+  private final boolean computeFileHash;
+  // invalid characters are reported when computing metadata, not again when computing line hashes
+  private final boolean warnOnInvalidCharacter;
+  @Nullable
+  private final LineHashConsumer lineHashConsumer;
+
+  private final ByteBuffer encoded = ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+  private final CharBuffer fileHashChars;
+  private final CharsetEncoder fileHashEncoder;
+  private final MessageDigest fileHashDigest;
+  private final CharBuffer lineHashChars;
+  private final CharsetEncoder lineHashEncoder;
+  private final MessageDigest lineHashDigest;
+
+  private int lines = 1;
+  private int nonBlankLines = 0;
+  private boolean blankLine = true;
+  private boolean afterCR = false;
+  private boolean alreadyLoggedInvalidCharacter = false;
+  private long currentOriginalOffset = 0;
+  private final IntArrayList originalLineOffsets = new IntArrayList();
+
+  MetadataComputer(File file, Charset encoding, boolean computeFileHash, @Nullable LineHashConsumer lineHashConsumer) {
+    this.file = file;
+    this.encoding = encoding;
+    this.computeFileHash = computeFileHash;
+    this.warnOnInvalidCharacter = computeFileHash;
+    this.lineHashConsumer = lineHashConsumer;
+    this.fileHashChars = computeFileHash ? CharBuffer.allocate(CHAR_BUFFER_SIZE) : null;
+    this.fileHashEncoder = computeFileHash ? newUtf8Encoder() : null;
+    this.fileHashDigest = computeFileHash ? DigestUtils.getMd5Digest() : null;
+    this.lineHashChars = lineHashConsumer != null ? CharBuffer.allocate(CHAR_BUFFER_SIZE) : null;
+    this.lineHashEncoder = lineHashConsumer != null ? newUtf8Encoder() : null;
+    this.lineHashDigest = lineHashConsumer != null ? DigestUtils.getMd5Digest() : null;
+    originalLineOffsets.add(0);
+  }
+
+  private static CharsetEncoder newUtf8Encoder() {
+    return StandardCharsets.UTF_8.newEncoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  }
+
+  MetadataComputer readFile() {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      read(channel);
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", file.getAbsolutePath(), encoding), e);
+    }
+    return this;
+  }
+
+  MetadataComputer read(Reader reader) throws IOException {
+    CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+    int read = reader.read(chars.array());
+    while (read != -1) {
+      handle(chars.array(), read);
+      read = reader.read(chars.array());
+    }
+    eof();
+    return this;
+  }
+
+  private void read(FileChannel channel) throws IOException {
+    long size = channel.size();
+    int bomLength = bomLength(channel);
+    if (size < MAPPING_THRESHOLD) {
+      ByteBuffer bytes = ByteBuffer.allocate((int) Math.min(BYTE_BUFFER_SIZE, size + 1));
+      bytes.flip();
+      channel.position(bomLength);
+      read(channel, bytes, false);
+      return;
+    }
+    ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    try {
+      bytes.position(bomLength);
+      read(channel, bytes, true);
+    } finally {
+      unmap(bytes);
+    }
+  }
+
+  private void read(FileChannel channel, ByteBuffer bytes, boolean mapped) throws IOException {
+    CharsetDecoder decoder = encoding.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+    boolean endOfInput = mapped;
+    while (true) {
+      if (!endOfInput) {
+        bytes.compact();
+        endOfInput = channel.read(bytes) == -1;
+        bytes.flip();
+      }
+      CoderResult result = decoder.decode(bytes, chars, endOfInput);
+      if (result.isOverflow()) {
+        handle(chars);
+      } else if (endOfInput) {
+        break;
+      }
+    }
+    while (decoder.flush(chars).isOverflow()) {
+      handle(chars);
+    }
+    handle(chars);
+    eof();
+  }
+
+  /**
+   * Releases the mapping without waiting for the buffer to be garbage collected, so that large files do not keep
+   * their mapping. JDK internals are used, so the buffer is left to the garbage collector if they are not available.
+   */
+  private static void unmap(ByteBuffer buffer) {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Method invokeCleaner;
+      try {
+        invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      } catch (NoSuchMethodException e) {
+        // Java 8
+        Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+        cleanerMethod.setAccessible(true);
+        Object cleaner = cleanerMethod.invoke(buffer);
+        if (cleaner != null) {
+          cleaner.getClass().getMethod("clean").invoke(cleaner);
+        }
+        return;
+      }
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      invokeCleaner.invoke(theUnsafe.get(null), buffer);
+    } catch (Exception e) {
+      LOG.debug("Fail to unmap file, it will be unmapped when garbage collected", e);
+    }
+  }
+
+  /**
+   * Same BOMs as the ones ignored by {@link FileMetadata#readFile(File, Charset, FileMetadata.CharHandler...)},
+   * the longest ones first.
+   */
+  private static int bomLength(FileChannel channel) throws IOException {
+    ByteBuffer head = ByteBuffer.allocate(4);
+    while (head.hasRemaining() && channel.read(head, head.position()) > 0) {
+      // read until 4 bytes or end of file
+    }
+    int n = head.position();
+    byte[] b = head.array();
+    if (n >= 4 && ((b[0] == 0 && b[1] == 0 && b[2] == (byte) 0xFE && b[3] == (byte) 0xFF)
+      || (b[0] == (byte) 0xFF && b[1] == (byte) 0xFE && b[2] == 0 && b[3] == 0))) {
+      return 4;
+    }
+    if (n >= 3 && b[0] == (byte) 0xEF && b[1] == (byte) 0xBB && b[2] == (byte) 0xBF) {
+      return 3;
+    }
+    if (n >= 2 && ((b[0] == (byte) 0xFE && b[1] == (byte) 0xFF) || (b[0] == (byte) 0xFF && b[1] == (byte) 0xFE))) {
+      return 2;
+    }
+    return 0;
+  }
+
+  private void handle(CharBuffer chars) {
+    chars.flip();
+    handle(chars.array(), chars.limit());
+    chars.clear();
+  }
+
+  private void handle(char[] chars, int length) {
+    for (int i = 0; i < length; i++) {
+      char c = chars[i];
+      if (afterCR) {
+        afterCR = false;
+        if (c == LINE_FEED) {
+          currentOriginalOffset++;
+          newLine();
+          continue;
+        }
+        newLine();
+      }
+      if (c == LINE_FEED) {
+        currentOriginalOffset++;
+        newLine();
+      } else if (c == CARRIAGE_RETURN) {
+        currentOriginalOffset++;
+        afterCR = true;
+      } else {
+        handleIgnoreEoL(c);
+      }
+    }
+  }
+
+  private void handleIgnoreEoL(char c) {
+    currentOriginalOffset++;
+    boolean whitespace = Character.isWhitespace(c);
+    if (!whitespace) {
+      blankLine = false;
+      if (lineHashChars != null) {
+        if (!lineHashChars.hasRemaining()) {
+          encode(lineHashChars, lineHashEncoder, lineHashDigest, false);
+        }
+        lineHashChars.put(c);
+      }
+    }
+    if (fileHashChars != null) {
+      appendToFileHash(c);
+    }
+    if (c == REPLACEMENT_CHARACTER && warnOnInvalidCharacter && !alreadyLoggedInvalidCharacter) {
+      LOG.warn("Invalid character encountered in file {} at line {} for encoding {}. Please fix file content or configure the encoding to be used using property '{}'.", file,
+        lines, encoding, CoreProperties.ENCODING_PROPERTY);
+      alreadyLoggedInvalidCharacter = true;
+    }
+  }
+
+  private void appendToFileHash(char c) {
+    if (!fileHashChars.hasRemaining()) {
+      encode(fileHashChars, fileHashEncoder, fileHashDigest, false);
+    }
+    fileHashChars.put(c);
+  }
+
+  private void newLine() {
+    if (currentOriginalOffset > Integer.MAX_VALUE) {
+      throw new IllegalStateException("File is too big: " + currentOriginalOffset);
+    }
+    originalLineOffsets.add((int) currentOriginalOffset);
+    if (fileHashChars != null) {
+      appendToFileHash(LINE_FEED);
+    }
+    endLineHash();
+    lines++;
+    if (!blankLine) {
+      nonBlankLines++;
+    }
+    blankLine = true;
+  }
+
+  private void eof() {
+    if (afterCR) {
+      afterCR = false;
+      newLine();
+    }
+    if (!blankLine) {
+      nonBlankLines++;
+    }
+    if (fileHashChars != null) {
+      encode(fileHashChars, fileHashEncoder, fileHashDigest, true);
+    }
+    endLineHash();
+  }
+
+  private void endLineHash() {
+    // a line is hashed only if it contains non-whitespace characters
+    if (lineHashChars != null && !blankLine) {
+      encode(lineHashChars, lineHashEncoder, lineHashDigest, true);
+      lineHashConsumer.consume(lines, lineHashDigest.digest());
+    }
+  }
+
+  private void encode(CharBuffer chars, CharsetEncoder encoder, MessageDigest digest, boolean endOfInput) {
+    chars.flip();
+    try {
+      CoderResult result = encoder.encode(chars, encoded, endOfInput);
+      while (result.isOverflow()) {
+        digest(digest);
+        result = encoder.encode(chars, encoded, endOfInput);
+      }
+      if (result.isError()) {
+        result.throwException();
+      }
+      if (endOfInput) {
+        while (encoder.flush(encoded).isOverflow()) {
+          digest(digest);
+        }
+        encoder.reset();
+      }
+      digest(digest);
+    } catch (CharacterCodingException e) {
+      throw new IllegalStateException("Error encoding line hash in file: " + file.getAbsolutePath(), e);
+    }
+    // keeps a high surrogate waiting for the next characters
+    chars.compact();
+  }
+
+  private void digest(MessageDigest digest) {
+    digest.update(encoded.array(), 0, encoded.position());
+    encoded.clear();
+  }
+
+  Metadata toMetadata() {
+    if (currentOriginalOffset > Integer.MAX_VALUE) {
+      throw new IllegalStateException("File is too big: " + currentOriginalOffset);
+    }
+    return new Metadata(lines, nonBlankLines, hash(), originalLineOffsets.trimAndGet(), (int) currentOriginalOffset);
+  }
+
+  @CheckForNull
+  private String hash() {
+    return fileHashDigest != null ? Hex.encodeHexString(fileHashDigest.digest()) : null;
+  }
+}
@@ -79,4 +79,28 @@ public interface SensorDescriptor {
    */
   SensorDescriptor requireProperties(String... propertyKeys);
 
+  /**
+   * Declare that this {@link Sensor} can be executed concurrently with other thread-safe sensors. Used by the platform
+   * only when concurrent execution of sensors is enabled on the scanner side. A thread-safe {@link Sensor} must not
+   * rely on the execution order of the sensors it does not declare a dependency on
+   * (see {@link #dependsUpon(String...)} and {@link #dependedUpon(String...)}).
+   * Default is to execute sensor alone.
+   * @since 6.4
+   */
+  SensorDescriptor threadSafe();
+
+  /**
+   * Keys of the data this {@link Sensor} consumes. The {@link Sensor} is executed after all the extensions
+   * declaring the same keys with {@link #dependedUpon(String...)} or {@link org.sonar.api.batch.DependedUpon}.
+   * @since 6.4
+   */
+  SensorDescriptor dependsUpon(String... keys);
+
+  /**
+   * Keys of the data this {@link Sensor} produces. The {@link Sensor} is executed before all the extensions
+   * declaring the same keys with {@link #dependsUpon(String...)} or {@link org.sonar.api.batch.DependsUpon}.
+   * @since 6.4
+   */
+  SensorDescriptor dependedUpon(String... keys);
+
 }
@@ -198,6 +198,19 @@ public final class ZipUtils {
     }
   }
 
+  /**
+   * Compresses the content of a directory into a stream, for example to send it over the network without
+   * writing the archive to disk. The output stream is not closed.
+   * @since 6.4
+   */
+  public static void zipDir(File dir, OutputStream output) throws IOException {
+    ZipOutputStream zout = new ZipOutputStream(output);
+    doZipDir(dir, zout);
+    // writes the end of the archive, but does not close the underlying stream
+    zout.finish();
+    zout.flush();
+  }
+
   private static void doZip(String entryName, InputStream in, ZipOutputStream out) throws IOException {
     ZipEntry entry = new ZipEntry(entryName);
     out.putNextEntry(entry);
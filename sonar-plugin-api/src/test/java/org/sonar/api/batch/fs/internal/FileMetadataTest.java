@@ -318,4 +318,18 @@ public class FileMetadataTest {
       "glyphicons-halflings-regular.woff at line 1 for encoding UTF-8. Please fix file content or configure the encoding to be used using property 'sonar.sourceEncoding'.");
   }
 
+  @Test
+  public void do_not_log_invalid_characters_when_computing_line_hashes() throws Exception {
+    File woff = new File(this.getClass().getResource("glyphicons-halflings-regular.woff").toURI());
+    DefaultInputFile f = new TestInputFileBuilder("foo", woff.getName())
+      .setModuleBaseDir(woff.getParentFile().toPath())
+      .setCharset(StandardCharsets.UTF_8)
+      .build();
+
+    FileMetadata.computeLineHashesForIssueTracking(f, (lineIdx, hash) -> {
+    });
+
+    assertThat(logTester.logs(LoggerLevel.WARN)).isEmpty();
+  }
+
 }
@@ -0,0 +1,186 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.apache.commons.codec.digest.DigestUtils.md5Hex;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that {@link MetadataComputer} returns the same results as the char-by-char
+ * {@link FileMetadata#readFile(File, Charset, FileMetadata.CharHandler...)}.
+ */
+public class MetadataComputerTest {
+
+  private static final String[] FRAGMENTS = {"a", "foo", " ", "\t", "\r", "\n", "\r\n", "\n\r", "é", "😀", " ", " "};
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private Random random = new Random(42);
+
+  @Test
+  public void same_results_as_char_handlers_on_small_files() throws Exception {
+    for (int i = 0; i < 200; i++) {
+      verify(randomContent(random.nextInt(50)), StandardCharsets.UTF_8);
+    }
+  }
+
+  @Test
+  public void same_results_as_char_handlers_on_files_larger_than_buffers() throws Exception {
+    verify(randomContent(10_000), StandardCharsets.UTF_8);
+    verify(randomContent(10_000), StandardCharsets.UTF_16BE);
+  }
+
+  @Test
+  public void same_results_as_char_handlers_on_memory_mapped_files() throws Exception {
+    verify(randomContent(200_000), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void same_results_as_char_handlers_on_long_lines() throws Exception {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 20_000; i++) {
+      content.append("ab😀 ");
+    }
+    verify(content.append("\r").toString(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void same_results_as_char_handlers_with_bom_and_invalid_bytes() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    bytes.write(new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
+    bytes.write(randomContent(100).getBytes(StandardCharsets.UTF_8));
+    bytes.write(new byte[] {(byte) 0xFF, (byte) 0xC3, 'x', '\n', (byte) 0xE2, (byte) 0x82});
+    verify(bytes.toByteArray(), StandardCharsets.UTF_8);
+
+    verify(new byte[] {(byte) 0xFF, (byte) 0xFE, 0, 0, 'a', 0, 0, 0}, StandardCharsets.UTF_8);
+    verify(new byte[] {(byte) 0xFE, (byte) 0xFF, 0, 'a', 0, '\r'}, StandardCharsets.UTF_16BE);
+    verify(new byte[] {(byte) 0xFE}, StandardCharsets.UTF_8);
+    verify(new byte[0], StandardCharsets.ISO_8859_1);
+  }
+
+  private String randomContent(int fragments) {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < fragments; i++) {
+      content.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+    }
+    return content.toString();
+  }
+
+  private void verify(String content, Charset charset) throws Exception {
+    verify(content.getBytes(charset), charset);
+  }
+
+  private void verify(byte[] content, Charset charset) throws Exception {
+    File file = temp.newFile();
+    FileUtils.writeByteArrayToFile(file, content);
+    ReferenceHandler reference = new ReferenceHandler();
+    FileMetadata.readFile(file, charset, reference);
+
+    Metadata metadata = new FileMetadata().readMetadata(file, charset);
+    assertThat(metadata.lines()).isEqualTo(reference.lines);
+    assertThat(metadata.nonBlankLines()).isEqualTo(reference.nonBlankLines);
+    assertThat(metadata.hash()).isEqualTo(md5Hex(reference.fileChars.toString().getBytes(StandardCharsets.UTF_8)));
+    assertThat(metadata.originalLineOffsets()).containsExactly(reference.offsets.stream().mapToInt(Integer::intValue).toArray());
+    assertThat(metadata.lastValidOffset()).isEqualTo(reference.offset);
+
+    Map<Integer, String> lineHashes = new HashMap<>();
+    DefaultInputFile inputFile = new TestInputFileBuilder("foo", file.getName())
+      .setModuleBaseDir(file.getParentFile().toPath())
+      .setCharset(charset)
+      .build();
+    FileMetadata.computeLineHashesForIssueTracking(inputFile, (line, hash) -> lineHashes.put(line, Hex.encodeHexString(hash)));
+    assertThat(lineHashes).isEqualTo(reference.lineHashes);
+  }
+
+  /**
+   * Same algorithm as the char handlers used before {@link MetadataComputer}
+   */
+  private static class ReferenceHandler extends FileMetadata.CharHandler {
+    private int lines = 1;
+    private int nonBlankLines = 0;
+    private boolean blankLine = true;
+    private int offset = 0;
+    private final List<Integer> offsets = new ArrayList<>();
+    private final StringBuilder fileChars = new StringBuilder();
+    private final StringBuilder lineChars = new StringBuilder();
+    private final Map<Integer, String> lineHashes = new HashMap<>();
+
+    private ReferenceHandler() {
+      offsets.add(0);
+    }
+
+    @Override
+    protected void handleAll(char c) {
+      offset++;
+    }
+
+    @Override
+    protected void handleIgnoreEoL(char c) {
+      fileChars.append(c);
+      if (!Character.isWhitespace(c)) {
+        blankLine = false;
+        lineChars.append(c);
+      }
+    }
+
+    @Override
+    protected void newLine() {
+      fileChars.append('\n');
+      endLine();
+      offsets.add(offset);
+      lines++;
+      if (!blankLine) {
+        nonBlankLines++;
+      }
+      blankLine = true;
+    }
+
+    @Override
+    protected void eof() {
+      if (!blankLine) {
+        nonBlankLines++;
+      }
+      endLine();
+    }
+
+    private void endLine() {
+      if (lineChars.length() > 0) {
+        lineHashes.put(lines, md5Hex(lineChars.toString().getBytes(StandardCharsets.UTF_8)));
+      }
+      lineChars.setLength(0);
+    }
+  }
+}
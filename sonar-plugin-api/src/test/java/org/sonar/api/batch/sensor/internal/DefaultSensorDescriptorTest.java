@@ -41,6 +41,21 @@ public class DefaultSensorDescriptorTest {
     assertThat(descriptor.type()).isEqualTo(InputFile.Type.MAIN);
     assertThat(descriptor.properties()).containsOnly("sonar.foo.reportPath");
     assertThat(descriptor.ruleRepositories()).containsOnly("squid-java");
+    assertThat(descriptor.isThreadSafe()).isFalse();
+    assertThat(descriptor.dependsUpon()).isEmpty();
+    assertThat(descriptor.dependedUpon()).isEmpty();
+  }
+
+  @Test
+  public void describe_concurrency_constraints() {
+    DefaultSensorDescriptor descriptor = new DefaultSensorDescriptor()
+      .threadSafe()
+      .dependsUpon("coverage")
+      .dependedUpon("issues", "measures");
+
+    assertThat(descriptor.isThreadSafe()).isTrue();
+    assertThat(descriptor.dependsUpon()).containsOnly("coverage");
+    assertThat(descriptor.dependedUpon()).containsOnly("issues", "measures");
   }
 
 }
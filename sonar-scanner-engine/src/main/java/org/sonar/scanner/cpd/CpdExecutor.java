@@ -22,19 +22,25 @@ package org.sonar.scanner.cpd;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-
+import javax.annotation.CheckForNull;
+import org.apache.commons.lang.StringUtils;
 import org.sonar.api.batch.fs.InputComponent;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputComponent;
 import org.sonar.api.config.Settings;
+import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.duplications.block.Block;
@@ -56,9 +62,14 @@ import static com.google.common.collect.FluentIterable.from;
  * Runs on the root module, at the end of the project analysis.
  * It executes copy paste detection involving all files of all modules, which were indexed during sensors execution for each module
  * by {@link CpdSensor). The sensor is responsible for handling exclusions and block sizes.
+ * Files are analyzed concurrently by a pool of workers (see {@link #THREADS_PROPERTY}), against the frozen index.
  */
 public class CpdExecutor {
   private static final Logger LOG = Loggers.get(CpdExecutor.class);
+  /**
+   * Number of files analyzed concurrently. Default is the number of available processors minus one.
+   */
+  public static final String THREADS_PROPERTY = "sonar.cpd.threads";
   // timeout for the computation of duplicates in a file (seconds)
   private static final int TIMEOUT = 5 * 60 * 1000;
   static final int MAX_CLONE_GROUP_PER_FILE = 100;
@@ -86,46 +97,92 @@ public class CpdExecutor {
 
   @VisibleForTesting
   void execute(long timeout) {
+    // no more blocks are inserted, the index can be queried concurrently
+    index.freeze();
     total = index.noResources();
+    int threads = getThreads();
     progressReport.start(String.format("Calculating CPD for %d files", total));
-    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("CpdExecutor-%d").build());
     try {
+      // files are submitted and completed in the order of the index, so that results are deterministic.
+      // Only a few files are submitted in advance, so that the timeout of a file starts nearly when its detection starts.
+      Deque<FileDetection> pending = new ArrayDeque<>();
       Iterator<ResourceBlocks> it = index.iterator();
-
       while (it.hasNext()) {
         ResourceBlocks resourceBlocks = it.next();
-        runCpdAnalysis(executorService, resourceBlocks.resourceId(), resourceBlocks.blocks(), timeout);
-        count++;
+        FileDetection detection = startCpdAnalysis(executorService, resourceBlocks.resourceId(), resourceBlocks.blocks());
+        if (detection == null) {
+          count++;
+        } else {
+          pending.add(detection);
+        }
+        if (pending.size() > threads) {
+          completeCpdAnalysis(pending.remove(), timeout);
+        }
+      }
+      while (!pending.isEmpty()) {
+        completeCpdAnalysis(pending.remove(), timeout);
       }
       progressReport.stop("CPD calculation finished");
     } catch (Exception e) {
       progressReport.stop("");
       throw e;
     } finally {
-      executorService.shutdown();
+      executorService.shutdownNow();
     }
   }
 
+  private int getThreads() {
+    String value = settings.getString(THREADS_PROPERTY);
+    if (StringUtils.isBlank(value)) {
+      return Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    }
+    try {
+      int threads = Integer.parseInt(value.trim());
+      if (threads >= 1) {
+        return threads;
+      }
+    } catch (NumberFormatException e) {
+      // fail below
+    }
+    throw MessageException.of(String.format("Value '%s' of property %s is invalid. It must be a strictly positive number.", value, THREADS_PROPERTY));
+  }
+
+  /**
+   * Submits the detection of the duplications of a file. Returns {@code null} if the file is unknown.
+   */
   @VisibleForTesting
-  void runCpdAnalysis(ExecutorService executorService, String componentKey, final Collection<Block> fileBlocks, long timeout) {
+  @CheckForNull
+  FileDetection startCpdAnalysis(ExecutorService executorService, String componentKey, Collection<Block> fileBlocks) {
     DefaultInputComponent component = (DefaultInputComponent) componentStore.getByKey(componentKey);
     if (component == null) {
       LOG.error("Resource not found in component store: {}. Skipping CPD computation for it", componentKey);
-      return;
+      return null;
     }
+    FileDetection detection = new FileDetection(component);
+    detection.result = executorService.submit(() -> {
+      detection.startedAt = System.nanoTime();
+      return SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks);
+    });
+    return detection;
+  }
 
-    InputFile inputFile = (InputFile) component;
+  private void completeCpdAnalysis(FileDetection detection, long timeout) {
+    InputFile inputFile = (InputFile) detection.component;
     LOG.debug("Detection of duplications for {}", inputFile.absolutePath());
     progressReport.message(String.format("%d/%d - current file: %s", count, total, inputFile.absolutePath()));
+    count++;
 
     List<CloneGroup> duplications;
-    Future<List<CloneGroup>> futureResult = executorService.submit(() -> SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks));
     try {
-      duplications = futureResult.get(timeout, TimeUnit.MILLISECONDS);
+      duplications = detection.await(timeout);
     } catch (TimeoutException e) {
       LOG.warn("Timeout during detection of duplications for " + inputFile.absolutePath());
-      futureResult.cancel(true);
+      detection.result.cancel(true);
       return;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Fail during detection of duplication for " + inputFile.absolutePath(), e);
     } catch (Exception e) {
       throw new IllegalStateException("Fail during detection of duplication for " + inputFile.absolutePath(), e);
     }
@@ -138,7 +195,7 @@ public class CpdExecutor {
       filtered = duplications;
     }
 
-    saveDuplications(component, filtered);
+    saveDuplications(detection.component, filtered);
   }
 
   @VisibleForTesting
@@ -213,4 +270,41 @@ public class CpdExecutor {
     }
     return dupBuilder.build();
   }
+
+  /**
+   * Detection of the duplications of a file, submitted to the pool of workers
+   */
+  static class FileDetection {
+    private final DefaultInputComponent component;
+    private Future<List<CloneGroup>> result;
+    // 0 as long as the detection is not started by a worker
+    private volatile long startedAt = 0L;
+
+    private FileDetection(DefaultInputComponent component) {
+      this.component = component;
+    }
+
+    /**
+     * Waits for the result. The timeout applies to the duration of the detection, not to the time spent
+     * waiting for a free worker.
+     */
+    private List<CloneGroup> await(long timeoutMs) throws InterruptedException, ExecutionException, TimeoutException {
+      long timeout = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+      while (true) {
+        long started = startedAt;
+        long remaining = started == 0L ? timeout : (started + timeout - System.nanoTime());
+        if (remaining <= 0L) {
+          throw new TimeoutException();
+        }
+        try {
+          return result.get(remaining, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+          if (started != 0L) {
+            throw e;
+          }
+          // detection was not started yet, wait again with the real start date
+        }
+      }
+    }
+  }
 }
@@ -46,6 +46,7 @@ public class SonarCpdBlockIndex extends AbstractCloneIndex {
   private final Settings settings;
   // Files already tokenized
   private final Set<InputFile> indexedFiles = new HashSet<>();
+  private boolean frozen = false;
 
   public SonarCpdBlockIndex(ReportPublisher publisher, Settings settings) {
     this.publisher = publisher;
@@ -53,6 +54,9 @@ public class SonarCpdBlockIndex extends AbstractCloneIndex {
   }
 
   public void insert(InputFile inputFile, Collection<Block> blocks) {
+    if (frozen) {
+      throw new IllegalStateException("CPD index is frozen, blocks can't be inserted anymore: " + inputFile.absolutePath());
+    }
     if (isCrossProjectDuplicationEnabled(settings)) {
       int id = ((DefaultInputFile) inputFile).batchId();
       if (publisher.getWriter().hasComponentData(FileStructure.Domain.CPD_TEXT_BLOCKS, id)) {
@@ -75,6 +79,15 @@ public class SonarCpdBlockIndex extends AbstractCloneIndex {
     indexedFiles.add(inputFile);
   }
 
+  /**
+   * Prevents further insertions. The index can then be queried concurrently.
+   */
+  public void freeze() {
+    frozen = true;
+    // sorts the blocks once for all, following queries don't modify the index
+    mem.noResources();
+  }
+
   public boolean isIndexed(InputFile inputFile) {
     return indexedFiles.contains(inputFile);
   }
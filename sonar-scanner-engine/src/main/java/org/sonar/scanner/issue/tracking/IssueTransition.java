@@ -19,46 +19,70 @@
  */
 package org.sonar.scanner.issue.tracking;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.apache.commons.lang.StringUtils;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.fs.InputComponent;
 import org.sonar.api.batch.fs.internal.DefaultInputComponent;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.MessageException;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.scanner.ProjectAnalysisInfo;
 import org.sonar.scanner.issue.IssueCache;
 import org.sonar.scanner.issue.IssueTransformer;
+import org.sonar.scanner.issue.tracking.LocalIssueTracking.PreviousIssues;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReportReader;
 import org.sonar.scanner.report.ReportPublisher;
 import org.sonar.scanner.scan.filesystem.InputComponentStore;
 import org.sonar.scanner.util.ProgressReport;
-import javax.annotation.Nullable;
-
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.concurrent.TimeUnit;
 
+/**
+ * Tracks the issues of each component. Components are tracked concurrently (see {@link #THREADS_PROPERTY}),
+ * including the download of server line hashes, but the tracked issues are stored in the order of components.
+ */
 @ScannerSide
 public class IssueTransition {
+
+  /**
+   * Number of components tracked concurrently. Default is the number of available processors.
+   */
+  public static final String THREADS_PROPERTY = "sonar.scanner.issueTracking.threads";
+
   private final IssueCache issueCache;
   private final InputComponentStore inputComponentStore;
   private final ReportPublisher reportPublisher;
+  private final Settings settings;
   private final Date analysisDate;
   @Nullable
   private final LocalIssueTracking localIssueTracking;
 
   public IssueTransition(InputComponentStore inputComponentCache, ProjectAnalysisInfo projectAnalysisInfo, IssueCache issueCache, ReportPublisher reportPublisher,
-    @Nullable LocalIssueTracking localIssueTracking) {
+    Settings settings, @Nullable LocalIssueTracking localIssueTracking) {
     this.inputComponentStore = inputComponentCache;
     this.issueCache = issueCache;
     this.reportPublisher = reportPublisher;
+    this.settings = settings;
     this.localIssueTracking = localIssueTracking;
     this.analysisDate = projectAnalysisInfo.analysisDate();
   }
 
-  public IssueTransition(InputComponentStore inputComponentCache, ProjectAnalysisInfo projectAnalysisInfo, IssueCache issueCache, ReportPublisher reportPublisher) {
-    this(inputComponentCache, projectAnalysisInfo, issueCache, reportPublisher, null);
+  public IssueTransition(InputComponentStore inputComponentCache, ProjectAnalysisInfo projectAnalysisInfo, IssueCache issueCache, ReportPublisher reportPublisher,
+    Settings settings) {
+    this(inputComponentCache, projectAnalysisInfo, issueCache, reportPublisher, settings, null);
   }
 
   public void execute() {
@@ -67,7 +91,8 @@ public class IssueTransition {
     }
 
     ScannerReportReader reader = new ScannerReportReader(reportPublisher.getReportDir());
-    int nbComponents = inputComponentStore.all().size();
+    Collection<InputComponent> components = inputComponentStore.all();
+    int nbComponents = components.size();
 
     if (nbComponents == 0) {
       return;
@@ -76,19 +101,77 @@ public class IssueTransition {
     ProgressReport progressReport = new ProgressReport("issue-tracking-report", TimeUnit.SECONDS.toMillis(10));
     progressReport.start("Performing issue tracking");
     int count = 0;
+    int threads = getThreads();
+    ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("IssueTracking-%d").build());
 
     try {
-      for (InputComponent component : inputComponentStore.all()) {
-        trackIssues(reader, (DefaultInputComponent) component);
+      // only a few components are submitted in advance, so that tracked issues waiting to be stored do not fill the memory
+      Deque<Future<List<TrackedIssue>>> pending = new ArrayDeque<>();
+      for (InputComponent component : components) {
+        // server issues are read by the main thread, as their storage can't be used by other threads
+        PreviousIssues previousIssues = localIssueTracking != null ? localIssueTracking.loadPreviousIssues(component) : null;
+        pending.add(executorService.submit(() -> track(reader, (DefaultInputComponent) component, previousIssues)));
+        if (pending.size() > 2 * threads) {
+          store(pending.remove());
+          count++;
+          progressReport.message(count + "/" + nbComponents + " components tracked");
+        }
+      }
+      while (!pending.isEmpty()) {
+        store(pending.remove());
         count++;
         progressReport.message(count + "/" + nbComponents + " components tracked");
       }
     } finally {
+      executorService.shutdownNow();
       progressReport.stop(count + "/" + nbComponents + " components tracked");
     }
   }
 
+  private int getThreads() {
+    String value = settings.getString(THREADS_PROPERTY);
+    if (StringUtils.isBlank(value)) {
+      return Runtime.getRuntime().availableProcessors();
+    }
+    try {
+      int threads = Integer.parseInt(value.trim());
+      if (threads >= 1) {
+        return threads;
+      }
+    } catch (NumberFormatException e) {
+      // message below
+    }
+    throw MessageException.of(String.format("Value '%s' of property %s is invalid. It must be a strictly positive number.", value, THREADS_PROPERTY));
+  }
+
+  private void store(Future<List<TrackedIssue>> trackedIssues) {
+    try {
+      store(trackedIssues.get());
+    } catch (ExecutionException e) {
+      // Unwrap ExecutionException
+      throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void store(List<TrackedIssue> trackedIssues) {
+    // issue cache is not thread-safe, it's fed only by the main thread
+    for (TrackedIssue issue : trackedIssues) {
+      issueCache.put(issue);
+    }
+  }
+
   public void trackIssues(ScannerReportReader reader, DefaultInputComponent component) {
+    PreviousIssues previousIssues = localIssueTracking != null ? localIssueTracking.loadPreviousIssues(component) : null;
+    store(track(reader, component, previousIssues));
+  }
+
+  /**
+   * Can be called concurrently for different components.
+   */
+  private List<TrackedIssue> track(ScannerReportReader reader, DefaultInputComponent component, @Nullable PreviousIssues previousIssues) {
     // raw issues = all the issues created by rule engines during this module scan and not excluded by filters
     List<ScannerReport.Issue> rawIssues = new LinkedList<>();
     try (CloseableIterator<ScannerReport.Issue> it = reader.readComponentIssues(component.batchId())) {
@@ -99,16 +182,10 @@ public class IssueTransition {
       throw new IllegalStateException("Can't read issues for " + component.key(), e);
     }
 
-    List<TrackedIssue> trackedIssues;
-    if (localIssueTracking != null) {
-      trackedIssues = localIssueTracking.trackIssues(component, rawIssues, analysisDate);
-    } else {
-      trackedIssues = doTransition(rawIssues, component);
-    }
-
-    for (TrackedIssue issue : trackedIssues) {
-      issueCache.put(issue);
+    if (localIssueTracking != null && previousIssues != null) {
+      return localIssueTracking.trackIssues(component, rawIssues, previousIssues, analysisDate);
     }
+    return doTransition(rawIssues, component);
   }
 
   private static List<TrackedIssue> doTransition(List<ScannerReport.Issue> rawIssues, InputComponent component) {
@@ -21,10 +21,12 @@ package org.sonar.scanner.issue.tracking;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
@@ -47,6 +49,7 @@ import org.sonar.scanner.analysis.DefaultAnalysisMode;
 import org.sonar.scanner.issue.IssueTransformer;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.repository.ProjectRepositories;
+import org.sonar.scanner.scan.filesystem.FileMetadataCache;
 
 @ScannerSide
 public class LocalIssueTracking {
@@ -56,17 +59,20 @@ public class LocalIssueTracking {
   private final ServerIssueRepository serverIssueRepository;
   private final DefaultAnalysisMode mode;
   private final InputComponentTree componentTree;
+  private final FileMetadataCache metadataCache;
 
   private boolean hasServerAnalysis;
 
   public LocalIssueTracking(Tracker<TrackedIssue, ServerIssueFromWs> tracker, ServerLineHashesLoader lastLineHashes, InputComponentTree componentTree,
-    ActiveRules activeRules, ServerIssueRepository serverIssueRepository, ProjectRepositories projectRepositories, DefaultAnalysisMode mode) {
+    ActiveRules activeRules, ServerIssueRepository serverIssueRepository, ProjectRepositories projectRepositories, DefaultAnalysisMode mode,
+    FileMetadataCache metadataCache) {
     this.tracker = tracker;
     this.lastLineHashes = lastLineHashes;
     this.componentTree = componentTree;
     this.serverIssueRepository = serverIssueRepository;
     this.mode = mode;
     this.activeRules = activeRules;
+    this.metadataCache = metadataCache;
     this.hasServerAnalysis = projectRepositories.lastAnalysisDate() != null;
   }
 
@@ -76,11 +82,30 @@ public class LocalIssueTracking {
     }
   }
 
-  public List<TrackedIssue> trackIssues(InputComponent component, Collection<ScannerReport.Issue> reportIssues, Date analysisDate) {
+  /**
+   * Reads the server issues needed to track the component. Server issues are stored in a storage which can only be used by
+   * the thread that loaded them, whereas {@link #trackIssues(InputComponent, Collection, PreviousIssues, Date)} can be
+   * executed concurrently by other threads.
+   */
+  public PreviousIssues loadPreviousIssues(InputComponent component) {
+    if (!hasServerAnalysis) {
+      return new PreviousIssues(Collections.emptyList(), Collections.emptyList());
+    }
+    // all the issues that are not closed in db before starting this module scan, including manual issues
+    Collection<ServerIssueFromWs> serverIssues = loadServerIssues(component);
+    Collection<org.sonar.scanner.protocol.input.ScannerInput.ServerIssue> issuesOnDeletedComponents = Collections.emptyList();
+    if (componentTree.getParent(component) == null) {
+      Preconditions.checkState(component instanceof InputModule, "Object without parent is of type: " + component.getClass());
+      // issues that relate to deleted components
+      issuesOnDeletedComponents = Lists.newArrayList(serverIssueRepository.issuesOnMissingComponents());
+    }
+    return new PreviousIssues(serverIssues, issuesOnDeletedComponents);
+  }
+
+  public List<TrackedIssue> trackIssues(InputComponent component, Collection<ScannerReport.Issue> reportIssues, PreviousIssues previousIssues, Date analysisDate) {
     List<TrackedIssue> trackedIssues = new LinkedList<>();
     if (hasServerAnalysis) {
-      // all the issues that are not closed in db before starting this module scan, including manual issues
-      Collection<ServerIssueFromWs> serverIssues = loadServerIssues(component);
+      Collection<ServerIssueFromWs> serverIssues = previousIssues.serverIssues;
 
       if (shouldCopyServerIssues(component)) {
         // raw issues should be empty, we just need to deal with server issues (SONAR-6931)
@@ -101,11 +126,7 @@ public class LocalIssueTracking {
       }
     }
 
-    if (hasServerAnalysis && componentTree.getParent(component) == null) {
-      Preconditions.checkState(component instanceof InputModule, "Object without parent is of type: " + component.getClass());
-      // issues that relate to deleted components
-      addIssuesOnDeletedComponents(trackedIssues);
-    }
+    addIssuesOnDeletedComponents(previousIssues.issuesOnDeletedComponents, trackedIssues);
 
     return trackedIssues;
   }
@@ -165,7 +186,7 @@ public class LocalIssueTracking {
     SourceHashHolder sourceHashHolder = null;
     if (component.isFile()) {
       DefaultInputFile file = (DefaultInputFile) component;
-      sourceHashHolder = new SourceHashHolder(file, lastLineHashes);
+      sourceHashHolder = new SourceHashHolder(file, lastLineHashes, metadataCache);
     }
     return sourceHashHolder;
   }
@@ -220,8 +241,9 @@ public class LocalIssueTracking {
     }
   }
 
-  private void addIssuesOnDeletedComponents(Collection<TrackedIssue> issues) {
-    for (org.sonar.scanner.protocol.input.ScannerInput.ServerIssue previous : serverIssueRepository.issuesOnMissingComponents()) {
+  private void addIssuesOnDeletedComponents(Iterable<org.sonar.scanner.protocol.input.ScannerInput.ServerIssue> issuesOnDeletedComponents,
+    Collection<TrackedIssue> issues) {
+    for (org.sonar.scanner.protocol.input.ScannerInput.ServerIssue previous : issuesOnDeletedComponents) {
       TrackedIssue dead = IssueTransformer.toTrackedIssue(previous);
       updateUnmatchedIssue(dead);
       issues.add(dead);
@@ -240,4 +262,18 @@ public class LocalIssueTracking {
       IssueTransformer.close(issue);
     }
   }
+
+  /**
+   * Server issues of a component, see {@link #loadPreviousIssues(InputComponent)}
+   */
+  public static class PreviousIssues {
+    private final Collection<ServerIssueFromWs> serverIssues;
+    private final Collection<org.sonar.scanner.protocol.input.ScannerInput.ServerIssue> issuesOnDeletedComponents;
+
+    private PreviousIssues(Collection<ServerIssueFromWs> serverIssues,
+      Collection<org.sonar.scanner.protocol.input.ScannerInput.ServerIssue> issuesOnDeletedComponents) {
+      this.serverIssues = serverIssues;
+      this.issuesOnDeletedComponents = issuesOnDeletedComponents;
+    }
+  }
 }
@@ -21,6 +21,7 @@ package org.sonar.scanner.issue.tracking;
 
 import org.sonar.api.batch.fs.InputFile.Status;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.scanner.scan.filesystem.FileMetadataCache;
 
 import javax.annotation.CheckForNull;
 
@@ -30,19 +31,21 @@ import java.util.Collections;
 public class SourceHashHolder {
 
   private final ServerLineHashesLoader lastSnapshots;
+  private final FileMetadataCache metadataCache;
 
   private FileHashes hashedReference;
   private FileHashes hashedSource;
   private DefaultInputFile inputFile;
 
-  public SourceHashHolder(DefaultInputFile inputFile, ServerLineHashesLoader lastSnapshots) {
+  public SourceHashHolder(DefaultInputFile inputFile, ServerLineHashesLoader lastSnapshots, FileMetadataCache metadataCache) {
     this.inputFile = inputFile;
     this.lastSnapshots = lastSnapshots;
+    this.metadataCache = metadataCache;
   }
 
   private void initHashes() {
     if (hashedSource == null) {
-      hashedSource = FileHashes.create(inputFile);
+      hashedSource = FileHashes.create(metadataCache.lineHashes(inputFile));
       Status status = inputFile.status();
       if (status == Status.ADDED) {
         hashedReference = null;
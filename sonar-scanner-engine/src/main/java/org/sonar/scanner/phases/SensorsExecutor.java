@@ -19,42 +19,188 @@
  */
 package org.sonar.scanner.phases;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.api.batch.Phase;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Project;
+import org.sonar.api.utils.AnnotationUtils;
+import org.sonar.api.utils.MessageException;
 import org.sonar.scanner.bootstrap.ScannerExtensionDictionnary;
 import org.sonar.scanner.events.EventBus;
-import java.util.Collection;
+import org.sonar.scanner.sensor.SensorWrapper;
 
+import static java.lang.String.format;
+
+/**
+ * Executes the sensors of a module. By default sensors are executed one after the other. When property
+ * {@link #CONCURRENCY_PROPERTY} is greater than 1, consecutive sensors declaring themselves thread-safe
+ * (see {@link org.sonar.api.batch.sensor.SensorDescriptor#threadSafe()}) and not depending on each other
+ * are executed concurrently.
+ */
 @ScannerSide
 public class SensorsExecutor {
+  /**
+   * Maximum number of sensors executed concurrently. Default is 1, which disables concurrent execution.
+   */
+  public static final String CONCURRENCY_PROPERTY = "sonar.scanner.sensors.concurrency";
+
   private final EventBus eventBus;
   private final DefaultInputModule module;
   private final ScannerExtensionDictionnary selector;
+  private final int concurrency;
 
-  public SensorsExecutor(ScannerExtensionDictionnary selector, DefaultInputModule module, EventBus eventBus) {
+  public SensorsExecutor(ScannerExtensionDictionnary selector, DefaultInputModule module, EventBus eventBus, Settings settings) {
     this.selector = selector;
     this.eventBus = eventBus;
     this.module = module;
+    this.concurrency = readConcurrency(settings);
+  }
+
+  private static int readConcurrency(Settings settings) {
+    String value = settings.getString(CONCURRENCY_PROPERTY);
+    if (StringUtils.isBlank(value)) {
+      return 1;
+    }
+    try {
+      int concurrency = Integer.parseInt(value.trim());
+      if (concurrency >= 1) {
+        return concurrency;
+      }
+    } catch (NumberFormatException e) {
+      // fail below
+    }
+    throw MessageException.of(format("Value '%s' of property %s is invalid. It must be a strictly positive number.", value, CONCURRENCY_PROPERTY));
   }
 
   public void execute(SensorContext context) {
     Collection<Sensor> sensors = selector.select(Sensor.class, module, true, null);
     eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(sensors), true));
 
-    for (Sensor sensor : sensors) {
-      executeSensor(context, sensor);
+    if (concurrency > 1) {
+      executeConcurrently(context, sensors);
+    } else {
+      for (Sensor sensor : sensors) {
+        executeSensor(context, sensor);
+      }
     }
 
     eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(sensors), false));
   }
 
+  private void executeConcurrently(SensorContext context, Collection<Sensor> sensors) {
+    ExecutorService executorService = Executors.newFixedThreadPool(concurrency, new ThreadFactoryBuilder().setNameFormat("Sensor-%d").build());
+    try {
+      for (List<Sensor> batch : splitIntoBatches(sensors)) {
+        if (batch.size() == 1) {
+          executeSensor(context, batch.get(0));
+        } else {
+          executeBatch(executorService, context, batch);
+        }
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private void executeBatch(ExecutorService executorService, SensorContext context, List<Sensor> batch) {
+    List<Future<?>> tasks = new ArrayList<>(batch.size());
+    for (Sensor sensor : batch) {
+      tasks.add(executorService.submit(() -> executeSensor(context, sensor)));
+    }
+    RuntimeException failure = null;
+    // wait for all the sensors of the batch, even when one of them fails
+    for (Future<?> task : tasks) {
+      try {
+        task.get();
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          // Unwrap ExecutionException
+          failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Groups the sorted sensors into batches which can be executed concurrently, without changing their order.
+   * Sensors which are not thread-safe are always alone in their batch.
+   */
+  @VisibleForTesting
+  static List<List<Sensor>> splitIntoBatches(Collection<Sensor> sensors) {
+    List<List<Sensor>> batches = new ArrayList<>();
+    List<Sensor> batch = new ArrayList<>();
+    for (Sensor sensor : sensors) {
+      boolean threadSafe = isThreadSafe(sensor);
+      if (!batch.isEmpty() && (!threadSafe || !isIndependent(sensor, batch))) {
+        batches.add(batch);
+        batch = new ArrayList<>();
+      }
+      if (threadSafe) {
+        batch.add(sensor);
+      } else {
+        batches.add(Collections.singletonList(sensor));
+      }
+    }
+    if (!batch.isEmpty()) {
+      batches.add(batch);
+    }
+    return batches;
+  }
+
+  private static boolean isThreadSafe(Sensor sensor) {
+    // sensors of the deprecated API can't declare themselves thread-safe
+    return sensor instanceof SensorWrapper && ((SensorWrapper) sensor).isThreadSafe();
+  }
+
+  private static boolean isIndependent(Sensor sensor, List<Sensor> batch) {
+    SensorWrapper wrapper = (SensorWrapper) sensor;
+    for (Sensor other : batch) {
+      SensorWrapper otherWrapper = (SensorWrapper) other;
+      if (phase(wrapper) != phase(otherWrapper)
+        || !Collections.disjoint(wrapper.dependsUpon(), otherWrapper.dependedUpon())
+        || !Collections.disjoint(wrapper.dependedUpon(), otherWrapper.dependsUpon())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Phase.Name phase(SensorWrapper wrapper) {
+    Phase phase = AnnotationUtils.getAnnotation(wrapper.wrappedSensor(), Phase.class);
+    return phase == null ? Phase.Name.DEFAULT : phase.name();
+  }
+
   private void executeSensor(SensorContext context, Sensor sensor) {
-    eventBus.fireEvent(new SensorExecutionEvent(sensor, true));
+    fireSensorExecutionEvent(sensor, true);
     sensor.analyse(new Project(module.definition()), context);
-    eventBus.fireEvent(new SensorExecutionEvent(sensor, false));
+    fireSensorExecutionEvent(sensor, false);
+  }
+
+  /**
+   * Events of sensors executed concurrently are dispatched one at a time, so that handlers don't have to be thread-safe.
+   */
+  private synchronized void fireSensorExecutionEvent(Sensor sensor, boolean start) {
+    eventBus.fireEvent(new SensorExecutionEvent(sensor, start));
   }
 }
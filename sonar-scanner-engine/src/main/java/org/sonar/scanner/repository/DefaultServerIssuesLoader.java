@@ -19,42 +19,240 @@
  */
 package org.sonar.scanner.repository;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
-
+import javax.annotation.CheckForNull;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.home.cache.FileCache;
 import org.sonar.scanner.bootstrap.ScannerWsClient;
 import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 import org.sonar.scanner.util.ScannerUtils;
 import org.sonarqube.ws.client.GetRequest;
 
+/**
+ * Loads the issues from the server and keeps a copy of them in the user home. When a copy exists,
+ * only the issues changed since the previous download are requested, then merged with the copy.
+ */
 public class DefaultServerIssuesLoader implements ServerIssuesLoader {
 
+  private static final Logger LOG = Loggers.get(DefaultServerIssuesLoader.class);
+  private static final int VERSION = 1;
+
+  /**
+   * Issues are indexed on server side some time after their update, so issues changed shortly
+   * before the previous download are requested again.
+   */
+  static final long CHANGED_SINCE_MARGIN_MS = TimeUnit.HOURS.toMillis(1);
+
+  /**
+   * Issues removed from server, for example closed issues purged by housekeeping, are never returned as
+   * changed issues, so the copy is regularly replaced by a full download.
+   */
+  static final long MAX_AGE_MS = TimeUnit.DAYS.toMillis(1);
+
   private final ScannerWsClient wsClient;
+  private final FileCache fileCache;
+  private final System2 system2;
 
-  public DefaultServerIssuesLoader(ScannerWsClient wsClient) {
+  public DefaultServerIssuesLoader(ScannerWsClient wsClient, FileCache fileCache, System2 system2) {
     this.wsClient = wsClient;
+    this.fileCache = fileCache;
+    this.system2 = system2;
   }
 
   @Override
   public void load(String componentKey, Function<ServerIssue, Void> consumer) {
-    GetRequest getRequest = new GetRequest("/batch/issues.protobuf?key=" + ScannerUtils.encodeForUrl(componentKey));
-    InputStream is = wsClient.call(getRequest).contentStream();
-    parseIssues(is, consumer);
+    File cacheFile = new File(new File(fileCache.getDir().getParentFile(), "server_issues"), DigestUtils.md5Hex(wsClient.baseUrl() + "|" + componentKey));
+    Header header = readHeader(cacheFile);
+    long now = system2.now();
+    if (header == null || header.maxUpdatedAt <= 0L || now - header.downloadedAt > MAX_AGE_MS) {
+      loadAll(componentKey, consumer, cacheFile, now);
+    } else {
+      loadChanges(componentKey, consumer, cacheFile, header);
+    }
   }
 
-  private static void parseIssues(InputStream is, Function<ServerIssue, Void> consumer) {
+  private void loadAll(String componentKey, Function<ServerIssue, Void> consumer, File cacheFile, long now) {
+    InputStream is = wsClient.call(new GetRequest("/batch/issues.protobuf?key=" + ScannerUtils.encodeForUrl(componentKey))).contentStream();
+    try (CacheWriter writer = new CacheWriter(cacheFile)) {
+      long maxUpdatedAt = 0L;
+      ServerIssue issue = ServerIssue.parseDelimitedFrom(is);
+      while (issue != null) {
+        consumer.apply(issue);
+        writer.write(issue);
+        maxUpdatedAt = Math.max(maxUpdatedAt, issue.getUpdatedAt());
+        issue = ServerIssue.parseDelimitedFrom(is);
+      }
+      writer.commit(new Header(now, maxUpdatedAt));
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to get previous issues", e);
+    } finally {
+      IOUtils.closeQuietly(is);
+    }
+  }
+
+  private void loadChanges(String componentKey, Function<ServerIssue, Void> consumer, File cacheFile, Header header) {
+    long changedSince = header.maxUpdatedAt - CHANGED_SINCE_MARGIN_MS;
+    Map<String, ServerIssue> changedIssues = new HashMap<>();
+    long maxUpdatedAt = header.maxUpdatedAt;
+    InputStream is = wsClient.call(new GetRequest("/batch/issues.protobuf?key=" + ScannerUtils.encodeForUrl(componentKey) + "&changedSince=" + changedSince))
+      .contentStream();
     try {
-      ServerIssue previousIssue = ServerIssue.parseDelimitedFrom(is);
-      while (previousIssue != null) {
-        consumer.apply(previousIssue);
-        previousIssue = ServerIssue.parseDelimitedFrom(is);
+      ServerIssue issue = ServerIssue.parseDelimitedFrom(is);
+      while (issue != null) {
+        changedIssues.put(issue.getKey(), issue);
+        maxUpdatedAt = Math.max(maxUpdatedAt, issue.getUpdatedAt());
+        issue = ServerIssue.parseDelimitedFrom(is);
       }
     } catch (IOException e) {
       throw new IllegalStateException("Unable to get previous issues", e);
     } finally {
       IOUtils.closeQuietly(is);
     }
+    LOG.debug("{} issues changed since previous download", changedIssues.size());
+
+    try (DataInputStream cache = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+      CacheWriter writer = new CacheWriter(cacheFile)) {
+      readHeader(cache);
+      ServerIssue issue = ServerIssue.parseDelimitedFrom(cache);
+      while (issue != null) {
+        if (!changedIssues.containsKey(issue.getKey())) {
+          consumer.apply(issue);
+          writer.write(issue);
+        }
+        issue = ServerIssue.parseDelimitedFrom(cache);
+      }
+      for (ServerIssue changedIssue : changedIssues.values()) {
+        if (!Issue.STATUS_CLOSED.equals(changedIssue.getStatus())) {
+          consumer.apply(changedIssue);
+          writer.write(changedIssue);
+        }
+      }
+      writer.commit(new Header(header.downloadedAt, maxUpdatedAt));
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read previous issues from " + cacheFile, e);
+    }
+  }
+
+  @CheckForNull
+  private static Header readHeader(File cacheFile) {
+    if (!cacheFile.exists()) {
+      return null;
+    }
+    try (DataInputStream input = new DataInputStream(new FileInputStream(cacheFile))) {
+      return readHeader(input);
+    } catch (IOException e) {
+      LOG.debug("Ignore invalid copy of server issues " + cacheFile, e);
+      return null;
+    }
+  }
+
+  @CheckForNull
+  private static Header readHeader(DataInputStream input) throws IOException {
+    if (input.readInt() != VERSION) {
+      return null;
+    }
+    return new Header(input.readLong(), input.readLong());
+  }
+
+  private static class Header {
+    private final long downloadedAt;
+    private final long maxUpdatedAt;
+
+    private Header(long downloadedAt, long maxUpdatedAt) {
+      this.downloadedAt = downloadedAt;
+      this.maxUpdatedAt = maxUpdatedAt;
+    }
+  }
+
+  private static void writeHeader(DataOutput output, Header header) throws IOException {
+    output.writeInt(VERSION);
+    output.writeLong(header.downloadedAt);
+    output.writeLong(header.maxUpdatedAt);
+  }
+
+  /**
+   * Writes the new copy of the issues into a temporary file, which replaces the previous copy
+   * once complete. Failures are logged, they must not prevent the analysis.
+   */
+  private static class CacheWriter implements AutoCloseable {
+    private final File cacheFile;
+    private File tempFile;
+    private DataOutputStream output;
+
+    private CacheWriter(File cacheFile) {
+      this.cacheFile = cacheFile;
+      try {
+        Files.createDirectories(cacheFile.getParentFile().toPath());
+        tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheFile.getParentFile());
+        output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        // the header is known only when all issues are written
+        writeHeader(output, new Header(0L, 0L));
+      } catch (IOException e) {
+        fail(e);
+      }
+    }
+
+    private void write(ServerIssue issue) {
+      if (output != null) {
+        try {
+          issue.writeDelimitedTo(output);
+        } catch (IOException e) {
+          fail(e);
+        }
+      }
+    }
+
+    private void commit(Header header) {
+      if (output == null) {
+        return;
+      }
+      try {
+        output.close();
+        output = null;
+        try (RandomAccessFile file = new RandomAccessFile(tempFile, "rw")) {
+          writeHeader(file, header);
+        }
+        Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        tempFile = null;
+      } catch (IOException e) {
+        fail(e);
+      }
+    }
+
+    private void fail(IOException e) {
+      LOG.warn("Fail to save a copy of server issues in " + cacheFile, e);
+      close();
+    }
+
+    @Override
+    public void close() {
+      IOUtils.closeQuietly(output);
+      output = null;
+      if (tempFile != null) {
+        tempFile.delete();
+        tempFile = null;
+      }
+    }
   }
 }
@@ -0,0 +1,339 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.picocontainer.Startable;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.FileMetadata;
+import org.sonar.api.batch.fs.internal.Metadata;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.home.cache.FileCache;
+import org.sonar.scanner.scan.ImmutableProjectReactor;
+
+/**
+ * Cache of the {@link Metadata} and of the line hashes of the files of the project, persisted in the
+ * user home between analyses. An entry is reused only if the size, the last modification date and the
+ * charset of the file did not change since it was computed, so that unchanged files are not read again.
+ * Files modified less than {@link #MTIME_GRANULARITY_MS} before being read are not cached, as a later
+ * modification could keep the same size and the same last modification date.
+ * <p>
+ * Entries are loaded when the project container starts. Only the entries of the files used by the
+ * current analysis are written back when it stops.
+ */
+@ScannerSide
+public class FileMetadataCache implements Startable {
+
+  public static final String DISABLED_PROPERTY = "sonar.scanner.metadataCache.disabled";
+
+  private static final Logger LOG = Loggers.get(FileMetadataCache.class);
+  private static final int MAGIC = 0x534d4443;
+  private static final int VERSION = 1;
+  private static final int LINE_HASH_SIZE = 16;
+  /**
+   * Coarsest resolution of the last modification date among common file systems (FAT)
+   */
+  static final long MTIME_GRANULARITY_MS = 2_000L;
+
+  @CheckForNull
+  private final File cacheFile;
+  private final System2 system2;
+  private final Map<String, Entry> previousEntries = new HashMap<>();
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  public FileMetadataCache(FileCache fileCache, ImmutableProjectReactor reactor, Settings settings, System2 system2) {
+    this(settings.getBoolean(DISABLED_PROPERTY) ? null : new File(new File(fileCache.getDir().getParentFile(), "metadata"),
+      DigestUtils.md5Hex(reactor.getRoot().getKeyWithBranch())), system2);
+  }
+
+  /**
+   * @param cacheFile the file in which entries are persisted, or {@code null} to disable the cache
+   */
+  @VisibleForTesting
+  FileMetadataCache(@Nullable File cacheFile, System2 system2) {
+    this.cacheFile = cacheFile;
+    this.system2 = system2;
+  }
+
+  @VisibleForTesting
+  FileMetadataCache(@Nullable File cacheFile) {
+    this(cacheFile, System2.INSTANCE);
+  }
+
+  @Override
+  public void start() {
+    if (cacheFile == null || !cacheFile.exists()) {
+      return;
+    }
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+      if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+        LOG.debug("Ignore file metadata cache {} written by another version", cacheFile);
+        return;
+      }
+      int count = input.readInt();
+      for (int i = 0; i < count; i++) {
+        String path = input.readUTF();
+        previousEntries.put(path, readEntry(input));
+      }
+      LOG.debug("Load metadata of {} files from cache {}", count, cacheFile);
+    } catch (IOException | RuntimeException e) {
+      // files are read again when the cache is corrupted
+      previousEntries.clear();
+      LOG.debug("Fail to load file metadata cache " + cacheFile, e);
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (cacheFile == null) {
+      return;
+    }
+    File tempFile = null;
+    try {
+      File dir = cacheFile.getParentFile();
+      Files.createDirectories(dir.toPath());
+      tempFile = File.createTempFile(cacheFile.getName(), ".tmp", dir);
+      try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+          output.writeUTF(entry.getKey());
+          writeEntry(entry.getValue(), output);
+        }
+      }
+      // another analysis of the same project may be saving the cache at the same time
+      Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOG.warn("Fail to save file metadata cache " + cacheFile, e);
+    } finally {
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+    }
+  }
+
+  /**
+   * Returns the metadata of the file, from the cache if the file did not change since it was cached,
+   * or from the given reader otherwise. Can be called concurrently.
+   */
+  public Metadata metadata(File file, Charset charset, Supplier<Metadata> reader) {
+    if (cacheFile == null) {
+      return reader.get();
+    }
+    String path = file.getAbsolutePath();
+    FileState state = FileState.of(file, charset);
+    Entry entry = entries.get(path);
+    if (entry == null || !entry.state.equals(state)) {
+      entry = previousEntries.get(path);
+      if (entry == null || !entry.state.equals(state)) {
+        // state is read before the file, so that a modification during the read invalidates the entry
+        long readAt = system2.now();
+        Metadata metadata = reader.get();
+        if (readAt - state.lastModified < MTIME_GRANULARITY_MS) {
+          // file may be modified again within the same tick of its last modification date
+          return metadata;
+        }
+        entry = new Entry(state, metadata);
+      }
+      entries.put(path, entry);
+    }
+    return entry.metadata;
+  }
+
+  /**
+   * Returns the hash of each line of the file, as computed by {@link FileMetadata#computeLineHashesForIssueTracking(InputFile, FileMetadata.LineHashConsumer)}.
+   * Hashes are cached with the metadata of the file, which must have been previously loaded by
+   * {@link #metadata(File, Charset, Supplier)}.
+   */
+  public byte[][] lineHashes(InputFile inputFile) {
+    if (cacheFile == null) {
+      return computeLineHashes(inputFile);
+    }
+    Entry entry = entries.get(inputFile.file().getAbsolutePath());
+    if (entry == null || !entry.state.equals(FileState.of(inputFile.file(), inputFile.charset()))) {
+      return computeLineHashes(inputFile);
+    }
+    byte[][] lineHashes = entry.lineHashes;
+    if (lineHashes == null) {
+      lineHashes = computeLineHashes(inputFile);
+      entry.lineHashes = lineHashes;
+    }
+    return lineHashes;
+  }
+
+  private static byte[][] computeLineHashes(InputFile inputFile) {
+    byte[][] lineHashes = new byte[inputFile.lines()][];
+    FileMetadata.computeLineHashesForIssueTracking(inputFile, (lineIdx, hash) -> lineHashes[lineIdx - 1] = hash);
+    return lineHashes;
+  }
+
+  private static Entry readEntry(DataInput input) throws IOException {
+    FileState state = new FileState(input.readLong(), input.readLong(), input.readUTF());
+    int lines = readVarInt(input);
+    int nonBlankLines = readVarInt(input);
+    String hash = input.readUTF();
+    int[] originalLineOffsets = new int[readVarInt(input)];
+    int offset = 0;
+    for (int i = 0; i < originalLineOffsets.length; i++) {
+      offset += readVarInt(input);
+      originalLineOffsets[i] = offset;
+    }
+    int lastValidOffset = readVarInt(input);
+    Entry entry = new Entry(state, new Metadata(lines, nonBlankLines, hash, originalLineOffsets, lastValidOffset));
+    if (input.readBoolean()) {
+      byte[][] lineHashes = new byte[readVarInt(input)][];
+      for (int i = 0; i < lineHashes.length; i++) {
+        if (input.readBoolean()) {
+          lineHashes[i] = new byte[LINE_HASH_SIZE];
+          input.readFully(lineHashes[i]);
+        }
+      }
+      entry.lineHashes = lineHashes;
+    }
+    return entry;
+  }
+
+  private static void writeEntry(Entry entry, DataOutput output) throws IOException {
+    output.writeLong(entry.state.size);
+    output.writeLong(entry.state.lastModified);
+    output.writeUTF(entry.state.charset);
+    Metadata metadata = entry.metadata;
+    writeVarInt(metadata.lines(), output);
+    writeVarInt(metadata.nonBlankLines(), output);
+    output.writeUTF(metadata.hash());
+    // offsets are increasing, so deltas are small and encoded on one or two bytes
+    int[] originalLineOffsets = metadata.originalLineOffsets();
+    writeVarInt(originalLineOffsets.length, output);
+    int previous = 0;
+    for (int offset : originalLineOffsets) {
+      writeVarInt(offset - previous, output);
+      previous = offset;
+    }
+    writeVarInt(metadata.lastValidOffset(), output);
+    byte[][] lineHashes = entry.lineHashes;
+    output.writeBoolean(lineHashes != null);
+    if (lineHashes != null) {
+      writeVarInt(lineHashes.length, output);
+      for (byte[] lineHash : lineHashes) {
+        output.writeBoolean(lineHash != null);
+        if (lineHash != null) {
+          output.write(lineHash);
+        }
+      }
+    }
+  }
+
+  private static void writeVarInt(int value, DataOutput output) throws IOException {
+    int remaining = value;
+    while ((remaining & ~0x7F) != 0) {
+      output.writeByte((remaining & 0x7F) | 0x80);
+      remaining >>>= 7;
+    }
+    output.writeByte(remaining);
+  }
+
+  private static int readVarInt(DataInput input) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      byte b = input.readByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed variable-length integer");
+  }
+
+  private static class Entry {
+    private final FileState state;
+    private final Metadata metadata;
+    private volatile byte[][] lineHashes;
+
+    private Entry(FileState state, Metadata metadata) {
+      this.state = state;
+      this.metadata = metadata;
+    }
+  }
+
+  private static class FileState {
+    private final long size;
+    private final long lastModified;
+    private final String charset;
+
+    private FileState(long size, long lastModified, String charset) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.charset = charset;
+    }
+
+    private static FileState of(File file, Charset charset) {
+      try {
+        BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        return new FileState(attributes.size(), attributes.lastModifiedTime().toMillis(), charset.name());
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to read attributes of file " + file, e);
+      }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      FileState other = (FileState) o;
+      return size == other.size && lastModified == other.lastModified && charset.equals(other.charset);
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(size) * 31 + Long.hashCode(lastModified);
+    }
+  }
+}
@@ -47,22 +47,25 @@ class MetadataGenerator {
   private final StatusDetection statusDetection;
   private final FileMetadata fileMetadata;
   private final DefaultInputModule inputModule;
+  private final FileMetadataCache metadataCache;
 
-  MetadataGenerator(DefaultInputModule inputModule, StatusDetection statusDetection, FileMetadata fileMetadata) {
+  MetadataGenerator(DefaultInputModule inputModule, StatusDetection statusDetection, FileMetadata fileMetadata, FileMetadataCache metadataCache) {
     this.inputModule = inputModule;
+    this.metadataCache = metadataCache;
     this.statusDetection = statusDetection;
     this.fileMetadata = fileMetadata;
   }
 
   /**
    * Sets all metadata in the file, including charset and status.
-   * It is an expensive computation, reading the entire file.
+   * It is an expensive computation, reading the entire file, unless the file did not change since
+   * its metadata was cached by a previous analysis.
    */
   public void setMetadata(final DefaultInputFile inputFile, Charset defaultEncoding) {
     try {
       Charset charset = detectCharset(inputFile.path(), defaultEncoding);
       inputFile.setCharset(charset);
-      Metadata metadata = fileMetadata.readMetadata(inputFile.file(), charset);
+      Metadata metadata = metadataCache.metadata(inputFile.file(), charset, () -> fileMetadata.readMetadata(inputFile.file(), charset));
       inputFile.setMetadata(metadata);
       inputFile.setStatus(statusDetection.status(inputModule.definition().getKeyWithBranch(), inputFile.relativePath(), metadata.hash()));
       LOG.debug("'{}' generated metadata {} with charset '{}'",
@@ -26,7 +26,8 @@ import org.sonar.api.batch.fs.internal.FileMetadata;
 
 @ScannerSide
 public class MetadataGeneratorProvider extends ProviderAdapter {
-  public MetadataGenerator provide(DefaultInputModule inputModule, StatusDetectionFactory statusDetectionFactory, FileMetadata fileMetadata) {
-    return new MetadataGenerator(inputModule, statusDetectionFactory.create(), fileMetadata);
+  public MetadataGenerator provide(DefaultInputModule inputModule, StatusDetectionFactory statusDetectionFactory, FileMetadata fileMetadata,
+    FileMetadataCache metadataCache) {
+    return new MetadataGenerator(inputModule, statusDetectionFactory.create(), fileMetadata, metadataCache);
   }
 }
@@ -0,0 +1,196 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scm;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.picocontainer.Startable;
+import org.sonar.api.batch.InstantiationStrategy;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.home.cache.FileCache;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.scan.ImmutableProjectReactor;
+
+/**
+ * Cache of the last blame of each file of the project, persisted in the user home between analyses.
+ * An entry is reused as long as the content of the file, identified by its hash, did not change, so that
+ * unchanged files are not blamed again, even when the server has no SCM data for them.
+ * <p>
+ * Entries are loaded when the project container starts. Only the entries of the files used by the
+ * current analysis are written back when it stops, and only if they differ from the loaded ones.
+ */
+@InstantiationStrategy(InstantiationStrategy.PER_BATCH)
+@ScannerSide
+public class BlameCache implements Startable {
+
+  public static final String DISABLED_PROPERTY = "sonar.scm.blameCache.disabled";
+
+  private static final Logger LOG = Loggers.get(BlameCache.class);
+  private static final int MAGIC = 0x53424c43;
+  private static final int VERSION = 1;
+
+  @CheckForNull
+  private final File cacheFile;
+  private final Map<String, Entry> previousEntries = new HashMap<>();
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+  private volatile boolean changed = false;
+
+  public BlameCache(FileCache fileCache, ImmutableProjectReactor reactor, Settings settings) {
+    this(settings.getBoolean(DISABLED_PROPERTY) ? null : new File(new File(fileCache.getDir().getParentFile(), "blame"),
+      DigestUtils.md5Hex(reactor.getRoot().getKeyWithBranch())));
+  }
+
+  /**
+   * @param cacheFile the file in which entries are persisted, or {@code null} to disable the cache
+   */
+  @VisibleForTesting
+  BlameCache(@Nullable File cacheFile) {
+    this.cacheFile = cacheFile;
+  }
+
+  @Override
+  public void start() {
+    if (cacheFile == null || !cacheFile.exists()) {
+      return;
+    }
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+      if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+        LOG.debug("Ignore blame cache {} written by another version", cacheFile);
+        return;
+      }
+      int count = input.readInt();
+      for (int i = 0; i < count; i++) {
+        String key = input.readUTF();
+        String hash = input.readUTF();
+        byte[] changesets = new byte[input.readInt()];
+        input.readFully(changesets);
+        previousEntries.put(key, new Entry(hash, changesets));
+      }
+      LOG.debug("Load blame of {} files from cache {}", count, cacheFile);
+    } catch (IOException | RuntimeException e) {
+      // files are blamed again when the cache is corrupted
+      previousEntries.clear();
+      LOG.debug("Fail to load blame cache " + cacheFile, e);
+    }
+  }
+
+  @Override
+  public void stop() {
+    // entries are only moved from previous ones when not changed, so same size means same content
+    if (cacheFile == null || (!changed && entries.size() == previousEntries.size())) {
+      return;
+    }
+    File tempFile = null;
+    try {
+      File dir = cacheFile.getParentFile();
+      Files.createDirectories(dir.toPath());
+      tempFile = File.createTempFile(cacheFile.getName(), ".tmp", dir);
+      try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+          output.writeUTF(entry.getKey());
+          output.writeUTF(entry.getValue().hash);
+          output.writeInt(entry.getValue().changesets.length);
+          output.write(entry.getValue().changesets);
+        }
+      }
+      // another analysis of the same project may be saving the cache at the same time
+      Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOG.warn("Fail to save blame cache " + cacheFile, e);
+    } finally {
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+    }
+  }
+
+  /**
+   * Returns the blame of the file, referencing the file component, if it was cached with the same content.
+   * Can be called concurrently.
+   */
+  @CheckForNull
+  public ScannerReport.Changesets get(DefaultInputFile file) {
+    if (cacheFile == null) {
+      return null;
+    }
+    Entry entry = entries.get(file.key());
+    if (entry == null || !entry.hash.equals(file.hash())) {
+      entry = previousEntries.get(file.key());
+      if (entry == null || !entry.hash.equals(file.hash())) {
+        return null;
+      }
+      entries.put(file.key(), entry);
+    }
+    try {
+      return ScannerReport.Changesets.parseFrom(entry.changesets).toBuilder()
+        .setComponentRef(file.batchId())
+        .build();
+    } catch (IOException e) {
+      LOG.debug("Ignore corrupted blame of file " + file.relativePath() + " in cache", e);
+      return null;
+    }
+  }
+
+  /**
+   * Caches the blame of the file. Can be called concurrently.
+   */
+  public void put(DefaultInputFile file, ScannerReport.Changesets changesets) {
+    if (cacheFile == null) {
+      return;
+    }
+    // the reference to the component depends on the analysis, it's set again when reading the entry
+    byte[] bytes = changesets.toBuilder().clearComponentRef().build().toByteArray();
+    entries.put(file.key(), new Entry(file.hash(), bytes));
+    changed = true;
+  }
+
+  private static class Entry {
+    private final String hash;
+    private final byte[] changesets;
+
+    private Entry(String hash, byte[] changesets) {
+      this.hash = hash;
+      this.changesets = changesets;
+    }
+  }
+}
@@ -21,10 +21,10 @@ package org.sonar.scanner.scm;
 
 import com.google.common.base.Preconditions;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.StringUtils;
@@ -44,13 +44,15 @@ class DefaultBlameOutput implements BlameOutput {
   private static final Logger LOG = Loggers.get(DefaultBlameOutput.class);
 
   private final ScannerReportWriter writer;
-  private final Set<InputFile> allFilesToBlame = new HashSet<>();
+  private final BlameCache blameCache;
+  private final Set<InputFile> allFilesToBlame = ConcurrentHashMap.newKeySet();
   private ProgressReport progressReport;
   private int count;
   private int total;
 
-  DefaultBlameOutput(ScannerReportWriter writer, List<InputFile> filesToBlame) {
+  DefaultBlameOutput(ScannerReportWriter writer, BlameCache blameCache, List<InputFile> filesToBlame) {
     this.writer = writer;
+    this.blameCache = blameCache;
     this.allFilesToBlame.addAll(filesToBlame);
     count = 0;
     total = filesToBlame.size();
@@ -58,8 +60,12 @@ class DefaultBlameOutput implements BlameOutput {
     progressReport.start(total + " files to be analyzed");
   }
 
+  /**
+   * Files are blamed concurrently when several blame threads are configured, so only the progress
+   * is updated while holding the lock. Each file is written to its own file of the report.
+   */
   @Override
-  public synchronized void blameResult(InputFile file, List<BlameLine> lines) {
+  public void blameResult(InputFile file, List<BlameLine> lines) {
     Preconditions.checkNotNull(file);
     Preconditions.checkNotNull(lines);
     Preconditions.checkArgument(allFilesToBlame.contains(file), "It was not expected to blame file %s", file.relativePath());
@@ -86,10 +92,14 @@ class DefaultBlameOutput implements BlameOutput {
       scmBuilder.addChangesetIndexByLine(changesetId);
       lineId++;
     }
-    writer.writeComponentChangesets(scmBuilder.build());
+    ScannerReport.Changesets changesets = scmBuilder.build();
+    writer.writeComponentChangesets(changesets);
+    blameCache.put(inputFile, changesets);
     allFilesToBlame.remove(file);
-    count++;
-    progressReport.message(count + "/" + total + " files analyzed");
+    synchronized (this) {
+      count++;
+      progressReport.message(count + "/" + total + " files analyzed");
+    }
   }
 
   private static void validateLine(BlameLine line, int lineId, InputFile file) {
@@ -115,7 +125,7 @@ class DefaultBlameOutput implements BlameOutput {
     return inputString.toLowerCase();
   }
 
-  public void finish(boolean success) {
+  public synchronized void finish(boolean success) {
     progressReport.stop(count + "/" + total + " files analyzed");
     if (success && !allFilesToBlame.isEmpty()) {
       LOG.warn("Missing blame information for the following files:");
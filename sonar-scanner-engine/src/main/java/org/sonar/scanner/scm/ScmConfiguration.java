@@ -33,6 +33,7 @@ import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.InstantiationStrategy;
 import org.sonar.api.batch.scm.ScmProvider;
 import org.sonar.api.config.Settings;
+import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.scan.ImmutableProjectReactor;
@@ -56,6 +57,12 @@ public final class ScmConfiguration implements Startable {
 
   public static final String FORCE_RELOAD_KEY = "sonar.scm.forceReloadAll";
 
+  /**
+   * Number of threads blaming files concurrently, each of them with a part of the files to blame. Default is 1,
+   * as not all SCM providers support concurrent calls to their blame command.
+   */
+  public static final String BLAME_THREADS_KEY = "sonar.scm.blame.threads";
+
   private final ImmutableProjectReactor projectReactor;
   private final Settings settings;
   private final Map<String, ScmProvider> providerPerKey = new LinkedHashMap<>();
@@ -147,6 +154,22 @@ public final class ScmConfiguration implements Startable {
     return settings.getBoolean(FORCE_RELOAD_KEY);
   }
 
+  public int blameThreads() {
+    String value = settings.getString(BLAME_THREADS_KEY);
+    if (StringUtils.isBlank(value)) {
+      return 1;
+    }
+    try {
+      int threads = Integer.parseInt(value.trim());
+      if (threads >= 1) {
+        return threads;
+      }
+    } catch (NumberFormatException e) {
+      // message below
+    }
+    throw MessageException.of(String.format("Value '%s' of property %s is invalid. It must be a strictly positive number.", value, BLAME_THREADS_KEY));
+  }
+
   @Override
   public void stop() {
     // Nothing to do
@@ -19,8 +19,14 @@
  */
 package org.sonar.scanner.scm;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.InstantiationStrategy;
@@ -29,6 +35,7 @@ import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputFile.Status;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.scm.BlameCommand;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.protocol.output.ScannerReport;
@@ -52,15 +59,17 @@ public final class ScmPublisher {
   private final ModuleInputComponentStore componentStore;
   private final DefaultModuleFileSystem fs;
   private final ScannerReportWriter writer;
+  private final BlameCache blameCache;
 
   public ScmPublisher(DefaultInputModule inputModule, ScmConfiguration configuration, ProjectRepositories projectRepositories,
-    ModuleInputComponentStore componentStore, DefaultModuleFileSystem fs, ReportPublisher reportPublisher) {
+    ModuleInputComponentStore componentStore, DefaultModuleFileSystem fs, ReportPublisher reportPublisher, BlameCache blameCache) {
     this.inputModule = inputModule;
     this.configuration = configuration;
     this.projectRepositories = projectRepositories;
     this.componentStore = componentStore;
     this.fs = fs;
     this.writer = reportPublisher.getWriter();
+    this.blameCache = blameCache;
   }
 
   public void publish() {
@@ -77,9 +86,9 @@ public final class ScmPublisher {
     if (!filesToBlame.isEmpty()) {
       String key = configuration.provider().key();
       LOG.info("SCM provider for this project is: " + key);
-      DefaultBlameOutput output = new DefaultBlameOutput(writer, filesToBlame);
+      DefaultBlameOutput output = new DefaultBlameOutput(writer, blameCache, filesToBlame);
       try {
-        configuration.provider().blameCommand().blame(new DefaultBlameInput(fs, filesToBlame), output);
+        blame(configuration.provider().blameCommand(), filesToBlame, output);
       } catch (Exception e) {
         output.finish(false);
         throw e;
@@ -88,6 +97,42 @@ public final class ScmPublisher {
     }
   }
 
+  private void blame(BlameCommand blameCommand, List<InputFile> filesToBlame, DefaultBlameOutput output) {
+    int threads = Math.min(configuration.blameThreads(), filesToBlame.size());
+    if (threads == 1) {
+      blameCommand.blame(new DefaultBlameInput(fs, filesToBlame), output);
+      return;
+    }
+    // files are distributed in turn, so that each thread gets files from all the directories of the module
+    List<List<InputFile>> partitions = new ArrayList<>(threads);
+    for (int i = 0; i < threads; i++) {
+      partitions.add(new ArrayList<>());
+    }
+    int index = 0;
+    for (InputFile f : filesToBlame) {
+      partitions.get(index % threads).add(f);
+      index++;
+    }
+    ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("ScmBlame-%d").build());
+    try {
+      List<Future<?>> futures = new ArrayList<>(threads);
+      for (List<InputFile> partition : partitions) {
+        futures.add(executorService.submit(() -> blameCommand.blame(new DefaultBlameInput(fs, partition), output)));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      // Unwrap ExecutionException
+      throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
   private List<InputFile> collectFilesToBlame(ScannerReportWriter writer) {
     if (configuration.forceReloadAll()) {
       LOG.warn("Forced reloading of SCM data for all files.");
@@ -98,13 +143,15 @@ public final class ScmPublisher {
       if (!inputFile.publish()) {
         continue;
       }
-      if (configuration.forceReloadAll() || f.status() != Status.SAME) {
+      if (configuration.forceReloadAll()) {
         addIfNotEmpty(filesToBlame, f);
+      } else if (f.status() != Status.SAME) {
+        addIfNotCached(filesToBlame, inputFile, writer);
       } else {
         // File status is SAME so that mean fileData exists
         FileData fileData = projectRepositories.fileData(inputModule.definition().getKeyWithBranch(), f.relativePath());
         if (StringUtils.isEmpty(fileData.revision())) {
-          addIfNotEmpty(filesToBlame, f);
+          addIfNotCached(filesToBlame, inputFile, writer);
         } else {
           askToCopyDataFromPreviousAnalysis((DefaultInputFile) f, writer);
         }
@@ -120,6 +167,18 @@ public final class ScmPublisher {
     writer.writeComponentChangesets(scmBuilder.build());
   }
 
+  private void addIfNotCached(List<InputFile> filesToBlame, DefaultInputFile f, ScannerReportWriter writer) {
+    if (f.isEmpty()) {
+      return;
+    }
+    ScannerReport.Changesets changesets = blameCache.get(f);
+    if (changesets == null) {
+      filesToBlame.add(f);
+    } else {
+      writer.writeComponentChangesets(changesets);
+    }
+  }
+
   private static void addIfNotEmpty(List<InputFile> filesToBlame, InputFile f) {
     if (!f.isEmpty()) {
       filesToBlame.add(f);
@@ -19,6 +19,9 @@
  */
 package org.sonar.scanner.sensor;
 
+import java.util.Collection;
+import org.sonar.api.batch.DependedUpon;
+import org.sonar.api.batch.DependsUpon;
 import org.sonar.api.batch.sensor.Sensor;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.internal.DefaultSensorDescriptor;
@@ -43,6 +46,23 @@ public class SensorWrapper implements org.sonar.api.batch.Sensor {
     return wrappedSensor;
   }
 
+  /**
+   * Whether the wrapped sensor declared that it can be executed concurrently with other thread-safe sensors
+   */
+  public boolean isThreadSafe() {
+    return descriptor.isThreadSafe();
+  }
+
+  @DependsUpon
+  public Collection<String> dependsUpon() {
+    return descriptor.dependsUpon();
+  }
+
+  @DependedUpon
+  public Collection<String> dependedUpon() {
+    return descriptor.dependedUpon();
+  }
+
   @Override
   public boolean shouldExecuteOnProject(Project project) {
     return optimizer.shouldExecute(descriptor);
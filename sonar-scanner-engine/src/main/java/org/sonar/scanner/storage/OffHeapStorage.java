@@ -0,0 +1,242 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import com.google.common.primitives.UnsignedBytes;
+import com.persistit.Key;
+import com.persistit.Persistit;
+import com.persistit.Value;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import javax.annotation.CheckForNull;
+
+import static com.google.common.collect.Iterators.transform;
+
+/**
+ * {@link Storage} which values are kept in a {@link OffHeapValueStore}. The index of keys is kept in heap, sorted
+ * by encoded bytes, which is the order of keys in Persistit.
+ * <p>
+ * Iterators are weakly consistent: they do not fail if the storage is modified during iteration.
+ * </p>
+ * <p>
+ * This storage is not thread-safe, like {@link PersistitStorage}: the Persistit {@link Key} and {@link Value} used to
+ * encode keys and values are shared by all the operations. Only the index and the value store support concurrent access.
+ * </p>
+ */
+class OffHeapStorage<V> implements Storage<V> {
+
+  private final String name;
+  private final OffHeapValueStore store;
+  private final ConcurrentNavigableMap<byte[], Long> index = new ConcurrentSkipListMap<>(UnsignedBytes.lexicographicalComparator());
+  // encoding buffers, reused for all the operations, which must not be concurrent
+  private final Key key;
+  private final Value value;
+
+  OffHeapStorage(String name, Persistit persistit, OffHeapValueStore store) {
+    this.name = name;
+    this.store = store;
+    this.key = new Key(persistit);
+    this.value = new Value(persistit, Value.INITIAL_SIZE, Value.MAXIMUM_SIZE);
+  }
+
+  @Override
+  public Storage<V> put(Object[] keys, V v) {
+    try {
+      byte[] encodedKey = encode(keys, false);
+      value.clear();
+      value.put(v);
+      Long previousAddress = index.put(encodedKey, store.append(value.getEncodedBytes(), value.getEncodedSize()));
+      if (previousAddress != null) {
+        store.free(previousAddress);
+      }
+      return this;
+    } catch (Exception e) {
+      throw new IllegalStateException("Fail to put element in the storage '" + name + "'", e);
+    }
+  }
+
+  @Override
+  @CheckForNull
+  public V get(Object[] keys) {
+    Long address = index.get(encode(keys, false));
+    return address == null ? null : decodeValue(address);
+  }
+
+  @Override
+  public boolean containsKey(Object[] keys) {
+    return index.containsKey(encode(keys, false));
+  }
+
+  @Override
+  public boolean remove(Object[] keys) {
+    Long address = index.remove(encode(keys, false));
+    if (address == null) {
+      return false;
+    }
+    store.free(address);
+    return true;
+  }
+
+  @Override
+  public Storage<V> clear(Object[] keys) {
+    clear(group(keys, true));
+    return this;
+  }
+
+  @Override
+  public void clear() {
+    clear(index);
+  }
+
+  private void clear(NavigableMap<byte[], Long> group) {
+    Map.Entry<byte[], Long> entry;
+    while ((entry = group.pollFirstEntry()) != null) {
+      store.free(entry.getValue());
+    }
+  }
+
+  @Override
+  @SuppressWarnings("rawtypes")
+  public Set keySet(Object key) {
+    return childKeys(new Object[] {key});
+  }
+
+  @Override
+  @SuppressWarnings("rawtypes")
+  public Set keySet(Object firstKey, Object secondKey) {
+    return childKeys(new Object[] {firstKey, secondKey});
+  }
+
+  @Override
+  public Set<Object> keySet() {
+    return childKeys(new Object[0]);
+  }
+
+  /**
+   * Distinct parts of keys which directly follow the specified prefix.
+   */
+  private Set<Object> childKeys(Object[] prefix) {
+    Set<Object> keys = new LinkedHashSet<>();
+    NavigableMap<byte[], Long> group = group(prefix, false);
+    byte[] next = group.isEmpty() ? null : group.firstKey();
+    while (next != null) {
+      Object child = decodeKey(next)[prefix.length];
+      keys.add(child);
+      // skip the sub-keys of child
+      Object[] childPrefix = Arrays.copyOf(prefix, prefix.length + 1);
+      childPrefix[prefix.length] = child;
+      next = group.higherKey(encode(childPrefix, true));
+    }
+    return keys;
+  }
+
+  @Override
+  public Iterable<V> values(Object firstKey, Object secondKey) {
+    return values(new Object[] {firstKey, secondKey});
+  }
+
+  @Override
+  public Iterable<V> values(Object firstKey) {
+    return values(new Object[] {firstKey});
+  }
+
+  @Override
+  public Iterable<V> values() {
+    return values(new Object[0]);
+  }
+
+  private Iterable<V> values(Object[] prefix) {
+    return () -> transform(group(prefix, false).values().iterator(), this::decodeValue);
+  }
+
+  @Override
+  public Iterable<Entry<V>> entries() {
+    return entries(new Object[0]);
+  }
+
+  @Override
+  public Iterable<Entry<V>> entries(Object firstKey) {
+    return entries(new Object[] {firstKey});
+  }
+
+  private Iterable<Entry<V>> entries(Object[] prefix) {
+    return () -> {
+      Iterator<Map.Entry<byte[], Long>> it = group(prefix, false).entrySet().iterator();
+      return transform(it, e -> new Entry<>(decodeKey(e.getKey()), decodeValue(e.getValue())));
+    };
+  }
+
+  /**
+   * Keys starting with the specified parts. The key equal to the prefix is included only if {@code inclusive} is true.
+   */
+  private NavigableMap<byte[], Long> group(Object[] prefix, boolean inclusive) {
+    if (prefix.length == 0) {
+      return index;
+    }
+    return index.subMap(encode(prefix, false), inclusive, encode(prefix, true), false);
+  }
+
+  /**
+   * @param after if true, the encoded key is greater than all the keys starting with {@code keys}
+   */
+  private byte[] encode(Object[] keys, boolean after) {
+    key.clear();
+    for (Object o : keys) {
+      key.append(o);
+    }
+    if (after) {
+      key.append(Key.AFTER);
+    }
+    return Arrays.copyOf(key.getEncodedBytes(), key.getEncodedSize());
+  }
+
+  private Object[] decodeKey(byte[] encodedKey) {
+    key.clear();
+    System.arraycopy(encodedKey, 0, key.getEncodedBytes(), 0, encodedKey.length);
+    key.setEncodedSize(encodedKey.length);
+    Object[] keys = new Object[key.getDepth()];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = key.indexTo(i).decode();
+    }
+    return keys;
+  }
+
+  @SuppressWarnings("unchecked")
+  private V decodeValue(long address) {
+    try {
+      ByteBuffer record = store.read(address);
+      int length = record.remaining();
+      value.clear();
+      value.ensureFit(length);
+      record.get(value.getEncodedBytes(), 0, length);
+      value.setEncodedSize(length);
+      return (V) value.get();
+    } catch (Exception e) {
+      throw new IllegalStateException("Fail to get element from cache " + name, e);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import com.persistit.Persistit;
+import java.io.File;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
+/**
+ * Stores values out of the Java heap, then in memory-mapped files once the spill threshold is reached.
+ * Persistit is used only to encode keys and values: storages do not go through its buffer pool nor its journal.
+ * Space of overwritten or removed values is not reclaimed before the engine is closed.
+ *
+ * @see OffHeapValueStore
+ */
+class OffHeapStorageEngine implements StorageEngine {
+
+  static final String KEY = "offHeap";
+
+  private static final Logger LOG = Loggers.get(OffHeapStorageEngine.class);
+
+  private final Persistit persistit;
+  private final File spillDir;
+  private final OffHeapValueStore store;
+
+  OffHeapStorageEngine(Persistit persistit, File spillDir, long spillThreshold) {
+    this.persistit = persistit;
+    this.spillDir = spillDir;
+    this.store = new OffHeapValueStore(spillDir, spillThreshold);
+  }
+
+  @Override
+  public String getKey() {
+    return KEY;
+  }
+
+  @Override
+  public <V> Storage<V> createStorage(String name) {
+    return new OffHeapStorage<>(name, persistit, store);
+  }
+
+  @Override
+  public void close() {
+    LOG.debug("Off-heap storages used {} bytes in memory and {} bytes on disk, including {} bytes of overwritten or removed values",
+      store.offHeapSize(), store.spilledSize(), store.freedSize());
+    // files must be unmapped before being deleted
+    store.close();
+    deleteQuietly(spillDir);
+  }
+}
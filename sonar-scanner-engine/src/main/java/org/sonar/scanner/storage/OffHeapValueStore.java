@@ -0,0 +1,176 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+import static java.lang.String.format;
+
+/**
+ * Append-only store of byte records, out of the Java heap. Records are written into direct buffers until
+ * {@code spillThreshold} bytes are allocated, then into memory-mapped temporary files, so that the size of
+ * stored data is not bounded by the memory of the JVM.
+ * <p>
+ * Records are never moved nor freed until {@link #close()}: there is no compaction, so the space of the values which
+ * are overwritten or removed is not reclaimed during the analysis. This space is only accounted, see {@link #freedSize()},
+ * so that the overhead can be monitored. Storages which are often updated should use the engine "persistit".
+ * </p>
+ */
+class OffHeapValueStore {
+
+  static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+  private static final int LENGTH_PREFIX_SIZE = 4;
+  private static final Logger LOG = Loggers.get(OffHeapValueStore.class);
+
+  private final File spillDir;
+  private final long spillThreshold;
+  private final int segmentSize;
+  private final List<ByteBuffer> segments = new ArrayList<>();
+  private ByteBuffer current;
+  private long offHeapSize = 0L;
+  private long spilledSize = 0L;
+  private long freedSize = 0L;
+
+  OffHeapValueStore(File spillDir, long spillThreshold) {
+    this(spillDir, spillThreshold, DEFAULT_SEGMENT_SIZE);
+  }
+
+  OffHeapValueStore(File spillDir, long spillThreshold, int segmentSize) {
+    this.spillDir = spillDir;
+    this.spillThreshold = spillThreshold;
+    this.segmentSize = segmentSize;
+  }
+
+  /**
+   * @return the address of the record, to be used by {@link #read(long)}
+   */
+  synchronized long append(byte[] bytes, int length) {
+    if (current == null || current.remaining() < LENGTH_PREFIX_SIZE + length) {
+      current = newSegment(Math.max(segmentSize, LENGTH_PREFIX_SIZE + length));
+      segments.add(current);
+    }
+    long address = ((long) (segments.size() - 1) << 32) | current.position();
+    current.putInt(length);
+    current.put(bytes, 0, length);
+    return address;
+  }
+
+  /**
+   * @return a read-only view of the bytes of the record at the specified address
+   */
+  synchronized ByteBuffer read(long address) {
+    ByteBuffer segment = segments.get((int) (address >>> 32)).duplicate();
+    int offset = (int) address;
+    int length = segment.getInt(offset);
+    segment.limit(offset + LENGTH_PREFIX_SIZE + length);
+    segment.position(offset + LENGTH_PREFIX_SIZE);
+    return segment.slice().asReadOnlyBuffer();
+  }
+
+  /**
+   * Declares that the record at the specified address is no longer referenced. Its space is not reused.
+   */
+  synchronized void free(long address) {
+    int length = segments.get((int) (address >>> 32)).getInt((int) address);
+    freedSize += LENGTH_PREFIX_SIZE + length;
+  }
+
+  private ByteBuffer newSegment(int size) {
+    if (offHeapSize + size <= spillThreshold) {
+      offHeapSize += size;
+      return ByteBuffer.allocateDirect(size);
+    }
+    File file = new File(spillDir, format("segment-%d.bin", segments.size()));
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      // mapping is still valid once channel is closed
+      ByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      spilledSize += size;
+      return segment;
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to create storage file " + file, e);
+    }
+  }
+
+  synchronized long offHeapSize() {
+    return offHeapSize;
+  }
+
+  synchronized long spilledSize() {
+    return spilledSize;
+  }
+
+  /**
+   * @return the size of the records which were freed, and which space is wasted until {@link #close()}
+   */
+  synchronized long freedSize() {
+    return freedSize;
+  }
+
+  /**
+   * Releases the segments. Direct buffers are freed and files are unmapped immediately, so that they can be
+   * deleted, even on Windows. The buffers returned by {@link #read(long)} must not be used anymore.
+   */
+  synchronized void close() {
+    segments.forEach(OffHeapValueStore::release);
+    segments.clear();
+    current = null;
+    offHeapSize = 0L;
+    spilledSize = 0L;
+    freedSize = 0L;
+  }
+
+  /**
+   * Frees the memory of a direct or memory-mapped buffer without waiting for it to be garbage collected.
+   * JDK internals are used, so buffer is left to the garbage collector if they are not available.
+   */
+  private static void release(ByteBuffer buffer) {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Method invokeCleaner;
+      try {
+        invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      } catch (NoSuchMethodException e) {
+        // Java 8
+        Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+        cleanerMethod.setAccessible(true);
+        Object cleaner = cleanerMethod.invoke(buffer);
+        if (cleaner != null) {
+          cleaner.getClass().getMethod("clean").invoke(cleaner);
+        }
+        return;
+      }
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      invokeCleaner.invoke(theUnsafe.get(null), buffer);
+    } catch (Exception e) {
+      LOG.debug("Fail to release off-heap buffer, it will be released when garbage collected", e);
+    }
+  }
+}
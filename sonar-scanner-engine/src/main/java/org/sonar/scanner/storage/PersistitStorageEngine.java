@@ -0,0 +1,87 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import com.google.common.base.Preconditions;
+import com.persistit.Exchange;
+import com.persistit.Persistit;
+import com.persistit.Value;
+import com.persistit.Volume;
+import com.persistit.exception.PersistitException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores data in a temporary volume of Persistit. This is the default engine.
+ */
+class PersistitStorageEngine implements StorageEngine {
+
+  static final String KEY = "persistit";
+
+  private final Persistit persistit;
+  private final List<Exchange> exchanges = new ArrayList<>();
+  private Volume volume;
+
+  PersistitStorageEngine(Persistit persistit) {
+    this.persistit = persistit;
+    try {
+      persistit.flush();
+      volume = persistit.createTemporaryVolume();
+    } catch (Exception e) {
+      throw new IllegalStateException("Fail to create a cache volume", e);
+    }
+  }
+
+  @Override
+  public String getKey() {
+    return KEY;
+  }
+
+  @Override
+  public <V> Storage<V> createStorage(String name) {
+    Preconditions.checkState(volume != null && volume.isOpened(), "Caches are not initialized");
+    try {
+      Exchange exchange = persistit.getExchange(volume, name, true);
+      exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
+      exchanges.add(exchange);
+      return new PersistitStorage<>(name, exchange);
+    } catch (Exception e) {
+      throw new IllegalStateException("Fail to create cache: " + name, e);
+    }
+  }
+
+  @Override
+  public void close() {
+    for (Exchange exchange : exchanges) {
+      persistit.releaseExchange(exchange);
+    }
+    exchanges.clear();
+
+    if (volume != null) {
+      try {
+        volume.close();
+        volume.delete();
+      } catch (PersistitException e) {
+        throw new IllegalStateException("Fail to close caches", e);
+      }
+      volume = null;
+    }
+  }
+}
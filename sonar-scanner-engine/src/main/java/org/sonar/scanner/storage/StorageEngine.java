@@ -0,0 +1,44 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+/**
+ * Backend of the {@link Storage}s of a project analysis. An engine is created by {@link StoragesManager} for each
+ * {@link Storages} and is closed when analysis ends.
+ * <p>
+ * Keys and values are encoded by Persistit whatever the engine, so that the
+ * {@link com.persistit.encoding.ValueCoder}s registered through {@link Storages#registerValueCoder(Class, com.persistit.encoding.ValueCoder)}
+ * are used by all engines.
+ * </p>
+ */
+public interface StorageEngine {
+
+  /**
+   * Key of the engine, as defined by property {@link StoragesManager#ENGINE_PROPERTY}
+   */
+  String getKey();
+
+  <V> Storage<V> createStorage(String name);
+
+  /**
+   * Releases the resources of all the storages created by this engine. Storages must not be used anymore.
+   */
+  void close();
+}
@@ -20,29 +20,23 @@
 package org.sonar.scanner.storage;
 
 import com.google.common.base.Preconditions;
-import com.persistit.Exchange;
 import com.persistit.Persistit;
-import com.persistit.Value;
-import com.persistit.Volume;
 import com.persistit.encoding.CoderManager;
 import com.persistit.encoding.ValueCoder;
-import com.persistit.exception.PersistitException;
-
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.HashSet;
+import java.util.Set;
 import org.picocontainer.Startable;
 import org.sonar.api.batch.ScannerSide;
 
 @ScannerSide
 public class Storages implements Startable {
-  private final Map<String, Exchange> cacheMap = new HashMap<>();
-  private Persistit persistit;
-  private Volume volume;
+  private final Set<String> storageNames = new HashSet<>();
+  private final Persistit persistit;
+  private final StorageEngine engine;
 
   public Storages(StoragesManager storagesManager) {
     persistit = storagesManager.persistit();
-    doStart();
+    engine = storagesManager.createEngine();
   }
 
   @Override
@@ -50,50 +44,21 @@ public class Storages implements Startable {
     // done in constructor
   }
 
-  private void doStart() {
-    try {
-      persistit.flush();
-      volume = persistit.createTemporaryVolume();
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to create a cache volume", e);
-    }
-  }
-
   public void registerValueCoder(Class<?> clazz, ValueCoder coder) {
     CoderManager cm = persistit.getCoderManager();
     cm.registerValueCoder(clazz, coder);
   }
 
   public <V> Storage<V> createCache(String cacheName) {
-    Preconditions.checkState(volume != null && volume.isOpened(), "Caches are not initialized");
-    Preconditions.checkState(!cacheMap.containsKey(cacheName), "Cache is already created: %s", cacheName);
-    try {
-      Exchange exchange = persistit.getExchange(volume, cacheName, true);
-      exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
-      Storage<V> cache = new Storage<>(cacheName, exchange);
-      cacheMap.put(cacheName, exchange);
-      return cache;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to create cache: " + cacheName, e);
-    }
+    Preconditions.checkState(!storageNames.contains(cacheName), "Cache is already created: %s", cacheName);
+    Storage<V> cache = engine.createStorage(cacheName);
+    storageNames.add(cacheName);
+    return cache;
   }
 
   @Override
   public void stop() {
-    for (Entry<String, Exchange> e : cacheMap.entrySet()) {
-      persistit.releaseExchange(e.getValue());
-    }
-
-    cacheMap.clear();
-
-    if (volume != null) {
-      try {
-        volume.close();
-        volume.delete();
-      } catch (PersistitException e) {
-        throw new IllegalStateException("Fail to close caches", e);
-      }
-      volume = null;
-    }
+    storageNames.clear();
+    engine.close();
   }
 }
@@ -24,29 +24,75 @@ import com.persistit.exception.PersistitException;
 import com.persistit.logging.Slf4jAdapter;
 import java.io.File;
 import java.util.Properties;
+import org.apache.commons.lang.StringUtils;
 import org.picocontainer.Startable;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.TempFolder;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.scanner.bootstrap.GlobalProperties;
 
+import static java.lang.String.format;
 import static org.sonar.core.util.FileUtils.deleteQuietly;
 
 /**
- * Factory of storages
+ * Factory of storages. The {@link StorageEngine} is defined by property {@link #ENGINE_PROPERTY}: "persistit" (default)
+ * or "offHeap".
  *
  * @since 3.6
  */
 @ScannerSide
 public class StoragesManager implements Startable {
+  public static final String ENGINE_PROPERTY = "sonar.scanner.storage.engine";
+  /**
+   * Size in MB of the data kept in memory by the engine "offHeap" before spilling to disk. Values which are overwritten
+   * or removed keep their space until the end of the analysis.
+   */
+  public static final String SPILL_THRESHOLD_PROPERTY = "sonar.scanner.storage.offHeap.spillThreshold";
+  static final long DEFAULT_SPILL_THRESHOLD_MB = 256L;
+
+  private static final Logger LOG = Loggers.get(StoragesManager.class);
+
   private File tempDir;
   private Persistit persistit;
   private final TempFolder tempFolder;
+  private final String engine;
+  private final long spillThreshold;
 
-  public StoragesManager(TempFolder tempFolder) {
+  public StoragesManager(TempFolder tempFolder, GlobalProperties properties) {
     this.tempFolder = tempFolder;
+    this.engine = readEngine(properties);
+    this.spillThreshold = readSpillThreshold(properties);
     initPersistit();
   }
 
+  private static String readEngine(GlobalProperties properties) {
+    String value = StringUtils.defaultIfBlank(properties.property(ENGINE_PROPERTY), PersistitStorageEngine.KEY).trim();
+    if (!PersistitStorageEngine.KEY.equals(value) && !OffHeapStorageEngine.KEY.equals(value)) {
+      throw MessageException.of(format("Unsupported storage engine '%s' in property %s. Supported values are: %s, %s",
+        value, ENGINE_PROPERTY, PersistitStorageEngine.KEY, OffHeapStorageEngine.KEY));
+    }
+    return value;
+  }
+
+  private static long readSpillThreshold(GlobalProperties properties) {
+    String value = properties.property(SPILL_THRESHOLD_PROPERTY);
+    if (StringUtils.isBlank(value)) {
+      return DEFAULT_SPILL_THRESHOLD_MB * 1024 * 1024;
+    }
+    try {
+      long mb = Long.parseLong(value.trim());
+      if (mb >= 0) {
+        return mb * 1024 * 1024;
+      }
+    } catch (NumberFormatException e) {
+      // fail below
+    }
+    throw MessageException.of(format("Value '%s' of property %s is invalid. It must be a positive number of MB.", value, SPILL_THRESHOLD_PROPERTY));
+  }
+
   private void initPersistit() {
     try {
       tempDir = tempFolder.newDir("caches");
@@ -88,6 +134,21 @@ public class StoragesManager implements Startable {
     tempDir = null;
   }
 
+  /**
+   * Creates the engine of the storages of a project analysis
+   */
+  StorageEngine createEngine() {
+    if (OffHeapStorageEngine.KEY.equals(engine)) {
+      LOG.debug("Storages are kept off-heap up to {} MB", spillThreshold / 1024 / 1024);
+      return new OffHeapStorageEngine(persistit, tempFolder.newDir(), spillThreshold);
+    }
+    return new PersistitStorageEngine(persistit);
+  }
+
+  String engine() {
+    return engine;
+  }
+
   File tempDir() {
     return tempDir;
   }
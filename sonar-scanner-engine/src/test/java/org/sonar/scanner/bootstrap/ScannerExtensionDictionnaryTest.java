@@ -23,6 +23,7 @@ import com.google.common.collect.Lists;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 import org.junit.Test;
 import org.sonar.api.BatchExtension;
 import org.sonar.api.batch.BuildBreaker;
@@ -36,6 +37,7 @@ import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.postjob.PostJobContext;
+import org.sonar.api.batch.sensor.SensorDescriptor;
 import org.sonar.api.resources.Project;
 import org.sonar.core.platform.ComponentContainer;
 import org.sonar.scanner.bootstrap.ScannerExtensionDictionnary;
@@ -307,6 +309,17 @@ public class ScannerExtensionDictionnaryTest {
     assertThat(extensions.get(2)).isEqualTo(post);
   }
 
+  @Test
+  public void useSensorDescriptorToSortSensors() {
+    org.sonar.api.batch.sensor.Sensor consumer = new DescribedSensor(d -> d.name("Consumer").dependsUpon("flag"));
+    org.sonar.api.batch.sensor.Sensor producer = new DescribedSensor(d -> d.name("Producer").dependedUpon("flag"));
+
+    ScannerExtensionDictionnary selector = newSelector(consumer, producer);
+    List<Sensor> extensions = Lists.newArrayList(selector.select(Sensor.class, null, true, null));
+
+    assertThat(extensions).extracting(Object::toString).containsExactly("Producer", "Consumer");
+  }
+
   @Test
   public void buildStatusCheckersAreExecutedAfterOtherPostJobs() {
     BuildBreaker checker = new BuildBreaker() {
@@ -321,6 +334,23 @@ public class ScannerExtensionDictionnaryTest {
     assertThat(extensions.get(2)).isEqualTo(checker);
   }
 
+  class DescribedSensor implements org.sonar.api.batch.sensor.Sensor {
+    private final Consumer<SensorDescriptor> description;
+
+    DescribedSensor(Consumer<SensorDescriptor> description) {
+      this.description = description;
+    }
+
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+      description.accept(descriptor);
+    }
+
+    @Override
+    public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+    }
+  }
+
   class FakeSensor implements Sensor {
 
     public void analyse(Project project, SensorContext context) {
@@ -36,6 +36,7 @@ import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.config.MapSettings;
 import org.sonar.api.config.Settings;
+import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.core.util.CloseableIterator;
@@ -208,7 +209,7 @@ public class CpdExecutorTest {
 
   @Test
   public void failOnMissingComponent() {
-    executor.runCpdAnalysis(null, "unknown", Collections.emptyList(), 1);
+    assertThat(executor.startCpdAnalysis(null, "unknown", Collections.emptyList())).isNull();
     readDuplications(0);
     assertThat(logTester.logs(LoggerLevel.ERROR)).contains("Resource not found in component store: unknown. Skipping CPD computation for it");
   }
@@ -239,6 +240,57 @@ public class CpdExecutorTest {
         "Timeout during detection of duplications for .*Foo2.php");
   }
 
+  @Test
+  public void detectDuplicationsConcurrently() {
+    settings.setProperty(CpdExecutor.THREADS_PROPERTY, "3");
+    insertBlocks(batchComponent1, 3);
+    insertBlocks(batchComponent2, 3);
+    insertBlocks(batchComponent3, 3);
+
+    executor.execute();
+
+    Duplication[] dups = readDuplications(1);
+    assertDuplication(dups[0], 1, 4, 2);
+    assertThat(dups[0].getDuplicateList()).extracting(Duplicate::getOtherFileRef)
+      .containsExactly(batchComponent2.batchId(), batchComponent3.batchId());
+    assertThat(reader.readComponentDuplications(batchComponent2.batchId())).hasSize(1);
+    assertThat(reader.readComponentDuplications(batchComponent3.batchId())).hasSize(1);
+  }
+
+  @Test
+  public void failToInsertBlocksOnceExecuted() {
+    executor.execute();
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("CPD index is frozen");
+
+    insertBlocks(batchComponent1, 3);
+  }
+
+  @Test
+  public void failOnInvalidNumberOfThreads() {
+    settings.setProperty(CpdExecutor.THREADS_PROPERTY, "0");
+
+    thrown.expect(MessageException.class);
+    thrown.expectMessage("Value '0' of property sonar.cpd.threads is invalid");
+
+    executor.execute();
+  }
+
+  private void insertBlocks(DefaultInputFile component, int count) {
+    List<Block> blocks = new ArrayList<>();
+    for (int j = 1; j <= count; j++) {
+      blocks.add(Block.builder()
+        .setResourceId(component.key())
+        .setIndexInFile(j - 1)
+        .setLines(j, j + 1)
+        .setUnit(j * 100, j * 100 + 99)
+        .setBlockHash(new ByteArray((long) j))
+        .build());
+    }
+    index.insert(component, blocks);
+  }
+
   private Duplication[] readDuplications(int expected) {
     assertThat(reader.readComponentDuplications(batchComponent1.batchId())).hasSize(expected);
     Duplication[] duplications = new Duplication[expected];
@@ -24,12 +24,13 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
-import com.google.common.collect.ImmutableMap;
 import org.sonar.api.CoreProperties;
 import org.sonar.scanner.bootstrap.GlobalProperties;
 import org.sonar.scanner.bootstrap.GlobalTempFolderProvider;
 import org.sonar.scanner.storage.Storages;
 import org.sonar.scanner.storage.StoragesManager;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
 import org.junit.ClassRule;
@@ -43,10 +44,16 @@ public abstract class AbstractCachesTest {
   protected Storages caches;
 
   private static StoragesManager createCacheOnTemp() {
-    Map<String, String> props = ImmutableMap.of(CoreProperties.WORKING_DIRECTORY, temp.getRoot().getAbsolutePath(),
-      CoreProperties.GLOBAL_WORKING_DIRECTORY, temp.getRoot().getAbsolutePath());
+    return createCacheOnTemp(Collections.emptyMap());
+  }
+
+  protected static StoragesManager createCacheOnTemp(Map<String, String> additionalProps) {
+    Map<String, String> props = new HashMap<>(additionalProps);
+    props.put(CoreProperties.WORKING_DIRECTORY, temp.getRoot().getAbsolutePath());
+    props.put(CoreProperties.GLOBAL_WORKING_DIRECTORY, temp.getRoot().getAbsolutePath());
+    GlobalProperties globalProperties = new GlobalProperties(props);
 
-    return new StoragesManager(new GlobalTempFolderProvider().provide(new GlobalProperties(props)));
+    return new StoragesManager(new GlobalTempFolderProvider().provide(globalProperties), globalProperties);
   }
 
   @BeforeClass
@@ -0,0 +1,123 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.issue.tracking;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.batch.fs.InputComponent;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.utils.MessageException;
+import org.sonar.scanner.ProjectAnalysisInfo;
+import org.sonar.scanner.issue.IssueCache;
+import org.sonar.scanner.protocol.Constants;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
+import org.sonar.scanner.report.ReportPublisher;
+import org.sonar.scanner.scan.filesystem.InputComponentStore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IssueTransitionTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private InputComponentStore componentStore = mock(InputComponentStore.class);
+  private IssueCache issueCache = mock(IssueCache.class);
+  private ReportPublisher reportPublisher = mock(ReportPublisher.class);
+  private ProjectAnalysisInfo analysisInfo = mock(ProjectAnalysisInfo.class);
+  private MapSettings settings = new MapSettings();
+  private List<InputComponent> components = new ArrayList<>();
+
+  @Before
+  public void setUp() throws Exception {
+    File reportDir = temp.newFolder();
+    when(reportPublisher.getReportDir()).thenReturn(reportDir);
+    when(analysisInfo.analysisDate()).thenReturn(new Date());
+    when(componentStore.all()).thenReturn(components);
+
+    ScannerReportWriter writer = new ScannerReportWriter(reportDir);
+    for (int i = 1; i <= 50; i++) {
+      components.add(new TestInputFileBuilder("foo", "src/File" + i + ".xoo", i).build());
+      for (int j = 0; j < 3; j++) {
+        writer.appendComponentIssue(i, ScannerReport.Issue.newBuilder()
+          .setRuleRepository("xoo")
+          .setRuleKey("R" + j)
+          .setSeverity(Constants.Severity.MAJOR)
+          .setMsg("issue " + j + " of file " + i)
+          .build());
+      }
+    }
+  }
+
+  @Test
+  public void track_components_concurrently_and_store_issues_in_component_order() {
+    settings.setProperty(IssueTransition.THREADS_PROPERTY, 4);
+
+    new IssueTransition(componentStore, analysisInfo, issueCache, reportPublisher, settings).execute();
+
+    ArgumentCaptor<TrackedIssue> stored = ArgumentCaptor.forClass(TrackedIssue.class);
+    verify(issueCache, atLeastOnce()).put(stored.capture());
+    List<String> expected = new ArrayList<>();
+    for (int i = 1; i <= 50; i++) {
+      for (int j = 0; j < 3; j++) {
+        expected.add("issue " + j + " of file " + i);
+      }
+    }
+    assertThat(stored.getAllValues()).extracting("message").containsExactlyElementsOf(expected);
+  }
+
+  @Test
+  public void track_components_sequentially_with_one_thread() {
+    settings.setProperty(IssueTransition.THREADS_PROPERTY, 1);
+
+    new IssueTransition(componentStore, analysisInfo, issueCache, reportPublisher, settings).execute();
+
+    ArgumentCaptor<TrackedIssue> stored = ArgumentCaptor.forClass(TrackedIssue.class);
+    verify(issueCache, atLeastOnce()).put(stored.capture());
+    assertThat(stored.getAllValues()).hasSize(150);
+  }
+
+  @Test
+  public void fail_on_invalid_number_of_threads() {
+    settings.setProperty(IssueTransition.THREADS_PROPERTY, "0");
+
+    thrown.expect(MessageException.class);
+    thrown.expectMessage("Value '0' of property sonar.scanner.issueTracking.threads is invalid. It must be a strictly positive number.");
+
+    new IssueTransition(componentStore, analysisInfo, issueCache, reportPublisher, settings).execute();
+  }
+}
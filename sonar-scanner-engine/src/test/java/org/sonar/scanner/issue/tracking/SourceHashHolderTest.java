@@ -27,8 +27,10 @@ import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.FileMetadata;
 import org.sonar.scanner.issue.tracking.ServerLineHashesLoader;
 import org.sonar.scanner.issue.tracking.SourceHashHolder;
+import org.sonar.scanner.scan.filesystem.FileMetadataCache;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 
@@ -60,7 +62,14 @@ public class SourceHashHolderTest {
     when(file.lines()).thenReturn(1);
     when(file.charset()).thenReturn(StandardCharsets.UTF_8);
 
-    sourceHashHolder = new SourceHashHolder(file, lastSnapshots);
+    FileMetadataCache metadataCache = mock(FileMetadataCache.class);
+    when(metadataCache.lineHashes(file)).thenAnswer(invocation -> {
+      byte[][] hashes = new byte[file.lines()][];
+      FileMetadata.computeLineHashesForIssueTracking(file, (lineIdx, hash) -> hashes[lineIdx - 1] = hash);
+      return hashes;
+    });
+
+    sourceHashHolder = new SourceHashHolder(file, lastSnapshots, metadataCache);
   }
 
   @Test
@@ -23,7 +23,9 @@ import java.io.File;
 import java.io.IOException;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.scanner.mediumtest.ScannerMediumTester;
@@ -40,6 +42,9 @@ public class GenericCoverageMediumTest {
     .addDefaultQProfile("xoo", "Sonar Way")
     .build();
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   @Before
   public void prepare() {
     tester.start();
@@ -57,6 +62,7 @@ public class GenericCoverageMediumTest {
 
     TaskResult result = tester
       .newScanTask(new File(projectDir, "sonar-project.properties"))
+      .property("sonar.working.directory", temp.newFolder().getAbsolutePath())
       .property("sonar.coverageReportPaths", "coverage.xml")
       .start();
 
@@ -98,6 +104,7 @@ public class GenericCoverageMediumTest {
 
     TaskResult result = tester
       .newScanTask(new File(projectDir, "sonar-project.properties"))
+      .property("sonar.working.directory", temp.newFolder().getAbsolutePath())
       .property("sonar.coverageReportPaths", "coverage.xml,coverage2.xml")
       .start();
 
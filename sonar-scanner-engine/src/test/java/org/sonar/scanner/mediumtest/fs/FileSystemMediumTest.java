@@ -535,11 +535,12 @@ public class FileSystemMediumTest {
 
   // SONAR-5330
   @Test
-  public void scanProjectWithSourceSymlink() {
+  public void scanProjectWithSourceSymlink() throws IOException {
     if (!System2.INSTANCE.isOsWindows()) {
       File projectDir = new File("src/test/resources/mediumtest/xoo/sample-with-symlink");
       TaskResult result = tester
         .newScanTask(new File(projectDir, "sonar-project.properties"))
+        .property("sonar.working.directory", temp.newFolder().getAbsolutePath())
         .start();
 
       assertThat(result.inputFiles()).hasSize(3);
@@ -550,11 +551,12 @@ public class FileSystemMediumTest {
 
   // SONAR-6719
   @Test
-  public void scanProjectWithWrongCase() {
+  public void scanProjectWithWrongCase() throws IOException {
     if (System2.INSTANCE.isOsWindows()) {
       File projectDir = new File("src/test/resources/mediumtest/xoo/sample");
       TaskResult result = tester
         .newScanTask(new File(projectDir, "sonar-project.properties"))
+        .property("sonar.working.directory", temp.newFolder().getAbsolutePath())
         .property("sonar.sources", "XOURCES")
         .property("sonar.tests", "TESTX")
         .start();
@@ -591,10 +593,11 @@ public class FileSystemMediumTest {
   }
 
   @Test
-  public void scanMultiModuleProject() {
+  public void scanMultiModuleProject() throws IOException {
     File projectDir = new File("src/test/resources/mediumtest/xoo/multi-modules-sample");
     TaskResult result = tester
       .newScanTask(new File(projectDir, "sonar-project.properties"))
+      .property("sonar.working.directory", temp.newFolder().getAbsolutePath())
       .start();
 
     assertThat(result.inputFiles()).hasSize(4);
@@ -196,6 +196,60 @@ public class ScmMediumTest {
       "  * " + PathUtils.sanitize(xooFileWithoutBlame.toPath().toString()));
   }
 
+  @Test
+  public void blame_files_concurrently() throws IOException, URISyntaxException {
+
+    File baseDir = prepareProject();
+    File xooFileWithoutBlame = new File(baseDir, "src/sample_no_blame.xoo");
+    FileUtils.write(xooFileWithoutBlame, "Sample xoo\ncontent\n3\n4\n5");
+
+    tester.newTask()
+      .properties(ImmutableMap.<String, String>builder()
+        .put("sonar.task", "scan")
+        .put("sonar.projectBaseDir", baseDir.getAbsolutePath())
+        .put("sonar.projectKey", "com.foo.project")
+        .put("sonar.projectName", "Foo Project")
+        .put("sonar.projectVersion", "1.0-SNAPSHOT")
+        .put("sonar.projectDescription", "Description of Foo Project")
+        .put("sonar.sources", "src")
+        .put("sonar.scm.provider", "xoo")
+        .put("sonar.scm.blame.threads", "2")
+        .build())
+      .start();
+
+    assertThat(getChangesets(baseDir, "src/sample.xoo").getChangesetIndexByLineList()).hasSize(5);
+    assertThat(getChangesets(baseDir, "src/sample_no_blame.xoo")).isNull();
+    assertThat(logTester.logs()).containsSubsequence("2 files to be analyzed", MISSING_BLAME_INFORMATION_FOR_THE_FOLLOWING_FILES,
+      "  * " + PathUtils.sanitize(xooFileWithoutBlame.toPath().toString()));
+  }
+
+  @Test
+  public void reuse_blame_of_unchanged_files_from_previous_analysis() throws IOException, URISyntaxException {
+
+    File baseDir = prepareProject();
+    TaskBuilder task = tester.newTask()
+      .properties(ImmutableMap.<String, String>builder()
+        .put("sonar.task", "scan")
+        .put("sonar.projectBaseDir", baseDir.getAbsolutePath())
+        .put("sonar.projectKey", "com.foo.project")
+        .put("sonar.projectName", "Foo Project")
+        .put("sonar.projectVersion", "1.0-SNAPSHOT")
+        .put("sonar.projectDescription", "Description of Foo Project")
+        .put("sonar.sources", "src")
+        .put("sonar.scm.provider", "xoo")
+        .build());
+    task.start();
+    assertThat(logTester.logs()).contains("1 files to be analyzed");
+
+    // blame would fail if the file was blamed again
+    new File(baseDir, "src/sample.xoo.scm").delete();
+    logTester.clear();
+    task.start();
+
+    assertThat(getChangesets(baseDir, "src/sample.xoo").getChangesetIndexByLineList()).hasSize(5);
+    assertThat(logTester.logs()).doesNotContain("1 files to be analyzed", MISSING_BLAME_INFORMATION_FOR_THE_FOLLOWING_FILES);
+  }
+
   // SONAR-6397
   @Test
   public void optimize_blame() throws IOException, URISyntaxException {
@@ -111,6 +111,7 @@ public class GenericTestExecutionMediumTest {
 
     TaskResult result = tester
       .newScanTask(new File(projectDir, "sonar-project.properties"))
+      .property("sonar.working.directory", temp.newFolder().getAbsolutePath())
       .property("sonar.testExecutionReportPaths", "unittest.xml")
       .start();
 
@@ -153,6 +154,7 @@ public class GenericTestExecutionMediumTest {
 
     TaskResult result = tester
       .newScanTask(new File(projectDir, "sonar-project.properties"))
+      .property("sonar.working.directory", temp.newFolder().getAbsolutePath())
       .property("sonar.testExecutionReportPaths", "unittest.xml,unittest2.xml")
       .start();
 
@@ -0,0 +1,189 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.phases;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.mockito.InOrder;
+import org.sonar.api.batch.Sensor;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.config.Settings;
+import org.sonar.api.resources.Project;
+import org.sonar.api.utils.MessageException;
+import org.sonar.scanner.bootstrap.ScannerExtensionDictionnary;
+import org.sonar.scanner.events.EventBus;
+import org.sonar.scanner.sensor.SensorOptimizer;
+import org.sonar.scanner.sensor.SensorWrapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SensorsExecutorTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private DefaultInputModule module = new DefaultInputModule("project");
+  private ScannerExtensionDictionnary selector = mock(ScannerExtensionDictionnary.class);
+  private SensorContext context = mock(SensorContext.class);
+  private Settings settings = new MapSettings();
+
+  @Test
+  public void execute_sensors_one_after_the_other_by_default() {
+    Sensor sensor1 = mock(Sensor.class);
+    Sensor sensor2 = mock(Sensor.class);
+    when(selector.select(Sensor.class, module, true, null)).thenReturn(Arrays.asList(sensor1, sensor2));
+
+    newExecutor().execute(context);
+
+    InOrder inOrder = inOrder(sensor1, sensor2);
+    inOrder.verify(sensor1).analyse(any(Project.class), eq(context));
+    inOrder.verify(sensor2).analyse(any(Project.class), eq(context));
+  }
+
+  @Test
+  public void execute_thread_safe_sensors_concurrently() {
+    settings.setProperty(SensorsExecutor.CONCURRENCY_PROPERTY, "2");
+    // each sensor waits for the other one, which never happens if they are executed one after the other
+    CountDownLatch latch = new CountDownLatch(2);
+    Consumer<org.sonar.api.batch.sensor.SensorContext> awaitOther = c -> {
+      latch.countDown();
+      try {
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    };
+    Sensor sensor1 = newSensor(SensorDescriptor::threadSafe, awaitOther);
+    Sensor sensor2 = newSensor(SensorDescriptor::threadSafe, awaitOther);
+    when(selector.select(Sensor.class, module, true, null)).thenReturn(Arrays.asList(sensor1, sensor2));
+
+    newExecutor().execute(context);
+
+    assertThat(latch.getCount()).isZero();
+  }
+
+  @Test
+  public void fail_if_a_concurrent_sensor_fails() {
+    settings.setProperty(SensorsExecutor.CONCURRENCY_PROPERTY, "2");
+    Sensor sensor1 = newSensor(SensorDescriptor::threadSafe, c -> {
+    });
+    Sensor sensor2 = newSensor(SensorDescriptor::threadSafe, c -> {
+      throw new IllegalStateException("Boom");
+    });
+    when(selector.select(Sensor.class, module, true, null)).thenReturn(Arrays.asList(sensor1, sensor2));
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Boom");
+
+    newExecutor().execute(context);
+  }
+
+  @Test
+  public void fail_if_a_sensor_of_the_deprecated_api_fails_when_concurrency_is_enabled() {
+    settings.setProperty(SensorsExecutor.CONCURRENCY_PROPERTY, "2");
+    Sensor sensor = mock(Sensor.class);
+    doThrow(new IllegalStateException("Boom")).when(sensor).analyse(any(Project.class), eq(context));
+    when(selector.select(Sensor.class, module, true, null)).thenReturn(Arrays.asList(sensor));
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Boom");
+
+    newExecutor().execute(context);
+  }
+
+  @Test
+  public void split_sensors_into_batches() {
+    Sensor a = newSensor(d -> d.name("a").threadSafe());
+    Sensor b = newSensor(d -> d.name("b").threadSafe());
+    Sensor notThreadSafe = newSensor(d -> d.name("notThreadSafe"));
+    Sensor deprecated = mock(Sensor.class);
+    Sensor producer = newSensor(d -> d.name("producer").threadSafe().dependedUpon("flag"));
+    Sensor consumer = newSensor(d -> d.name("consumer").threadSafe().dependsUpon("flag"));
+    Sensor c = newSensor(d -> d.name("c").threadSafe());
+
+    List<List<Sensor>> batches = SensorsExecutor.splitIntoBatches(Arrays.asList(a, b, notThreadSafe, deprecated, producer, consumer, c));
+
+    assertThat(batches).containsExactly(
+      Arrays.asList(a, b),
+      Arrays.asList(notThreadSafe),
+      Arrays.asList(deprecated),
+      Arrays.asList(producer),
+      Arrays.asList(consumer, c));
+  }
+
+  @Test
+  public void fail_if_concurrency_is_not_strictly_positive() {
+    settings.setProperty(SensorsExecutor.CONCURRENCY_PROPERTY, "0");
+
+    thrown.expect(MessageException.class);
+    thrown.expectMessage("Value '0' of property sonar.scanner.sensors.concurrency is invalid");
+
+    newExecutor();
+  }
+
+  @Test
+  public void fail_if_concurrency_is_not_a_number() {
+    settings.setProperty(SensorsExecutor.CONCURRENCY_PROPERTY, "foo");
+
+    thrown.expect(MessageException.class);
+    thrown.expectMessage("Value 'foo' of property sonar.scanner.sensors.concurrency is invalid");
+
+    newExecutor();
+  }
+
+  private SensorsExecutor newExecutor() {
+    return new SensorsExecutor(selector, module, mock(EventBus.class), settings);
+  }
+
+  private static Sensor newSensor(Consumer<SensorDescriptor> description) {
+    return newSensor(description, c -> {
+    });
+  }
+
+  private static Sensor newSensor(Consumer<SensorDescriptor> description, Consumer<org.sonar.api.batch.sensor.SensorContext> execution) {
+    org.sonar.api.batch.sensor.Sensor sensor = new org.sonar.api.batch.sensor.Sensor() {
+      @Override
+      public void describe(SensorDescriptor descriptor) {
+        description.accept(descriptor);
+      }
+
+      @Override
+      public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+        execution.accept(context);
+      }
+    };
+    return new SensorWrapper(sensor, mock(org.sonar.api.batch.sensor.SensorContext.class), mock(SensorOptimizer.class));
+  }
+}
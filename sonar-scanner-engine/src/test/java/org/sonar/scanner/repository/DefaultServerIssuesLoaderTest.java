@@ -19,32 +19,49 @@
  */
 package org.sonar.scanner.repository;
 
-import org.sonar.scanner.WsTestUtil;
-import org.sonar.scanner.bootstrap.ScannerWsClient;
-import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
-import org.sonar.scanner.repository.DefaultServerIssuesLoader;
-import org.junit.Before;
-import org.junit.Test;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.System2;
+import org.sonar.home.cache.FileCache;
+import org.sonar.scanner.WsTestUtil;
+import org.sonar.scanner.bootstrap.ScannerWsClient;
+import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 public class DefaultServerIssuesLoaderTest {
+
+  private static final long NOW = 1_500_000_000_000L;
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   private DefaultServerIssuesLoader loader;
   private ScannerWsClient wsClient;
+  private System2 system2 = mock(System2.class);
+  private File userHome;
 
   @Before
-  public void prepare() {
+  public void prepare() throws IOException {
     wsClient = mock(ScannerWsClient.class);
-    loader = new DefaultServerIssuesLoader(wsClient);
+    when(wsClient.baseUrl()).thenReturn("http://localhost:9000");
+    userHome = temp.newFolder();
+    FileCache fileCache = mock(FileCache.class);
+    when(fileCache.getDir()).thenReturn(new File(userHome, "cache"));
+    when(system2.now()).thenReturn(NOW);
+    loader = new DefaultServerIssuesLoader(wsClient, fileCache, system2);
   }
 
   @Test
@@ -59,13 +76,58 @@ public class DefaultServerIssuesLoaderTest {
     InputStream is = new ByteArrayInputStream(bos.toByteArray());
     WsTestUtil.mockStream(wsClient, "/batch/issues.protobuf?key=foo", is);
 
-    final List<ServerIssue> result = new ArrayList<>();
-    loader.load("foo", issue -> {
-      result.add(issue);
-      return null;
-    });
+    assertThat(load("foo")).extracting("key").containsExactly("ab1", "ab2");
+  }
+
+  @Test
+  public void load_only_changed_issues_when_issues_were_previously_downloaded() throws Exception {
+    mockIssues("/batch/issues.protobuf?key=foo",
+      issue("unchanged", "OPEN", 1_000L), issue("changed", "OPEN", 2_000L), issue("closed", "OPEN", 3_000L));
+    assertThat(load("foo")).extracting("key").containsOnly("unchanged", "changed", "closed");
+
+    long changedSince = 3_000L - DefaultServerIssuesLoader.CHANGED_SINCE_MARGIN_MS;
+    mockIssues("/batch/issues.protobuf?key=foo&changedSince=" + changedSince,
+      issue("changed", "RESOLVED", 4_000L), issue("closed", "CLOSED", 5_000L), issue("new", "OPEN", 6_000L));
+    List<ServerIssue> issues = load("foo");
+
+    assertThat(issues).extracting("key").containsOnly("unchanged", "changed", "new");
+    assertThat(issues).filteredOn(issue -> issue.getKey().equals("changed")).extracting("status").containsExactly("RESOLVED");
+
+    // changes are merged into the copy of issues
+    changedSince = 6_000L - DefaultServerIssuesLoader.CHANGED_SINCE_MARGIN_MS;
+    mockIssues("/batch/issues.protobuf?key=foo&changedSince=" + changedSince);
+    assertThat(load("foo")).extracting("key").containsOnly("unchanged", "changed", "new");
+  }
+
+  @Test
+  public void load_all_issues_when_copy_is_too_old() throws Exception {
+    mockIssues("/batch/issues.protobuf?key=foo", issue("old", "OPEN", 1_000L));
+    load("foo");
+
+    when(system2.now()).thenReturn(NOW + DefaultServerIssuesLoader.MAX_AGE_MS + 1);
+    mockIssues("/batch/issues.protobuf?key=foo", issue("new", "OPEN", 2_000L));
 
-    assertThat(result).extracting("key").containsExactly("ab1", "ab2");
+    assertThat(load("foo")).extracting("key").containsExactly("new");
+  }
+
+  @Test
+  public void load_all_issues_when_no_issue_has_update_date() throws Exception {
+    mockIssues("/batch/issues.protobuf?key=foo", ServerIssue.newBuilder().setKey("ab1").build());
+    load("foo");
+
+    mockIssues("/batch/issues.protobuf?key=foo", ServerIssue.newBuilder().setKey("ab2").build());
+
+    assertThat(load("foo")).extracting("key").containsExactly("ab2");
+  }
+
+  @Test
+  public void keep_a_copy_per_project() throws Exception {
+    mockIssues("/batch/issues.protobuf?key=foo", issue("foo1", "OPEN", 1_000L));
+    load("foo");
+    mockIssues("/batch/issues.protobuf?key=bar", issue("bar1", "OPEN", 1_000L));
+
+    assertThat(load("bar")).extracting("key").containsExactly("bar1");
+    assertThat(new File(userHome, "server_issues").listFiles()).hasSize(2);
   }
 
   @Test(expected = IllegalStateException.class)
@@ -75,4 +137,39 @@ public class DefaultServerIssuesLoaderTest {
     WsTestUtil.mockStream(wsClient, "/batch/issues.protobuf?key=foo", is);
     loader.load("foo", mock(Function.class));
   }
+
+  @Test
+  public void do_not_save_copy_when_download_fails() throws Exception {
+    InputStream is = mock(InputStream.class);
+    when(is.read()).thenThrow(IOException.class);
+    WsTestUtil.mockStream(wsClient, "/batch/issues.protobuf?key=foo", is);
+    try {
+      load("foo");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+
+    assertThat(new File(userHome, "server_issues").listFiles()).isEmpty();
+  }
+
+  private List<ServerIssue> load(String componentKey) {
+    List<ServerIssue> result = new ArrayList<>();
+    loader.load(componentKey, issue -> {
+      result.add(issue);
+      return null;
+    });
+    return result;
+  }
+
+  private void mockIssues(String path, ServerIssue... issues) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    for (ServerIssue issue : issues) {
+      issue.writeDelimitedTo(bos);
+    }
+    WsTestUtil.mockStream(wsClient, path, new ByteArrayInputStream(bos.toByteArray()));
+  }
+
+  private static ServerIssue issue(String key, String status, long updatedAt) {
+    return ServerIssue.newBuilder().setKey(key).setStatus(status).setUpdatedAt(updatedAt).build();
+  }
 }
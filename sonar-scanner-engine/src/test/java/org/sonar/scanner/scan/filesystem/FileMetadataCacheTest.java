@@ -0,0 +1,242 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.FileMetadata;
+import org.sonar.api.batch.fs.internal.Metadata;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.utils.System2;
+import org.sonar.home.cache.FileCache;
+import org.sonar.scanner.scan.ImmutableProjectReactor;
+
+import static org.apache.commons.codec.digest.DigestUtils.md5;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FileMetadataCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private FileMetadata fileMetadata = new FileMetadata();
+  private AtomicInteger reads = new AtomicInteger();
+  private File cacheFile;
+  private File file;
+
+  @Before
+  public void setUp() throws Exception {
+    cacheFile = new File(temp.newFolder(), "cache");
+    file = temp.newFile("Foo.java");
+    FileUtils.write(file, "foo\n\nbar", StandardCharsets.UTF_8);
+    file.setLastModified(1_000_000_000L);
+  }
+
+  @Test
+  public void reuse_metadata_of_unchanged_file_computed_by_previous_analysis() {
+    Metadata metadata = analyze(new FileMetadataCache(cacheFile));
+    assertThat(reads.get()).isEqualTo(1);
+
+    Metadata cached = analyze(new FileMetadataCache(cacheFile));
+
+    assertThat(reads.get()).isEqualTo(1);
+    assertThat(cached.lines()).isEqualTo(3).isEqualTo(metadata.lines());
+    assertThat(cached.nonBlankLines()).isEqualTo(2);
+    assertThat(cached.hash()).isEqualTo(metadata.hash());
+    assertThat(cached.originalLineOffsets()).containsExactly(0, 4, 5);
+    assertThat(cached.lastValidOffset()).isEqualTo(metadata.lastValidOffset());
+  }
+
+  @Test
+  public void read_file_again_when_modified() throws Exception {
+    analyze(new FileMetadataCache(cacheFile));
+
+    FileUtils.write(file, "foo\nbar\nbaz", StandardCharsets.UTF_8);
+    file.setLastModified(2_000_000_000L);
+    Metadata metadata = analyze(new FileMetadataCache(cacheFile));
+
+    assertThat(reads.get()).isEqualTo(2);
+    assertThat(metadata.lines()).isEqualTo(3);
+    assertThat(metadata.nonBlankLines()).isEqualTo(3);
+  }
+
+  @Test
+  public void read_file_again_when_charset_changed() {
+    analyze(new FileMetadataCache(cacheFile));
+
+    FileMetadataCache underTest = new FileMetadataCache(cacheFile);
+    underTest.start();
+    underTest.metadata(file, StandardCharsets.UTF_16, reader(StandardCharsets.UTF_16));
+
+    assertThat(reads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void do_not_cache_file_modified_within_mtime_granularity_before_being_read() {
+    System2 system2 = mock(System2.class);
+    when(system2.now()).thenReturn(file.lastModified() + FileMetadataCache.MTIME_GRANULARITY_MS - 1);
+
+    FileMetadataCache underTest = new FileMetadataCache(cacheFile, system2);
+    Metadata metadata = analyze(underTest);
+    analyze(new FileMetadataCache(cacheFile, system2));
+
+    assertThat(reads.get()).isEqualTo(2);
+    assertThat(underTest.lineHashes(inputFile(metadata))).hasSize(3);
+
+    when(system2.now()).thenReturn(file.lastModified() + FileMetadataCache.MTIME_GRANULARITY_MS);
+    analyze(new FileMetadataCache(cacheFile, system2));
+    analyze(new FileMetadataCache(cacheFile, system2));
+
+    assertThat(reads.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void cache_line_hashes() {
+    FileMetadataCache underTest = new FileMetadataCache(cacheFile);
+    underTest.start();
+    Metadata metadata = underTest.metadata(file, StandardCharsets.UTF_8, reader(StandardCharsets.UTF_8));
+    DefaultInputFile inputFile = inputFile(metadata);
+    byte[][] lineHashes = underTest.lineHashes(inputFile);
+    assertThat(underTest.lineHashes(inputFile)).isSameAs(lineHashes);
+    underTest.stop();
+
+    underTest = new FileMetadataCache(cacheFile);
+    underTest.start();
+    underTest.metadata(file, StandardCharsets.UTF_8, reader(StandardCharsets.UTF_8));
+    byte[][] cached = underTest.lineHashes(inputFile);
+
+    assertThat(cached).hasSize(3);
+    assertThat(cached[0]).isEqualTo(md5("foo"));
+    assertThat(cached[1]).isNull();
+    assertThat(cached[2]).isEqualTo(md5("bar"));
+  }
+
+  @Test
+  public void compute_line_hashes_of_file_unknown_by_cache() {
+    FileMetadataCache underTest = new FileMetadataCache(cacheFile);
+    underTest.start();
+
+    byte[][] lineHashes = underTest.lineHashes(inputFile(fileMetadata.readMetadata(file, StandardCharsets.UTF_8)));
+
+    assertThat(lineHashes).hasSize(3);
+    assertThat(lineHashes[2]).isEqualTo(md5("bar"));
+  }
+
+  @Test
+  public void write_only_entries_used_by_last_analysis() throws Exception {
+    File otherFile = temp.newFile("Bar.java");
+    otherFile.setLastModified(1_000_000_000L);
+    FileMetadataCache underTest = new FileMetadataCache(cacheFile);
+    underTest.start();
+    underTest.metadata(file, StandardCharsets.UTF_8, reader(StandardCharsets.UTF_8));
+    underTest.metadata(otherFile, StandardCharsets.UTF_8, () -> fileMetadata.readMetadata(otherFile, StandardCharsets.UTF_8));
+    underTest.stop();
+    long size = cacheFile.length();
+
+    analyze(new FileMetadataCache(cacheFile));
+
+    assertThat(cacheFile.length()).isLessThan(size);
+  }
+
+  @Test
+  public void ignore_corrupted_cache() throws Exception {
+    FileUtils.write(cacheFile, "corrupted", StandardCharsets.UTF_8);
+
+    analyze(new FileMetadataCache(cacheFile));
+
+    assertThat(reads.get()).isEqualTo(1);
+    analyze(new FileMetadataCache(cacheFile));
+    assertThat(reads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void always_read_files_when_disabled() {
+    analyze(new FileMetadataCache(null));
+    analyze(new FileMetadataCache(null));
+
+    assertThat(reads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void store_cache_in_user_home_per_project() throws Exception {
+    File userHome = temp.newFolder();
+    FileCache fileCache = mock(FileCache.class);
+    when(fileCache.getDir()).thenReturn(new File(userHome, "cache"));
+    ImmutableProjectReactor reactor = new ImmutableProjectReactor(ProjectDefinition.create().setKey("foo"));
+
+    FileMetadataCache underTest = new FileMetadataCache(fileCache, reactor, new MapSettings(), System2.INSTANCE);
+    underTest.start();
+    underTest.metadata(file, StandardCharsets.UTF_8, reader(StandardCharsets.UTF_8));
+    underTest.stop();
+
+    assertThat(new File(userHome, "metadata").listFiles()).hasSize(1);
+  }
+
+  @Test
+  public void disable_cache_with_property() throws Exception {
+    File userHome = temp.newFolder();
+    FileCache fileCache = mock(FileCache.class);
+    when(fileCache.getDir()).thenReturn(new File(userHome, "cache"));
+    ImmutableProjectReactor reactor = new ImmutableProjectReactor(ProjectDefinition.create().setKey("foo"));
+
+    FileMetadataCache underTest = new FileMetadataCache(fileCache, reactor, new MapSettings().setProperty(FileMetadataCache.DISABLED_PROPERTY, true),
+      System2.INSTANCE);
+    underTest.start();
+    underTest.metadata(file, StandardCharsets.UTF_8, reader(StandardCharsets.UTF_8));
+    underTest.stop();
+
+    assertThat(new File(userHome, "metadata")).doesNotExist();
+  }
+
+  private Metadata analyze(FileMetadataCache underTest) {
+    underTest.start();
+    Metadata metadata = underTest.metadata(file, StandardCharsets.UTF_8, reader(StandardCharsets.UTF_8));
+    underTest.stop();
+    return metadata;
+  }
+
+  private Supplier<Metadata> reader(Charset charset) {
+    return () -> {
+      reads.incrementAndGet();
+      return fileMetadata.readMetadata(file, charset);
+    };
+  }
+
+  private DefaultInputFile inputFile(Metadata metadata) {
+    return new TestInputFileBuilder("foo", file.getName())
+      .setModuleBaseDir(file.getParentFile().toPath())
+      .setMetadata(metadata)
+      .setCharset(StandardCharsets.UTF_8)
+      .build();
+  }
+}
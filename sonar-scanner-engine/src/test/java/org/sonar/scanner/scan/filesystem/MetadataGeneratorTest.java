@@ -57,7 +57,7 @@ public class MetadataGeneratorTest {
   public void setUp() {
     MockitoAnnotations.initMocks(this);
     metadata = new FileMetadata();
-    generator = new MetadataGenerator(new DefaultInputModule("module"), statusDetection, metadata);
+    generator = new MetadataGenerator(new DefaultInputModule("module"), statusDetection, metadata, new FileMetadataCache(null));
   }
 
   @Test
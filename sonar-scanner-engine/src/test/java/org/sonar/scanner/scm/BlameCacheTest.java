@@ -0,0 +1,165 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scm;
+
+import java.io.File;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.protocol.output.ScannerReport.Changesets.Changeset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BlameCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File cacheFile;
+
+  @Before
+  public void setUp() throws Exception {
+    cacheFile = new File(temp.newFolder(), "cache");
+  }
+
+  @Test
+  public void reuse_blame_of_unchanged_file_computed_by_previous_analysis() {
+    BlameCache previousAnalysis = new BlameCache(cacheFile);
+    previousAnalysis.start();
+    previousAnalysis.put(file(1, "hash"), changesets(1));
+    previousAnalysis.stop();
+
+    BlameCache underTest = new BlameCache(cacheFile);
+    underTest.start();
+    ScannerReport.Changesets cached = underTest.get(file(2, "hash"));
+
+    assertThat(cached.getComponentRef()).isEqualTo(2);
+    assertThat(cached.getChangesetCount()).isEqualTo(1);
+    assertThat(cached.getChangeset(0).getRevision()).isEqualTo("abc");
+    assertThat(cached.getChangeset(0).getAuthor()).isEqualTo("john");
+    assertThat(cached.getChangeset(0).getDate()).isEqualTo(123L);
+    assertThat(cached.getChangesetIndexByLineList()).containsExactly(0, 0);
+  }
+
+  @Test
+  public void blame_file_again_when_content_changed() {
+    BlameCache previousAnalysis = new BlameCache(cacheFile);
+    previousAnalysis.start();
+    previousAnalysis.put(file(1, "hash"), changesets(1));
+    previousAnalysis.stop();
+
+    BlameCache underTest = new BlameCache(cacheFile);
+    underTest.start();
+
+    assertThat(underTest.get(file(1, "other_hash"))).isNull();
+    assertThat(underTest.get(new TestInputFileBuilder("foo", "src/Bar.xoo").setHash("hash").build())).isNull();
+  }
+
+  @Test
+  public void keep_entries_of_files_used_by_analysis() {
+    BlameCache previousAnalysis = new BlameCache(cacheFile);
+    previousAnalysis.start();
+    previousAnalysis.put(file(1, "hash"), changesets(1));
+    previousAnalysis.stop();
+
+    BlameCache analysis = new BlameCache(cacheFile);
+    analysis.start();
+    assertThat(analysis.get(file(1, "hash"))).isNotNull();
+    analysis.put(new TestInputFileBuilder("foo", "src/Bar.xoo").setHash("hash").build(), changesets(2));
+    analysis.stop();
+
+    BlameCache underTest = new BlameCache(cacheFile);
+    underTest.start();
+    assertThat(underTest.get(file(1, "hash"))).isNotNull();
+    assertThat(underTest.get(new TestInputFileBuilder("foo", "src/Bar.xoo").setHash("hash").build())).isNotNull();
+  }
+
+  @Test
+  public void drop_entries_of_files_not_used_by_analysis() {
+    BlameCache previousAnalysis = new BlameCache(cacheFile);
+    previousAnalysis.start();
+    previousAnalysis.put(file(1, "hash"), changesets(1));
+    previousAnalysis.stop();
+
+    BlameCache analysis = new BlameCache(cacheFile);
+    analysis.start();
+    analysis.put(new TestInputFileBuilder("foo", "src/Bar.xoo").setHash("hash").build(), changesets(2));
+    analysis.stop();
+
+    BlameCache underTest = new BlameCache(cacheFile);
+    underTest.start();
+    assertThat(underTest.get(file(1, "hash"))).isNull();
+  }
+
+  @Test
+  public void do_not_save_cache_when_all_entries_are_used_and_unchanged() {
+    BlameCache previousAnalysis = new BlameCache(cacheFile);
+    previousAnalysis.start();
+    previousAnalysis.put(file(1, "hash"), changesets(1));
+    previousAnalysis.stop();
+    assertThat(cacheFile.setLastModified(1_000L)).isTrue();
+
+    BlameCache underTest = new BlameCache(cacheFile);
+    underTest.start();
+    assertThat(underTest.get(file(1, "hash"))).isNotNull();
+    underTest.stop();
+
+    assertThat(cacheFile.lastModified()).isEqualTo(1_000L);
+  }
+
+  @Test
+  public void ignore_corrupted_cache() throws Exception {
+    FileUtils.write(cacheFile, "corrupted");
+
+    BlameCache underTest = new BlameCache(cacheFile);
+    underTest.start();
+
+    assertThat(underTest.get(file(1, "hash"))).isNull();
+  }
+
+  @Test
+  public void do_not_persist_when_disabled() {
+    BlameCache underTest = new BlameCache(null);
+    underTest.start();
+    underTest.put(file(1, "hash"), changesets(1));
+    underTest.stop();
+
+    assertThat(underTest.get(file(1, "hash"))).isNull();
+    assertThat(cacheFile).doesNotExist();
+  }
+
+  private static DefaultInputFile file(int batchId, String hash) {
+    return new TestInputFileBuilder("foo", "src/Foo.xoo", batchId).setHash(hash).build();
+  }
+
+  private static ScannerReport.Changesets changesets(int componentRef) {
+    return ScannerReport.Changesets.newBuilder()
+      .setComponentRef(componentRef)
+      .addChangeset(Changeset.newBuilder().setRevision("abc").setAuthor("john").setDate(123L))
+      .addChangesetIndexByLine(0)
+      .addChangesetIndexByLine(0)
+      .build();
+  }
+}
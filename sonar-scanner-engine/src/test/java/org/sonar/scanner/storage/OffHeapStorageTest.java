@@ -0,0 +1,72 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the tests of {@link StorageTest} on the engine "offHeap". Spill threshold is zero, so that values
+ * are written into memory-mapped files.
+ */
+public class OffHeapStorageTest extends StorageTest {
+
+  @BeforeClass
+  public static void startClass() {
+    cachesManager = createCacheOnTemp(ImmutableMap.of(
+      StoragesManager.ENGINE_PROPERTY, "offHeap",
+      StoragesManager.SPILL_THRESHOLD_PROPERTY, "0"));
+    cachesManager.start();
+  }
+
+  @Test
+  public void storages_are_off_heap() {
+    assertThat(caches.createCache("foo")).isInstanceOf(OffHeapStorage.class);
+  }
+
+  @Test
+  public void values_are_encoded_by_persistit() {
+    Storage<Object> cache = caches.createCache("objects");
+    cache.put("key", 42L);
+    cache.put("key", "sub", new StringBuilder("builder"));
+
+    assertThat(cache.get("key")).isEqualTo(42L);
+    assertThat(cache.get("key", "sub").toString()).isEqualTo("builder");
+  }
+
+  @Test
+  public void iteration_does_not_fail_if_storage_is_modified() {
+    Storage<String> cache = caches.createCache("modified");
+    cache.put("a", "1");
+    cache.put("b", "2");
+    cache.put("c", "3");
+
+    int count = 0;
+    for (String value : cache.values()) {
+      cache.remove("c");
+      count++;
+    }
+
+    assertThat(count).isEqualTo(2);
+  }
+}
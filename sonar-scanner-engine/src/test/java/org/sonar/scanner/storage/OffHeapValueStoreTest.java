@@ -0,0 +1,129 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OffHeapValueStoreTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void append_and_read_records() throws Exception {
+    OffHeapValueStore underTest = new OffHeapValueStore(temp.newFolder(), 1024 * 1024);
+
+    long address1 = underTest.append(bytes("first"), 5);
+    long address2 = underTest.append(bytes("second"), 6);
+    long address3 = underTest.append(bytes("truncated"), 5);
+
+    assertThat(read(underTest, address1)).isEqualTo("first");
+    assertThat(read(underTest, address2)).isEqualTo("second");
+    assertThat(read(underTest, address3)).isEqualTo("trunc");
+  }
+
+  @Test
+  public void spill_to_disk_when_threshold_is_reached() throws Exception {
+    File spillDir = temp.newFolder();
+    OffHeapValueStore underTest = new OffHeapValueStore(spillDir, 16, 16);
+
+    // 4 bytes of length + 10 bytes fit into first segment
+    long address1 = underTest.append(bytes("0123456789"), 10);
+    assertThat(underTest.offHeapSize()).isEqualTo(16);
+    assertThat(underTest.spilledSize()).isEqualTo(0);
+    assertThat(spillDir.list()).isEmpty();
+
+    long address2 = underTest.append(bytes("abcdefghij"), 10);
+    assertThat(underTest.offHeapSize()).isEqualTo(16);
+    assertThat(underTest.spilledSize()).isEqualTo(16);
+    assertThat(spillDir.list()).hasSize(1);
+
+    assertThat(read(underTest, address1)).isEqualTo("0123456789");
+    assertThat(read(underTest, address2)).isEqualTo("abcdefghij");
+  }
+
+  @Test
+  public void record_larger_than_segment_has_its_own_segment() throws Exception {
+    OffHeapValueStore underTest = new OffHeapValueStore(temp.newFolder(), 1024, 8);
+
+    long address = underTest.append(bytes("larger than segment"), 19);
+
+    assertThat(read(underTest, address)).isEqualTo("larger than segment");
+    assertThat(underTest.offHeapSize()).isEqualTo(23);
+  }
+
+  @Test
+  public void close_releases_segments() throws Exception {
+    OffHeapValueStore underTest = new OffHeapValueStore(temp.newFolder(), 0, 16);
+    underTest.append(bytes("foo"), 3);
+
+    underTest.close();
+
+    assertThat(underTest.offHeapSize()).isEqualTo(0);
+    assertThat(underTest.spilledSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void account_size_of_freed_records() throws Exception {
+    OffHeapValueStore underTest = new OffHeapValueStore(temp.newFolder(), 1024 * 1024);
+    long address1 = underTest.append(bytes("first"), 5);
+    underTest.append(bytes("second"), 6);
+
+    underTest.free(address1);
+
+    assertThat(underTest.freedSize()).isEqualTo(9);
+    // space is not reused
+    assertThat(read(underTest, address1)).isEqualTo("first");
+  }
+
+  @Test
+  public void spilled_files_can_be_deleted_once_closed() throws Exception {
+    File spillDir = temp.newFolder();
+    OffHeapValueStore underTest = new OffHeapValueStore(spillDir, 0, 16);
+    underTest.append(bytes("foo"), 3);
+    underTest.append(bytes("0123456789abc"), 13);
+    assertThat(spillDir.list()).hasSize(2);
+
+    underTest.close();
+
+    for (File file : spillDir.listFiles()) {
+      assertThat(file.delete()).isTrue();
+    }
+    assertThat(underTest.freedSize()).isEqualTo(0);
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String read(OffHeapValueStore store, long address) {
+    ByteBuffer buffer = store.read(address);
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
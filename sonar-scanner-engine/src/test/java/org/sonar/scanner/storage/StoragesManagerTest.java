@@ -19,24 +19,77 @@
  */
 package org.sonar.scanner.storage;
 
+import com.google.common.collect.ImmutableMap;
+import java.io.File;
+import java.util.Collections;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.utils.MessageException;
 import org.sonar.scanner.index.AbstractCachesTest;
-import java.io.File;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class StoragesManagerTest extends AbstractCachesTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
   @Test
   public void should_stop_and_clean_temp_dir() {
-    File tempDir = cachesManager.tempDir();
+    // do not stop the manager shared by tests
+    StoragesManager manager = createCacheOnTemp(Collections.emptyMap());
+    File tempDir = manager.tempDir();
     assertThat(tempDir).isDirectory().exists();
-    assertThat(cachesManager.persistit()).isNotNull();
-    assertThat(cachesManager.persistit().isInitialized()).isTrue();
+    assertThat(manager.persistit()).isNotNull();
+    assertThat(manager.persistit().isInitialized()).isTrue();
 
-    cachesManager.stop();
+    manager.stop();
 
     assertThat(tempDir).doesNotExist();
-    assertThat(cachesManager.tempDir()).isNull();
-    assertThat(cachesManager.persistit()).isNull();
+    assertThat(manager.tempDir()).isNull();
+    assertThat(manager.persistit()).isNull();
+  }
+
+  @Test
+  public void persistit_is_the_default_engine() {
+    StoragesManager manager = createCacheOnTemp(Collections.emptyMap());
+    try {
+      assertThat(manager.engine()).isEqualTo("persistit");
+      StorageEngine engine = manager.createEngine();
+      assertThat(engine).isInstanceOf(PersistitStorageEngine.class);
+      engine.close();
+    } finally {
+      manager.stop();
+    }
+  }
+
+  @Test
+  public void engine_is_defined_by_property() {
+    StoragesManager manager = createCacheOnTemp(ImmutableMap.of(StoragesManager.ENGINE_PROPERTY, "offHeap"));
+    try {
+      StorageEngine engine = manager.createEngine();
+      assertThat(engine).isInstanceOf(OffHeapStorageEngine.class);
+      assertThat(engine.getKey()).isEqualTo("offHeap");
+      engine.close();
+    } finally {
+      manager.stop();
+    }
+  }
+
+  @Test
+  public void fail_if_engine_is_not_supported() {
+    thrown.expect(MessageException.class);
+    thrown.expectMessage("Unsupported storage engine 'mapdb' in property sonar.scanner.storage.engine. Supported values are: persistit, offHeap");
+
+    createCacheOnTemp(ImmutableMap.of(StoragesManager.ENGINE_PROPERTY, "mapdb"));
+  }
+
+  @Test
+  public void fail_if_spill_threshold_is_not_a_positive_number() {
+    thrown.expect(MessageException.class);
+    thrown.expectMessage("Value '-1' of property sonar.scanner.storage.offHeap.spillThreshold is invalid. It must be a positive number of MB.");
+
+    createCacheOnTemp(ImmutableMap.of(StoragesManager.SPILL_THRESHOLD_PROPERTY, "-1"));
   }
 }
@@ -27,26 +27,50 @@ import java.io.File;
 public class FileStructure {
 
   public enum Domain {
-    ISSUES("issues-", Domain.PB),
-    COMPONENT("component-", Domain.PB),
-    MEASURES("measures-", Domain.PB),
-    DUPLICATIONS("duplications-", Domain.PB),
-    CPD_TEXT_BLOCKS("cpd-text-block-", Domain.PB),
-    SYNTAX_HIGHLIGHTINGS("syntax-highlightings-", Domain.PB),
-    CHANGESETS("changesets-", Domain.PB),
-    SYMBOLS("symbols-", Domain.PB),
-    COVERAGES("coverages-", Domain.PB),
-    TESTS("tests-", Domain.PB),
-    COVERAGE_DETAILS("coverage-details-", Domain.PB),
-    SOURCE("source-", ".txt");
+    ISSUES("issues-", Domain.PB, true),
+    COMPONENT("component-", Domain.PB, true),
+    MEASURES("measures-", Domain.PB, true),
+    DUPLICATIONS("duplications-", Domain.PB, true),
+    CPD_TEXT_BLOCKS("cpd-text-block-", Domain.PB, true),
+    SYNTAX_HIGHLIGHTINGS("syntax-highlightings-", Domain.PB, true),
+    CHANGESETS("changesets-", Domain.PB, true),
+    SYMBOLS("symbols-", Domain.PB, true),
+    COVERAGES("coverages-", Domain.PB, true),
+    TESTS("tests-", Domain.PB, false),
+    COVERAGE_DETAILS("coverage-details-", Domain.PB, false),
+    SOURCE("source-", ".txt", false);
 
     private static final String PB = ".pb";
     private final String filePrefix;
     private final String fileSuffix;
+    private final boolean packable;
 
-    Domain(String filePrefix, String fileSuffix) {
+    Domain(String filePrefix, String fileSuffix, boolean packable) {
       this.filePrefix = filePrefix;
       this.fileSuffix = fileSuffix;
+      this.packable = packable;
+    }
+
+    /**
+     * Whether files of this domain are moved to {@link #packedComponents()} when the report is packed.
+     * Other files are given as is to the readers.
+     */
+    public boolean isPackable() {
+      return packable;
+    }
+
+    /**
+     * Reference of the component of the given file of this domain, or -1 if the file is not of this domain.
+     */
+    int componentRefOf(String fileName) {
+      if (!fileName.startsWith(filePrefix) || !fileName.endsWith(fileSuffix)) {
+        return -1;
+      }
+      String ref = fileName.substring(filePrefix.length(), fileName.length() - fileSuffix.length());
+      if (ref.isEmpty() || !ref.chars().allMatch(Character::isDigit) || ref.length() > 9) {
+        return -1;
+      }
+      return Integer.parseInt(ref);
     }
   }
 
@@ -75,6 +99,13 @@ public class FileStructure {
     return new File(dir, domain.filePrefix + componentRef + domain.fileSuffix);
   }
 
+  /**
+   * Data of the components, see {@link PackedComponents}
+   */
+  public File packedComponents() {
+    return new File(dir, "components.pack");
+  }
+
   public File contextProperties() {
     return new File(dir, "context-props.pb");
   }
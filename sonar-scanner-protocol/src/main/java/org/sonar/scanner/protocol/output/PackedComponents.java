@@ -0,0 +1,265 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+
+import static java.lang.String.format;
+
+/**
+ * Data of all the components of the report, packed in a single file with an index, so that the report is not
+ * made of thousands of small files and that the Compute Engine can read the data of a component from a
+ * memory-mapped file, at any time and in any order.
+ * <p>
+ * The file starts with the index: a header (magic number, version and number of entries) followed by, for each
+ * entry, the name of its {@link FileStructure.Domain}, the reference of the component, the offset of the data
+ * and its length. Data of an entry is the content of the file that it replaces. Data of an entry never overlaps
+ * two segments of {@link #SEGMENT_SIZE} bytes, so that each segment can be mapped separately, even when the whole
+ * file can't.
+ */
+class PackedComponents {
+
+  static final int SEGMENT_SIZE = 1 << 30;
+  private static final int MAGIC = 0x53525043;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 12;
+  // offset (long) and length (int) of an entry, in addition to the domain and the component reference
+  private static final int ENTRY_POSITION_SIZE = 12;
+
+  private final File file;
+  private final MappedByteBuffer[] segments;
+  private final Map<Long, Entry> entries;
+
+  private PackedComponents(File file, MappedByteBuffer[] segments, Map<Long, Entry> entries) {
+    this.file = file;
+    this.segments = segments;
+    this.entries = entries;
+  }
+
+  /**
+   * Moves the files of the domains which are {@link FileStructure.Domain#isPackable() packable} to
+   * {@link FileStructure#packedComponents()}. Files which would be bigger than a segment are kept as is.
+   */
+  static void pack(FileStructure fileStructure) {
+    List<Entry> toPack = listFilesToPack(fileStructure.root());
+    if (toPack.isEmpty()) {
+      return;
+    }
+    File packedFile = fileStructure.packedComponents();
+    File tempFile = new File(packedFile.getParentFile(), packedFile.getName() + ".tmp");
+    try {
+      byte[] index = writeIndex(toPack);
+      if (index.length > SEGMENT_SIZE) {
+        // too many components, the index would not be readable. Files are kept as is.
+        return;
+      }
+      try (FileChannel output = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+        writeFully(output, ByteBuffer.wrap(index), 0L);
+        for (Entry entry : toPack) {
+          try (FileChannel input = FileChannel.open(entry.source.toPath(), StandardOpenOption.READ)) {
+            long copied = 0L;
+            while (copied < entry.length) {
+              copied += output.transferFrom(input, entry.offset + copied, entry.length - copied);
+            }
+          }
+        }
+      }
+      Files.move(tempFile.toPath(), packedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to pack report files into " + packedFile, e);
+    } finally {
+      tempFile.delete();
+    }
+    for (Entry entry : toPack) {
+      entry.source.delete();
+    }
+  }
+
+  private static List<Entry> listFilesToPack(File dir) {
+    List<Entry> toPack = new ArrayList<>();
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return toPack;
+    }
+    for (File f : files) {
+      if (!f.isFile() || f.length() > SEGMENT_SIZE) {
+        continue;
+      }
+      for (FileStructure.Domain domain : FileStructure.Domain.values()) {
+        int componentRef = domain.isPackable() ? domain.componentRefOf(f.getName()) : -1;
+        if (componentRef >= 0) {
+          toPack.add(new Entry(domain, componentRef, f, (int) f.length()));
+          break;
+        }
+      }
+    }
+    return toPack;
+  }
+
+  /**
+   * Computes the offsets of the entries and returns the index
+   */
+  private static byte[] writeIndex(List<Entry> toPack) throws IOException {
+    long indexSize = HEADER_SIZE;
+    for (Entry entry : toPack) {
+      // domain names are ASCII, written with their length on two bytes
+      indexSize += 2 + entry.domain.name().length() + 4 + ENTRY_POSITION_SIZE;
+    }
+    long position = indexSize;
+    for (Entry entry : toPack) {
+      long segmentEnd = (position / SEGMENT_SIZE + 1) * SEGMENT_SIZE;
+      if (position + entry.length > segmentEnd) {
+        position = segmentEnd;
+      }
+      entry.offset = position;
+      position += entry.length;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) Math.min(indexSize, Integer.MAX_VALUE - 8));
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      output.writeInt(toPack.size());
+      for (Entry entry : toPack) {
+        output.writeUTF(entry.domain.name());
+        output.writeInt(entry.componentRef);
+        output.writeLong(entry.offset);
+        output.writeInt(entry.length);
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    long written = 0L;
+    while (buffer.hasRemaining()) {
+      written += channel.write(buffer, position + written);
+    }
+  }
+
+  /**
+   * Maps the file in memory and loads its index
+   */
+  static PackedComponents open(File file) {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+      for (int i = 0; i < segments.length; i++) {
+        long start = (long) i * SEGMENT_SIZE;
+        // mapping stays valid after the channel is closed
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+      }
+      if (segments.length == 0) {
+        throw new IllegalStateException("Packed report file is empty: " + file);
+      }
+      return new PackedComponents(file, segments, readIndex(file, segments[0].duplicate()));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read packed report file " + file, e);
+    }
+  }
+
+  private static Map<Long, Entry> readIndex(File file, ByteBuffer buffer) {
+    if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+      throw new IllegalStateException("Unsupported format of packed report file " + file);
+    }
+    int count = buffer.getInt();
+    Map<Long, Entry> entries = new HashMap<>(count * 4 / 3 + 1);
+    byte[] name = new byte[64];
+    for (int i = 0; i < count; i++) {
+      int nameLength = buffer.getShort() & 0xFFFF;
+      if (nameLength > name.length) {
+        throw new IllegalStateException(format("Corrupted entry #%d in packed report file %s", i, file));
+      }
+      buffer.get(name, 0, nameLength);
+      FileStructure.Domain domain = FileStructure.Domain.valueOf(new String(name, 0, nameLength, StandardCharsets.US_ASCII));
+      Entry entry = new Entry(domain, buffer.getInt(), null, 0);
+      entry.offset = buffer.getLong();
+      entry.length = buffer.getInt();
+      entries.put(key(domain, entry.componentRef), entry);
+    }
+    return entries;
+  }
+
+  /**
+   * Returns a read-only view of the data of the component, or {@code null} if the data is not packed.
+   * Can be called concurrently.
+   */
+  @CheckForNull
+  ByteBuffer get(FileStructure.Domain domain, int componentRef) {
+    Entry entry = entries.get(key(domain, componentRef));
+    if (entry == null) {
+      return null;
+    }
+    int segment = (int) (entry.offset / SEGMENT_SIZE);
+    int start = (int) (entry.offset % SEGMENT_SIZE);
+    if (segment >= segments.length || start + entry.length > segments[segment].capacity()) {
+      throw new IllegalStateException(format("Corrupted data of component #%d in packed report file %s", componentRef, file));
+    }
+    ByteBuffer data = segments[segment].duplicate();
+    data.limit(start + entry.length);
+    data.position(start);
+    return data.slice().asReadOnlyBuffer();
+  }
+
+  boolean contains(FileStructure.Domain domain, int componentRef) {
+    return entries.containsKey(key(domain, componentRef));
+  }
+
+  /**
+   * Length in bytes of the data of the component, as written in the index, or -1 if the data is not packed
+   */
+  int length(FileStructure.Domain domain, int componentRef) {
+    Entry entry = entries.get(key(domain, componentRef));
+    return entry == null ? -1 : entry.length;
+  }
+
+  private static long key(FileStructure.Domain domain, int componentRef) {
+    return ((long) domain.ordinal() << 32) | componentRef;
+  }
+
+  private static class Entry {
+    private final FileStructure.Domain domain;
+    private final int componentRef;
+    private final File source;
+    private int length;
+    private long offset;
+
+    private Entry(FileStructure.Domain domain, int componentRef, File source, int length) {
+      this.domain = domain;
+      this.componentRef = componentRef;
+      this.source = source;
+      this.length = length;
+    }
+  }
+}
@@ -140,6 +140,15 @@ public class ScannerReportWriter {
     return file;
   }
 
+  /**
+   * Packs the data of components in a single file, see {@link PackedComponents}. Data of components
+   * must not be written after this call.
+   */
+  public File pack() {
+    PackedComponents.pack(fileStructure);
+    return fileStructure.packedComponents();
+  }
+
   public File getSourceFile(int componentRef) {
     return fileStructure.fileFor(FileStructure.Domain.SOURCE, componentRef);
   }
@@ -0,0 +1,113 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PackedComponentsTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private FileStructure fileStructure;
+
+  @Before
+  public void setUp() throws Exception {
+    fileStructure = new FileStructure(temp.newFolder());
+  }
+
+  @Test
+  public void pack_files_of_packable_domains() throws Exception {
+    FileUtils.writeByteArrayToFile(fileStructure.fileFor(FileStructure.Domain.ISSUES, 1), new byte[] {1, 2, 3});
+    FileUtils.writeByteArrayToFile(fileStructure.fileFor(FileStructure.Domain.COVERAGES, 1), new byte[] {4});
+    FileUtils.writeByteArrayToFile(fileStructure.fileFor(FileStructure.Domain.ISSUES, 12), new byte[0]);
+    FileUtils.writeByteArrayToFile(fileStructure.fileFor(FileStructure.Domain.TESTS, 1), new byte[] {5});
+    FileUtils.write(fileStructure.fileFor(FileStructure.Domain.SOURCE, 1), "source");
+    FileUtils.writeByteArrayToFile(fileStructure.metadataFile(), new byte[] {6});
+
+    PackedComponents.pack(fileStructure);
+
+    assertThat(fileStructure.packedComponents()).exists();
+    assertThat(fileStructure.fileFor(FileStructure.Domain.ISSUES, 1)).doesNotExist();
+    assertThat(fileStructure.fileFor(FileStructure.Domain.COVERAGES, 1)).doesNotExist();
+    assertThat(fileStructure.fileFor(FileStructure.Domain.ISSUES, 12)).doesNotExist();
+    assertThat(fileStructure.fileFor(FileStructure.Domain.TESTS, 1)).exists();
+    assertThat(fileStructure.fileFor(FileStructure.Domain.SOURCE, 1)).exists();
+    assertThat(fileStructure.metadataFile()).exists();
+
+    PackedComponents underTest = PackedComponents.open(fileStructure.packedComponents());
+    assertThat(bytes(underTest.get(FileStructure.Domain.ISSUES, 1))).containsExactly(new byte[] {1, 2, 3});
+    assertThat(bytes(underTest.get(FileStructure.Domain.COVERAGES, 1))).containsExactly(new byte[] {4});
+    assertThat(bytes(underTest.get(FileStructure.Domain.ISSUES, 12))).isEmpty();
+    assertThat(underTest.contains(FileStructure.Domain.ISSUES, 12)).isTrue();
+    assertThat(underTest.get(FileStructure.Domain.ISSUES, 2)).isNull();
+    assertThat(underTest.get(FileStructure.Domain.TESTS, 1)).isNull();
+    assertThat(underTest.contains(FileStructure.Domain.SYMBOLS, 1)).isFalse();
+    assertThat(underTest.length(FileStructure.Domain.ISSUES, 1)).isEqualTo(3);
+    assertThat(underTest.length(FileStructure.Domain.ISSUES, 12)).isEqualTo(0);
+    assertThat(underTest.length(FileStructure.Domain.ISSUES, 2)).isEqualTo(-1);
+  }
+
+  @Test
+  public void do_not_create_file_if_nothing_to_pack() {
+    PackedComponents.pack(fileStructure);
+
+    assertThat(fileStructure.packedComponents()).doesNotExist();
+  }
+
+  @Test
+  public void ignore_files_which_are_not_data_of_components() throws Exception {
+    File notAComponent = new File(fileStructure.root(), "issues-foo.pb");
+    FileUtils.write(notAComponent, "foo");
+
+    PackedComponents.pack(fileStructure);
+
+    assertThat(notAComponent).exists();
+    assertThat(fileStructure.packedComponents()).doesNotExist();
+  }
+
+  @Test
+  public void fail_to_open_file_with_unsupported_format() throws Exception {
+    FileUtils.write(fileStructure.packedComponents(), "not a packed report");
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Unsupported format of packed report file");
+
+    PackedComponents.open(fileStructure.packedComponents());
+  }
+
+  private static byte[] bytes(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return bytes;
+  }
+}
@@ -88,6 +88,42 @@ public class ScannerReportReaderTest {
     assertThat(underTest.readComponent(1).getPath()).isEqualTo("src/main/java/Foo.java");
   }
 
+  @Test
+  public void read_packed_report() {
+    ScannerReportWriter writer = new ScannerReportWriter(dir);
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).setPath("src/main/java/Foo.java").build());
+    writer.writeComponentIssues(1, asList(ScannerReport.Issue.newBuilder().setMsg("issue 1").build(), ScannerReport.Issue.newBuilder().setMsg("issue 2").build()));
+    writer.writeComponentCoverage(1, singletonList(ScannerReport.LineCoverage.newBuilder().setLine(1).setHits(true).build()));
+    writer.pack();
+
+    assertThat(writer.hasComponentData(FileStructure.Domain.COMPONENT, 1)).isFalse();
+    assertThat(underTest.readComponent(1).getPath()).isEqualTo("src/main/java/Foo.java");
+    assertThat(underTest.readComponentIssues(1)).extracting(ScannerReport.Issue::getMsg).containsExactly("issue 1", "issue 2");
+    assertThat(underTest.hasCoverage(1)).isTrue();
+    assertThat(underTest.readComponentCoverage(1)).hasSize(1);
+    assertThat(underTest.hasSyntaxHighlighting(1)).isFalse();
+    assertThat(underTest.readComponentSymbols(1)).isEmpty();
+    assertThat(underTest.readChangesets(1)).isNull();
+  }
+
+  @Test
+  public void size_of_component_data() {
+    ScannerReportWriter writer = new ScannerReportWriter(dir);
+    writer.writeComponentIssues(1, asList(ScannerReport.Issue.newBuilder().setMsg("issue 1").build(), ScannerReport.Issue.newBuilder().setMsg("issue 2").build()));
+    writer.writeComponentCoverage(1, singletonList(ScannerReport.LineCoverage.newBuilder().setLine(1).setHits(true).build()));
+    long issuesSize = writer.getFileStructure().fileFor(FileStructure.Domain.ISSUES, 1).length();
+    long coverageSize = writer.getFileStructure().fileFor(FileStructure.Domain.COVERAGES, 1).length();
+
+    assertThat(underTest.sizeOf(FileStructure.Domain.ISSUES, 1)).isEqualTo(issuesSize).isGreaterThan(0L);
+    assertThat(underTest.sizeOf(FileStructure.Domain.SYMBOLS, 1)).isEqualTo(0L);
+
+    writer.pack();
+
+    assertThat(underTest.sizeOf(FileStructure.Domain.ISSUES, 1)).isEqualTo(issuesSize);
+    assertThat(underTest.sizeOf(FileStructure.Domain.COVERAGES, 1)).isEqualTo(coverageSize);
+    assertThat(underTest.sizeOf(FileStructure.Domain.SYMBOLS, 1)).isEqualTo(0L);
+  }
+
   @Test(expected = IllegalStateException.class)
   public void fail_if_missing_file_on_component() {
     underTest.readComponent(UNKNOWN_COMPONENT_REF);
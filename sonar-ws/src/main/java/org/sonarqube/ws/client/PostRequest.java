@@ -20,8 +20,11 @@
 package org.sonarqube.ws.client;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import javax.annotation.CheckForNull;
 
 /**
  * @since 5.3
@@ -51,19 +54,57 @@ public class PostRequest extends BaseRequest<PostRequest> {
   public static class Part {
     private final String mediaType;
     private final File file;
+    private final StreamedContent content;
 
     public Part(String mediaType, File file) {
       this.mediaType = mediaType;
       this.file = file;
+      this.content = null;
+    }
+
+    /**
+     * Part whose content is generated while the request is being sent, without knowing its length in advance.
+     * The request body is then sent with chunked transfer encoding.
+     * @since 6.4
+     */
+    public Part(String mediaType, StreamedContent content) {
+      this.mediaType = mediaType;
+      this.file = null;
+      this.content = content;
     }
 
     public String getMediaType() {
       return mediaType;
     }
 
+    /**
+     * @return {@code null} if the content of the part is streamed
+     */
+    @CheckForNull
     public File getFile() {
       return file;
     }
+
+    /**
+     * @return {@code null} if the content of the part is a file
+     * @since 6.4
+     */
+    @CheckForNull
+    public StreamedContent getContent() {
+      return content;
+    }
+  }
+
+  /**
+   * @since 6.4
+   */
+  @FunctionalInterface
+  public interface StreamedContent {
+    /**
+     * Writes the content. Can be called several times if the request is retried. The output stream
+     * must not be closed.
+     */
+    void writeTo(OutputStream output) throws IOException;
   }
 
 }
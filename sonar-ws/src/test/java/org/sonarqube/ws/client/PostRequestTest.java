@@ -56,5 +56,18 @@ public class PostRequestTest {
     PostRequest.Part part = request.getParts().get("report");
     assertThat(part.getMediaType()).isEqualTo(MediaTypes.JSON);
     assertThat(part.getFile()).isSameAs(reportFile);
+    assertThat(part.getContent()).isNull();
+  }
+
+  @Test
+  public void add_streamed_part() {
+    PostRequest request = new PostRequest("api/issues/search");
+    PostRequest.StreamedContent content = output -> output.write(42);
+    request.setPart("report", new PostRequest.Part(MediaTypes.ZIP, content));
+
+    PostRequest.Part part = request.getParts().get("report");
+    assertThat(part.getMediaType()).isEqualTo(MediaTypes.ZIP);
+    assertThat(part.getContent()).isSameAs(content);
+    assertThat(part.getFile()).isNull();
   }
 }